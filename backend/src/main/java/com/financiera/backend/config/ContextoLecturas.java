@@ -0,0 +1,41 @@
+package com.financiera.backend.config;
+
+/**
+ * Estado por hilo que el filtro de lectura propia comparte con el enrutador de conexiones:
+ * si las lecturas de la petición deben ir a la primaria y qué hacer cuando la petición escribe.
+ */
+final class ContextoLecturas {
+
+    private static final ThreadLocal<ContextoLecturas> ACTUAL = new ThreadLocal<>();
+
+    private final boolean primariaForzada;
+    private Runnable alEscribir;
+
+    private ContextoLecturas(boolean primariaForzada, Runnable alEscribir) {
+        this.primariaForzada = primariaForzada;
+        this.alEscribir = alEscribir;
+    }
+
+    static void iniciar(boolean primariaForzada, Runnable alEscribir) {
+        ACTUAL.set(new ContextoLecturas(primariaForzada, alEscribir));
+    }
+
+    static void terminar() {
+        ACTUAL.remove();
+    }
+
+    static boolean primariaForzada() {
+        ContextoLecturas contexto = ACTUAL.get();
+        return contexto != null && contexto.primariaForzada;
+    }
+
+    // Se llama al entregar una conexión de escritura; el aviso se da una sola vez por petición
+    static void registrarEscritura() {
+        ContextoLecturas contexto = ACTUAL.get();
+        if (contexto != null && contexto.alEscribir != null) {
+            Runnable alEscribir = contexto.alEscribir;
+            contexto.alEscribir = null;
+            alEscribir.run();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.financiera.backend.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Entrega conexiones de una réplica a las transacciones de solo lectura y de la primaria a todo lo demás.
+ *
+ * Debe usarse detrás de un LazyConnectionDataSourceProxy: el administrador de transacciones marca la
+ * transacción como de solo lectura después de pedir la conexión, y el proxy retrasa el pedido real hasta
+ * la primera sentencia, cuando la marca ya está puesta.
+ *
+ * Una réplica sale de la rotación si no entrega una conexión o si su retraso de replicación supera el
+ * máximo, y vuelve cuando la verificación periódica la encuentra al día. Sin réplicas disponibles las
+ * lecturas van a la primaria.
+ */
+@Slf4j
+public class DataSourceEnrutado extends AbstractDataSource implements AutoCloseable {
+
+    // Sin WAL pendiente de aplicar el retraso es cero aunque la última transacción replicada sea antigua.
+    // En un servidor que no es réplica ambas funciones retornan NULL y el resultado también es cero.
+    private static final String SQL_RETRASO_MS = """
+            SELECT CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                        ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0)
+                   END
+            """;
+
+    private final DataSource primaria;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final Duration retrasoMaximo;
+    private final AtomicInteger turno = new AtomicInteger();
+    private final ScheduledExecutorService verificador;
+    private final Counter lecturasReplica;
+    private final Counter lecturasPrimaria;
+
+    public DataSourceEnrutado(DataSource primaria,
+                              Map<String, DataSource> replicas,
+                              Duration intervaloVerificacion,
+                              Duration retrasoMaximo,
+                              MeterRegistry meterRegistry) {
+        this.primaria = primaria;
+        this.retrasoMaximo = retrasoMaximo;
+        replicas.forEach((nombre, dataSource) -> this.replicas.add(new Replica(nombre, dataSource)));
+
+        for (Replica replica : this.replicas) {
+            Gauge.builder("datasource.replicas.disponible", replica, r -> r.disponible ? 1 : 0)
+                    .tag("replica", replica.nombre)
+                    .register(meterRegistry);
+        }
+        this.lecturasReplica = Counter.builder("datasource.lecturas")
+                .tag("destino", "replica")
+                .register(meterRegistry);
+        this.lecturasPrimaria = Counter.builder("datasource.lecturas")
+                .tag("destino", "primaria")
+                .register(meterRegistry);
+
+        this.verificador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "verificador-replicas");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        // Las réplicas empiezan en rotación; una que no responda sale con el primer pedido de conexión
+        verificador.scheduleWithFixedDelay(this::verificarReplicas,
+                intervaloVerificacion.toMillis(), intervaloVerificacion.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return conectar(DataSource::getConnection);
+    }
+
+    // Se enruta igual que getConnection(). Un pool que no acepta credenciales por pedido (Hikari, por ejemplo)
+    // lanza SQLFeatureNotSupportedException; en una réplica eso no la saca de rotación, la lectura va a la primaria
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return conectar(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    // Visible para las pruebas, que la llaman sin esperar al intervalo
+    void verificarReplicas() {
+        for (Replica replica : replicas) {
+            try (Connection conexion = replica.dataSource.getConnection();
+                 Statement sentencia = conexion.createStatement()) {
+                sentencia.setQueryTimeout(5);
+                try (ResultSet rs = sentencia.executeQuery(SQL_RETRASO_MS)) {
+                    rs.next();
+                    long retrasoMs = rs.getLong(1);
+                    if (retrasoMs > retrasoMaximo.toMillis()) {
+                        marcarNoDisponible(replica, "retraso de replicación de " + retrasoMs + " ms");
+                    } else if (!replica.disponible) {
+                        replica.disponible = true;
+                        log.info("Réplica {} disponible de nuevo", replica.nombre);
+                    }
+                }
+            } catch (SQLException | RuntimeException ex) {
+                marcarNoDisponible(replica, ex.getMessage());
+            }
+        }
+    }
+
+    boolean disponible(String nombre) {
+        return replicas.stream().anyMatch(replica -> replica.nombre.equals(nombre) && replica.disponible);
+    }
+
+    @Override
+    public void close() throws Exception {
+        verificador.shutdownNow();
+        // La primaria es un bean aparte y Spring la cierra; los pools de las réplicas solo existen aquí
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable cerrable) {
+                cerrable.close();
+            }
+        }
+    }
+
+    // Metodos auxiliares
+
+    private Connection conectar(Conexion conexion) throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                ContextoLecturas.registrarEscritura();
+            }
+            return conexion.abrir(primaria);
+        }
+
+        if (!ContextoLecturas.primariaForzada()) {
+            // Si la réplica elegida falla se prueba la siguiente; después de recorrerlas todas, la primaria
+            for (int intento = 0; intento < replicas.size(); intento++) {
+                Replica replica = siguienteDisponible();
+                if (replica == null) {
+                    break;
+                }
+                try {
+                    Connection abierta = conexion.abrir(replica.dataSource);
+                    lecturasReplica.increment();
+                    return abierta;
+                } catch (SQLFeatureNotSupportedException ex) {
+                    break;
+                } catch (SQLException ex) {
+                    marcarNoDisponible(replica, ex.getMessage());
+                }
+            }
+        }
+
+        lecturasPrimaria.increment();
+        return conexion.abrir(primaria);
+    }
+
+    private Replica siguienteDisponible() {
+        int cantidad = replicas.size();
+        int inicio = Math.floorMod(turno.getAndIncrement(), Math.max(cantidad, 1));
+        for (int i = 0; i < cantidad; i++) {
+            Replica replica = replicas.get((inicio + i) % cantidad);
+            if (replica.disponible) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private static void marcarNoDisponible(Replica replica, String motivo) {
+        if (replica.disponible) {
+            replica.disponible = false;
+            log.warn("Réplica {} fuera de rotación: {}", replica.nombre, motivo);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Conexion {
+        Connection abrir(DataSource dataSource) throws SQLException;
+    }
+
+    private static final class Replica {
+
+        private final String nombre;
+        private final DataSource dataSource;
+        private volatile boolean disponible = true;
+
+        private Replica(String nombre, DataSource dataSource) {
+            this.nombre = nombre;
+            this.dataSource = dataSource;
+        }
+    }
+}
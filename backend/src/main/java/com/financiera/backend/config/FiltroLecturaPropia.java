@@ -0,0 +1,65 @@
+package com.financiera.backend.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Lectura de lo propio escrito: cuando una petición escribe, la respuesta lleva una cookie que vence al
+ * terminar la ventana configurada, y mientras el cliente la envíe sus lecturas van a la primaria. Así un
+ * cliente no deja de ver sus propios cambios por el retraso de las réplicas.
+ *
+ * La marca viaja con el cliente y no en memoria del servidor, por lo que sirve igual con varios nodos.
+ */
+public class FiltroLecturaPropia extends OncePerRequestFilter {
+
+    static final String COOKIE = "lectura_primaria";
+
+    private final Duration ventana;
+
+    public FiltroLecturaPropia(Duration ventana) {
+        this.ventana = ventana;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (ventana.isZero() || ventana.isNegative()) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        // La cookie se agrega en la primera escritura, cuando el cuerpo de la respuesta aún no se ha enviado
+        ContextoLecturas.iniciar(tieneCookie(request), () -> {
+            Cookie cookie = new Cookie(COOKIE, "1");
+            cookie.setMaxAge((int) Math.max(1, ventana.toSeconds()));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            response.addCookie(cookie);
+        });
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ContextoLecturas.terminar();
+        }
+    }
+
+    private static boolean tieneCookie(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return false;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE.equals(cookie.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,68 @@
+package com.financiera.backend.config;
+
+import com.financiera.backend.dto.ResultadoImportacionDTO;
+import com.financiera.backend.service.ImportacionClientesService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Importación masiva sin pasar por HTTP. Se activa con la propiedad financiera.importacion.archivo
+ * y termina la aplicación al acabar:
+ *
+ * java -jar backend.jar --spring.main.web-application-type=none \
+ *      --financiera.importacion.archivo=clientes.csv [--financiera.importacion.rechazos=rechazos.csv]
+ *
+ * El formato se deduce de la extensión (.ndjson o .jsonl para NDJSON, cualquier otra para CSV) y
+ * puede fijarse con financiera.importacion.formato. El código de salida es 0 si todas las filas
+ * se importaron y 2 si hubo rechazos.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty("financiera.importacion.archivo")
+@RequiredArgsConstructor
+public class ImportacionLineaComandos implements ApplicationRunner {
+
+    private final ImportacionClientesService importacionClientesService;
+    private final ConfigurableApplicationContext contexto;
+    private final Environment environment;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        Path archivo = Path.of(environment.getRequiredProperty("financiera.importacion.archivo"));
+        Path rechazos = Path.of(environment.getProperty("financiera.importacion.rechazos",
+                archivo + ".rechazos.csv"));
+        ImportacionClientesService.Formato formato = environment.getProperty("financiera.importacion.formato",
+                ImportacionClientesService.Formato.class, formatoPorExtension(archivo));
+
+        ResultadoImportacionDTO resultado;
+        try (InputStream entrada = Files.newInputStream(archivo)) {
+            resultado = importacionClientesService.importar(entrada, formato, rechazos);
+        }
+
+        log.info("Clientes creados: {}, cuentas creadas: {}, filas rechazadas: {}{}",
+                resultado.getClientesCreados(), resultado.getCuentasCreadas(), resultado.getFilasRechazadas(),
+                resultado.getArchivoRechazos() == null ? "" : " (ver " + resultado.getArchivoRechazos() + ")");
+
+        int codigo = resultado.getFilasRechazadas() == 0 ? 0 : 2;
+        System.exit(SpringApplication.exit(contexto, () -> codigo));
+    }
+
+    private static ImportacionClientesService.Formato formatoPorExtension(Path archivo) {
+        String nombre = archivo.getFileName().toString().toLowerCase(Locale.ROOT);
+        return nombre.endsWith(".ndjson") || nombre.endsWith(".jsonl")
+                ? ImportacionClientesService.Formato.NDJSON
+                : ImportacionClientesService.Formato.CSV;
+    }
+}
@@ -0,0 +1,60 @@
+package com.financiera.backend.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cuenta por operación los intentos, los conflictos de concurrencia y las operaciones que
+ * agotaron los reintentos. Una tasa de conflictos alta sobre una operación indica cuentas
+ * demasiado calientes para el esquema optimista.
+ */
+@Component("metricasReintentosListener")
+@RequiredArgsConstructor
+public class MetricasReintentosListener implements RetryListener {
+
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public <T, E extends Throwable> void onError(RetryContext context, RetryCallback<T, E> callback,
+                                                 Throwable throwable) {
+        if (throwable instanceof ConcurrencyFailureException) {
+            meterRegistry.counter("transacciones.reintentos.conflictos",
+                    "operacion", nombreOperacion(context)).increment();
+        }
+    }
+
+    @Override
+    public <T, E extends Throwable> void close(RetryContext context, RetryCallback<T, E> callback,
+                                               Throwable throwable) {
+        // getRetryCount cuenta los intentos fallidos; si terminó bien falta sumar el exitoso
+        int intentos = context.getRetryCount() + (throwable == null ? 1 : 0);
+        String operacion = nombreOperacion(context);
+
+        meterRegistry.counter("transacciones.reintentos.intentos", "operacion", operacion)
+                .increment(intentos);
+
+        if (throwable instanceof ConcurrencyFailureException) {
+            meterRegistry.counter("transacciones.reintentos.agotados", "operacion", operacion)
+                    .increment();
+        }
+    }
+
+    // El nombre por defecto es la firma completa del método; se conserva solo "Clase.metodo"
+    private String nombreOperacion(RetryContext context) {
+        Object nombre = context.getAttribute(RetryContext.NAME);
+        if (nombre == null) {
+            return "desconocida";
+        }
+
+        String firma = nombre.toString();
+        int parentesis = firma.indexOf('(');
+        String sinParametros = parentesis >= 0 ? firma.substring(0, parentesis) : firma;
+        int inicioClase = sinParametros.lastIndexOf('.', sinParametros.lastIndexOf('.') - 1);
+        return sinParametros.substring(inicioClase + 1);
+    }
+}
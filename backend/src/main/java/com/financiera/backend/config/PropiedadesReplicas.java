@@ -0,0 +1,35 @@
+package com.financiera.backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties("financiera.replicas")
+public class PropiedadesReplicas {
+
+    private boolean habilitadas;
+
+    private List<String> urls = new ArrayList<>();
+
+    // Sin valor se usan las credenciales de spring.datasource
+    private String usuario;
+
+    private String clave;
+
+    private int tamanoPool = 10;
+
+    // Corto a propósito: si una réplica no responde, la lectura pasa a la primaria sin hacer esperar al cliente
+    private Duration tiempoEsperaConexion = Duration.ofSeconds(2);
+
+    private Duration intervaloVerificacion = Duration.ofSeconds(5);
+
+    // Una réplica con más retraso de replicación que este deja de recibir lecturas hasta ponerse al día
+    private Duration retrasoMaximo = Duration.ofSeconds(10);
+
+    // Tiempo durante el cual las lecturas de un cliente que acaba de escribir van a la primaria; cero lo desactiva
+    private Duration ventanaLecturaPropia = Duration.ZERO;
+}
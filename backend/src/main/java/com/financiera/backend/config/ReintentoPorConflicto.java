@@ -0,0 +1,34 @@
+package com.financiera.backend.config;
+
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Reintenta el método cuando falla por un conflicto de concurrencia: bloqueo optimista,
+ * error de serialización o deadlock (todos son {@link ConcurrencyFailureException}).
+ * Las excepciones de negocio, como saldo insuficiente, se propagan sin reintentar.
+ * La espera entre intentos crece exponencialmente con un componente aleatorio.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Retryable(
+        retryFor = ConcurrencyFailureException.class,
+        maxAttemptsExpression = "${financiera.reintentos.max-intentos:4}",
+        backoff = @Backoff(
+                delayExpression = "${financiera.reintentos.retardo-inicial-ms:20}",
+                maxDelayExpression = "${financiera.reintentos.retardo-maximo-ms:500}",
+                multiplierExpression = "${financiera.reintentos.multiplicador:2}",
+                random = true
+        ),
+        listeners = "metricasReintentosListener"
+)
+public @interface ReintentoPorConflicto {
+}
@@ -0,0 +1,11 @@
+package com.financiera.backend.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.retry.annotation.EnableRetry;
+
+// El interceptor de reintentos tiene mayor precedencia que el transaccional,
+// así que cada intento corre en una transacción nueva.
+@Configuration
+@EnableRetry
+public class ReintentosConfig {
+}
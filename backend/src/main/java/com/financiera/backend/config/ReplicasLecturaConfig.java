@@ -0,0 +1,91 @@
+package com.financiera.backend.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Envía las transacciones de solo lectura (@Transactional(readOnly = true)) a réplicas de PostgreSQL.
+ * Se activa con financiera.replicas.habilitadas=true; sin ella la aplicación usa el DataSource de
+ * Spring Boot sin cambios.
+ */
+@Configuration
+@ConditionalOnProperty(name = "financiera.replicas.habilitadas", havingValue = "true")
+@EnableConfigurationProperties(PropiedadesReplicas.class)
+public class ReplicasLecturaConfig {
+
+    // Las propiedades spring.datasource.hikari.* se aplican a la primaria igual que sin réplicas
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSourcePrimaria(DataSourceProperties propiedades,
+                                               ObjectProvider<JdbcConnectionDetails> conexion) {
+        JdbcConnectionDetails detalles = conexion.getIfAvailable();
+        HikariDataSource primaria = detalles == null
+                ? propiedades.initializeDataSourceBuilder().type(HikariDataSource.class).build()
+                : DataSourceBuilder.create()
+                        .type(HikariDataSource.class)
+                        .url(detalles.getJdbcUrl())
+                        .username(detalles.getUsername())
+                        .password(detalles.getPassword())
+                        .build();
+        primaria.setPoolName("primaria");
+        return primaria;
+    }
+
+    @Bean
+    public DataSourceEnrutado dataSourceEnrutado(HikariDataSource dataSourcePrimaria,
+                                                 PropiedadesReplicas propiedades,
+                                                 MeterRegistry meterRegistry) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < propiedades.getUrls().size(); i++) {
+            String nombre = "replica-" + i;
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName(nombre);
+            replica.setJdbcUrl(propiedades.getUrls().get(i));
+            replica.setUsername(propiedades.getUsuario() != null
+                    ? propiedades.getUsuario() : dataSourcePrimaria.getUsername());
+            replica.setPassword(propiedades.getClave() != null
+                    ? propiedades.getClave() : dataSourcePrimaria.getPassword());
+            replica.setReadOnly(true);
+            replica.setMaximumPoolSize(propiedades.getTamanoPool());
+            replica.setConnectionTimeout(propiedades.getTiempoEsperaConexion().toMillis());
+            // Una réplica caída al arrancar no impide iniciar la aplicación; solo queda fuera de rotación
+            replica.setInitializationFailTimeout(-1);
+            replica.addDataSourceProperty("ApplicationName", "financiera-" + nombre);
+            replicas.put(nombre, replica);
+        }
+
+        return new DataSourceEnrutado(dataSourcePrimaria, replicas,
+                propiedades.getIntervaloVerificacion(), propiedades.getRetrasoMaximo(), meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceEnrutado dataSourceEnrutado) {
+        return new LazyConnectionDataSourceProxy(dataSourceEnrutado);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "financiera.replicas.ventana-lectura-propia")
+    public FilterRegistrationBean<FiltroLecturaPropia> filtroLecturaPropia(PropiedadesReplicas propiedades) {
+        FilterRegistrationBean<FiltroLecturaPropia> registro =
+                new FilterRegistrationBean<>(new FiltroLecturaPropia(propiedades.getVentanaLecturaPropia()));
+        registro.addUrlPatterns("/api/*");
+        return registro;
+    }
+}
@@ -0,0 +1,10 @@
+package com.financiera.backend.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Tareas @Scheduled, como la generación de los cierres mensuales
+@Configuration
+@EnableScheduling
+public class TareasProgramadasConfig {
+}
@@ -1,13 +1,19 @@
 package com.financiera.backend.controller;
 
 import com.financiera.backend.dto.ClienteDTO;
+import com.financiera.backend.dto.FiltroClientesDTO;
+import com.financiera.backend.dto.PaginaDTO;
+import com.financiera.backend.dto.ResultadoImportacionDTO;
 import com.financiera.backend.service.ClienteService;
+import com.financiera.backend.service.ImportacionClientesService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -16,6 +22,7 @@ import java.util.List;
 public class ClienteController {
 
     private final ClienteService clienteService;
+    private final ImportacionClientesService importacionClientesService;
 
 
     @PostMapping
@@ -25,6 +32,16 @@ public class ClienteController {
     }
 
 
+    // El cuerpo es el archivo completo (CSV con encabezado o NDJSON) y se lee a medida que llega
+    @PostMapping("/importar")
+    public ResponseEntity<ResultadoImportacionDTO> importarClientes(
+            @RequestParam(defaultValue = "CSV") ImportacionClientesService.Formato formato,
+            InputStream archivo) throws IOException {
+        ResultadoImportacionDTO resultado = importacionClientesService.importar(archivo, formato);
+        return ResponseEntity.ok(resultado);
+    }
+
+
     @GetMapping
     public ResponseEntity<List<ClienteDTO>> obtenerTodosLosClientes() {
         List<ClienteDTO> clientes = clienteService.obtenerTodosLosClientes();
@@ -32,6 +49,17 @@ public class ClienteController {
     }
 
 
+    @GetMapping("/pagina")
+    public ResponseEntity<List<ClienteDTO>> obtenerClientes(FiltroClientesDTO filtro) {
+        PaginaDTO<ClienteDTO> pagina = clienteService.obtenerClientes(filtro);
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok();
+        if (pagina.getSiguienteCursor() != null) {
+            respuesta.header(PaginaDTO.ENCABEZADO_SIGUIENTE_CURSOR, pagina.getSiguienteCursor());
+        }
+        return respuesta.body(pagina.getContenido());
+    }
+
+
     @GetMapping("/{id}")
     public ResponseEntity<ClienteDTO> obtenerClientePorId(@PathVariable Long id) {
         ClienteDTO cliente = clienteService.obtenerClientePorId(id);
@@ -1,13 +1,17 @@
 package com.financiera.backend.controller;
 
 import com.financiera.backend.dto.ProductoDTO;
+import com.financiera.backend.dto.FiltroProductosDTO;
+import com.financiera.backend.dto.PaginaDTO;
 import com.financiera.backend.entity.Producto;
 import com.financiera.backend.service.ProductoService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -33,9 +37,29 @@ public class ProductoController {
     }
 
 
+    @GetMapping("/pagina")
+    public ResponseEntity<List<ProductoDTO>> obtenerProductos(FiltroProductosDTO filtro) {
+        PaginaDTO<ProductoDTO> pagina = productoService.obtenerProductos(filtro);
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok();
+        if (pagina.getSiguienteCursor() != null) {
+            respuesta.header(PaginaDTO.ENCABEZADO_SIGUIENTE_CURSOR, pagina.getSiguienteCursor());
+        }
+        return respuesta.body(pagina.getContenido());
+    }
+
+
+    // Con If-None-Match compara primero solo la versión: si sigue vigente responde 304 sin cargar ni serializar
+    // el producto. Sin él, el ETag sale del producto y no hace falta consultar la versión aparte
     @GetMapping("/{id}")
-    public ResponseEntity<ProductoDTO> obtenerProductoPorId(@PathVariable Long id) {
+    public ResponseEntity<ProductoDTO> obtenerProductoPorId(@PathVariable Long id, WebRequest peticion) {
+        if (peticion.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            if (peticion.checkNotModified(String.valueOf(productoService.obtenerVersionProducto(id)))) {
+                return null;
+            }
+            return ResponseEntity.ok(productoService.obtenerProductoPorId(id));
+        }
         ProductoDTO producto = productoService.obtenerProductoPorId(id);
+        peticion.checkNotModified(String.valueOf(producto.getVersion()));
         return ResponseEntity.ok(producto);
     }
 
@@ -56,6 +80,15 @@ public class ProductoController {
     }
 
 
+    @PatchMapping("/{id}/franjas-saldo")
+    public ResponseEntity<ProductoDTO> configurarFranjas(
+            @PathVariable Long id,
+            @RequestParam int franjas) {
+        ProductoDTO productoActualizado = productoService.configurarFranjas(id, franjas);
+        return ResponseEntity.ok(productoActualizado);
+    }
+
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> eliminarProducto(@PathVariable Long id) {
         productoService.eliminarProducto(id);
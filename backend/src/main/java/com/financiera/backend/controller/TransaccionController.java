@@ -1,13 +1,26 @@
 package com.financiera.backend.controller;
 
 import com.financiera.backend.dto.*;
+import com.financiera.backend.service.CierreMensualService;
+import com.financiera.backend.service.ExportacionEstadoCuentaService;
+import com.financiera.backend.service.LoteTransaccionService;
 import com.financiera.backend.service.TransaccionService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.ETag;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.List;
 
 @RestController
@@ -16,6 +29,12 @@ import java.util.List;
 public class TransaccionController {
 
     private final TransaccionService transaccionService;
+    private final LoteTransaccionService loteTransaccionService;
+    private final ExportacionEstadoCuentaService exportacionEstadoCuentaService;
+    private final CierreMensualService cierreMensualService;
+
+    private static final MediaType TIPO_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+    private static final MediaType TIPO_NDJSON = MediaType.parseMediaType("application/x-ndjson");
 
 
     @PostMapping("/consignacion")
@@ -42,6 +61,14 @@ public class TransaccionController {
     }
 
 
+    @PostMapping("/lote")
+    public ResponseEntity<List<ResultadoOperacionLoteDTO>> procesarLote(
+            @Valid @RequestBody LoteTransaccionesDTO loteDTO) {
+        List<ResultadoOperacionLoteDTO> resultados = loteTransaccionService.procesarLote(loteDTO);
+        return ResponseEntity.ok(resultados);
+    }
+
+
     @GetMapping("/{id}")
     public ResponseEntity<TransaccionDTO> obtenerTransaccionPorId(@PathVariable Long id) {
         TransaccionDTO transaccion = transaccionService.obtenerTransaccionPorId(id);
@@ -49,9 +76,77 @@ public class TransaccionController {
     }
 
     
+    // El ETag es la versión de la cuenta; con If-None-Match vigente responde 304 sin consultar los movimientos
     @GetMapping("/estado-cuenta/{cuentaId}")
-    public ResponseEntity<List<TransaccionDTO>> obtenerEstadoCuenta(@PathVariable Long cuentaId) {
-        List<TransaccionDTO> estadoCuenta = transaccionService.obtenerEstadoCuenta(cuentaId);
-        return ResponseEntity.ok(estadoCuenta);
+    public ResponseEntity<List<TransaccionDTO>> obtenerEstadoCuenta(
+            @PathVariable Long cuentaId, FiltroEstadoCuentaDTO filtro, WebRequest peticion) {
+        String siNoCoincide = peticion.getHeader(HttpHeaders.IF_NONE_MATCH);
+        EstadoCuentaDTO estadoCuenta = transaccionService.obtenerEstadoCuenta(cuentaId, filtro,
+                siNoCoincide == null ? null : version -> coincide(siNoCoincide, version));
+        if (peticion.checkNotModified(String.valueOf(estadoCuenta.getVersion()))) {
+            return null;
+        }
+
+        PaginaDTO<TransaccionDTO> pagina = estadoCuenta.getPagina();
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok();
+        if (pagina.getSiguienteCursor() != null) {
+            respuesta.header(PaginaDTO.ENCABEZADO_SIGUIENTE_CURSOR, pagina.getSiguienteCursor());
+        }
+        return respuesta.body(pagina.getContenido());
+    }
+
+    // Un mes completo (periodo AAAA-MM) con sus saldos de apertura y cierre
+    @GetMapping("/estado-cuenta/{cuentaId}/periodos/{periodo}")
+    public ResponseEntity<PeriodoEstadoCuentaDTO> obtenerPeriodoEstadoCuenta(
+            @PathVariable Long cuentaId, @PathVariable YearMonth periodo) {
+        PeriodoEstadoCuentaDTO estadoPeriodo = cierreMensualService.obtenerPeriodo(cuentaId, periodo);
+        return ResponseEntity.ok(estadoPeriodo);
+    }
+
+    // Saldo de la cuenta en una fecha y hora pasadas (fecha=AAAA-MM-DDTHH:MM:SS)
+    @GetMapping("/saldo-a-fecha/{cuentaId}")
+    public ResponseEntity<SaldoAFechaDTO> obtenerSaldoAFecha(
+            @PathVariable Long cuentaId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fecha) {
+        SaldoAFechaDTO saldo = transaccionService.obtenerSaldoAFecha(cuentaId, fecha);
+        return ResponseEntity.ok(saldo);
+    }
+
+
+    @PostMapping("/saldo-a-fecha")
+    public ResponseEntity<List<SaldoAFechaDTO>> obtenerSaldosAFecha(
+            @Valid @RequestBody ConsultaSaldosAFechaDTO consulta) {
+        List<SaldoAFechaDTO> saldos = transaccionService.obtenerSaldosAFecha(consulta);
+        return ResponseEntity.ok(saldos);
+    }
+
+    // Exportación completa sin paginar: las filas se escriben a medida que se leen de la base
+    @GetMapping("/estado-cuenta/{cuentaId}/exportar")
+    public ResponseEntity<StreamingResponseBody> exportarEstadoCuenta(
+            @PathVariable Long cuentaId,
+            @RequestParam(defaultValue = "CSV") ExportacionEstadoCuentaService.Formato formato,
+            FiltroEstadoCuentaDTO filtro) {
+        exportacionEstadoCuentaService.validarExportacion(cuentaId, filtro);
+
+        boolean csv = formato == ExportacionEstadoCuentaService.Formato.CSV;
+        String archivo = "estado-cuenta-" + cuentaId + (csv ? ".csv" : ".ndjson");
+
+        StreamingResponseBody cuerpo = salida ->
+                exportacionEstadoCuentaService.exportar(cuentaId, filtro, formato, salida);
+
+        return ResponseEntity.ok()
+                .contentType(csv ? TIPO_CSV : TIPO_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(archivo).build().toString())
+                .body(cuerpo);
+    }
+
+    // Metodos auxiliares
+
+    // Misma comparación débil que checkNotModified, sin escribir todavía la respuesta
+    private static boolean coincide(String siNoCoincide, long version) {
+        ETag actual = ETag.create(String.valueOf(version));
+        return ETag.parse(siNoCoincide).stream()
+                .anyMatch(etag -> etag.isWildcard() || etag.compare(actual, false));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,26 @@
+package com.financiera.backend.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConsultaSaldosAFechaDTO {
+
+    public static final int MAXIMO_CUENTAS = 10000;
+
+    @NotNull(message = "La fecha es obligatoria")
+    private LocalDateTime fecha;
+
+    @NotEmpty(message = "Debe indicar al menos una cuenta")
+    @Size(max = MAXIMO_CUENTAS, message = "No se pueden consultar más de " + MAXIMO_CUENTAS + " cuentas a la vez")
+    private List<@NotNull Long> cuentaIds;
+}
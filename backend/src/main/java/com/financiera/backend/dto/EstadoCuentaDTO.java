@@ -0,0 +1,17 @@
+package com.financiera.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstadoCuentaDTO {
+
+    // Versión de la cuenta leída junto con la página; es el ETag de la respuesta
+    private Long version;
+
+    // Null cuando la cuenta no cambió desde la versión que ya tiene quien consulta
+    private PaginaDTO<TransaccionDTO> pagina;
+}
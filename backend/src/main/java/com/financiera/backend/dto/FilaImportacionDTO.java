@@ -0,0 +1,24 @@
+package com.financiera.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.financiera.backend.entity.Producto;
+import jakarta.validation.Valid;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Una fila del archivo de importación: los datos del cliente y, opcionalmente, la cuenta que se le abre
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FilaImportacionDTO {
+
+    @Valid
+    @JsonUnwrapped
+    private ClienteDTO cliente;
+
+    // Sin tipo de cuenta solo se crea el cliente
+    private Producto.TipoCuenta tipoCuenta;
+
+    private Boolean exentaGMF;
+}
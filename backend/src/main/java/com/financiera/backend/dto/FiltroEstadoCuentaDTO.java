@@ -0,0 +1,29 @@
+package com.financiera.backend.dto;
+
+import com.financiera.backend.entity.Transaccion;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FiltroEstadoCuentaDTO {
+
+    // Rango de fechas, ambos extremos incluidos
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate desde;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate hasta;
+
+    private Transaccion.TipoMovimiento tipoMovimiento;
+
+    // Token opaco devuelto por la página anterior
+    private String cursor;
+
+    private Integer tamano;
+}
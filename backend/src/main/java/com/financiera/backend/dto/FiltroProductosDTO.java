@@ -0,0 +1,31 @@
+package com.financiera.backend.dto;
+
+import com.financiera.backend.entity.Producto;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FiltroProductosDTO {
+
+    private Producto.EstadoCuenta estado;
+
+    private Producto.TipoCuenta tipoCuenta;
+
+    // Rango de fecha de creación, ambos extremos incluidos
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate desde;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate hasta;
+
+    // Token opaco devuelto por la página anterior
+    private String cursor;
+
+    private Integer tamano;
+}
@@ -0,0 +1,23 @@
+package com.financiera.backend.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoteTransaccionesDTO {
+
+    public static final int MAXIMO_OPERACIONES = 1000;
+
+    @NotEmpty(message = "El lote debe tener al menos una operación")
+    @Size(max = MAXIMO_OPERACIONES, message = "El lote no puede tener más de " + MAXIMO_OPERACIONES + " operaciones")
+    private List<@Valid @NotNull OperacionLoteDTO> operaciones;
+}
@@ -0,0 +1,27 @@
+package com.financiera.backend.dto;
+
+import com.financiera.backend.entity.Transaccion;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Solo debe venir diligenciado el bloque que corresponde al tipo de transacción
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OperacionLoteDTO {
+
+    @NotNull(message = "El tipo de transacción es obligatorio")
+    private Transaccion.TipoTransaccion tipoTransaccion;
+
+    @Valid
+    private ConsignacionDTO consignacion;
+
+    @Valid
+    private RetiroDTO retiro;
+
+    @Valid
+    private TransferenciaDTO transferencia;
+}
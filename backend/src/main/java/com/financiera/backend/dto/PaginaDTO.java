@@ -0,0 +1,21 @@
+package com.financiera.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaDTO<T> {
+
+    // Los listados paginados devuelven la lista en el cuerpo y el token de la página siguiente en este encabezado
+    public static final String ENCABEZADO_SIGUIENTE_CURSOR = "X-Siguiente-Cursor";
+
+    private List<T> contenido;
+
+    // Null cuando no hay más resultados
+    private String siguienteCursor;
+}
@@ -0,0 +1,29 @@
+package com.financiera.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PeriodoEstadoCuentaDTO {
+
+    private Long cuentaId;
+    private YearMonth periodo;
+    private BigDecimal saldoApertura;
+    private BigDecimal saldoCierre;
+    private BigDecimal totalCreditos;
+    private BigDecimal totalDebitos;
+    private Long cantidadMovimientos;
+
+    // false para el mes en curso: el saldo de cierre es el saldo hasta el último movimiento
+    private Boolean cerrado;
+
+    // Del más antiguo al más reciente
+    private List<TransaccionDTO> movimientos;
+}
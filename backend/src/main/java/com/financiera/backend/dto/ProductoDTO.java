@@ -1,5 +1,6 @@
 package com.financiera.backend.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.financiera.backend.entity.Producto;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
@@ -25,6 +26,8 @@ public class ProductoDTO {
 
     private BigDecimal saldo;
 
+    private Integer franjasSaldo;
+
     private Boolean exentaGMF;
 
     private LocalDateTime fechaCreacion;
@@ -36,4 +39,8 @@ public class ProductoDTO {
 
 
     private String nombreCliente;
+
+    // Versión de la cuenta (productos más saldos_productos); es el ETag de GET /api/productos/{id}
+    @JsonIgnore
+    private Long version;
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package com.financiera.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoImportacionDTO {
+
+    private long filasLeidas;
+
+    private long clientesCreados;
+
+    private long cuentasCreadas;
+
+    private long filasRechazadas;
+
+    // Ruta del archivo con las filas rechazadas y su motivo; null si no hubo rechazos
+    private String archivoRechazos;
+
+    private long duracionMs;
+}
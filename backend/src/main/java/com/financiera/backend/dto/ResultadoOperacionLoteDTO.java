@@ -0,0 +1,23 @@
+package com.financiera.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoOperacionLoteDTO {
+
+    // Posición de la operación dentro del lote recibido
+    private int indice;
+
+    private boolean exitosa;
+
+    private List<TransaccionDTO> transacciones;
+
+    // Motivo del rechazo cuando la operación no se aplicó
+    private String mensaje;
+}
@@ -0,0 +1,23 @@
+package com.financiera.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SaldoAFechaDTO {
+
+    private Long cuentaId;
+    private String numeroCuenta;
+    private LocalDateTime fecha;
+    private BigDecimal saldo;
+
+    // Último movimiento de la cuenta hasta la fecha; null si no tuvo movimientos (saldo cero)
+    private Long transaccionId;
+    private LocalDateTime fechaTransaccion;
+}
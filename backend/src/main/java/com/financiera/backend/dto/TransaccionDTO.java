@@ -1,5 +1,6 @@
 package com.financiera.backend.dto;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.financiera.backend.entity.Transaccion;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -26,5 +27,8 @@ public class TransaccionDTO {
     private Long cuentaDestinoId;
     private String numeroCuentaDestino;
 
-    private BigDecimal saldoDespues;
+    // Saldo con los movimientos confirmados al registrar este, más este. No es un saldo corrido: dos movimientos
+    // simultáneos a la misma cuenta pueden partir del mismo saldo. En el JSON conserva el nombre saldoDespues
+    @JsonProperty("saldoDespues")
+    private BigDecimal saldoAlRegistrar;
 }
\ No newline at end of file
@@ -0,0 +1,57 @@
+package com.financiera.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Saldos y totales de una cuenta en un mes ya cerrado. Lo genera CierreMensualService y no cambia después
+@Entity
+@Table(name = "cierres_mensuales")
+@IdClass(CierreMensual.Clave.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CierreMensual {
+
+    @Id
+    @Column(name = "cuenta_id")
+    private Long cuentaId;
+
+    // Primer día del mes
+    @Id
+    @Column(nullable = false)
+    private LocalDate periodo;
+
+    @Column(name = "saldo_apertura", nullable = false, precision = 15, scale = 2)
+    private BigDecimal saldoApertura;
+
+    @Column(name = "saldo_cierre", nullable = false, precision = 15, scale = 2)
+    private BigDecimal saldoCierre;
+
+    @Column(name = "total_creditos", nullable = false, precision = 15, scale = 2)
+    private BigDecimal totalCreditos;
+
+    @Column(name = "total_debitos", nullable = false, precision = 15, scale = 2)
+    private BigDecimal totalDebitos;
+
+    @Column(name = "cantidad_movimientos", nullable = false)
+    private Long cantidadMovimientos;
+
+    @Column(name = "fecha_generacion", nullable = false)
+    private LocalDateTime fechaGeneracion;
+
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Clave implements Serializable {
+        private Long cuentaId;
+        private LocalDate periodo;
+    }
+}
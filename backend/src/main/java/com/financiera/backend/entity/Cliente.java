@@ -15,14 +15,18 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "clientes")
+@Table(name = "clientes", indexes = {
+        @Index(name = "idx_clientes_tipo_identificacion", columnList = "tipo_identificacion, id"),
+        @Index(name = "idx_clientes_fecha_creacion", columnList = "fecha_creacion")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Cliente {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "clientes_seq")
+    @SequenceGenerator(name = "clientes_seq", sequenceName = "clientes_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "El tipo de identificación es obligatorio")
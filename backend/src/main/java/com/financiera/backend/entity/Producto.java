@@ -5,21 +5,42 @@ import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.Formula;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
+/**
+ * Cuenta de un cliente. El saldo no se guarda movimiento a movimiento: transacciones es el libro de
+ * movimientos y saldos_productos, una fila angosta por cuenta, guarda el saldo consolidado hasta un corte.
+ * saldo y versionSaldo suman a lo consolidado los movimientos propios posteriores al corte (ver schema.sql y
+ * ConsolidacionSaldosService). El estado va en la misma fila porque los movimientos lo verifican al bloquearla.
+ * Una cuenta franjeada (franjasSaldo > 1) no suma el libro: su saldo es lo consolidado más sus franjas_saldo.
+ */
 @Entity
-@Table(name = "productos")
+@Table(name = "productos", indexes = {
+        @Index(name = "idx_productos_cliente", columnList = "cliente_id, id"),
+        @Index(name = "idx_productos_tipo_cuenta", columnList = "tipo_cuenta, id"),
+        @Index(name = "idx_productos_fecha_creacion", columnList = "fecha_creacion")
+})
+@SecondaryTable(name = Producto.TABLA_SALDOS,
+        pkJoinColumns = @PrimaryKeyJoinColumn(name = "cuenta_id"),
+        indexes = @Index(name = "idx_saldos_productos_estado", columnList = "estado, cuenta_id"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Producto {
 
+    public static final String TABLA_SALDOS = "saldos_productos";
+
+    public static final int MAXIMO_FRANJAS_SALDO = 64;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "productos_seq")
+    @SequenceGenerator(name = "productos_seq", sequenceName = "productos_seq", allocationSize = 50)
     private Long id;
 
     @NotNull(message = "El tipo de cuenta es obligatorio")
@@ -32,13 +53,36 @@ public class Producto {
 
     @NotNull(message = "El estado es obligatorio")
     @Enumerated(EnumType.STRING)
-    @Column(nullable = false, length = 20)
+    @Column(table = TABLA_SALDOS, nullable = false, length = 20)
     private EstadoCuenta estado;
 
-    @NotNull(message = "El saldo es obligatorio")
-    @Column(nullable = false, precision = 15, scale = 2)
+    // Saldo actual derivado del libro de movimientos; no se escribe desde la entidad
+    @Formula("saldo_cuenta(id)")
     private BigDecimal saldo;
 
+    // Movimientos propios de la cuenta; la versión de la cuenta es la suma con la de productos
+    @Formula("version_saldo_cuenta(id)")
+    private Long versionSaldo = 0L;
+
+    // Saldo y cantidad de movimientos consolidados hasta el corte. Solo se escriben al crear la cuenta;
+    // después los avanza únicamente la consolidación, por SQL nativo
+    @Column(table = TABLA_SALDOS, name = "saldo", nullable = false, updatable = false, precision = 15, scale = 2)
+    private BigDecimal saldoConsolidado = BigDecimal.ZERO;
+
+    @ColumnDefault("0")
+    @Column(table = TABLA_SALDOS, name = "version", nullable = false, updatable = false)
+    private Long movimientosConsolidados = 0L;
+
+    // Fecha del último movimiento propio, derivada igual que el saldo
+    @Formula("fecha_ultimo_movimiento_cuenta(id)")
+    private LocalDateTime fechaUltimoMovimiento;
+
+    // Franjas en las que se reparten los créditos de la cuenta; 1 es una cuenta sin franjas. Solo cambia por
+    // SQL nativo, en ProductoService.configurarFranjas
+    @ColumnDefault("1")
+    @Column(table = TABLA_SALDOS, name = "franjas", nullable = false, updatable = false)
+    private Integer franjasSaldo = 1;
+
     @Column(name = "exenta_gmf", nullable = false)
     private Boolean exentaGMF;
 
@@ -50,6 +94,12 @@ public class Producto {
     @Column(name = "fecha_modificacion")
     private LocalDateTime fechaModificacion;
 
+    // Cambia con los datos de la cuenta, no con los movimientos
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "cliente_id", nullable = false)
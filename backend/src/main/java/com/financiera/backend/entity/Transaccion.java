@@ -10,15 +10,20 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
+// Particionada por mes de fecha_transaccion (schema.sql); en la base la clave primaria es (id, fecha_transaccion)
 @Entity
-@Table(name = "transacciones")
+@Table(name = "transacciones", indexes = {
+        @Index(name = "idx_transacciones_origen_fecha", columnList = "cuenta_origen_id, fecha_transaccion, id"),
+        @Index(name = "idx_transacciones_destino_fecha", columnList = "cuenta_destino_id, fecha_transaccion, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Transaccion {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transacciones_seq")
+    @SequenceGenerator(name = "transacciones_seq", sequenceName = "transacciones_seq", allocationSize = 50)
     private Long id;
 
     @NotNull(message = "El tipo de transacción es obligatorio")
@@ -53,8 +58,9 @@ public class Transaccion {
     private Producto cuentaDestino;
 
 
+    // La columna conserva su nombre; ver TransaccionDTO.saldoAlRegistrar
     @Column(name = "saldo_despues", nullable = false, precision = 15, scale = 2)
-    private BigDecimal saldoDespues;
+    private BigDecimal saldoAlRegistrar;
 
 
     public enum TipoTransaccion {
@@ -1,5 +1,6 @@
 package com.financiera.backend.exception;
 
+import com.financiera.backend.exception.clientes.ArchivoImportacionInvalidoException;
 import com.financiera.backend.exception.clientes.ClienteConProductosException;
 import com.financiera.backend.exception.clientes.ClienteMenorDeEdadException;
 import com.financiera.backend.exception.clientes.DatoDuplicadoException;
@@ -9,7 +10,10 @@ import com.financiera.backend.exception.productos.CuentaNoPuedeCancelarseExcepti
 import com.financiera.backend.exception.productos.OperacionNoPermitidaException;
 import com.financiera.backend.exception.productos.SaldoInsuficienteException;
 
+import com.financiera.backend.exception.transacciones.CierreNoDisponibleException;
 import com.financiera.backend.exception.transacciones.CuentaInactivaException;
+import com.financiera.backend.exception.transacciones.ParametroConsultaInvalidoException;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -123,5 +127,46 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(respuesta, HttpStatus.FORBIDDEN);
     }
 
+    @ExceptionHandler(ParametroConsultaInvalidoException.class)
+    public ResponseEntity<Map<String, Object>> manejarParametroConsultaInvalido(ParametroConsultaInvalidoException ex) {
+        Map<String, Object> respuesta = new HashMap<>();
+        respuesta.put("timestamp", LocalDateTime.now());
+        respuesta.put("mensaje", ex.getMessage());
+        respuesta.put("status", HttpStatus.BAD_REQUEST.value());
+
+        return new ResponseEntity<>(respuesta, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(CierreNoDisponibleException.class)
+    public ResponseEntity<Map<String, Object>> manejarCierreNoDisponible(CierreNoDisponibleException ex) {
+        Map<String, Object> respuesta = new HashMap<>();
+        respuesta.put("timestamp", LocalDateTime.now());
+        respuesta.put("mensaje", ex.getMessage());
+        respuesta.put("status", HttpStatus.NOT_FOUND.value());
+
+        return new ResponseEntity<>(respuesta, HttpStatus.NOT_FOUND);
+    }
+
+    @ExceptionHandler(ArchivoImportacionInvalidoException.class)
+    public ResponseEntity<Map<String, Object>> manejarArchivoImportacionInvalido(ArchivoImportacionInvalidoException ex) {
+        Map<String, Object> respuesta = new HashMap<>();
+        respuesta.put("timestamp", LocalDateTime.now());
+        respuesta.put("mensaje", ex.getMessage());
+        respuesta.put("status", HttpStatus.BAD_REQUEST.value());
+
+        return new ResponseEntity<>(respuesta, HttpStatus.BAD_REQUEST);
+    }
+
+    // Solo llega aquí cuando se agotaron los reintentos
+    @ExceptionHandler(ConcurrencyFailureException.class)
+    public ResponseEntity<Map<String, Object>> manejarConflictoConcurrencia(ConcurrencyFailureException ex) {
+        Map<String, Object> respuesta = new HashMap<>();
+        respuesta.put("timestamp", LocalDateTime.now());
+        respuesta.put("mensaje", "La cuenta está siendo modificada por otra operación. Intente nuevamente");
+        respuesta.put("status", HttpStatus.CONFLICT.value());
+
+        return new ResponseEntity<>(respuesta, HttpStatus.CONFLICT);
+    }
+
 
 }
\ No newline at end of file
@@ -0,0 +1,7 @@
+package com.financiera.backend.exception.clientes;
+
+public class ArchivoImportacionInvalidoException extends RuntimeException {
+    public ArchivoImportacionInvalidoException(String message) {
+        super(message);
+    }
+}
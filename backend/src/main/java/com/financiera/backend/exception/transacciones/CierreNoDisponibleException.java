@@ -0,0 +1,8 @@
+package com.financiera.backend.exception.transacciones;
+
+public class CierreNoDisponibleException extends RuntimeException {
+    public CierreNoDisponibleException(String message) {
+
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.financiera.backend.exception.transacciones;
+
+public class ParametroConsultaInvalidoException extends RuntimeException {
+    public ParametroConsultaInvalidoException(String message) {
+
+        super(message);
+    }
+}
@@ -0,0 +1,65 @@
+package com.financiera.backend.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Entrega IDs para las inserciones que se hacen por JDBC, con el mismo esquema pooled-lo que usa
+ * Hibernate: cada nextval reserva el bloque [valor, valor + TAMANO_BLOQUE). Así las inserciones
+ * nativas no necesitan RETURNING para conocer el ID y pueden agruparse en lotes.
+ */
+@Component
+@RequiredArgsConstructor
+public class AsignadorIds {
+
+    // Debe coincidir con el allocationSize de @SequenceGenerator y con el INCREMENT BY de las secuencias
+    public static final int TAMANO_BLOQUE = 50;
+
+    private static final String SQL_BLOQUES =
+            "SELECT nextval(CAST(? AS regclass)) FROM generate_series(1, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, Bloque> bloquesEnUso = new ConcurrentHashMap<>();
+
+    public long siguiente(String secuencia) {
+        return bloquesEnUso.computeIfAbsent(secuencia, nombre -> new Bloque()).siguiente(secuencia);
+    }
+
+    // Reserva bloques nuevos para una carga grande: una sola consulta sin importar la cantidad
+    public long[] reservar(String secuencia, int cantidad) {
+        long[] ids = new long[cantidad];
+        if (cantidad == 0) {
+            return ids;
+        }
+
+        int bloques = (cantidad + TAMANO_BLOQUE - 1) / TAMANO_BLOQUE;
+        List<Long> inicios = jdbcTemplate.queryForList(SQL_BLOQUES, Long.class, secuencia, bloques);
+
+        int posicion = 0;
+        for (Long inicio : inicios) {
+            for (int i = 0; i < TAMANO_BLOQUE && posicion < cantidad; i++) {
+                ids[posicion++] = inicio + i;
+            }
+        }
+        return ids;
+    }
+
+    private final class Bloque {
+
+        private long proximo;
+        private long limite;
+
+        private synchronized long siguiente(String secuencia) {
+            if (proximo == limite) {
+                proximo = jdbcTemplate.queryForObject(SQL_BLOQUES, Long.class, secuencia, 1);
+                limite = proximo + TAMANO_BLOQUE;
+            }
+            return proximo++;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.financiera.backend.repository;
+
+import com.financiera.backend.entity.CierreMensual;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+@Repository
+public interface CierreMensualRepository extends JpaRepository<CierreMensual, CierreMensual.Clave>,
+        CierreMensualRepositoryCustom {
+
+    @Query("SELECT MAX(c.periodo) FROM CierreMensual c")
+    Optional<LocalDate> buscarUltimoPeriodo();
+}
@@ -0,0 +1,10 @@
+package com.financiera.backend.repository;
+
+import java.time.YearMonth;
+
+public interface CierreMensualRepositoryCustom {
+
+    // Genera el cierre del periodo para las cuentas con ID en [idDesde, idHasta) creadas antes de que el
+    // periodo terminara. Las que ya tienen cierre se omiten. Retorna cuántos cierres se insertaron.
+    int generarCierres(YearMonth periodo, long idDesde, long idHasta);
+}
@@ -0,0 +1,61 @@
+package com.financiera.backend.repository;
+
+import com.financiera.backend.entity.Transaccion;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+
+@RequiredArgsConstructor
+public class CierreMensualRepositoryImpl implements CierreMensualRepositoryCustom {
+
+    // Los saldos se calculan hacia atrás desde el saldo actual de la cuenta, restando lo que se movió después
+    // de cada límite del periodo. No depende del orden de las filas con la misma fecha ni de cierres
+    // anteriores, y cada cuenta solo recorre su índice (cuenta_origen_id, fecha_transaccion) desde el
+    // inicio del periodo. Solo se suman las filas propias de la cuenta: en una transferencia el movimiento
+    // de la otra cuenta tiene a esta como destino.
+    private static final String SQL_GENERAR_CIERRES = """
+            INSERT INTO cierres_mensuales (cuenta_id, periodo, saldo_apertura, saldo_cierre, total_creditos,
+                                           total_debitos, cantidad_movimientos, fecha_generacion)
+            SELECT p.id, :periodo,
+                   s.saldo - COALESCE(m.neto_desde_inicio, 0),
+                   s.saldo - COALESCE(m.neto_desde_fin, 0),
+                   COALESCE(m.creditos, 0), COALESCE(m.debitos, 0), m.cantidad, LOCALTIMESTAMP
+              FROM productos p
+              CROSS JOIN LATERAL (SELECT saldo_cuenta(p.id) AS saldo) s
+              CROSS JOIN LATERAL (
+                    SELECT SUM(CASE WHEN t.tipo_movimiento = :credito THEN t.monto ELSE -t.monto END)
+                               AS neto_desde_inicio,
+                           SUM(CASE WHEN t.tipo_movimiento = :credito THEN t.monto ELSE -t.monto END)
+                               FILTER (WHERE t.fecha_transaccion >= :fin) AS neto_desde_fin,
+                           SUM(t.monto) FILTER (WHERE t.fecha_transaccion < :fin AND t.tipo_movimiento = :credito)
+                               AS creditos,
+                           SUM(t.monto) FILTER (WHERE t.fecha_transaccion < :fin AND t.tipo_movimiento <> :credito)
+                               AS debitos,
+                           COUNT(*) FILTER (WHERE t.fecha_transaccion < :fin) AS cantidad
+                      FROM transacciones t
+                     WHERE t.cuenta_origen_id = p.id
+                       AND t.fecha_transaccion >= :inicio) m
+             WHERE p.id >= :idDesde AND p.id < :idHasta
+               AND p.fecha_creacion < :fin
+            ON CONFLICT (cuenta_id, periodo) DO NOTHING
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Override
+    public int generarCierres(YearMonth periodo, long idDesde, long idHasta) {
+        MapSqlParameterSource parametros = new MapSqlParameterSource()
+                .addValue("periodo", Date.valueOf(periodo.atDay(1)))
+                .addValue("inicio", Timestamp.valueOf(periodo.atDay(1).atStartOfDay()))
+                .addValue("fin", Timestamp.valueOf(periodo.plusMonths(1).atDay(1).atStartOfDay()))
+                .addValue("credito", Transaccion.TipoMovimiento.CREDITO.name())
+                .addValue("idDesde", idDesde)
+                .addValue("idHasta", idHasta);
+
+        return jdbcTemplate.update(SQL_GENERAR_CIERRES, parametros);
+    }
+}
@@ -1,17 +1,48 @@
 package com.financiera.backend.repository;
 
+import com.financiera.backend.dto.ClienteDTO;
 import com.financiera.backend.entity.Cliente;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ClienteRepository extends JpaRepository<Cliente, Long> {
+public interface ClienteRepository extends JpaRepository<Cliente, Long>, ClienteRepositoryCustom {
 
     Optional<Cliente> findByNumeroIdentificacion(String numeroIdentificacion);
 
     boolean existsByNumeroIdentificacion(String numeroIdentificacion);
 
     boolean existsByCorreoElectronico(String correoElectronico);
+
+    // Proyección para lectura: no se crean entidades administradas
+    String PROYECCION_DTO = """
+            SELECT new com.financiera.backend.dto.ClienteDTO(
+                   c.id, c.tipoIdentificacion, c.numeroIdentificacion, c.nombres, c.apellido,
+                   c.correoElectronico, c.fechaNacimiento, c.fechaCreacion, c.fechaModificacion)
+              FROM Cliente c
+            """;
+
+    @Query(PROYECCION_DTO + " ORDER BY c.id")
+    List<ClienteDTO> buscarTodos();
+
+    // Página por keyset: continúa después de idCursor y se detiene en el límite. Los filtros en null no aplican.
+    @Query(PROYECCION_DTO + """
+             WHERE (:idCursor IS NULL OR c.id > :idCursor)
+               AND (:tipoIdentificacion IS NULL OR c.tipoIdentificacion = :tipoIdentificacion)
+               AND (:desde IS NULL OR c.fechaCreacion >= :desde)
+               AND (:hasta IS NULL OR c.fechaCreacion < :hasta)
+             ORDER BY c.id
+            """)
+    List<ClienteDTO> buscarPagina(@Param("idCursor") Long idCursor,
+                                  @Param("tipoIdentificacion") String tipoIdentificacion,
+                                  @Param("desde") LocalDateTime desde,
+                                  @Param("hasta") LocalDateTime hastaExclusive,
+                                  Limit limite);
 }
\ No newline at end of file
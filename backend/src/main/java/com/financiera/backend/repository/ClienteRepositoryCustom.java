@@ -0,0 +1,15 @@
+package com.financiera.backend.repository;
+
+import com.financiera.backend.dto.ClienteDTO;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ClienteRepositoryCustom {
+
+    // Inserta los clientes en lotes JDBC y completa el ID y las fechas de cada uno
+    List<ClienteDTO> insertarClientes(List<ClienteDTO> clientes);
+
+    // Retorna los valores que ya están registrados, tanto identificaciones como correos, en una sola consulta
+    List<String> buscarRegistrados(Collection<String> numerosIdentificacion, Collection<String> correos);
+}
@@ -0,0 +1,78 @@
+package com.financiera.backend.repository;
+
+import com.financiera.backend.dto.ClienteDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class ClienteRepositoryImpl implements ClienteRepositoryCustom {
+
+    private static final String SQL_INSERTAR_CLIENTE = """
+            INSERT INTO clientes (id, tipo_identificacion, numero_identificacion, nombres, apellido,
+                                  correo_electronico, fecha_nacimiento, fecha_creacion, fecha_modificacion)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final String SQL_REGISTRADOS = """
+            SELECT numero_identificacion FROM clientes WHERE numero_identificacion = ANY(?)
+            UNION ALL
+            SELECT correo_electronico FROM clientes WHERE correo_electronico = ANY(?)
+            """;
+
+    private static final String SECUENCIA_CLIENTES = "clientes_seq";
+
+    private static final int TAMANO_LOTE_INSERCION = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AsignadorIds asignadorIds;
+
+    @Override
+    public List<ClienteDTO> insertarClientes(List<ClienteDTO> clientes) {
+        if (clientes.isEmpty()) {
+            return clientes;
+        }
+
+        long[] ids = asignadorIds.reservar(SECUENCIA_CLIENTES, clientes.size());
+        LocalDateTime fecha = LocalDateTime.now();
+        for (int i = 0; i < clientes.size(); i++) {
+            clientes.get(i).setId(ids[i]);
+            clientes.get(i).setFechaCreacion(fecha);
+            clientes.get(i).setFechaModificacion(fecha);
+        }
+
+        jdbcTemplate.batchUpdate(SQL_INSERTAR_CLIENTE, clientes, TAMANO_LOTE_INSERCION,
+                (ps, cliente) -> {
+                    ps.setLong(1, cliente.getId());
+                    ps.setString(2, cliente.getTipoIdentificacion());
+                    ps.setString(3, cliente.getNumeroIdentificacion());
+                    ps.setString(4, cliente.getNombres());
+                    ps.setString(5, cliente.getApellido());
+                    ps.setString(6, cliente.getCorreoElectronico());
+                    ps.setDate(7, Date.valueOf(cliente.getFechaNacimiento()));
+                    ps.setTimestamp(8, Timestamp.valueOf(cliente.getFechaCreacion()));
+                    ps.setTimestamp(9, Timestamp.valueOf(cliente.getFechaModificacion()));
+                });
+
+        return clientes;
+    }
+
+    @Override
+    public List<String> buscarRegistrados(Collection<String> numerosIdentificacion, Collection<String> correos) {
+        if (numerosIdentificacion.isEmpty() && correos.isEmpty()) {
+            return List.of();
+        }
+
+        return jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement(SQL_REGISTRADOS);
+            ps.setArray(1, con.createArrayOf("varchar", numerosIdentificacion.toArray()));
+            ps.setArray(2, con.createArrayOf("varchar", correos.toArray()));
+            return ps;
+        }, (rs, fila) -> rs.getString(1));
+    }
+}
@@ -1,14 +1,21 @@
 package com.financiera.backend.repository;
 
+import com.financiera.backend.dto.ProductoDTO;
 import com.financiera.backend.entity.Producto;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ProductoRepository extends JpaRepository<Producto, Long> {
+public interface ProductoRepository extends JpaRepository<Producto, Long>, ProductoRepositoryCustom {
 
     Optional<Producto> findByNumeroCuenta(String numeroCuenta);
 
@@ -17,4 +24,126 @@ public interface ProductoRepository extends JpaRepository<Producto, Long> {
     List<Producto> findByClienteId(Long clienteId);
 
     long countByClienteId(Long clienteId);
+
+    // Proyecciones para lectura: el cliente se resuelve con un join en la misma consulta y no se
+    // crean entidades administradas (sin cargas perezosas ni dirty checking).
+    // La versión de la cuenta suma la de productos y la de saldos_productos: ambas solo crecen, así que
+    // cualquier cambio en una de las dos filas produce una versión nueva
+    String PROYECCION_DTO = """
+            SELECT new com.financiera.backend.dto.ProductoDTO(
+                   p.id, p.tipoCuenta, p.numeroCuenta, p.estado, p.saldo, p.franjasSaldo, p.exentaGMF,
+                   p.fechaCreacion, p.fechaModificacion, c.id, CONCAT(c.nombres, ' ', c.apellido),
+                   p.version + p.versionSaldo)
+              FROM Producto p JOIN p.cliente c
+            """;
+
+    @Query(PROYECCION_DTO + " ORDER BY p.id")
+    List<ProductoDTO> buscarTodosDTO();
+
+    // Página por keyset: continúa después de idCursor y se detiene en el límite. Los filtros en null no aplican.
+    @Query(PROYECCION_DTO + """
+             WHERE (:idCursor IS NULL OR p.id > :idCursor)
+               AND (:estado IS NULL OR p.estado = :estado)
+               AND (:tipoCuenta IS NULL OR p.tipoCuenta = :tipoCuenta)
+               AND (:desde IS NULL OR p.fechaCreacion >= :desde)
+               AND (:hasta IS NULL OR p.fechaCreacion < :hasta)
+             ORDER BY p.id
+            """)
+    List<ProductoDTO> buscarPagina(@Param("idCursor") Long idCursor,
+                                   @Param("estado") Producto.EstadoCuenta estado,
+                                   @Param("tipoCuenta") Producto.TipoCuenta tipoCuenta,
+                                   @Param("desde") LocalDateTime desde,
+                                   @Param("hasta") LocalDateTime hastaExclusive,
+                                   Limit limite);
+
+    @Query(PROYECCION_DTO + " WHERE p.id = :id")
+    Optional<ProductoDTO> buscarDTOPorId(@Param("id") Long id);
+
+    @Query("SELECT p.version + p.versionSaldo FROM Producto p WHERE p.id = :id")
+    Optional<Long> buscarVersion(@Param("id") Long id);
+
+    // El DTO de cada producto lleva el nombre del cliente: su ETag debe cambiar cuando el nombre cambia
+    @Modifying
+    @Query("UPDATE Producto p SET p.version = p.version + 1 WHERE p.cliente.id = :clienteId")
+    int incrementarVersionPorCliente(@Param("clienteId") Long clienteId);
+
+    // Límites para recorrer todas las cuentas por rangos de ID al generar los cierres mensuales
+    @Query("SELECT MAX(p.id) FROM Producto p")
+    Optional<Long> buscarMayorId();
+
+    @Query("SELECT MIN(p.fechaCreacion) FROM Producto p")
+    Optional<LocalDateTime> buscarPrimeraFechaCreacion();
+
+    @Query(PROYECCION_DTO + " WHERE c.id = :clienteId ORDER BY p.id")
+    List<ProductoDTO> buscarDTOsPorCliente(@Param("clienteId") Long clienteId);
+
+    // Bloqueos de las filas de saldo, en orden de ID. Los créditos solo toman FOR KEY SHARE, que no choca con
+    // FOR NO KEY UPDATE: los débitos y los lotes se ordenan entre sí sin detener a los créditos. Un cambio de
+    // estado o una eliminación toma FOR UPDATE y espera también a los créditos en curso; en una cuenta franjeada
+    // bloquea además sus franjas, porque los créditos a ella no bloquean la fila de saldo.
+    // Las cuentas se leen después del bloqueo, en otra sentencia, para que el saldo incluya lo que dejaron
+    // las transacciones por las que se esperó. Los débitos y los lotes bloquean con
+    // BloqueoCuentasService.bloquearSaldos, que mide la espera
+    default Optional<Producto> bloquearParaCambioEstado(Long id) {
+        bloquearSaldoExclusivo(id);
+        bloquearFranjas(id);
+        return findById(id);
+    }
+
+    @Query(value = """
+            SELECT s.cuenta_id FROM saldos_productos s
+             WHERE s.cuenta_id IN :ids
+             ORDER BY s.cuenta_id
+               FOR NO KEY UPDATE
+            """, nativeQuery = true)
+    List<Long> bloquearSaldos(@Param("ids") Collection<Long> ids);
+
+    @Query(value = "SELECT s.cuenta_id FROM saldos_productos s WHERE s.cuenta_id = :id FOR UPDATE",
+            nativeQuery = true)
+    Optional<Long> bloquearSaldoExclusivo(@Param("id") Long id);
+
+    @Query(value = "SELECT f.franja FROM franjas_saldo f WHERE f.cuenta_id = :id ORDER BY f.franja FOR UPDATE",
+            nativeQuery = true)
+    List<Integer> bloquearFranjas(@Param("id") Long id);
+
+    // Cambia el número de franjas de una cuenta ya bloqueada con bloquearParaCambioEstado. Lo actual (consolidado
+    // más franjas, o más libro) pasa a ser el consolidado y el corte de la cuenta pasa a ser el global, porque las
+    // particiones anteriores a él pueden archivarse. Al volver a una franja la cuenta suma otra vez los
+    // movimientos desde su corte, así que estos se descuentan del consolidado, que ya los incluye. También
+    // cambia la versión de la cuenta, para que su ETag no se repita
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = """
+            WITH anteriores AS (
+                DELETE FROM franjas_saldo WHERE cuenta_id = :id
+            ), cuenta AS (
+                UPDATE productos SET version = version + 1, fecha_modificacion = LOCALTIMESTAMP WHERE id = :id
+            )
+            UPDATE saldos_productos s
+               SET saldo = saldo_cuenta(s.cuenta_id) - CASE WHEN :franjas = 1 THEN pendiente.neto ELSE 0 END,
+                   version = version_saldo_cuenta(s.cuenta_id) - CASE WHEN :franjas = 1 THEN pendiente.cantidad ELSE 0 END,
+                   franjas = :franjas,
+                   fecha_ultimo_movimiento = fecha_ultimo_movimiento_cuenta(s.cuenta_id),
+                   fecha_corte = pendiente.corte
+              FROM (SELECT corte.fecha AS corte,
+                           COALESCE(SUM(CASE WHEN t.tipo_movimiento = 'CREDITO' THEN t.monto ELSE -t.monto END), 0)
+                               AS neto,
+                           COUNT(t.id) AS cantidad
+                      FROM (SELECT GREATEST((SELECT c.fecha FROM corte_saldos c WHERE c.id = 1), a.fecha_corte)
+                                       AS fecha
+                              FROM saldos_productos a
+                             WHERE a.cuenta_id = :id) corte
+                      LEFT JOIN transacciones t
+                             ON t.cuenta_origen_id = :id
+                            AND t.fecha_transaccion >= COALESCE(corte.fecha, '-infinity')
+                     GROUP BY corte.fecha) pendiente
+             WHERE s.cuenta_id = :id
+            """, nativeQuery = true)
+    int reiniciarFranjas(@Param("id") Long id, @Param("franjas") int franjas);
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO franjas_saldo (cuenta_id, franja)
+            SELECT :id, f FROM generate_series(0, :franjas - 1) f
+            """, nativeQuery = true)
+    int crearFranjas(@Param("id") Long id, @Param("franjas") int franjas);
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.financiera.backend.repository;
+
+import com.financiera.backend.dto.ProductoDTO;
+import com.financiera.backend.dto.TransaccionDTO;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface ProductoRepositoryCustom {
+
+    // Incorpora al saldo consolidado de cada cuenta sus movimientos propios anteriores al corte, y deja el corte
+    // como el de la última consolidación completa. Retorna cuántas cuentas cambiaron. Debe llamarse dentro de
+    // una transacción, con la garantía de que ya terminaron todas las transacciones que empezaron antes del corte
+    int consolidarSaldos(LocalDateTime corte);
+
+    // Corte de la última consolidación completa; vacío si aún no hay ninguna
+    Optional<LocalDateTime> buscarCorteSaldos();
+
+    // Suma al saldo consolidado de cada cuenta franjeada el neto y la cantidad de sus movimientos, que ya están
+    // insertados en el libro pero que su saldo no suma. Las cuentas deben estar bloqueadas
+    void ajustarSaldosFranjeados(List<TransaccionDTO> movimientos);
+
+    // Inserta las cuentas (con número, tipo y cliente ya asignados) en lotes JDBC como cuentas activas
+    // con saldo cero, y completa el ID y las fechas de cada una
+    List<ProductoDTO> insertarCuentas(List<ProductoDTO> cuentas);
+}
@@ -0,0 +1,179 @@
+package com.financiera.backend.repository;
+
+import com.financiera.backend.dto.ProductoDTO;
+import com.financiera.backend.dto.TransaccionDTO;
+import com.financiera.backend.entity.Producto;
+import com.financiera.backend.entity.Transaccion;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+
+@RequiredArgsConstructor
+public class ProductoRepositoryImpl implements ProductoRepositoryCustom {
+
+    // Cuentas con movimientos entre el corte de la última consolidación completa y el nuevo corte
+    private static final String SQL_CUENTAS_CON_MOVIMIENTOS = """
+            SELECT DISTINCT t.cuenta_origen_id
+              FROM transacciones t
+             WHERE t.fecha_transaccion >= COALESCE((SELECT c.fecha FROM corte_saldos c WHERE c.id = 1), '-infinity')
+               AND t.fecha_transaccion < :corte
+            """;
+
+    // En orden de ID, como los lotes: la consolidación no puede quedar en interbloqueo con ellos. Las cuentas
+    // franjeadas no se consolidan: su saldo no suma el libro
+    private static final String SQL_BLOQUEAR_PENDIENTES = """
+            SELECT s.cuenta_id FROM saldos_productos s
+             WHERE s.cuenta_id IN (%s)
+               AND s.franjas = 1
+             ORDER BY s.cuenta_id
+               FOR NO KEY UPDATE
+            """.formatted(SQL_CUENTAS_CON_MOVIMIENTOS);
+
+    // Cada cuenta suma desde su propio corte, no desde el global, así que tampoco se pierde un movimiento
+    // registrado con una fecha anterior al corte global
+    private static final String SQL_CONSOLIDAR = """
+            WITH pendientes AS (
+                SELECT s.cuenta_id, m.neto, m.cantidad, m.ultima
+                  FROM saldos_productos s
+                 CROSS JOIN LATERAL (
+                       SELECT SUM(CASE WHEN t.tipo_movimiento = :credito THEN t.monto ELSE -t.monto END) AS neto,
+                              COUNT(*) AS cantidad,
+                              MAX(t.fecha_transaccion) AS ultima
+                         FROM transacciones t
+                        WHERE t.cuenta_origen_id = s.cuenta_id
+                          AND t.fecha_transaccion >= COALESCE(s.fecha_corte, '-infinity')
+                          AND t.fecha_transaccion < :corte) m
+                 WHERE s.cuenta_id IN (%s)
+                   AND s.franjas = 1
+                   AND m.cantidad > 0
+            )
+            UPDATE saldos_productos s
+               SET saldo = s.saldo + p.neto,
+                   version = s.version + p.cantidad,
+                   fecha_ultimo_movimiento = GREATEST(s.fecha_ultimo_movimiento, p.ultima),
+                   fecha_corte = :corte
+              FROM pendientes p
+             WHERE s.cuenta_id = p.cuenta_id
+            """.formatted(SQL_CUENTAS_CON_MOVIMIENTOS);
+
+    private static final String SQL_AVANZAR_CORTE = "UPDATE corte_saldos SET fecha = :corte WHERE id = 1";
+
+    private static final String SQL_CORTE = "SELECT fecha FROM corte_saldos WHERE id = 1";
+
+    private static final String SQL_AJUSTAR_FRANJEADO = """
+            UPDATE saldos_productos
+               SET saldo = saldo + ?, version = version + ?
+             WHERE cuenta_id = ?
+               AND franjas > 1
+            """;
+
+    private static final String SQL_INSERTAR_CUENTA = """
+            INSERT INTO productos (id, tipo_cuenta, numero_cuenta, exenta_gmf,
+                                   fecha_creacion, fecha_modificacion, version, cliente_id)
+            VALUES (?, ?, ?, ?, ?, ?, 0, ?)
+            """;
+
+    private static final String SQL_INSERTAR_SALDO = """
+            INSERT INTO saldos_productos (cuenta_id, estado, saldo, version)
+            VALUES (?, ?, ?, 0)
+            """;
+
+    private static final String SECUENCIA_PRODUCTOS = "productos_seq";
+
+    private static final int TAMANO_LOTE_INSERCION = 500;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final AsignadorIds asignadorIds;
+
+    @Override
+    public int consolidarSaldos(LocalDateTime corte) {
+        MapSqlParameterSource parametros = new MapSqlParameterSource()
+                .addValue("corte", Timestamp.valueOf(corte))
+                .addValue("credito", Transaccion.TipoMovimiento.CREDITO.name());
+
+        jdbcTemplate.query(SQL_BLOQUEAR_PENDIENTES, parametros, (RowCallbackHandler) rs -> {
+        });
+        int cuentas = jdbcTemplate.update(SQL_CONSOLIDAR, parametros);
+        jdbcTemplate.update(SQL_AVANZAR_CORTE, parametros);
+        return cuentas;
+    }
+
+    @Override
+    public Optional<LocalDateTime> buscarCorteSaldos() {
+        return jdbcTemplate.getJdbcTemplate().query(SQL_CORTE, (rs, fila) -> rs.getTimestamp("fecha"))
+                .stream()
+                .filter(Objects::nonNull)
+                .map(Timestamp::toLocalDateTime)
+                .findFirst();
+    }
+
+    @Override
+    public void ajustarSaldosFranjeados(List<TransaccionDTO> movimientos) {
+        // Por cuenta, en orden de ID: {neto, cantidad}
+        Map<Long, BigDecimal[]> ajustes = new TreeMap<>();
+        for (TransaccionDTO movimiento : movimientos) {
+            BigDecimal monto = movimiento.getTipoMovimiento() == Transaccion.TipoMovimiento.CREDITO
+                    ? movimiento.getMonto() : movimiento.getMonto().negate();
+            ajustes.merge(movimiento.getCuentaOrigenId(), new BigDecimal[]{monto, BigDecimal.ONE},
+                    (actual, nuevo) -> new BigDecimal[]{actual[0].add(nuevo[0]), actual[1].add(nuevo[1])});
+        }
+        if (ajustes.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.getJdbcTemplate().batchUpdate(SQL_AJUSTAR_FRANJEADO, ajustes.entrySet(),
+                TAMANO_LOTE_INSERCION, (ps, ajuste) -> {
+                    ps.setBigDecimal(1, ajuste.getValue()[0]);
+                    ps.setLong(2, ajuste.getValue()[1].longValueExact());
+                    ps.setLong(3, ajuste.getKey());
+                });
+    }
+
+    @Override
+    public List<ProductoDTO> insertarCuentas(List<ProductoDTO> cuentas) {
+        if (cuentas.isEmpty()) {
+            return cuentas;
+        }
+
+        long[] ids = asignadorIds.reservar(SECUENCIA_PRODUCTOS, cuentas.size());
+        LocalDateTime fecha = LocalDateTime.now();
+        for (int i = 0; i < cuentas.size(); i++) {
+            ProductoDTO cuenta = cuentas.get(i);
+            cuenta.setId(ids[i]);
+            cuenta.setEstado(Producto.EstadoCuenta.ACTIVA);
+            cuenta.setSaldo(BigDecimal.ZERO);
+            cuenta.setExentaGMF(Boolean.TRUE.equals(cuenta.getExentaGMF()));
+            cuenta.setFechaCreacion(fecha);
+            cuenta.setFechaModificacion(fecha);
+        }
+
+        jdbcTemplate.getJdbcTemplate().batchUpdate(SQL_INSERTAR_CUENTA, cuentas, TAMANO_LOTE_INSERCION,
+                (ps, cuenta) -> {
+                    ps.setLong(1, cuenta.getId());
+                    ps.setString(2, cuenta.getTipoCuenta().name());
+                    ps.setString(3, cuenta.getNumeroCuenta());
+                    ps.setBoolean(4, cuenta.getExentaGMF());
+                    ps.setTimestamp(5, Timestamp.valueOf(cuenta.getFechaCreacion()));
+                    ps.setTimestamp(6, Timestamp.valueOf(cuenta.getFechaModificacion()));
+                    ps.setLong(7, cuenta.getClienteId());
+                });
+        jdbcTemplate.getJdbcTemplate().batchUpdate(SQL_INSERTAR_SALDO, cuentas, TAMANO_LOTE_INSERCION,
+                (ps, cuenta) -> {
+                    ps.setLong(1, cuenta.getId());
+                    ps.setString(2, cuenta.getEstado().name());
+                    ps.setBigDecimal(3, cuenta.getSaldo());
+                });
+
+        return cuentas;
+    }
+}
@@ -0,0 +1,316 @@
+package com.financiera.backend.repository;
+
+import com.financiera.backend.dto.TransaccionDTO;
+import com.financiera.backend.entity.Transaccion;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Archivo de solo lectura con movimientos archivados, agrupados por cuenta.
+ *
+ * Formato (enteros big-endian):
+ * - encabezado: "FTXS", versión (int), cantidad de cuentas (int), posición del índice (long),
+ *   primera y última cuenta (long, long)
+ * - un bloque por cuenta, en orden de ID: los movimientos en que la cuenta es origen o destino, ordenados
+ *   por (fecha, id) y comprimidos con Deflate. Una transferencia aparece en el bloque de cada cuenta.
+ * - índice: por cuenta, en el mismo orden, cuentaId (long), posición del bloque (long), longitud comprimida
+ *   (int) y cantidad de movimientos (int)
+ *
+ * El archivo completo se mapea en memoria. Leer una cuenta es una búsqueda binaria en el índice y la
+ * descompresión de su bloque; el resto del archivo no se toca.
+ */
+public final class SegmentoTransacciones {
+
+    // Por debajo de 2 GB para que un solo MappedByteBuffer cubra el archivo
+    public static final long TAMANO_MAXIMO = 1L << 30;
+
+    private static final int MAGICO = 0x46545853; // "FTXS"
+    private static final int VERSION = 1;
+    private static final int TAMANO_ENCABEZADO = 4 + 4 + 4 + 8 + 8 + 8;
+    private static final int TAMANO_ENTRADA_INDICE = 8 + 8 + 4 + 4;
+
+    private final Path ruta;
+    private final MappedByteBuffer contenido;
+    private final int cantidadCuentas;
+    private final int posicionIndice;
+    private final long primeraCuenta;
+    private final long ultimaCuenta;
+
+    private SegmentoTransacciones(Path ruta, MappedByteBuffer contenido) throws IOException {
+        this.ruta = ruta;
+        this.contenido = contenido;
+        if (contenido.capacity() < TAMANO_ENCABEZADO || contenido.getInt(0) != MAGICO) {
+            throw new IOException("No es un segmento de transacciones: " + ruta);
+        }
+        if (contenido.getInt(4) != VERSION) {
+            throw new IOException("Versión de segmento no soportada en " + ruta + ": " + contenido.getInt(4));
+        }
+        this.cantidadCuentas = contenido.getInt(8);
+        this.posicionIndice = Math.toIntExact(contenido.getLong(12));
+        this.primeraCuenta = contenido.getLong(20);
+        this.ultimaCuenta = contenido.getLong(28);
+    }
+
+    public static SegmentoTransacciones abrir(Path ruta) throws IOException {
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+            // El mapeo sigue válido después de cerrar el canal
+            return new SegmentoTransacciones(ruta, canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size()));
+        }
+    }
+
+    public Path getRuta() {
+        return ruta;
+    }
+
+    public boolean podriaContener(long cuentaId) {
+        return cantidadCuentas > 0 && cuentaId >= primeraCuenta && cuentaId <= ultimaCuenta;
+    }
+
+    // Movimientos de la cuenta del más antiguo al más reciente; vacío si la cuenta no está en el segmento
+    public List<TransaccionDTO> movimientos(long cuentaId) throws IOException {
+        int entrada = buscarEntrada(cuentaId);
+        if (entrada < 0) {
+            return List.of();
+        }
+
+        int posicionEntrada = posicionIndice + entrada * TAMANO_ENTRADA_INDICE;
+        int posicionBloque = Math.toIntExact(contenido.getLong(posicionEntrada + 8));
+        int longitud = contenido.getInt(posicionEntrada + 16);
+        int cantidad = contenido.getInt(posicionEntrada + 20);
+
+        DataInputStream entradaDatos = new DataInputStream(
+                new ByteArrayInputStream(descomprimir(posicionBloque, longitud)));
+        List<TransaccionDTO> movimientos = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            movimientos.add(leerMovimiento(entradaDatos));
+        }
+        return movimientos;
+    }
+
+    // Metodos auxiliares
+
+    private int buscarEntrada(long cuentaId) {
+        if (!podriaContener(cuentaId)) {
+            return -1;
+        }
+        int bajo = 0;
+        int alto = cantidadCuentas - 1;
+        while (bajo <= alto) {
+            int medio = (bajo + alto) >>> 1;
+            long actual = contenido.getLong(posicionIndice + medio * TAMANO_ENTRADA_INDICE);
+            if (actual < cuentaId) {
+                bajo = medio + 1;
+            } else if (actual > cuentaId) {
+                alto = medio - 1;
+            } else {
+                return medio;
+            }
+        }
+        return -1;
+    }
+
+    private byte[] descomprimir(int posicion, int longitud) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(contenido.slice(posicion, longitud));
+            ByteArrayOutputStream salida = new ByteArrayOutputStream(longitud * 4);
+            byte[] bufer = new byte[8192];
+            while (!inflater.finished()) {
+                int leidos = inflater.inflate(bufer);
+                if (leidos == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Bloque truncado en " + ruta + " (posición " + posicion + ")");
+                }
+                salida.write(bufer, 0, leidos);
+            }
+            return salida.toByteArray();
+        } catch (DataFormatException ex) {
+            throw new IOException("Bloque dañado en " + ruta + " (posición " + posicion + ")", ex);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void escribirMovimiento(DataOutputStream salida, TransaccionDTO movimiento) throws IOException {
+        salida.writeLong(movimiento.getId());
+        salida.writeUTF(movimiento.getTipoTransaccion().name());
+        salida.writeUTF(movimiento.getTipoMovimiento().name());
+        escribirMonto(salida, movimiento.getMonto());
+        escribirTextoOpcional(salida, movimiento.getDescripcion());
+        LocalDateTime fecha = movimiento.getFechaTransaccion();
+        salida.writeLong(fecha.toEpochSecond(ZoneOffset.UTC));
+        salida.writeInt(fecha.getNano());
+        salida.writeLong(movimiento.getCuentaOrigenId());
+        escribirTextoOpcional(salida, movimiento.getNumeroCuentaOrigen());
+        salida.writeBoolean(movimiento.getCuentaDestinoId() != null);
+        if (movimiento.getCuentaDestinoId() != null) {
+            salida.writeLong(movimiento.getCuentaDestinoId());
+        }
+        escribirTextoOpcional(salida, movimiento.getNumeroCuentaDestino());
+        escribirMonto(salida, movimiento.getSaldoAlRegistrar());
+    }
+
+    private static TransaccionDTO leerMovimiento(DataInputStream entrada) throws IOException {
+        TransaccionDTO movimiento = new TransaccionDTO();
+        movimiento.setId(entrada.readLong());
+        movimiento.setTipoTransaccion(Transaccion.TipoTransaccion.valueOf(entrada.readUTF()));
+        movimiento.setTipoMovimiento(Transaccion.TipoMovimiento.valueOf(entrada.readUTF()));
+        movimiento.setMonto(leerMonto(entrada));
+        movimiento.setDescripcion(leerTextoOpcional(entrada));
+        long segundos = entrada.readLong();
+        movimiento.setFechaTransaccion(LocalDateTime.ofEpochSecond(segundos, entrada.readInt(), ZoneOffset.UTC));
+        movimiento.setCuentaOrigenId(entrada.readLong());
+        movimiento.setNumeroCuentaOrigen(leerTextoOpcional(entrada));
+        movimiento.setCuentaDestinoId(entrada.readBoolean() ? entrada.readLong() : null);
+        movimiento.setNumeroCuentaDestino(leerTextoOpcional(entrada));
+        movimiento.setSaldoAlRegistrar(leerMonto(entrada));
+        return movimiento;
+    }
+
+    private static void escribirMonto(DataOutputStream salida, BigDecimal monto) throws IOException {
+        salida.writeLong(monto.unscaledValue().longValueExact());
+        salida.writeByte(monto.scale());
+    }
+
+    private static BigDecimal leerMonto(DataInputStream entrada) throws IOException {
+        long sinEscala = entrada.readLong();
+        return BigDecimal.valueOf(sinEscala, entrada.readByte());
+    }
+
+    private static void escribirTextoOpcional(DataOutputStream salida, String texto) throws IOException {
+        salida.writeBoolean(texto != null);
+        if (texto != null) {
+            salida.writeUTF(texto);
+        }
+    }
+
+    private static String leerTextoOpcional(DataInputStream entrada) throws IOException {
+        return entrada.readBoolean() ? entrada.readUTF() : null;
+    }
+
+    /**
+     * Escribe un segmento recibiendo los movimientos ya ordenados por (cuenta, fecha, id). El archivo se
+     * escribe con otro nombre y solo toma el definitivo en terminar(), así que nunca queda uno incompleto.
+     */
+    public static final class Escritor implements Closeable {
+
+        private final Path destino;
+        private final Path temporal;
+        private final FileChannel canal;
+        private final ByteArrayOutputStream indice = new ByteArrayOutputStream();
+        private final DataOutputStream salidaIndice = new DataOutputStream(indice);
+        private final ByteArrayOutputStream bloque = new ByteArrayOutputStream();
+        private final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+
+        private DataOutputStream salidaBloque;
+        private long cuentaActual = -1;
+        private int movimientosCuenta;
+        private int cantidadCuentas;
+        private long primeraCuenta = -1;
+        private long posicion = TAMANO_ENCABEZADO;
+        private boolean terminado;
+
+        public Escritor(Path destino) throws IOException {
+            this.destino = destino;
+            this.temporal = destino.resolveSibling(destino.getFileName() + ".tmp");
+            this.canal = FileChannel.open(temporal, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            canal.position(TAMANO_ENCABEZADO);
+        }
+
+        public void agregar(long cuentaId, TransaccionDTO movimiento) throws IOException {
+            if (cuentaId != cuentaActual) {
+                if (cuentaId < cuentaActual) {
+                    throw new IllegalStateException("Los movimientos deben llegar ordenados por cuenta");
+                }
+                cerrarBloque();
+                cuentaActual = cuentaId;
+                if (primeraCuenta < 0) {
+                    primeraCuenta = cuentaId;
+                }
+                deflater.reset();
+                bloque.reset();
+                salidaBloque = new DataOutputStream(new DeflaterOutputStream(bloque, deflater));
+            }
+            escribirMovimiento(salidaBloque, movimiento);
+            movimientosCuenta++;
+        }
+
+        // Posición actual del archivo: permite repartir una partición grande en varios segmentos
+        public long tamano() {
+            return posicion + indice.size();
+        }
+
+        public void terminar() throws IOException {
+            cerrarBloque();
+            salidaIndice.flush();
+
+            long posicionIndice = posicion;
+            escribirTodo(ByteBuffer.wrap(indice.toByteArray()), posicionIndice);
+
+            ByteBuffer encabezado = ByteBuffer.allocate(TAMANO_ENCABEZADO)
+                    .putInt(MAGICO)
+                    .putInt(VERSION)
+                    .putInt(cantidadCuentas)
+                    .putLong(posicionIndice)
+                    .putLong(primeraCuenta)
+                    .putLong(cuentaActual)
+                    .flip();
+            escribirTodo(encabezado, 0);
+
+            canal.force(true);
+            canal.close();
+            Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            terminado = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            deflater.end();
+            if (!terminado) {
+                canal.close();
+                Files.deleteIfExists(temporal);
+            }
+        }
+
+        private void cerrarBloque() throws IOException {
+            if (salidaBloque == null) {
+                return;
+            }
+            salidaBloque.close();
+            escribirTodo(ByteBuffer.wrap(bloque.toByteArray()), posicion);
+
+            salidaIndice.writeLong(cuentaActual);
+            salidaIndice.writeLong(posicion);
+            salidaIndice.writeInt(bloque.size());
+            salidaIndice.writeInt(movimientosCuenta);
+
+            posicion += bloque.size();
+            cantidadCuentas++;
+            movimientosCuenta = 0;
+            salidaBloque = null;
+        }
+
+        private void escribirTodo(ByteBuffer datos, long desde) throws IOException {
+            long destinoEscritura = desde;
+            while (datos.hasRemaining()) {
+                destinoEscritura += canal.write(datos, destinoEscritura);
+            }
+        }
+    }
+}
@@ -1,18 +1,28 @@
 package com.financiera.backend.repository;
 
+import com.financiera.backend.dto.TransaccionDTO;
 import com.financiera.backend.entity.Transaccion;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface TransaccionRepository extends JpaRepository<Transaccion, Long> {
+public interface TransaccionRepository extends JpaRepository<Transaccion, Long>, TransaccionRepositoryCustom {
 
 
     List<Transaccion> findByCuentaOrigenIdOrderByFechaTransaccionDesc(Long cuentaOrigenId);
 
-
-    List<Transaccion> findByCuentaOrigenIdOrCuentaDestinoIdOrderByFechaTransaccionDesc(
-            Long cuentaOrigenId, Long cuentaDestinoId);
+    // Ambas cuentas se resuelven con joins en la misma consulta, sin cargar las entidades Producto
+    @Query("""
+            SELECT new com.financiera.backend.dto.TransaccionDTO(
+                   t.id, t.tipoTransaccion, t.tipoMovimiento, t.monto, t.descripcion, t.fechaTransaccion,
+                   o.id, o.numeroCuenta, d.id, d.numeroCuenta, t.saldoAlRegistrar)
+              FROM Transaccion t JOIN t.cuentaOrigen o LEFT JOIN t.cuentaDestino d
+             WHERE t.id = :id
+            """)
+    Optional<TransaccionDTO> buscarDTOPorId(@Param("id") Long id);
 }
\ No newline at end of file
@@ -0,0 +1,72 @@
+package com.financiera.backend.repository;
+
+import com.financiera.backend.dto.SaldoAFechaDTO;
+import com.financiera.backend.dto.TransaccionDTO;
+import com.financiera.backend.entity.Transaccion;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+
+public interface TransaccionRepositoryCustom {
+
+    // Registra el movimiento en una sola sentencia sin actualizar la fila de saldo, que solo se comparte (FOR KEY
+    // SHARE). Los débitos deben llamarse con la fila de saldo ya bloqueada (bloquearSaldos) para que la validación
+    // vea los créditos confirmados. En una cuenta franjeada el crédito suma en una de sus franjas y el débito se
+    // descuenta de su saldo consolidado. Retorna vacío si la cuenta no existe, no está activa o el débito deja en
+    // negativo una cuenta de ahorros; un crédito franjeado puede haber sumado ya en su franja, así que el llamador
+    // debe deshacer la transacción.
+    Optional<TransaccionDTO> aplicarMovimiento(Long cuentaId,
+                                               Transaccion.TipoTransaccion tipoTransaccion,
+                                               Transaccion.TipoMovimiento tipoMovimiento,
+                                               BigDecimal monto,
+                                               String descripcion);
+
+    // Débito en origen, crédito en destino y ambos movimientos en una sola sentencia. El origen debe estar bloqueado
+    // (bloquearSaldos). Retorna [débito, crédito], o una lista vacía si alguna de las dos cuentas rechaza el movimiento.
+    List<TransaccionDTO> aplicarTransferencia(Long cuentaOrigenId,
+                                              Long cuentaDestinoId,
+                                              BigDecimal monto,
+                                              String descripcion);
+
+    // Inserta los movimientos en lotes JDBC y completa el ID y la fecha de cada uno. La fecha es la hora de inicio
+    // de la transacción en la base, la misma que usan los movimientos individuales y la consolidación de saldos
+    List<TransaccionDTO> insertarMovimientos(List<TransaccionDTO> movimientos);
+
+    // Movimientos de la cuenta (como origen o destino) del más reciente al más antiguo, a partir de la
+    // posición (fechaCursor, idCursor) sin incluirla. Los filtros y el cursor en null no se aplican.
+    List<TransaccionDTO> buscarEstadoCuenta(Long cuentaId,
+                                            LocalDateTime desde,
+                                            LocalDateTime hastaExclusive,
+                                            Transaccion.TipoMovimiento tipoMovimiento,
+                                            LocalDateTime fechaCursor,
+                                            Long idCursor,
+                                            int limite);
+
+    // Recorre todos los movimientos de la cuenta del más antiguo al más reciente con un cursor de solo avance,
+    // entregando cada fila al manejador sin acumularlas. Debe llamarse dentro de una transacción.
+    void recorrerEstadoCuenta(Long cuentaId,
+                              LocalDateTime desde,
+                              LocalDateTime hastaExclusive,
+                              Transaccion.TipoMovimiento tipoMovimiento,
+                              RowCallbackHandler manejador);
+
+    // Movimientos propios de la cuenta (en los que es origen) en [desde, hastaExclusive), del más antiguo
+    // al más reciente. Recorre solo el tramo del índice (cuenta_origen_id, fecha_transaccion) del periodo.
+    List<TransaccionDTO> buscarMovimientosPeriodo(Long cuentaId, LocalDateTime desde, LocalDateTime hastaExclusive);
+
+    // Saldo de cada cuenta en la fecha: el saldo de su último cierre mensual terminado hasta esa fecha más sus
+    // movimientos propios posteriores, sumados desde la frontera del archivo si es más reciente (null si no hay
+    // archivo). También trae su último movimiento hasta la fecha. Las cuentas inexistentes o creadas después de
+    // la fecha no aparecen; las demás, en el orden recibido.
+    List<SaldoAFechaDTO> buscarSaldosAFecha(Collection<Long> cuentaIds, LocalDateTime fecha, LocalDateTime frontera);
+
+    // Entrega cada movimiento de la partición una vez por cada cuenta que participa (origen y destino), ordenados
+    // por (cuenta, fecha, id). particion debe ser el nombre de una partición de transacciones ya validado.
+    // Debe llamarse dentro de una transacción.
+    void recorrerParticion(String particion, BiConsumer<Long, TransaccionDTO> consumidor);
+}
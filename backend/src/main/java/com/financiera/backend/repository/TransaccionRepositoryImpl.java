@@ -0,0 +1,520 @@
+package com.financiera.backend.repository;
+
+import com.financiera.backend.dto.SaldoAFechaDTO;
+import com.financiera.backend.dto.TransaccionDTO;
+import com.financiera.backend.entity.Producto;
+import com.financiera.backend.entity.Transaccion;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+
+@RequiredArgsConstructor
+public class TransaccionRepositoryImpl implements TransaccionRepositoryCustom {
+
+    // El movimiento solo se inserta: el saldo de la cuenta se deriva del libro (ver saldo_cuenta en schema.sql).
+    // FOR KEY SHARE no choca con otros créditos ni con los débitos, solo con un cambio de estado en curso; si
+    // hubo que esperarlo, el estado se evalúa otra vez con el valor nuevo. La condición de saldo solo aplica a
+    // los débitos de cuentas de ahorros, que llegan con la cuenta ya bloqueada por ProductoRepository.bloquearSaldos.
+    // saldo_despues es el saldo visible para esta sentencia más el movimiento: no incluye créditos
+    // simultáneos que aún no confirman. Solo aplica a cuentas sin franjas.
+    private static final String SQL_MOVIMIENTO = """
+            WITH cuenta AS (
+                SELECT s.cuenta_id AS id, p.numero_cuenta, p.tipo_cuenta, saldo_cuenta(s.cuenta_id) AS saldo
+                  FROM saldos_productos s
+                  JOIN productos p ON p.id = s.cuenta_id
+                 WHERE s.cuenta_id = :cuentaId
+                   AND s.estado = :estadoActiva
+                   AND s.franjas = 1
+                   FOR KEY SHARE OF s
+            ), movimiento AS (
+                INSERT INTO transacciones (id, tipo_transaccion, tipo_movimiento, monto, descripcion,
+                                           fecha_transaccion, cuenta_origen_id, saldo_despues)
+                SELECT :id, :tipoTransaccion, :tipoMovimiento, :monto, :descripcion,
+                       LOCALTIMESTAMP, cuenta.id, cuenta.saldo + :delta
+                  FROM cuenta
+                 WHERE cuenta.tipo_cuenta <> :tipoAhorros OR cuenta.saldo + :delta >= 0
+                RETURNING id, tipo_transaccion, tipo_movimiento, monto, descripcion,
+                          fecha_transaccion, cuenta_origen_id, cuenta_destino_id, saldo_despues
+            )
+            SELECT m.*, cuenta.numero_cuenta AS numero_cuenta_origen, NULL AS numero_cuenta_destino
+              FROM movimiento m, cuenta
+            """;
+
+    // Un crédito a una cuenta franjeada suma en la franja que corresponde a la conexión, sin tocar la fila de
+    // saldo: los créditos simultáneos solo coinciden si caen en la misma franja. El estado se verifica después,
+    // en SQL_CREDITO_FRANJEADO, con una instantánea nueva: si un cambio de estado confirmó antes, el crédito ve
+    // la cuenta inactiva y se deshace; si no, ese cambio espera la franja que este crédito tiene bloqueada.
+    private static final String SQL_FRANJA = """
+            UPDATE franjas_saldo f
+               SET saldo = f.saldo + :monto, movimientos = f.movimientos + 1
+              FROM saldos_productos s
+             WHERE s.cuenta_id = :cuentaId
+               AND s.franjas > 1
+               AND f.cuenta_id = s.cuenta_id
+               AND f.franja = (hashint4(pg_backend_pid()) & 2147483647) % s.franjas
+            """;
+
+    // saldo_cuenta ya incluye la franja que acaba de actualizar la propia transacción
+    private static final String SQL_CREDITO_FRANJEADO = """
+            WITH cuenta AS (
+                SELECT s.cuenta_id AS id, p.numero_cuenta, saldo_cuenta(s.cuenta_id) AS saldo
+                  FROM saldos_productos s
+                  JOIN productos p ON p.id = s.cuenta_id
+                 WHERE s.cuenta_id = :cuentaId
+                   AND s.estado = :estadoActiva
+                   AND s.franjas > 1
+            ), movimiento AS (
+                INSERT INTO transacciones (id, tipo_transaccion, tipo_movimiento, monto, descripcion,
+                                           fecha_transaccion, cuenta_origen_id, saldo_despues)
+                SELECT :id, :tipoTransaccion, :tipoMovimiento, :monto, :descripcion,
+                       LOCALTIMESTAMP, cuenta.id, cuenta.saldo
+                  FROM cuenta
+                RETURNING id, tipo_transaccion, tipo_movimiento, monto, descripcion,
+                          fecha_transaccion, cuenta_origen_id, cuenta_destino_id, saldo_despues
+            )
+            SELECT m.*, cuenta.numero_cuenta AS numero_cuenta_origen, NULL AS numero_cuenta_destino
+              FROM movimiento m, cuenta
+            """;
+
+    // Un débito a una cuenta franjeada llega con la fila de saldo bloqueada y se descuenta de lo consolidado.
+    // La condición de saldo usa el agregado: lo consolidado más todas las franjas.
+    private static final String SQL_DEBITO_FRANJEADO = """
+            WITH cuenta AS (
+                SELECT s.cuenta_id AS id, p.numero_cuenta, actual.saldo + :delta AS saldo
+                  FROM saldos_productos s
+                  JOIN productos p ON p.id = s.cuenta_id
+                 CROSS JOIN LATERAL (SELECT saldo_cuenta(s.cuenta_id) AS saldo) actual
+                 WHERE s.cuenta_id = :cuentaId
+                   AND s.estado = :estadoActiva
+                   AND s.franjas > 1
+                   AND (p.tipo_cuenta <> :tipoAhorros OR actual.saldo + :delta >= 0)
+            ), ajuste AS (
+                UPDATE saldos_productos s
+                   SET saldo = s.saldo + :delta, version = s.version + 1
+                  FROM cuenta
+                 WHERE s.cuenta_id = cuenta.id
+            ), movimiento AS (
+                INSERT INTO transacciones (id, tipo_transaccion, tipo_movimiento, monto, descripcion,
+                                           fecha_transaccion, cuenta_origen_id, saldo_despues)
+                SELECT :id, :tipoTransaccion, :tipoMovimiento, :monto, :descripcion,
+                       LOCALTIMESTAMP, cuenta.id, cuenta.saldo
+                  FROM cuenta
+                RETURNING id, tipo_transaccion, tipo_movimiento, monto, descripcion,
+                          fecha_transaccion, cuenta_origen_id, cuenta_destino_id, saldo_despues
+            )
+            SELECT m.*, cuenta.numero_cuenta AS numero_cuenta_origen, NULL AS numero_cuenta_destino
+              FROM movimiento m, cuenta
+            """;
+
+    // Los dos movimientos se insertan juntos y cuadrados: débito en origen y crédito en destino por el mismo
+    // monto, o ninguno. El origen llega bloqueado; el destino se trata como cualquier crédito. Si el origen es
+    // franjeado, el débito se descuenta de su consolidado; si lo es el destino, el crédito suma en una franja.
+    private static final String SQL_TRANSFERENCIA = """
+            WITH origen AS (
+                SELECT s.cuenta_id AS id, p.numero_cuenta, s.franjas, actual.saldo - :monto AS saldo
+                  FROM saldos_productos s
+                  JOIN productos p ON p.id = s.cuenta_id
+                 CROSS JOIN LATERAL (SELECT saldo_cuenta(s.cuenta_id) AS saldo) actual
+                 WHERE s.cuenta_id = :cuentaOrigenId
+                   AND s.estado = :estadoActiva
+                   AND (p.tipo_cuenta <> :tipoAhorros OR actual.saldo >= :monto)
+            ), destino AS (
+                SELECT s.cuenta_id AS id, p.numero_cuenta, s.franjas, saldo_cuenta(s.cuenta_id) + :monto AS saldo
+                  FROM saldos_productos s
+                  JOIN productos p ON p.id = s.cuenta_id
+                 WHERE s.cuenta_id = :cuentaDestinoId
+                   AND s.estado = :estadoActiva
+                   AND EXISTS (SELECT 1 FROM origen)
+                   FOR KEY SHARE OF s
+            ), ajuste AS (
+                UPDATE saldos_productos s
+                   SET saldo = s.saldo - :monto, version = s.version + 1
+                  FROM origen, destino
+                 WHERE s.cuenta_id = origen.id
+                   AND origen.franjas > 1
+            ), franja AS (
+                UPDATE franjas_saldo f
+                   SET saldo = f.saldo + :monto, movimientos = f.movimientos + 1
+                  FROM origen, destino
+                 WHERE f.cuenta_id = destino.id
+                   AND destino.franjas > 1
+                   AND f.franja = (hashint4(pg_backend_pid()) & 2147483647) % destino.franjas
+            ), movimientos AS (
+                INSERT INTO transacciones (id, tipo_transaccion, tipo_movimiento, monto, descripcion,
+                                           fecha_transaccion, cuenta_origen_id, cuenta_destino_id, saldo_despues)
+                SELECT :idDebito, :tipoTransferencia, :tipoDebito, :monto,
+                       COALESCE(:descripcion, 'Transferencia a cuenta ' || destino.numero_cuenta),
+                       LOCALTIMESTAMP, origen.id, destino.id, origen.saldo
+                  FROM origen, destino
+                UNION ALL
+                SELECT :idCredito, :tipoTransferencia, :tipoCredito, :monto,
+                       COALESCE(:descripcion, 'Transferencia desde cuenta ' || origen.numero_cuenta),
+                       LOCALTIMESTAMP, destino.id, origen.id, destino.saldo
+                  FROM origen, destino
+                RETURNING id, tipo_transaccion, tipo_movimiento, monto, descripcion,
+                          fecha_transaccion, cuenta_origen_id, cuenta_destino_id, saldo_despues
+            )
+            SELECT m.*,
+                   CASE WHEN m.cuenta_origen_id = origen.id THEN origen.numero_cuenta ELSE destino.numero_cuenta END
+                       AS numero_cuenta_origen,
+                   CASE WHEN m.cuenta_origen_id = origen.id THEN destino.numero_cuenta ELSE origen.numero_cuenta END
+                       AS numero_cuenta_destino
+              FROM movimientos m, origen, destino
+             ORDER BY CASE WHEN m.tipo_movimiento = :tipoDebito THEN 0 ELSE 1 END
+            """;
+
+    // Con reWriteBatchedInserts el driver convierte cada lote en INSERTs de múltiples filas
+    private static final String SQL_INSERTAR_MOVIMIENTO = """
+            INSERT INTO transacciones (id, tipo_transaccion, tipo_movimiento, monto, descripcion,
+                                       fecha_transaccion, cuenta_origen_id, cuenta_destino_id, saldo_despues)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    // Cada rama recorre su índice (cuenta, fecha_transaccion, id) desde el cursor y se detiene en :limite filas,
+    // así el costo no depende de cuánta historia tenga la cuenta. %s recibe los filtros opcionales.
+    private static final String SQL_ESTADO_CUENTA = """
+            SELECT m.*, po.numero_cuenta AS numero_cuenta_origen, pd.numero_cuenta AS numero_cuenta_destino
+              FROM ((SELECT t.* FROM transacciones t
+                      WHERE t.cuenta_origen_id = :cuentaId%1$s
+                      ORDER BY t.fecha_transaccion DESC, t.id DESC
+                      LIMIT :limite)
+                    UNION ALL
+                    (SELECT t.* FROM transacciones t
+                      WHERE t.cuenta_destino_id = :cuentaId%1$s
+                      ORDER BY t.fecha_transaccion DESC, t.id DESC
+                      LIMIT :limite)) m
+              JOIN productos po ON po.id = m.cuenta_origen_id
+              LEFT JOIN productos pd ON pd.id = m.cuenta_destino_id
+             ORDER BY m.fecha_transaccion DESC, m.id DESC
+             LIMIT :limite
+            """;
+
+    // Las dos ramas ya vienen ordenadas por sus índices, así que el orden final se obtiene intercalándolas
+    // (Merge Append) sin ordenar en memoria. Los números de cuenta se leen con subconsultas escalares para
+    // no introducir joins que rompan ese orden.
+    private static final String SQL_EXPORTAR_ESTADO_CUENTA = """
+            SELECT m.*,
+                   (SELECT p.numero_cuenta FROM productos p WHERE p.id = m.cuenta_origen_id) AS numero_cuenta_origen,
+                   (SELECT p.numero_cuenta FROM productos p WHERE p.id = m.cuenta_destino_id) AS numero_cuenta_destino
+              FROM (SELECT t.* FROM transacciones t WHERE t.cuenta_origen_id = ?%1$s
+                    UNION ALL
+                    SELECT t.* FROM transacciones t WHERE t.cuenta_destino_id = ?%1$s) m
+             ORDER BY m.fecha_transaccion, m.id
+            """;
+
+    private static final String SQL_MOVIMIENTOS_PERIODO = """
+            SELECT t.*, po.numero_cuenta AS numero_cuenta_origen, pd.numero_cuenta AS numero_cuenta_destino
+              FROM transacciones t
+              JOIN productos po ON po.id = t.cuenta_origen_id
+              LEFT JOIN productos pd ON pd.id = t.cuenta_destino_id
+             WHERE t.cuenta_origen_id = :cuentaId
+               AND t.fecha_transaccion >= :desde
+               AND t.fecha_transaccion < :hasta
+             ORDER BY t.fecha_transaccion, t.id
+            """;
+
+    // El saldo en la fecha parte del último cierre mensual que terminó antes de ella y suma los movimientos
+    // propios desde ese cierre, sin depender del saldo_despues de cada fila. La suma en la base empieza en la
+    // frontera del archivo: lo anterior lo completa el servicio desde los segmentos. También se retorna el
+    // último movimiento propio hasta la fecha, un descenso por el índice.
+    private static final String SQL_SALDOS_A_FECHA = """
+            SELECT c.id AS cuenta_id, p.numero_cuenta, u.id AS transaccion_id, u.fecha_transaccion,
+                   COALESCE(ci.saldo_cierre, 0) + COALESCE(m.neto, 0) AS saldo
+              FROM unnest(?) WITH ORDINALITY AS c(id, posicion)
+              JOIN productos p ON p.id = c.id AND p.fecha_creacion <= ?
+              LEFT JOIN LATERAL (
+                    SELECT cm.saldo_cierre, cm.periodo + INTERVAL '1 month' AS fin
+                      FROM cierres_mensuales cm
+                     WHERE cm.cuenta_id = c.id
+                       AND cm.periodo + INTERVAL '1 month' <= ?
+                     ORDER BY cm.periodo DESC
+                     LIMIT 1) ci ON TRUE
+              LEFT JOIN LATERAL (
+                    SELECT SUM(CASE WHEN t.tipo_movimiento = ? THEN t.monto ELSE -t.monto END) AS neto
+                      FROM transacciones t
+                     WHERE t.cuenta_origen_id = c.id
+                       AND t.fecha_transaccion >= GREATEST(ci.fin, ?)
+                       AND t.fecha_transaccion <= ?) m ON TRUE
+              LEFT JOIN LATERAL (
+                    SELECT t.id, t.fecha_transaccion
+                      FROM transacciones t
+                     WHERE t.cuenta_origen_id = c.id
+                       AND t.fecha_transaccion <= ?
+                     ORDER BY t.fecha_transaccion DESC, t.id DESC
+                     LIMIT 1) u ON TRUE
+             ORDER BY c.posicion
+            """;
+
+    // Cada fila aparece una vez por cuenta: como origen y, en las transferencias, también como destino.
+    // %s recibe el nombre de la partición.
+    private static final String SQL_RECORRER_PARTICION = """
+            SELECT m.*, po.numero_cuenta AS numero_cuenta_origen, pd.numero_cuenta AS numero_cuenta_destino
+              FROM (SELECT t.cuenta_origen_id AS cuenta_id, t.* FROM %1$s t
+                    UNION ALL
+                    SELECT t.cuenta_destino_id AS cuenta_id, t.* FROM %1$s t WHERE t.cuenta_destino_id IS NOT NULL) m
+              JOIN productos po ON po.id = m.cuenta_origen_id
+              LEFT JOIN productos pd ON pd.id = m.cuenta_destino_id
+             ORDER BY m.cuenta_id, m.fecha_transaccion, m.id
+            """;
+
+    // Filas que el driver trae por viaje; sin fetch size PostgreSQL carga el resultado completo en memoria
+    private static final int TAMANO_LECTURA_EXPORTACION = 1000;
+
+    private static final String SQL_INICIO_TRANSACCION = "SELECT LOCALTIMESTAMP";
+
+    private static final String SECUENCIA_TRANSACCIONES = "transacciones_seq";
+
+    private static final int TAMANO_LOTE_INSERCION = 500;
+
+    private static final RowMapper<TransaccionDTO> MAPEO_MOVIMIENTO = (rs, fila) -> {
+        TransaccionDTO dto = new TransaccionDTO();
+        dto.setId(rs.getLong("id"));
+        dto.setTipoTransaccion(Transaccion.TipoTransaccion.valueOf(rs.getString("tipo_transaccion")));
+        dto.setTipoMovimiento(Transaccion.TipoMovimiento.valueOf(rs.getString("tipo_movimiento")));
+        dto.setMonto(rs.getBigDecimal("monto"));
+        dto.setDescripcion(rs.getString("descripcion"));
+        dto.setFechaTransaccion(rs.getTimestamp("fecha_transaccion").toLocalDateTime());
+        dto.setSaldoAlRegistrar(rs.getBigDecimal("saldo_despues"));
+        dto.setCuentaOrigenId(rs.getLong("cuenta_origen_id"));
+        dto.setNumeroCuentaOrigen(rs.getString("numero_cuenta_origen"));
+        dto.setCuentaDestinoId(rs.getObject("cuenta_destino_id", Long.class));
+        dto.setNumeroCuentaDestino(rs.getString("numero_cuenta_destino"));
+        return dto;
+    };
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final AsignadorIds asignadorIds;
+
+    @Override
+    public Optional<TransaccionDTO> aplicarMovimiento(Long cuentaId,
+                                                      Transaccion.TipoTransaccion tipoTransaccion,
+                                                      Transaccion.TipoMovimiento tipoMovimiento,
+                                                      BigDecimal monto,
+                                                      String descripcion) {
+        BigDecimal delta = tipoMovimiento == Transaccion.TipoMovimiento.DEBITO ? monto.negate() : monto;
+
+        MapSqlParameterSource parametros = parametrosBase()
+                .addValue("id", asignadorIds.siguiente(SECUENCIA_TRANSACCIONES))
+                .addValue("cuentaId", cuentaId)
+                .addValue("delta", delta)
+                .addValue("monto", monto)
+                .addValue("tipoTransaccion", tipoTransaccion.name())
+                .addValue("tipoMovimiento", tipoMovimiento.name())
+                .addValue("descripcion", descripcion, Types.VARCHAR);
+
+        Optional<TransaccionDTO> movimiento = jdbcTemplate.query(SQL_MOVIMIENTO, parametros, MAPEO_MOVIMIENTO)
+                .stream()
+                .findFirst();
+        if (movimiento.isPresent()) {
+            return movimiento;
+        }
+
+        // La cuenta no existe, no está activa, no alcanza el saldo o es franjeada
+        if (tipoMovimiento == Transaccion.TipoMovimiento.CREDITO) {
+            if (jdbcTemplate.update(SQL_FRANJA, parametros) == 0) {
+                return Optional.empty();
+            }
+            return jdbcTemplate.query(SQL_CREDITO_FRANJEADO, parametros, MAPEO_MOVIMIENTO).stream().findFirst();
+        }
+        return jdbcTemplate.query(SQL_DEBITO_FRANJEADO, parametros, MAPEO_MOVIMIENTO).stream().findFirst();
+    }
+
+    @Override
+    public List<TransaccionDTO> aplicarTransferencia(Long cuentaOrigenId,
+                                                     Long cuentaDestinoId,
+                                                     BigDecimal monto,
+                                                     String descripcion) {
+        MapSqlParameterSource parametros = parametrosBase()
+                .addValue("idDebito", asignadorIds.siguiente(SECUENCIA_TRANSACCIONES))
+                .addValue("idCredito", asignadorIds.siguiente(SECUENCIA_TRANSACCIONES))
+                .addValue("cuentaOrigenId", cuentaOrigenId)
+                .addValue("cuentaDestinoId", cuentaDestinoId)
+                .addValue("monto", monto)
+                .addValue("tipoTransferencia", Transaccion.TipoTransaccion.TRANSFERENCIA.name())
+                .addValue("tipoDebito", Transaccion.TipoMovimiento.DEBITO.name())
+                .addValue("tipoCredito", Transaccion.TipoMovimiento.CREDITO.name())
+                .addValue("descripcion", descripcion, Types.VARCHAR);
+
+        return jdbcTemplate.query(SQL_TRANSFERENCIA, parametros, MAPEO_MOVIMIENTO);
+    }
+
+    @Override
+    public List<TransaccionDTO> insertarMovimientos(List<TransaccionDTO> movimientos) {
+        if (movimientos.isEmpty()) {
+            return movimientos;
+        }
+
+        // La fecha es el inicio de la transacción en la base, igual que en los movimientos individuales: la
+        // consolidación de saldos cuenta con que ningún movimiento tenga una fecha anterior a su transacción
+        long[] ids = asignadorIds.reservar(SECUENCIA_TRANSACCIONES, movimientos.size());
+        LocalDateTime fecha = jdbcTemplate.getJdbcTemplate().queryForObject(SQL_INICIO_TRANSACCION, LocalDateTime.class);
+        for (int i = 0; i < movimientos.size(); i++) {
+            movimientos.get(i).setId(ids[i]);
+            movimientos.get(i).setFechaTransaccion(fecha);
+        }
+
+        jdbcTemplate.getJdbcTemplate().batchUpdate(SQL_INSERTAR_MOVIMIENTO, movimientos, TAMANO_LOTE_INSERCION,
+                (ps, movimiento) -> {
+                    ps.setLong(1, movimiento.getId());
+                    ps.setString(2, movimiento.getTipoTransaccion().name());
+                    ps.setString(3, movimiento.getTipoMovimiento().name());
+                    ps.setBigDecimal(4, movimiento.getMonto());
+                    ps.setString(5, movimiento.getDescripcion());
+                    ps.setTimestamp(6, Timestamp.valueOf(movimiento.getFechaTransaccion()));
+                    ps.setLong(7, movimiento.getCuentaOrigenId());
+                    ps.setObject(8, movimiento.getCuentaDestinoId(), Types.BIGINT);
+                    ps.setBigDecimal(9, movimiento.getSaldoAlRegistrar());
+                });
+
+        return movimientos;
+    }
+
+    @Override
+    public List<TransaccionDTO> buscarEstadoCuenta(Long cuentaId,
+                                                   LocalDateTime desde,
+                                                   LocalDateTime hastaExclusive,
+                                                   Transaccion.TipoMovimiento tipoMovimiento,
+                                                   LocalDateTime fechaCursor,
+                                                   Long idCursor,
+                                                   int limite) {
+        MapSqlParameterSource parametros = new MapSqlParameterSource()
+                .addValue("cuentaId", cuentaId)
+                .addValue("limite", limite);
+        StringBuilder filtros = new StringBuilder();
+
+        if (desde != null) {
+            filtros.append(" AND t.fecha_transaccion >= :desde");
+            parametros.addValue("desde", Timestamp.valueOf(desde));
+        }
+        if (hastaExclusive != null) {
+            filtros.append(" AND t.fecha_transaccion < :hasta");
+            parametros.addValue("hasta", Timestamp.valueOf(hastaExclusive));
+        }
+        if (tipoMovimiento != null) {
+            filtros.append(" AND t.tipo_movimiento = :tipoMovimiento");
+            parametros.addValue("tipoMovimiento", tipoMovimiento.name());
+        }
+        if (fechaCursor != null) {
+            // La comparación de filas no descarta particiones; la condición sobre la fecha sola sí
+            filtros.append(" AND t.fecha_transaccion <= :fechaCursor"
+                    + " AND (t.fecha_transaccion, t.id) < (:fechaCursor, :idCursor)");
+            parametros.addValue("fechaCursor", Timestamp.valueOf(fechaCursor))
+                    .addValue("idCursor", idCursor);
+        }
+
+        return jdbcTemplate.query(SQL_ESTADO_CUENTA.formatted(filtros), parametros, MAPEO_MOVIMIENTO);
+    }
+
+    @Override
+    public void recorrerEstadoCuenta(Long cuentaId,
+                                     LocalDateTime desde,
+                                     LocalDateTime hastaExclusive,
+                                     Transaccion.TipoMovimiento tipoMovimiento,
+                                     RowCallbackHandler manejador) {
+        StringBuilder filtros = new StringBuilder();
+        List<Object> valoresFiltro = new ArrayList<>();
+
+        if (desde != null) {
+            filtros.append(" AND t.fecha_transaccion >= ?");
+            valoresFiltro.add(Timestamp.valueOf(desde));
+        }
+        if (hastaExclusive != null) {
+            filtros.append(" AND t.fecha_transaccion < ?");
+            valoresFiltro.add(Timestamp.valueOf(hastaExclusive));
+        }
+        if (tipoMovimiento != null) {
+            filtros.append(" AND t.tipo_movimiento = ?");
+            valoresFiltro.add(tipoMovimiento.name());
+        }
+
+        String sql = SQL_EXPORTAR_ESTADO_CUENTA.formatted(filtros);
+
+        jdbcTemplate.getJdbcTemplate().query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(TAMANO_LECTURA_EXPORTACION);
+
+            int posicion = 1;
+            for (int rama = 0; rama < 2; rama++) {
+                ps.setLong(posicion++, cuentaId);
+                for (Object valor : valoresFiltro) {
+                    ps.setObject(posicion++, valor);
+                }
+            }
+            return ps;
+        }, manejador);
+    }
+
+    @Override
+    public List<TransaccionDTO> buscarMovimientosPeriodo(Long cuentaId,
+                                                         LocalDateTime desde,
+                                                         LocalDateTime hastaExclusive) {
+        MapSqlParameterSource parametros = new MapSqlParameterSource()
+                .addValue("cuentaId", cuentaId)
+                .addValue("desde", Timestamp.valueOf(desde))
+                .addValue("hasta", Timestamp.valueOf(hastaExclusive));
+
+        return jdbcTemplate.query(SQL_MOVIMIENTOS_PERIODO, parametros, MAPEO_MOVIMIENTO);
+    }
+
+    @Override
+    public List<SaldoAFechaDTO> buscarSaldosAFecha(Collection<Long> cuentaIds, LocalDateTime fecha,
+                                                   LocalDateTime frontera) {
+        if (cuentaIds.isEmpty()) {
+            return List.of();
+        }
+
+        // GREATEST ignora los NULL: sin cierre ni frontera se suma desde el primer movimiento
+        Timestamp instante = Timestamp.valueOf(fecha);
+        return jdbcTemplate.getJdbcTemplate().query(con -> {
+            PreparedStatement ps = con.prepareStatement(SQL_SALDOS_A_FECHA);
+            ps.setArray(1, con.createArrayOf("bigint", cuentaIds.toArray()));
+            ps.setTimestamp(2, instante);
+            ps.setTimestamp(3, instante);
+            ps.setString(4, Transaccion.TipoMovimiento.CREDITO.name());
+            ps.setTimestamp(5, frontera == null ? null : Timestamp.valueOf(frontera));
+            ps.setTimestamp(6, instante);
+            ps.setTimestamp(7, instante);
+            return ps;
+        }, (rs, fila) -> {
+            Timestamp fechaTransaccion = rs.getTimestamp("fecha_transaccion");
+            return new SaldoAFechaDTO(
+                    rs.getLong("cuenta_id"),
+                    rs.getString("numero_cuenta"),
+                    fecha,
+                    rs.getBigDecimal("saldo"),
+                    rs.getObject("transaccion_id", Long.class),
+                    fechaTransaccion == null ? null : fechaTransaccion.toLocalDateTime());
+        });
+    }
+
+    @Override
+    public void recorrerParticion(String particion, BiConsumer<Long, TransaccionDTO> consumidor) {
+        String sql = SQL_RECORRER_PARTICION.formatted(particion);
+
+        jdbcTemplate.getJdbcTemplate().query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(TAMANO_LECTURA_EXPORTACION);
+            return ps;
+        }, (RowCallbackHandler) rs -> consumidor.accept(rs.getLong("cuenta_id"), MAPEO_MOVIMIENTO.mapRow(rs, 0)));
+    }
+
+    private MapSqlParameterSource parametrosBase() {
+        return new MapSqlParameterSource()
+                .addValue("estadoActiva", Producto.EstadoCuenta.ACTIVA.name())
+                .addValue("tipoAhorros", Producto.TipoCuenta.CUENTA_AHORROS.name());
+    }
+}
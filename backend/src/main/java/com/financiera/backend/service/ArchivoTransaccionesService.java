@@ -0,0 +1,433 @@
+package com.financiera.backend.service;
+
+import com.financiera.backend.dto.TransaccionDTO;
+import com.financiera.backend.entity.Transaccion;
+import com.financiera.backend.repository.CierreMensualRepository;
+import com.financiera.backend.repository.SegmentoTransacciones;
+import com.financiera.backend.repository.TransaccionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Archivo frío de movimientos: las particiones mensuales de transacciones más antiguas que el horizonte se
+ * copian a segmentos comprimidos en disco (ver SegmentoTransacciones) y después se eliminan de la base.
+ *
+ * La frontera es el límite superior de la partición archivada más reciente. Los movimientos anteriores a la
+ * frontera se leen de los segmentos y los posteriores de la base, así que el estado de cuenta, la exportación,
+ * el saldo a fecha y el periodo mensual no distinguen de dónde viene cada fila.
+ *
+ * Con varios nodos el directorio debe ser compartido. Cada nodo relee el catálogo cada intervaloRecarga, y
+ * una partición archivada se elimina de la base solo cuando pasaron dos intervalos desde que se completó: un
+ * nodo con el catálogo anterior sigue encontrando esos movimientos en la base.
+ *
+ * Solo se archivan meses que ya tienen cierre mensual, porque la generación de cierres necesita en la base
+ * los movimientos desde el inicio del mes que se cierra.
+ */
+@Slf4j
+@Service
+public class ArchivoTransaccionesService {
+
+    // Un solo nodo archiva a la vez; los demás omiten la ejecución
+    private static final long CLAVE_BLOQUEO = 0x46545853L;
+
+    private static final String SQL_BLOQUEO = "SELECT pg_try_advisory_xact_lock(?)";
+
+    private static final String EXTENSION_SEGMENTO = ".seg";
+    private static final String EXTENSION_COMPLETO = ".completo";
+
+    private final TransaccionRepository transaccionRepository;
+    private final CierreMensualRepository cierreMensualRepository;
+    private final ParticionesTransaccionesService particionesService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate escritura;
+    private final boolean habilitado;
+    private final Path directorio;
+    private final int horizonteMeses;
+    private final Duration intervaloRecarga;
+
+    private volatile Catalogo catalogo = Catalogo.VACIO;
+
+    public ArchivoTransaccionesService(TransaccionRepository transaccionRepository,
+                                       CierreMensualRepository cierreMensualRepository,
+                                       ParticionesTransaccionesService particionesService,
+                                       JdbcTemplate jdbcTemplate,
+                                       PlatformTransactionManager transactionManager,
+                                       @Value("${financiera.archivo.habilitado:false}") boolean habilitado,
+                                       @Value("${financiera.archivo.directorio:archivo-transacciones}") String directorio,
+                                       @Value("${financiera.archivo.horizonte-meses:3}") int horizonteMeses,
+                                       @Value("${financiera.archivo.intervalo-recarga:1m}") Duration intervaloRecarga) {
+        this.transaccionRepository = transaccionRepository;
+        this.cierreMensualRepository = cierreMensualRepository;
+        this.particionesService = particionesService;
+        this.jdbcTemplate = jdbcTemplate;
+        // Sin solo lectura: el bloqueo y el recorrido de la partición van a la primaria
+        this.escritura = new TransactionTemplate(transactionManager);
+        this.habilitado = habilitado;
+        this.directorio = Path.of(directorio);
+        this.horizonteMeses = horizonteMeses;
+        this.intervaloRecarga = intervaloRecarga;
+    }
+
+    @Scheduled(cron = "${financiera.archivo.cron:0 0 2 * * *}")
+    public void archivarProgramado() {
+        if (habilitado) {
+            archivar();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${financiera.archivo.intervalo-recarga:1m}",
+            initialDelayString = "${financiera.archivo.intervalo-recarga:1m}")
+    public void recargarProgramado() {
+        if (habilitado) {
+            recargar();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarAlIniciar() {
+        if (!habilitado) {
+            return;
+        }
+        try {
+            recargar();
+        } catch (RuntimeException ex) {
+            log.error("No se pudo cargar el archivo de transacciones de {}", directorio, ex);
+        }
+    }
+
+    // Primer instante que no está archivado, o null si no hay nada archivado
+    public LocalDateTime frontera() {
+        return catalogo.frontera();
+    }
+
+    /**
+     * Archiva, en orden, las particiones que terminan antes del horizonte y ya tienen cierre mensual, y
+     * elimina de la base las que se archivaron en ejecuciones anteriores. Si una partición falla se detiene
+     * ahí: la frontera no puede dejar atrás una partición sin archivar.
+     */
+    public void archivar() {
+        List<String> paraEliminar = new ArrayList<>();
+        escritura.executeWithoutResult(estado -> {
+            if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(SQL_BLOQUEO, Boolean.class, CLAVE_BLOQUEO))) {
+                log.info("Otro nodo está archivando transacciones");
+                return;
+            }
+            try {
+                Files.createDirectories(directorio);
+                for (String particion : particionesService.particionesTerminadasAntesDe(limiteArchivable())) {
+                    Path completo = directorio.resolve(particion + EXTENSION_COMPLETO);
+                    if (!Files.exists(completo)) {
+                        archivarParticion(particion, completo);
+                    } else if (Files.getLastModifiedTime(completo).toInstant()
+                            .isBefore(Instant.now().minus(intervaloRecarga.multipliedBy(2)))) {
+                        paraEliminar.add(particion);
+                    }
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+        recargar();
+
+        // DETACH PARTITION CONCURRENTLY no puede correr dentro de una transacción
+        for (String particion : paraEliminar) {
+            try {
+                particionesService.eliminarParticion(particion);
+            } catch (DataAccessException ex) {
+                log.warn("No se pudo eliminar la partición archivada {}: {}", particion, ex.getMessage());
+            }
+        }
+    }
+
+    // Relee el catálogo del directorio. Una partición completa no cambia, así que sus segmentos ya mapeados se
+    // conservan y solo se abren los de particiones nuevas
+    public void recargar() {
+        if (!Files.isDirectory(directorio)) {
+            catalogo = Catalogo.VACIO;
+            return;
+        }
+
+        List<ParticionArchivada> particiones = new ArrayList<>();
+        try (Stream<Path> marcas = Files.list(directorio)) {
+            for (Path marca : marcas.filter(ruta -> ruta.toString().endsWith(EXTENSION_COMPLETO)).toList()) {
+                String nombre = marca.getFileName().toString().replace(EXTENSION_COMPLETO, "");
+                Optional<YearMonth> limite = ParticionesTransaccionesService.limiteSuperior(nombre);
+                if (limite.isEmpty()) {
+                    log.warn("Archivo {} ignorado: no corresponde a una partición", marca);
+                    continue;
+                }
+                Optional<ParticionArchivada> cargada = catalogo.particiones().stream()
+                        .filter(particion -> particion.nombre().equals(nombre))
+                        .findFirst();
+                if (cargada.isPresent()) {
+                    particiones.add(cargada.get());
+                    continue;
+                }
+                List<SegmentoTransacciones> segmentos = new ArrayList<>();
+                for (Path ruta : segmentosDe(nombre)) {
+                    segmentos.add(SegmentoTransacciones.abrir(ruta));
+                }
+                particiones.add(new ParticionArchivada(nombre, limite.get(), segmentos));
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        particiones.sort(Comparator.comparing(ParticionArchivada::limite));
+        catalogo = new Catalogo(particiones);
+    }
+
+    // Movimientos archivados de la cuenta del más reciente al más antiguo, con los mismos filtros y cursor que
+    // TransaccionRepository.buscarEstadoCuenta
+    public List<TransaccionDTO> buscarEstadoCuenta(Long cuentaId,
+                                                   LocalDateTime desde,
+                                                   LocalDateTime hastaExclusive,
+                                                   Transaccion.TipoMovimiento tipoMovimiento,
+                                                   LocalDateTime fechaCursor,
+                                                   Long idCursor,
+                                                   int limite) {
+        List<TransaccionDTO> resultado = new ArrayList<>();
+        List<ParticionArchivada> particiones = catalogo.particiones();
+
+        for (int i = particiones.size() - 1; i >= 0 && resultado.size() < limite; i--) {
+            if (!particiones.get(i).terminaDespuesDe(desde)) {
+                break;
+            }
+            if (i > 0 && particiones.get(i - 1).terminaDespuesDe(hastaExclusive)) {
+                continue;
+            }
+            List<TransaccionDTO> movimientos = leer(particiones.get(i), cuentaId);
+            for (int j = movimientos.size() - 1; j >= 0 && resultado.size() < limite; j--) {
+                TransaccionDTO movimiento = movimientos.get(j);
+                if (cumple(movimiento, desde, hastaExclusive, tipoMovimiento)
+                        && antesDelCursor(movimiento, fechaCursor, idCursor)) {
+                    resultado.add(movimiento);
+                }
+            }
+        }
+        return resultado;
+    }
+
+    // Movimientos archivados de la cuenta del más antiguo al más reciente, de a una partición en memoria
+    public void recorrerEstadoCuenta(Long cuentaId,
+                                     LocalDateTime desde,
+                                     LocalDateTime hastaExclusive,
+                                     Transaccion.TipoMovimiento tipoMovimiento,
+                                     Consumer<TransaccionDTO> consumidor) {
+        List<ParticionArchivada> particiones = catalogo.particiones();
+
+        for (int i = 0; i < particiones.size(); i++) {
+            if (!particiones.get(i).terminaDespuesDe(desde)) {
+                continue;
+            }
+            if (i > 0 && particiones.get(i - 1).terminaDespuesDe(hastaExclusive)) {
+                break;
+            }
+            for (TransaccionDTO movimiento : leer(particiones.get(i), cuentaId)) {
+                if (cumple(movimiento, desde, hastaExclusive, tipoMovimiento)) {
+                    consumidor.accept(movimiento);
+                }
+            }
+        }
+    }
+
+    // Movimientos archivados en los que la cuenta es origen, en [desde, hastaExclusive)
+    public List<TransaccionDTO> buscarMovimientosPropios(Long cuentaId, LocalDateTime desde,
+                                                         LocalDateTime hastaExclusive) {
+        List<TransaccionDTO> movimientos = new ArrayList<>();
+        recorrerEstadoCuenta(cuentaId, desde, hastaExclusive, null, movimiento -> {
+            if (movimiento.getCuentaOrigenId().equals(cuentaId)) {
+                movimientos.add(movimiento);
+            }
+        });
+        return movimientos;
+    }
+
+    // Último movimiento archivado en el que la cuenta es origen, hasta la fecha inclusive
+    public Optional<TransaccionDTO> buscarUltimoMovimientoPropio(Long cuentaId, LocalDateTime fecha) {
+        List<ParticionArchivada> particiones = catalogo.particiones();
+
+        for (int i = particiones.size() - 1; i >= 0; i--) {
+            if (i > 0 && particiones.get(i - 1).terminaDespuesDe(fecha)) {
+                continue;
+            }
+            List<TransaccionDTO> movimientos = leer(particiones.get(i), cuentaId);
+            for (int j = movimientos.size() - 1; j >= 0; j--) {
+                TransaccionDTO movimiento = movimientos.get(j);
+                if (movimiento.getCuentaOrigenId().equals(cuentaId) && !movimiento.getFechaTransaccion().isAfter(fecha)) {
+                    return Optional.of(movimiento);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    // Metodos auxiliares
+
+    // Primer mes que no se archiva: el del horizonte, o el siguiente al último cierre si este es anterior
+    private YearMonth limiteArchivable() {
+        YearMonth horizonte = YearMonth.now().minusMonths(horizonteMeses);
+        YearMonth siguienteAlCierre = cierreMensualRepository.buscarUltimoPeriodo()
+                .map(periodo -> YearMonth.from(periodo).plusMonths(1))
+                .orElse(YearMonth.from(LocalDate.MIN));
+        return siguienteAlCierre.isBefore(horizonte) ? siguienteAlCierre : horizonte;
+    }
+
+    // Los segmentos de un intento interrumpido se sobrescriben; la marca se escribe solo al final
+    private void archivarParticion(String particion, Path completo) throws IOException {
+        if (ParticionesTransaccionesService.limiteSuperior(particion).isEmpty()) {
+            throw new IllegalArgumentException("No es una partición de transacciones: " + particion);
+        }
+        for (Path anterior : segmentosDe(particion)) {
+            Files.delete(anterior);
+        }
+
+        long inicio = System.nanoTime();
+        EscrituraSegmentos escritura = new EscrituraSegmentos(particion);
+        try {
+            transaccionRepository.recorrerParticion(particion, (cuentaId, movimiento) -> {
+                try {
+                    escritura.agregar(cuentaId, movimiento);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            escritura.terminar();
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        } finally {
+            escritura.cerrar();
+        }
+
+        Files.writeString(completo, escritura.movimientos + " movimientos\n");
+        log.info("Partición {} archivada: {} movimientos en {} segmentos ({} ms)", particion,
+                escritura.movimientos, escritura.segmentos, Duration.ofNanos(System.nanoTime() - inicio).toMillis());
+    }
+
+    private List<Path> segmentosDe(String particion) throws IOException {
+        String prefijo = particion + ".";
+        try (Stream<Path> rutas = Files.list(directorio)) {
+            return rutas.filter(ruta -> {
+                        String nombre = ruta.getFileName().toString();
+                        return nombre.startsWith(prefijo) && nombre.endsWith(EXTENSION_SEGMENTO);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    // Una cuenta está en a lo sumo un segmento de cada partición
+    private static List<TransaccionDTO> leer(ParticionArchivada particion, Long cuentaId) {
+        try {
+            for (SegmentoTransacciones segmento : particion.segmentos()) {
+                if (segmento.podriaContener(cuentaId)) {
+                    List<TransaccionDTO> movimientos = segmento.movimientos(cuentaId);
+                    if (!movimientos.isEmpty()) {
+                        return movimientos;
+                    }
+                }
+            }
+            return List.of();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static boolean cumple(TransaccionDTO movimiento, LocalDateTime desde, LocalDateTime hastaExclusive,
+                                  Transaccion.TipoMovimiento tipoMovimiento) {
+        LocalDateTime fecha = movimiento.getFechaTransaccion();
+        return (desde == null || !fecha.isBefore(desde))
+                && (hastaExclusive == null || fecha.isBefore(hastaExclusive))
+                && (tipoMovimiento == null || movimiento.getTipoMovimiento() == tipoMovimiento);
+    }
+
+    private static boolean antesDelCursor(TransaccionDTO movimiento, LocalDateTime fechaCursor, Long idCursor) {
+        if (fechaCursor == null) {
+            return true;
+        }
+        int comparacion = movimiento.getFechaTransaccion().compareTo(fechaCursor);
+        return comparacion < 0 || (comparacion == 0 && movimiento.getId() < idCursor);
+    }
+
+    private record ParticionArchivada(String nombre, YearMonth limite, List<SegmentoTransacciones> segmentos) {
+
+        // Un límite en null no descarta ninguna partición
+        boolean terminaDespuesDe(LocalDateTime instante) {
+            return instante == null || limite.atDay(1).atStartOfDay().isAfter(instante);
+        }
+    }
+
+    private record Catalogo(List<ParticionArchivada> particiones) {
+
+        static final Catalogo VACIO = new Catalogo(List.of());
+
+        LocalDateTime frontera() {
+            return particiones.isEmpty() ? null : particiones.get(particiones.size() - 1).limite().atDay(1).atStartOfDay();
+        }
+    }
+
+    // Reparte una partición en segmentos de hasta TAMANO_MAXIMO, cortando solo entre cuentas
+    private final class EscrituraSegmentos {
+
+        private final String particion;
+        private SegmentoTransacciones.Escritor actual;
+        private long cuentaActual = -1;
+        private int segmentos;
+        private long movimientos;
+
+        private EscrituraSegmentos(String particion) {
+            this.particion = particion;
+        }
+
+        void agregar(long cuentaId, TransaccionDTO movimiento) throws IOException {
+            if (cuentaId != cuentaActual && actual != null && actual.tamano() >= SegmentoTransacciones.TAMANO_MAXIMO) {
+                actual.terminar();
+                actual.close();
+                actual = null;
+            }
+            if (actual == null) {
+                actual = new SegmentoTransacciones.Escritor(
+                        directorio.resolve("%s.%04d%s".formatted(particion, segmentos++, EXTENSION_SEGMENTO)));
+            }
+            actual.agregar(cuentaId, movimiento);
+            cuentaActual = cuentaId;
+            movimientos++;
+        }
+
+        void terminar() throws IOException {
+            if (actual != null) {
+                actual.terminar();
+            }
+        }
+
+        void cerrar() throws IOException {
+            if (actual != null) {
+                actual.close();
+            }
+        }
+    }
+}
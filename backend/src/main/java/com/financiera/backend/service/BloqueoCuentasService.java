@@ -0,0 +1,60 @@
+package com.financiera.backend.service;
+
+import com.financiera.backend.repository.ProductoRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Service
+public class BloqueoCuentasService {
+
+    private final ProductoRepository productoRepository;
+    private final MeterRegistry meterRegistry;
+    private final long umbralContencionNanos;
+
+    public BloqueoCuentasService(ProductoRepository productoRepository,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${financiera.bloqueos.umbral-contencion-ms:200}") long umbralContencionMs) {
+        this.productoRepository = productoRepository;
+        this.meterRegistry = meterRegistry;
+        this.umbralContencionNanos = TimeUnit.MILLISECONDS.toNanos(umbralContencionMs);
+    }
+
+    // Bloquea las filas de saldo de las cuentas (ProductoRepository.bloquearSaldos) hasta el fin de la
+    // transacción actual. Es el bloqueo que serializa los débitos de una cuenta. Las filas se toman en orden
+    // ascendente de ID, así que dos lotes con cuentas en común no pueden quedar en interbloqueo; una
+    // transferencia solo bloquea el origen, porque el crédito en destino no choca con este bloqueo.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void bloquearSaldos(String operacion, Collection<Long> cuentaIds) {
+        if (cuentaIds.isEmpty()) {
+            return;
+        }
+
+        long inicio = System.nanoTime();
+
+        List<Long> bloqueadas = productoRepository.bloquearSaldos(cuentaIds);
+
+        long espera = System.nanoTime() - inicio;
+
+        Timer.builder("cuentas.bloqueo.espera")
+                .description("Tiempo esperando los bloqueos de cuentas (incluye el viaje a la base de datos)")
+                .tag("operacion", operacion)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(espera, TimeUnit.NANOSECONDS);
+
+        if (espera >= umbralContencionNanos) {
+            log.warn("Contención en cuentas {}: {} ms esperando bloqueo para {}",
+                    bloqueadas, TimeUnit.NANOSECONDS.toMillis(espera), operacion);
+        }
+    }
+}
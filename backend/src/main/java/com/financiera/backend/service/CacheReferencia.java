@@ -0,0 +1,214 @@
+package com.financiera.backend.service;
+
+import com.financiera.backend.dto.ClienteDTO;
+import com.financiera.backend.dto.ProductoDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Cache en memoria de clientes y productos por ID, acotada por tamaño y con expiración.
+ *
+ * Los saldos se modifican con SQL nativo, así que la cache de segundo nivel de Hibernate no se
+ * enteraría de esos cambios; por eso se guardan los DTO y los servicios invalidan explícitamente
+ * en cada escritura.
+ *
+ * Para que un valor viejo nunca quede en cache después de un commit:
+ * - cada invalidación se hace al escribir y otra vez al terminar la transacción, y
+ * - cada invalidación incrementa una generación; una carga que empezó antes de la invalidación
+ *   no guarda su resultado, aunque termine después.
+ *
+ * Las cargas simultáneas de un mismo ID se unen con LecturasCompartidas, y cada invalidación
+ * descarta también la carga en curso.
+ *
+ * Con varios nodos, NotificacionesCache publica las invalidaciones de este nodo a los demás.
+ *
+ * Los DTO guardados se comparten entre peticiones y no deben modificarse.
+ */
+@Component
+public class CacheReferencia {
+
+    private static final int FRANJAS_GENERACION = 1024;
+    private static final String CONSULTA_CLIENTES = "clientes";
+    private static final String CONSULTA_PRODUCTOS = "productos";
+    private static final String CONSULTA_VERSIONES = "versiones_productos";
+    // Las páginas del estado de cuenta no se guardan aquí, pero sus lecturas en curso se descartan con la cuenta
+    static final String CONSULTA_ESTADO_CUENTA = "estado_cuenta";
+
+    private final Cache<Long, ClienteDTO> clientes;
+    private final Cache<Long, ProductoDTO> productos;
+    private final AtomicLongArray generacionesClientes = new AtomicLongArray(FRANJAS_GENERACION);
+    private final AtomicLongArray generacionesProductos = new AtomicLongArray(FRANJAS_GENERACION);
+    private final TransactionTemplate transactionTemplate;
+    private final LecturasCompartidas lecturasCompartidas;
+    // Recibe los IDs de clientes y de productos invalidados; sin invalidación entre nodos no hace nada
+    private volatile BiConsumer<Set<Long>, Set<Long>> publicador = (idsClientes, idsProductos) -> { };
+
+    public CacheReferencia(PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           LecturasCompartidas lecturasCompartidas,
+                           @Value("${financiera.cache.tamano-maximo:10000}") long tamanoMaximo,
+                           @Value("${financiera.cache.expiracion:5m}") Duration expiracion) {
+        this.clientes = Caffeine.newBuilder()
+                .maximumSize(tamanoMaximo)
+                .expireAfterWrite(expiracion)
+                .recordStats()
+                .build();
+        this.productos = Caffeine.newBuilder()
+                .maximumSize(tamanoMaximo)
+                .expireAfterWrite(expiracion)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, clientes, "clientes");
+        CaffeineCacheMetrics.monitor(meterRegistry, productos, "productos");
+
+        // Las cargas no son de solo lectura a propósito: con réplicas habilitadas una réplica atrasada
+        // podría dejar en cache un saldo anterior al último commit
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.lecturasCompartidas = lecturasCompartidas;
+    }
+
+    // Debe llamarse fuera de una transacción: la carga abre la suya contra la primaria
+    public Optional<ClienteDTO> cliente(Long id, Supplier<Optional<ClienteDTO>> cargar) {
+        return obtener(clientes, generacionesClientes, CONSULTA_CLIENTES, id, cargar);
+    }
+
+    public Optional<ProductoDTO> producto(Long id, Supplier<Optional<ProductoDTO>> cargar) {
+        return obtener(productos, generacionesProductos, CONSULTA_PRODUCTOS, id, cargar);
+    }
+
+    // Solo consulta la cache, sin cargar
+    public Optional<ProductoDTO> productoEnCache(Long id) {
+        return Optional.ofNullable(productos.getIfPresent(id));
+    }
+
+    // La versión no se guarda, cambia con cada movimiento; solo se une entre lecturas simultáneas y se
+    // invalida junto con el producto. Se lee en la primaria: decide respuestas 304 y no debe depender
+    // del retraso de una réplica
+    public Optional<Long> versionProducto(Long id, Supplier<Optional<Long>> cargar) {
+        return lecturasCompartidas.leer(CONSULTA_VERSIONES, id,
+                () -> transactionTemplate.execute(estado -> cargar.get()));
+    }
+
+    public void invalidarCliente(Long id) {
+        invalidar(() -> quitarCliente(id));
+        publicador.accept(Set.of(id), Set.of());
+    }
+
+    public void invalidarProductos(Collection<Long> ids) {
+        invalidar(() -> ids.forEach(this::quitarProducto));
+        publicador.accept(Set.of(), Set.copyOf(ids));
+    }
+
+    // En los demás nodos la invalidación de un cliente ya incluye sus productos
+    public void invalidarProductosDeCliente(Long clienteId) {
+        invalidar(() -> quitarProductosDeCliente(clienteId));
+        publicador.accept(Set.of(clienteId), Set.of());
+    }
+
+    void publicarInvalidacionesCon(BiConsumer<Set<Long>, Set<Long>> publicador) {
+        this.publicador = publicador;
+    }
+
+    // Invalidaciones recibidas de otro nodo: llegan después de su commit, así que basta con una
+    void aplicarInvalidacionesRemotas(Collection<Long> idsClientes, Collection<Long> idsProductos) {
+        idsClientes.forEach(id -> {
+            quitarCliente(id);
+            quitarProductosDeCliente(id);
+        });
+        idsProductos.forEach(this::quitarProducto);
+    }
+
+    // Las cargas en curso tampoco guardan su resultado
+    void invalidarTodo() {
+        for (int franja = 0; franja < FRANJAS_GENERACION; franja++) {
+            generacionesClientes.incrementAndGet(franja);
+            generacionesProductos.incrementAndGet(franja);
+        }
+        lecturasCompartidas.olvidarTodo(CONSULTA_CLIENTES);
+        lecturasCompartidas.olvidarTodo(CONSULTA_PRODUCTOS);
+        lecturasCompartidas.olvidarTodo(CONSULTA_VERSIONES);
+        lecturasCompartidas.olvidarTodo(CONSULTA_ESTADO_CUENTA);
+        clientes.invalidateAll();
+        productos.invalidateAll();
+    }
+
+    // Metodos auxiliares
+
+    // Los productos en cache llevan el nombre del cliente; se recorren solo cuando cambia un cliente
+    private void quitarProductosDeCliente(Long clienteId) {
+        List<Long> ids = productos.asMap().values().stream()
+                .filter(producto -> clienteId.equals(producto.getClienteId()))
+                .map(ProductoDTO::getId)
+                .toList();
+        ids.forEach(this::quitarProducto);
+    }
+
+    private void quitarCliente(Long id) {
+        generacionesClientes.incrementAndGet(franja(id));
+        lecturasCompartidas.olvidar(CONSULTA_CLIENTES, id);
+        clientes.asMap().remove(id);
+    }
+
+    private void quitarProducto(Long id) {
+        generacionesProductos.incrementAndGet(franja(id));
+        lecturasCompartidas.olvidar(CONSULTA_PRODUCTOS, id);
+        lecturasCompartidas.olvidar(CONSULTA_VERSIONES, id);
+        lecturasCompartidas.olvidar(CONSULTA_ESTADO_CUENTA, id);
+        productos.asMap().remove(id);
+    }
+
+    private <T> Optional<T> obtener(Cache<Long, T> cache, AtomicLongArray generaciones, String consulta, Long id,
+                                    Supplier<Optional<T>> cargar) {
+        T enCache = cache.getIfPresent(id);
+        if (enCache != null) {
+            return Optional.of(enCache);
+        }
+
+        return lecturasCompartidas.leer(consulta, id, () -> {
+            int franja = franja(id);
+            long generacion = generaciones.get(franja);
+            Optional<T> cargado = transactionTemplate.execute(estado -> cargar.get());
+
+            // compute y la eliminación al invalidar se serializan sobre la misma clave: si la generación
+            // cambió antes de este punto el valor no se guarda, y si cambia después la eliminación lo borra
+            cargado.ifPresent(valor -> cache.asMap().compute(id, (clave, actual) ->
+                    generaciones.get(franja) == generacion ? valor : actual));
+            return cargado;
+        });
+    }
+
+    // Una vez ahora, para que las lecturas de esta misma transacción no vean el valor anterior,
+    // y otra al terminar, para descartar lo que otra petición haya cargado antes del commit
+    private static void invalidar(Runnable invalidacion) {
+        invalidacion.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int estado) {
+                    invalidacion.run();
+                }
+            });
+        }
+    }
+
+    private static int franja(Long id) {
+        return (int) (id ^ (id >>> 32)) & (FRANJAS_GENERACION - 1);
+    }
+}
@@ -0,0 +1,223 @@
+package com.financiera.backend.service;
+
+import com.financiera.backend.dto.PeriodoEstadoCuentaDTO;
+import com.financiera.backend.dto.ProductoDTO;
+import com.financiera.backend.dto.TransaccionDTO;
+import com.financiera.backend.entity.CierreMensual;
+import com.financiera.backend.entity.Transaccion;
+import com.financiera.backend.exception.clientes.RecursoNoEncontradoException;
+import com.financiera.backend.exception.transacciones.CierreNoDisponibleException;
+import com.financiera.backend.exception.transacciones.ParametroConsultaInvalidoException;
+import com.financiera.backend.repository.CierreMensualRepository;
+import com.financiera.backend.repository.ProductoRepository;
+import com.financiera.backend.repository.TransaccionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Cierres mensuales por cuenta: saldo de apertura, saldo de cierre y totales de cada mes terminado.
+ *
+ * La tarea programada cierra el mes anterior poco después de que empieza el nuevo; al arrancar también
+ * genera los meses que falten. Los cierres existentes no se recalculan, así que la generación puede
+ * repetirse o correr en varios nodos a la vez.
+ *
+ * Con el cierre guardado, el estado de cuenta de un mes lee una fila de cierres_mensuales y los movimientos
+ * de ese mes, sin importar cuánta historia tenga la cuenta.
+ *
+ * Los saldos de un cierre se calculan hacia atrás con los movimientos en la base desde el inicio del periodo,
+ * así que no se generan cierres de meses cuyos movimientos ya se separaron o archivaron: quedarían con saldos
+ * equivocados que después no se recalculan.
+ */
+@Slf4j
+@Service
+public class CierreMensualService {
+
+    // Cada bloque de cuentas se cierra en su propia transacción
+    static final int CUENTAS_POR_BLOQUE = 10_000;
+
+    private final CierreMensualRepository cierreMensualRepository;
+    private final ProductoRepository productoRepository;
+    private final TransaccionRepository transaccionRepository;
+    private final ArchivoTransaccionesService archivoTransacciones;
+    private final ParticionesTransaccionesService particionesService;
+    private final TransactionTemplate escritura;
+
+    public CierreMensualService(CierreMensualRepository cierreMensualRepository,
+                                ProductoRepository productoRepository,
+                                TransaccionRepository transaccionRepository,
+                                ArchivoTransaccionesService archivoTransacciones,
+                                ParticionesTransaccionesService particionesService,
+                                PlatformTransactionManager transactionManager) {
+        this.cierreMensualRepository = cierreMensualRepository;
+        this.productoRepository = productoRepository;
+        this.transaccionRepository = transaccionRepository;
+        this.archivoTransacciones = archivoTransacciones;
+        this.particionesService = particionesService;
+        // Transacción de lectura y escritura: también las consultas previas van a la primaria
+        this.escritura = new TransactionTemplate(transactionManager);
+    }
+
+    // El margen después de medianoche deja terminar los movimientos que empezaron el mes anterior
+    @Scheduled(cron = "${financiera.cierres.cron:0 30 0 1 * *}")
+    public void cerrarMesAnterior() {
+        generarPendientes();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void generarAlIniciar() {
+        try {
+            generarPendientes();
+        } catch (RuntimeException ex) {
+            // La tarea programada lo intenta de nuevo; la aplicación arranca igual
+            log.error("No se pudieron generar los cierres mensuales pendientes", ex);
+        }
+    }
+
+    // Genera desde el último periodo con cierres (por si quedó a medias) o, si no hay ninguno, desde el mes
+    // de la primera cuenta, hasta el mes anterior al actual. Los meses sin movimientos en la base se omiten
+    public void generarPendientes() {
+        YearMonth ultimoCerrable = YearMonth.now().minusMonths(1);
+        Optional<YearMonth> primero = escritura.execute(estado -> cierreMensualRepository.buscarUltimoPeriodo()
+                .map(YearMonth::from)
+                .or(() -> productoRepository.buscarPrimeraFechaCreacion().map(YearMonth::from)));
+
+        if (primero == null || primero.isEmpty()) {
+            return;
+        }
+        YearMonth desde = primero.get();
+        Optional<YearMonth> calculable = primerPeriodoCalculable();
+        if (calculable.isPresent() && desde.isBefore(calculable.get())) {
+            log.warn("Los cierres de {} a {} no se generan: sus movimientos ya no están en la base",
+                    desde, calculable.get().minusMonths(1));
+            desde = calculable.get();
+        }
+        for (YearMonth periodo = desde; !periodo.isAfter(ultimoCerrable); periodo = periodo.plusMonths(1)) {
+            generarCierres(periodo);
+        }
+    }
+
+    public int generarCierres(YearMonth periodo) {
+        Optional<YearMonth> calculable = primerPeriodoCalculable();
+        if (calculable.isPresent() && periodo.isBefore(calculable.get())) {
+            throw new CierreNoDisponibleException(
+                    "No se puede generar el cierre de " + periodo + ": los movimientos anteriores a "
+                            + calculable.get() + " ya no están en la base");
+        }
+
+        Long mayorId = escritura.execute(estado -> productoRepository.buscarMayorId().orElse(0L));
+
+        int generados = 0;
+        for (long desde = 0; desde <= mayorId; desde += CUENTAS_POR_BLOQUE) {
+            long inicio = desde;
+            Integer insertados = escritura.execute(estado ->
+                    cierreMensualRepository.generarCierres(periodo, inicio, inicio + CUENTAS_POR_BLOQUE));
+            generados += insertados;
+        }
+
+        log.info("Cierre de {}: {} cuentas cerradas", periodo, generados);
+        return generados;
+    }
+
+    // Estado de cuenta de un mes: los movimientos propios de la cuenta con sus saldos de apertura y cierre.
+    // Un mes terminado se lee de su cierre; el mes en curso parte del cierre del mes anterior.
+    @Transactional(readOnly = true)
+    public PeriodoEstadoCuentaDTO obtenerPeriodo(Long cuentaId, YearMonth periodo) {
+        YearMonth actual = YearMonth.now();
+        if (periodo.isAfter(actual)) {
+            throw new ParametroConsultaInvalidoException("El periodo " + periodo + " aún no ha comenzado");
+        }
+
+        LocalDateTime desde = periodo.atDay(1).atStartOfDay();
+        LocalDateTime hasta = periodo.plusMonths(1).atDay(1).atStartOfDay();
+
+        if (periodo.isBefore(actual)) {
+            CierreMensual cierre = cierreMensualRepository.findById(clave(cuentaId, periodo))
+                    .orElseThrow(() -> sinCierre(cuentaId, periodo));
+            List<TransaccionDTO> movimientos = movimientosPeriodo(cuentaId, desde, hasta);
+
+            return new PeriodoEstadoCuentaDTO(cuentaId, periodo, cierre.getSaldoApertura(),
+                    cierre.getSaldoCierre(), cierre.getTotalCreditos(), cierre.getTotalDebitos(),
+                    cierre.getCantidadMovimientos(), true, movimientos);
+        }
+
+        BigDecimal saldoApertura = cierreMensualRepository.findById(clave(cuentaId, periodo.minusMonths(1)))
+                .map(CierreMensual::getSaldoCierre)
+                .orElseGet(() -> aperturaSinCierreAnterior(cuentaId, periodo));
+        List<TransaccionDTO> movimientos = transaccionRepository.buscarMovimientosPeriodo(cuentaId, desde, hasta);
+
+        BigDecimal creditos = BigDecimal.ZERO;
+        BigDecimal debitos = BigDecimal.ZERO;
+        for (TransaccionDTO movimiento : movimientos) {
+            if (movimiento.getTipoMovimiento() == Transaccion.TipoMovimiento.CREDITO) {
+                creditos = creditos.add(movimiento.getMonto());
+            } else {
+                debitos = debitos.add(movimiento.getMonto());
+            }
+        }
+
+        return new PeriodoEstadoCuentaDTO(cuentaId, periodo, saldoApertura,
+                saldoApertura.add(creditos).subtract(debitos), creditos, debitos,
+                (long) movimientos.size(), false, movimientos);
+    }
+
+    // Metodos auxiliares
+
+    // Primer periodo con todos sus movimientos, y los posteriores, en la base. Vacío si no falta ninguno
+    private Optional<YearMonth> primerPeriodoCalculable() {
+        Optional<YearMonth> enBase = particionesService.primerMesEnBase();
+        LocalDateTime frontera = archivoTransacciones.frontera();
+        if (frontera == null) {
+            return enBase;
+        }
+        YearMonth mesFrontera = YearMonth.from(frontera);
+        return Optional.of(enBase.filter(mes -> mes.isAfter(mesFrontera)).orElse(mesFrontera));
+    }
+
+    // La frontera del archivo es inicio de mes, así que un periodo está completo en el archivo o en la base
+    private List<TransaccionDTO> movimientosPeriodo(Long cuentaId, LocalDateTime desde, LocalDateTime hasta) {
+        LocalDateTime frontera = archivoTransacciones.frontera();
+        if (frontera != null && !hasta.isAfter(frontera)) {
+            return archivoTransacciones.buscarMovimientosPropios(cuentaId, desde, hasta);
+        }
+        return transaccionRepository.buscarMovimientosPeriodo(cuentaId, desde, hasta);
+    }
+
+    private static CierreMensual.Clave clave(Long cuentaId, YearMonth periodo) {
+        return new CierreMensual.Clave(cuentaId, periodo.atDay(1));
+    }
+
+    // Sin cierre del mes anterior, solo una cuenta abierta en el mes en curso tiene apertura conocida: cero
+    private BigDecimal aperturaSinCierreAnterior(Long cuentaId, YearMonth periodo) {
+        ProductoDTO cuenta = productoRepository.buscarDTOPorId(cuentaId)
+                .orElseThrow(() -> cuentaNoEncontrada(cuentaId));
+        if (!YearMonth.from(cuenta.getFechaCreacion()).isBefore(periodo)) {
+            return BigDecimal.ZERO;
+        }
+        throw new CierreNoDisponibleException(
+                "El cierre de " + periodo.minusMonths(1) + " de la cuenta " + cuentaId + " aún no se ha generado");
+    }
+
+    private RuntimeException sinCierre(Long cuentaId, YearMonth periodo) {
+        if (!productoRepository.existsById(cuentaId)) {
+            return cuentaNoEncontrada(cuentaId);
+        }
+        return new CierreNoDisponibleException(
+                "La cuenta " + cuentaId + " no tiene cierre para el periodo " + periodo);
+    }
+
+    private static RecursoNoEncontradoException cuentaNoEncontrada(Long cuentaId) {
+        return new RecursoNoEncontradoException("No se encontró el producto con ID: " + cuentaId);
+    }
+}
@@ -1,6 +1,8 @@
 package com.financiera.backend.service;
 
 import com.financiera.backend.dto.ClienteDTO;
+import com.financiera.backend.dto.FiltroClientesDTO;
+import com.financiera.backend.dto.PaginaDTO;
 import com.financiera.backend.entity.Cliente;
 import com.financiera.backend.exception.clientes.ClienteConProductosException;
 import com.financiera.backend.exception.clientes.ClienteMenorDeEdadException;
@@ -9,13 +11,14 @@ import com.financiera.backend.exception.clientes.RecursoNoEncontradoException;
 import com.financiera.backend.repository.ClienteRepository;
 import com.financiera.backend.repository.ProductoRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.Period;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -23,6 +26,8 @@ public class ClienteService {
 
     private final ClienteRepository clienteRepository;
     private final ProductoRepository productoRepository;
+    private final IndiceDuplicadosClientes indiceDuplicados;
+    private final CacheReferencia cacheReferencia;
 
     // Crear cliente
     @Transactional
@@ -31,14 +36,17 @@ public class ClienteService {
         validarMayorDeEdad(clienteDTO.getFechaNacimiento());
 
 
-        if (clienteRepository.existsByNumeroIdentificacion(clienteDTO.getNumeroIdentificacion())) {
+        // La consulta a la base solo se hace si el índice en memoria no descarta el valor
+        if (indiceDuplicados.podriaExistirIdentificacion(clienteDTO.getNumeroIdentificacion())
+                && clienteRepository.existsByNumeroIdentificacion(clienteDTO.getNumeroIdentificacion())) {
             throw new DatoDuplicadoException(
                     "Ya existe un cliente con el número de identificación: " + clienteDTO.getNumeroIdentificacion()
             );
         }
 
 
-        if (clienteRepository.existsByCorreoElectronico(clienteDTO.getCorreoElectronico())) {
+        if (indiceDuplicados.podriaExistirCorreo(clienteDTO.getCorreoElectronico())
+                && clienteRepository.existsByCorreoElectronico(clienteDTO.getCorreoElectronico())) {
             throw new DatoDuplicadoException(
                     "Ya existe un cliente con el correo: " + clienteDTO.getCorreoElectronico()
             );
@@ -48,7 +56,7 @@ public class ClienteService {
         Cliente cliente = convertirDTOaEntity(clienteDTO);
 
 
-        Cliente clienteGuardado = clienteRepository.save(cliente);
+        Cliente clienteGuardado = guardar(cliente, "Ya existe un cliente");
 
 
         return convertirEntityADTO(clienteGuardado);
@@ -57,20 +65,39 @@ public class ClienteService {
     // Obtener todos los clientes
     @Transactional(readOnly = true)
     public List<ClienteDTO> obtenerTodosLosClientes() {
-        return clienteRepository.findAll()
-                .stream()
-                .map(this::convertirEntityADTO)
-                .collect(Collectors.toList());
+        return clienteRepository.buscarTodos();
     }
 
-    // Obtener cliente por ID
+    // Obtener clientes por páginas, con filtros opcionales
     @Transactional(readOnly = true)
+    public PaginaDTO<ClienteDTO> obtenerClientes(FiltroClientesDTO filtro) {
+        CursorPaginacion.validarRango(filtro.getDesde(), filtro.getHasta());
+
+        int tamano = CursorPaginacion.tamanoPagina(filtro.getTamano());
+        Long idCursor = filtro.getCursor() == null ? null : CursorPaginacion.decodificar(filtro.getCursor()).getId();
+
+        // Se pide una fila de más para saber si existe una página siguiente
+        List<ClienteDTO> clientes = clienteRepository.buscarPagina(
+                idCursor,
+                filtro.getTipoIdentificacion(),
+                filtro.getDesde() == null ? null : filtro.getDesde().atStartOfDay(),
+                filtro.getHasta() == null ? null : filtro.getHasta().plusDays(1).atStartOfDay(),
+                Limit.of(tamano + 1));
+
+        if (clientes.size() <= tamano) {
+            return new PaginaDTO<>(clientes, null);
+        }
+
+        List<ClienteDTO> pagina = clientes.subList(0, tamano);
+        return new PaginaDTO<>(pagina, new CursorPaginacion(pagina.get(tamano - 1).getId()).codificar());
+    }
+
+    // Obtener cliente por ID. Sin @Transactional: un acierto en cache no toma conexión
     public ClienteDTO obtenerClientePorId(Long id) {
-        Cliente cliente = clienteRepository.findById(id)
+        return cacheReferencia.cliente(id, () -> clienteRepository.findById(id).map(this::convertirEntityADTO))
                 .orElseThrow(() -> new RecursoNoEncontradoException(
                         "No se encontró el cliente con ID: " + id
                 ));
-        return convertirEntityADTO(cliente);
     }
 
     // Actualizar cliente
@@ -87,7 +114,8 @@ public class ClienteService {
 
         // Validar que no exista otro cliente con el mismo número de identificación
         if (!clienteExistente.getNumeroIdentificacion().equals(clienteDTO.getNumeroIdentificacion())) {
-            if (clienteRepository.existsByNumeroIdentificacion(clienteDTO.getNumeroIdentificacion())) {
+            if (indiceDuplicados.podriaExistirIdentificacion(clienteDTO.getNumeroIdentificacion())
+                    && clienteRepository.existsByNumeroIdentificacion(clienteDTO.getNumeroIdentificacion())) {
                 throw new DatoDuplicadoException(
                         "Ya existe otro cliente con el número de identificación: " + clienteDTO.getNumeroIdentificacion()
                 );
@@ -96,7 +124,8 @@ public class ClienteService {
 
 
         if (!clienteExistente.getCorreoElectronico().equals(clienteDTO.getCorreoElectronico())) {
-            if (clienteRepository.existsByCorreoElectronico(clienteDTO.getCorreoElectronico())) {
+            if (indiceDuplicados.podriaExistirCorreo(clienteDTO.getCorreoElectronico())
+                    && clienteRepository.existsByCorreoElectronico(clienteDTO.getCorreoElectronico())) {
                 throw new DatoDuplicadoException(
                         "Ya existe otro cliente con el correo: " + clienteDTO.getCorreoElectronico()
                 );
@@ -104,6 +133,9 @@ public class ClienteService {
         }
 
 
+        boolean cambiaNombre = !clienteExistente.getNombres().equals(clienteDTO.getNombres())
+                || !clienteExistente.getApellido().equals(clienteDTO.getApellido());
+
         clienteExistente.setTipoIdentificacion(clienteDTO.getTipoIdentificacion());
         clienteExistente.setNumeroIdentificacion(clienteDTO.getNumeroIdentificacion());
         clienteExistente.setNombres(clienteDTO.getNombres());
@@ -113,7 +145,12 @@ public class ClienteService {
 
 
 
-        Cliente clienteActualizado = clienteRepository.save(clienteExistente);
+        Cliente clienteActualizado = guardar(clienteExistente, "Ya existe otro cliente");
+        if (cambiaNombre) {
+            productoRepository.incrementarVersionPorCliente(id);
+        }
+        cacheReferencia.invalidarCliente(id);
+        cacheReferencia.invalidarProductosDeCliente(id);
 
         return convertirEntityADTO(clienteActualizado);
     }
@@ -135,12 +172,35 @@ public class ClienteService {
 
 
         clienteRepository.delete(cliente);
+        cacheReferencia.invalidarCliente(id);
     }
 
     // Metodos auxiliares
 
+    // Otro nodo o una petición concurrente pudo insertar el mismo valor después de la verificación:
+    // la restricción única de la tabla lo detecta y se responde igual que en la verificación previa
+    private Cliente guardar(Cliente cliente, String prefijoMensaje) {
+        Cliente guardado;
+        try {
+            guardado = clienteRepository.saveAndFlush(cliente);
+        } catch (DataIntegrityViolationException e) {
+            String detalle = String.valueOf(e.getMostSpecificCause().getMessage());
+            if (detalle.contains("(numero_identificacion)")) {
+                throw new DatoDuplicadoException(
+                        prefijoMensaje + " con el número de identificación: " + cliente.getNumeroIdentificacion());
+            }
+            if (detalle.contains("(correo_electronico)")) {
+                throw new DatoDuplicadoException(
+                        prefijoMensaje + " con el correo: " + cliente.getCorreoElectronico());
+            }
+            throw e;
+        }
+        indiceDuplicados.registrar(guardado.getNumeroIdentificacion(), guardado.getCorreoElectronico());
+        return guardado;
+    }
 
-    private void validarMayorDeEdad(LocalDate fechaNacimiento) {
+    // También la usa la importación masiva, para aplicar la misma regla a cada fila del archivo
+    static void validarMayorDeEdad(LocalDate fechaNacimiento) {
         LocalDate hoy = LocalDate.now();
         int edad = Period.between(fechaNacimiento, hoy).getYears();
 
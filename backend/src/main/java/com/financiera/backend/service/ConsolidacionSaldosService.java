@@ -0,0 +1,103 @@
+package com.financiera.backend.service;
+
+import com.financiera.backend.repository.ProductoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Consolida periódicamente los saldos: los movimientos propios de cada cuenta anteriores a un corte se suman a
+ * su fila de saldos_productos, que pasa a tener ese corte. El saldo de una cuenta (saldo_cuenta en schema.sql)
+ * es lo consolidado más los movimientos desde su corte, así que la consolidación no lo cambia; solo acota el
+ * tramo del índice que recorre cada lectura.
+ *
+ * El corte debe ser anterior a la fecha de cualquier movimiento que aún no esté confirmado. Un movimiento toma
+ * la hora de inicio de su transacción, así que el corte es el inicio de la transacción abierta más antigua, sin
+ * pasar de ahora menos el margen. Requiere que el usuario de la aplicación vea las sesiones de sus otras
+ * conexiones en pg_stat_activity, lo que ocurre cuando todas usan el mismo usuario.
+ */
+@Slf4j
+@Service
+public class ConsolidacionSaldosService {
+
+    // Un solo nodo consolida a la vez; los demás omiten la ejecución
+    private static final long CLAVE_BLOQUEO = 0x53414C44L;
+
+    private static final String SQL_BLOQUEO = "SELECT pg_try_advisory_xact_lock(?)";
+
+    private static final String SQL_CORTE_SEGURO = """
+            SELECT LEAST(LOCALTIMESTAMP - make_interval(secs => ?),
+                         (SELECT MIN(a.xact_start)::timestamp
+                            FROM pg_stat_activity a
+                           WHERE a.datname = current_database()
+                             AND a.backend_type = 'client backend'
+                             AND a.xact_start IS NOT NULL
+                             AND a.pid <> pg_backend_pid()))
+            """;
+
+    private final ProductoRepository productoRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate escritura;
+    private final boolean habilitado;
+    private final Duration margen;
+
+    public ConsolidacionSaldosService(ProductoRepository productoRepository,
+                                      JdbcTemplate jdbcTemplate,
+                                      PlatformTransactionManager transactionManager,
+                                      @Value("${financiera.saldos.consolidacion-habilitada:true}") boolean habilitado,
+                                      @Value("${financiera.saldos.margen-consolidacion:5s}") Duration margen) {
+        this.productoRepository = productoRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        // Sin solo lectura: el bloqueo y la actualización van a la primaria
+        this.escritura = new TransactionTemplate(transactionManager);
+        this.habilitado = habilitado;
+        this.margen = margen;
+    }
+
+    @Scheduled(fixedDelayString = "${financiera.saldos.intervalo-consolidacion:10s}",
+            initialDelayString = "${financiera.saldos.intervalo-consolidacion:10s}")
+    public void consolidarProgramado() {
+        if (habilitado) {
+            consolidar();
+        }
+    }
+
+    /**
+     * Consolida hasta el corte seguro actual y lo retorna. Retorna vacío si otro nodo está consolidando o si el
+     * corte no avanzó desde la consolidación anterior.
+     */
+    public Optional<LocalDateTime> consolidar() {
+        return escritura.execute(estado -> {
+            if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(SQL_BLOQUEO, Boolean.class, CLAVE_BLOQUEO))) {
+                log.debug("Otro nodo está consolidando saldos");
+                return Optional.empty();
+            }
+
+            Timestamp seguro = jdbcTemplate.queryForObject(SQL_CORTE_SEGURO, Timestamp.class,
+                    margen.toMillis() / 1000.0);
+            if (seguro == null) {
+                return Optional.empty();
+            }
+            LocalDateTime corte = seguro.toLocalDateTime();
+            Optional<LocalDateTime> anterior = productoRepository.buscarCorteSaldos();
+            if (anterior.isPresent() && !corte.isAfter(anterior.get())) {
+                return Optional.empty();
+            }
+
+            int cuentas = productoRepository.consolidarSaldos(corte);
+            if (cuentas > 0) {
+                log.info("Saldos de {} cuentas consolidados hasta {}", cuentas, corte);
+            }
+            return Optional.of(corte);
+        });
+    }
+}
@@ -0,0 +1,74 @@
+package com.financiera.backend.service;
+
+import com.financiera.backend.exception.transacciones.ParametroConsultaInvalidoException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Posición de la última fila entregada en una consulta paginada por (fecha, id) o solo por id.
+ * Se envía al cliente codificada en Base64 para que la trate como un token opaco.
+ */
+final class CursorPaginacion {
+
+    static final int TAMANO_PAGINA = 50;
+    static final int TAMANO_MAXIMO_PAGINA = 500;
+
+    private static final String SEPARADOR = "|";
+
+    private final LocalDateTime fecha;
+    private final Long id;
+
+    CursorPaginacion(LocalDateTime fecha, Long id) {
+        this.fecha = fecha;
+        this.id = id;
+    }
+
+    CursorPaginacion(Long id) {
+        this(null, id);
+    }
+
+    LocalDateTime getFecha() {
+        return fecha;
+    }
+
+    Long getId() {
+        return id;
+    }
+
+    String codificar() {
+        String valor = fecha == null ? id.toString() : fecha + SEPARADOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static CursorPaginacion decodificar(String cursor) {
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separador = valor.indexOf(SEPARADOR);
+            if (separador < 0) {
+                return new CursorPaginacion(Long.valueOf(valor));
+            }
+            return new CursorPaginacion(
+                    LocalDateTime.parse(valor.substring(0, separador)),
+                    Long.valueOf(valor.substring(separador + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            throw new ParametroConsultaInvalidoException("El cursor de paginación no es válido");
+        }
+    }
+
+    // Tamaño solicitado acotado a [1, TAMANO_MAXIMO_PAGINA]
+    static int tamanoPagina(Integer solicitado) {
+        return solicitado == null ? TAMANO_PAGINA : Math.max(1, Math.min(solicitado, TAMANO_MAXIMO_PAGINA));
+    }
+
+    static void validarRango(LocalDate desde, LocalDate hasta) {
+        if (desde != null && hasta != null && desde.isAfter(hasta)) {
+            throw new ParametroConsultaInvalidoException(
+                    "La fecha inicial no puede ser posterior a la fecha final"
+            );
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.financiera.backend.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.financiera.backend.dto.FiltroEstadoCuentaDTO;
+import com.financiera.backend.dto.TransaccionDTO;
+import com.financiera.backend.entity.Transaccion;
+import com.financiera.backend.exception.clientes.RecursoNoEncontradoException;
+import com.financiera.backend.repository.ProductoRepository;
+import com.financiera.backend.repository.TransaccionRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+
+@Service
+@RequiredArgsConstructor
+public class ExportacionEstadoCuentaService {
+
+    private static final String[] COLUMNAS = {
+            "id", "fechaTransaccion", "tipoTransaccion", "tipoMovimiento", "monto", "descripcion",
+            "cuentaOrigenId", "numeroCuentaOrigen", "cuentaDestinoId", "numeroCuentaDestino", "saldoDespues"
+    };
+
+    private final TransaccionRepository transaccionRepository;
+    private final ProductoRepository productoRepository;
+    private final ArchivoTransaccionesService archivoTransacciones;
+    private final ObjectMapper objectMapper;
+
+    public enum Formato {
+        CSV,
+        NDJSON
+    }
+
+    // Se llama antes de empezar a escribir la respuesta: una vez enviado el primer byte ya no
+    // es posible responder con un código de error.
+    @Transactional(readOnly = true)
+    public void validarExportacion(Long cuentaId, FiltroEstadoCuentaDTO filtro) {
+        if (!productoRepository.existsById(cuentaId)) {
+            throw new RecursoNoEncontradoException(
+                    "No se encontró la cuenta con ID: " + cuentaId
+            );
+        }
+
+        CursorPaginacion.validarRango(filtro.getDesde(), filtro.getHasta());
+    }
+
+    // Exportar estado de cuenta completo.
+    // Cada fila se escribe en la salida apenas llega del cursor, reutilizando el mismo DTO, así el consumo de
+    // memoria no depende de la cantidad de movimientos. Los movimientos archivados, todos anteriores a los de
+    // la base, se escriben primero.
+    @Transactional(readOnly = true)
+    public void exportar(Long cuentaId, FiltroEstadoCuentaDTO filtro, Formato formato, OutputStream salida)
+            throws IOException {
+        EscritorFilas escritor = formato == Formato.NDJSON
+                ? new EscritorNdjson(objectMapper, salida)
+                : new EscritorCsv(salida);
+
+        LocalDateTime desde = filtro.getDesde() == null ? null : filtro.getDesde().atStartOfDay();
+        LocalDateTime hasta = filtro.getHasta() == null ? null : filtro.getHasta().plusDays(1).atStartOfDay();
+        LocalDateTime frontera = archivoTransacciones.frontera();
+        TransaccionDTO fila = new TransaccionDTO();
+
+        try {
+            if (frontera != null && (desde == null || desde.isBefore(frontera))) {
+                archivoTransacciones.recorrerEstadoCuenta(cuentaId, desde, hasta, filtro.getTipoMovimiento(),
+                        movimiento -> escribir(escritor, movimiento));
+            }
+            transaccionRepository.recorrerEstadoCuenta(
+                    cuentaId,
+                    frontera == null || (desde != null && desde.isAfter(frontera)) ? desde : frontera,
+                    hasta,
+                    filtro.getTipoMovimiento(),
+                    rs -> escribir(escritor, leerFila(rs, fila)));
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        } finally {
+            escritor.terminar();
+        }
+    }
+
+    // Metodos auxiliares
+
+    private static void escribir(EscritorFilas escritor, TransaccionDTO movimiento) {
+        try {
+            escritor.escribir(movimiento);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static TransaccionDTO leerFila(ResultSet rs, TransaccionDTO fila) throws SQLException {
+        fila.setId(rs.getLong("id"));
+        fila.setFechaTransaccion(rs.getTimestamp("fecha_transaccion").toLocalDateTime());
+        fila.setTipoTransaccion(Transaccion.TipoTransaccion.valueOf(rs.getString("tipo_transaccion")));
+        fila.setTipoMovimiento(Transaccion.TipoMovimiento.valueOf(rs.getString("tipo_movimiento")));
+        fila.setMonto(rs.getBigDecimal("monto"));
+        fila.setDescripcion(rs.getString("descripcion"));
+        fila.setCuentaOrigenId(rs.getLong("cuenta_origen_id"));
+        fila.setNumeroCuentaOrigen(rs.getString("numero_cuenta_origen"));
+        fila.setCuentaDestinoId(rs.getObject("cuenta_destino_id", Long.class));
+        fila.setNumeroCuentaDestino(rs.getString("numero_cuenta_destino"));
+        fila.setSaldoAlRegistrar(rs.getBigDecimal("saldo_despues"));
+        return fila;
+    }
+
+    private interface EscritorFilas {
+
+        void escribir(TransaccionDTO movimiento) throws IOException;
+
+        void terminar() throws IOException;
+    }
+
+    private static final class EscritorCsv implements EscritorFilas {
+
+        private final Writer writer;
+
+        private EscritorCsv(OutputStream salida) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+            writer.write(String.join(",", COLUMNAS));
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void escribir(TransaccionDTO movimiento) throws IOException {
+            writer.write(String.valueOf(movimiento.getId()));
+            writer.write(',');
+            writer.write(movimiento.getFechaTransaccion().toString());
+            writer.write(',');
+            writer.write(movimiento.getTipoTransaccion().name());
+            writer.write(',');
+            writer.write(movimiento.getTipoMovimiento().name());
+            writer.write(',');
+            writer.write(movimiento.getMonto().toPlainString());
+            writer.write(',');
+            writer.write(escapar(movimiento.getDescripcion()));
+            writer.write(',');
+            writer.write(String.valueOf(movimiento.getCuentaOrigenId()));
+            writer.write(',');
+            writer.write(escapar(movimiento.getNumeroCuentaOrigen()));
+            writer.write(',');
+            Long cuentaDestinoId = movimiento.getCuentaDestinoId();
+            writer.write(cuentaDestinoId == null ? "" : cuentaDestinoId.toString());
+            writer.write(',');
+            writer.write(escapar(movimiento.getNumeroCuentaDestino()));
+            writer.write(',');
+            writer.write(movimiento.getSaldoAlRegistrar().toPlainString());
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void terminar() throws IOException {
+            writer.flush();
+        }
+
+        // RFC 4180: los campos con comas, comillas o saltos de línea van entre comillas dobles
+        private static String escapar(String valor) {
+            if (valor == null) {
+                return "";
+            }
+            if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0
+                    && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0) {
+                return valor;
+            }
+            return '"' + valor.replace("\"", "\"\"") + '"';
+        }
+    }
+
+    private static final class EscritorNdjson implements EscritorFilas {
+
+        private final JsonGenerator generador;
+
+        private EscritorNdjson(ObjectMapper objectMapper, OutputStream salida) throws IOException {
+            this.generador = objectMapper.getFactory().createGenerator(salida, JsonEncoding.UTF8);
+            // La salida pertenece a la respuesta HTTP; el generador no debe cerrarla
+            generador.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Cada objeto termina con su propio salto de línea, sin el espacio que Jackson pone entre raíces
+            generador.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void escribir(TransaccionDTO movimiento) throws IOException {
+            Long cuentaDestinoId = movimiento.getCuentaDestinoId();
+
+            generador.writeStartObject();
+            generador.writeNumberField(COLUMNAS[0], movimiento.getId());
+            generador.writeStringField(COLUMNAS[1], movimiento.getFechaTransaccion().toString());
+            generador.writeStringField(COLUMNAS[2], movimiento.getTipoTransaccion().name());
+            generador.writeStringField(COLUMNAS[3], movimiento.getTipoMovimiento().name());
+            generador.writeNumberField(COLUMNAS[4], movimiento.getMonto());
+            generador.writeStringField(COLUMNAS[5], movimiento.getDescripcion());
+            generador.writeNumberField(COLUMNAS[6], movimiento.getCuentaOrigenId());
+            generador.writeStringField(COLUMNAS[7], movimiento.getNumeroCuentaOrigen());
+            if (cuentaDestinoId == null) {
+                generador.writeNullField(COLUMNAS[8]);
+            } else {
+                generador.writeNumberField(COLUMNAS[8], cuentaDestinoId);
+            }
+            generador.writeStringField(COLUMNAS[9], movimiento.getNumeroCuentaDestino());
+            generador.writeNumberField(COLUMNAS[10], movimiento.getSaldoAlRegistrar());
+            generador.writeEndObject();
+            generador.writeRaw('\n');
+        }
+
+        @Override
+        public void terminar() throws IOException {
+            generador.flush();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.financiera.backend.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom concurrente para cadenas. Responde "seguro no está" o "podría estar":
+ * nunca da falsos negativos, y la tasa de falsos positivos depende de cuán lleno esté el arreglo de bits.
+ */
+final class FiltroBloom {
+
+    private final AtomicLongArray bits;
+    private final long cantidadBits;
+    private final int cantidadHashes;
+    private final AtomicLong bitsEncendidos = new AtomicLong();
+
+    // Dimensiona el filtro para la capacidad esperada y la probabilidad de falso positivo deseada
+    FiltroBloom(long capacidadEsperada, double probabilidadFalsoPositivo) {
+        long optimo = (long) Math.ceil(-capacidadEsperada * Math.log(probabilidadFalsoPositivo)
+                / (Math.log(2) * Math.log(2)));
+        int palabras = (int) Math.max(1, (optimo + 63) / 64);
+        this.bits = new AtomicLongArray(palabras);
+        this.cantidadBits = (long) palabras * 64;
+        this.cantidadHashes = Math.max(1,
+                (int) Math.round((double) cantidadBits / capacidadEsperada * Math.log(2)));
+    }
+
+    void agregar(String valor) {
+        long h1 = hash(valor);
+        long h2 = mezclar(h1) | 1;
+        for (int i = 0; i < cantidadHashes; i++) {
+            encender(Math.floorMod(h1 + i * h2, cantidadBits));
+        }
+    }
+
+    boolean podriaContener(String valor) {
+        long h1 = hash(valor);
+        long h2 = mezclar(h1) | 1;
+        for (int i = 0; i < cantidadHashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, cantidadBits);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long tamanoBytes() {
+        return cantidadBits / 8;
+    }
+
+    // Estimación a partir de la fracción de bits encendidos: (encendidos / total)^k
+    double probabilidadFalsoPositivo() {
+        return Math.pow((double) bitsEncendidos.get() / cantidadBits, cantidadHashes);
+    }
+
+    // Metodos auxiliares
+
+    private void encender(long bit) {
+        int palabra = (int) (bit >>> 6);
+        long mascara = 1L << bit;
+        long actual;
+        do {
+            actual = bits.get(palabra);
+            if ((actual & mascara) != 0) {
+                return;
+            }
+        } while (!bits.compareAndSet(palabra, actual, actual | mascara));
+        bitsEncendidos.incrementAndGet();
+    }
+
+    // FNV-1a de 64 bits sobre UTF-8, seguido de un mezclado para repartir mejor los bits altos
+    private static long hash(String valor) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : valor.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return mezclar(h);
+    }
+
+    // Finalizador de SplitMix64
+    private static long mezclar(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
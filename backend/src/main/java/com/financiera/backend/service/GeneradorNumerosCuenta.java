@@ -0,0 +1,150 @@
+package com.financiera.backend.service;
+
+import com.financiera.backend.entity.Producto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Genera números de cuenta únicos sin consultar la base por cada intento.
+ *
+ * Número de cuenta = prefijo del tipo (2 dígitos) + 7 dígitos + dígito de control Luhn.
+ * Cada tipo tiene una secuencia que entrega bloques de TAMANO_BLOQUE posiciones consecutivas; como
+ * nextval es atómico, dos nodos nunca reciben el mismo bloque. Cada posición se transforma con una
+ * permutación (red de Feistel con cycle-walking sobre [0, 10^7)), así que los números emitidos son
+ * únicos pero no consecutivos ni predecibles sin la clave. El algoritmo es público, así que la clave no tiene
+ * valor por defecto: sin ella, o con 0, la aplicación no arranca.
+ *
+ * Las cuentas creadas antes de este esquema tienen números aleatorios que podrían coincidir con un
+ * número permutado: al reservar un bloque se consulta una sola vez cuáles ya existen y se descartan.
+ */
+@Component
+public class GeneradorNumerosCuenta {
+
+    static final int TAMANO_BLOQUE = 100;
+    static final int ESPACIO = 10_000_000;
+
+    // Dominio de la red de Feistel: 2^24 (dos mitades de 12 bits), el menor par de mitades que cubre 10^7
+    private static final int BITS_MITAD = 12;
+    private static final int MASCARA_MITAD = (1 << BITS_MITAD) - 1;
+    private static final int RONDAS = 4;
+
+    private static final String SQL_BLOQUE = "SELECT nextval(CAST(? AS regclass))";
+    private static final String SQL_EXISTENTES = "SELECT numero_cuenta FROM productos WHERE numero_cuenta = ANY(?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long clave;
+    private final Map<Producto.TipoCuenta, Deque<String>> disponibles = new EnumMap<>(Producto.TipoCuenta.class);
+
+    public GeneradorNumerosCuenta(JdbcTemplate jdbcTemplate,
+                                  @Value("${financiera.cuentas.clave-permutacion}") long clave) {
+        if (clave == 0) {
+            throw new IllegalStateException(
+                    "financiera.cuentas.clave-permutacion debe ser un número distinto de 0"
+            );
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.clave = clave;
+        for (Producto.TipoCuenta tipo : Producto.TipoCuenta.values()) {
+            disponibles.put(tipo, new ArrayDeque<>(TAMANO_BLOQUE));
+        }
+    }
+
+    public String siguiente(Producto.TipoCuenta tipoCuenta) {
+        Deque<String> numeros = disponibles.get(tipoCuenta);
+        synchronized (numeros) {
+            while (numeros.isEmpty()) {
+                numeros.addAll(reservarBloque(tipoCuenta));
+            }
+            return numeros.poll();
+        }
+    }
+
+    // Metodos auxiliares
+
+    private List<String> reservarBloque(Producto.TipoCuenta tipoCuenta) {
+        long inicio = jdbcTemplate.queryForObject(SQL_BLOQUE, Long.class, secuencia(tipoCuenta));
+        if (inicio + TAMANO_BLOQUE > ESPACIO) {
+            throw new IllegalStateException(
+                    "Se agotaron los números de cuenta disponibles para " + tipoCuenta
+            );
+        }
+
+        List<String> numeros = new ArrayList<>(TAMANO_BLOQUE);
+        for (int i = 0; i < TAMANO_BLOQUE; i++) {
+            numeros.add(numeroCuenta(tipoCuenta, (int) inicio + i));
+        }
+
+        Set<String> existentes = new HashSet<>(jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement(SQL_EXISTENTES);
+            ps.setArray(1, con.createArrayOf("varchar", numeros.toArray()));
+            return ps;
+        }, (rs, fila) -> rs.getString(1)));
+
+        numeros.removeAll(existentes);
+        return numeros;
+    }
+
+    String numeroCuenta(Producto.TipoCuenta tipoCuenta, int posicion) {
+        String cuerpo = prefijo(tipoCuenta) + String.format("%07d", permutar(tipoCuenta, posicion));
+        return cuerpo + digitoLuhn(cuerpo);
+    }
+
+    // Biyección sobre [0, ESPACIO): la red de Feistel permuta [0, 2^24) y el cycle-walking reaplica
+    // la permutación hasta volver a caer dentro del rango
+    int permutar(Producto.TipoCuenta tipoCuenta, int posicion) {
+        int valor = posicion;
+        do {
+            valor = feistel(valor, clave ^ ((long) tipoCuenta.ordinal() << 32));
+        } while (valor >= ESPACIO);
+        return valor;
+    }
+
+    private static int feistel(int valor, long claveTipo) {
+        int izquierda = valor >>> BITS_MITAD;
+        int derecha = valor & MASCARA_MITAD;
+        for (int ronda = 0; ronda < RONDAS; ronda++) {
+            int nueva = izquierda ^ (int) (mezclar(derecha, claveTipo + ronda) & MASCARA_MITAD);
+            izquierda = derecha;
+            derecha = nueva;
+        }
+        return (izquierda << BITS_MITAD) | derecha;
+    }
+
+    // Finalizador de SplitMix64
+    private static long mezclar(int valor, long claveRonda) {
+        long z = valor + claveRonda * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    static int digitoLuhn(String cuerpo) {
+        int suma = 0;
+        boolean duplicar = true;
+        for (int i = cuerpo.length() - 1; i >= 0; i--) {
+            int digito = cuerpo.charAt(i) - '0';
+            if (duplicar) {
+                digito *= 2;
+                if (digito > 9) {
+                    digito -= 9;
+                }
+            }
+            suma += digito;
+            duplicar = !duplicar;
+        }
+        return (10 - suma % 10) % 10;
+    }
+
+    private static String prefijo(Producto.TipoCuenta tipoCuenta) {
+        return tipoCuenta == Producto.TipoCuenta.CUENTA_AHORROS ? "53" : "33";
+    }
+
+    private static String secuencia(Producto.TipoCuenta tipoCuenta) {
+        return tipoCuenta == Producto.TipoCuenta.CUENTA_AHORROS
+                ? "numero_cuenta_ahorros_seq"
+                : "numero_cuenta_corriente_seq";
+    }
+}
@@ -0,0 +1,504 @@
+package com.financiera.backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.financiera.backend.dto.ClienteDTO;
+import com.financiera.backend.dto.FilaImportacionDTO;
+import com.financiera.backend.dto.ProductoDTO;
+import com.financiera.backend.dto.ResultadoImportacionDTO;
+import com.financiera.backend.entity.Producto;
+import com.financiera.backend.exception.clientes.ArchivoImportacionInvalidoException;
+import com.financiera.backend.exception.clientes.ClienteMenorDeEdadException;
+import com.financiera.backend.repository.ClienteRepository;
+import com.financiera.backend.repository.ProductoRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+/**
+ * Importación masiva de clientes, con una cuenta opcional por cliente, desde archivos CSV o NDJSON.
+ *
+ * El archivo se lee por bloques de líneas. Cada bloque se valida en un hilo del pool (formato, Bean
+ * Validation y mayoría de edad) mientras el hilo que llama sigue leyendo; los bloques validados se
+ * insertan en orden, uno por transacción, con lotes JDBC. Como solo hay unos pocos bloques en
+ * memoria a la vez, el consumo no depende del tamaño del archivo.
+ *
+ * Los duplicados se revisan al insertar y no al validar: así un valor repetido entre dos bloques
+ * del mismo archivo se encuentra en la base, porque el primer bloque ya fue insertado.
+ */
+@Slf4j
+@Service
+public class ImportacionClientesService {
+
+    static final int TAMANO_BLOQUE = 1000;
+
+    private static final String[] COLUMNAS_OBLIGATORIAS = {
+            "tipoIdentificacion", "numeroIdentificacion", "nombres", "apellido", "correoElectronico", "fechaNacimiento"
+    };
+
+    private static final DateTimeFormatter FORMATO_NOMBRE_RECHAZOS = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final ClienteRepository clienteRepository;
+    private final ProductoRepository productoRepository;
+    private final GeneradorNumerosCuenta generadorNumerosCuenta;
+    private final IndiceDuplicadosClientes indiceDuplicados;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int hilos;
+    private final Path directorioRechazos;
+
+    public ImportacionClientesService(ClienteRepository clienteRepository,
+                                      ProductoRepository productoRepository,
+                                      GeneradorNumerosCuenta generadorNumerosCuenta,
+                                      IndiceDuplicadosClientes indiceDuplicados,
+                                      Validator validator,
+                                      ObjectMapper objectMapper,
+                                      PlatformTransactionManager transactionManager,
+                                      @Value("${financiera.importacion.hilos:0}") int hilos,
+                                      @Value("${financiera.importacion.directorio-rechazos:${java.io.tmpdir}}")
+                                      String directorioRechazos) {
+        this.clienteRepository = clienteRepository;
+        this.productoRepository = productoRepository;
+        this.generadorNumerosCuenta = generadorNumerosCuenta;
+        this.indiceDuplicados = indiceDuplicados;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.hilos = hilos > 0 ? hilos : Runtime.getRuntime().availableProcessors();
+        this.directorioRechazos = Path.of(directorioRechazos);
+    }
+
+    public enum Formato {
+        CSV,
+        NDJSON
+    }
+
+    // Importar desde una petición HTTP: los rechazos quedan en el directorio configurado
+    public ResultadoImportacionDTO importar(InputStream entrada, Formato formato) throws IOException {
+        Files.createDirectories(directorioRechazos);
+        Path archivoRechazos = directorioRechazos.resolve("rechazos-clientes-"
+                + LocalDateTime.now().format(FORMATO_NOMBRE_RECHAZOS) + "-"
+                + UUID.randomUUID().toString().substring(0, 8) + ".csv");
+        return importar(entrada, formato, archivoRechazos);
+    }
+
+    // Importar escribiendo los rechazos en la ruta indicada. Si no hay rechazos, el archivo no se conserva.
+    public ResultadoImportacionDTO importar(InputStream entrada, Formato formato, Path archivoRechazos)
+            throws IOException {
+        long inicio = System.currentTimeMillis();
+        indiceDuplicados.cargar();
+
+        Contadores contadores = new Contadores();
+        ExecutorService validadores = Executors.newFixedThreadPool(hilos);
+        // Bloques en vuelo: suficientes para que los validadores no esperen a la base, y no más
+        Deque<Future<BloqueValidado>> pendientes = new ArrayDeque<>();
+
+        try (BufferedReader lector = new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8))) {
+            // El encabezado se revisa antes de crear el archivo de rechazos
+            LectorFilas lectorFilas = formato == Formato.NDJSON
+                    ? new LectorNdjson(objectMapper)
+                    : LectorCsv.desdeEncabezado(lector.readLine());
+            long numeroLinea = formato == Formato.NDJSON ? 0 : 1;
+
+            try (Writer rechazos = Files.newBufferedWriter(archivoRechazos, StandardCharsets.UTF_8)) {
+                rechazos.write("linea,motivo,contenido\r\n");
+
+                List<Linea> bloque = new ArrayList<>(TAMANO_BLOQUE);
+                String texto;
+                while ((texto = lector.readLine()) != null) {
+                    numeroLinea++;
+                    if (texto.isBlank()) {
+                        continue;
+                    }
+                    bloque.add(new Linea(numeroLinea, texto));
+                    if (bloque.size() == TAMANO_BLOQUE) {
+                        List<Linea> aValidar = bloque;
+                        pendientes.add(validadores.submit(() -> validar(aValidar, lectorFilas)));
+                        bloque = new ArrayList<>(TAMANO_BLOQUE);
+                        if (pendientes.size() >= hilos * 2) {
+                            guardar(esperar(pendientes.poll()), contadores, rechazos);
+                        }
+                    }
+                }
+                if (!bloque.isEmpty()) {
+                    List<Linea> aValidar = bloque;
+                    pendientes.add(validadores.submit(() -> validar(aValidar, lectorFilas)));
+                }
+                while (!pendientes.isEmpty()) {
+                    guardar(esperar(pendientes.poll()), contadores, rechazos);
+                }
+            }
+        } finally {
+            validadores.shutdownNow();
+        }
+
+        String rutaRechazos = archivoRechazos.toString();
+        if (contadores.rechazadas == 0) {
+            Files.deleteIfExists(archivoRechazos);
+            rutaRechazos = null;
+        }
+
+        ResultadoImportacionDTO resultado = new ResultadoImportacionDTO(
+                contadores.leidas, contadores.clientes, contadores.cuentas, contadores.rechazadas,
+                rutaRechazos, System.currentTimeMillis() - inicio);
+        log.info("Importación de clientes terminada: {}", resultado);
+        return resultado;
+    }
+
+    // Metodos auxiliares
+
+    // Corre en los hilos del pool: no toca la base
+    private BloqueValidado validar(List<Linea> lineas, LectorFilas lectorFilas) {
+        BloqueValidado resultado = new BloqueValidado(lineas.size());
+        for (Linea linea : lineas) {
+            FilaImportacionDTO fila;
+            try {
+                fila = lectorFilas.leer(linea.texto());
+            } catch (JsonProcessingException ex) {
+                resultado.rechazos.add(new Rechazo(linea, "Formato inválido: " + ex.getOriginalMessage()));
+                continue;
+            } catch (IllegalArgumentException | DateTimeException | IOException ex) {
+                resultado.rechazos.add(new Rechazo(linea, "Formato inválido: " + ex.getMessage()));
+                continue;
+            }
+
+            Set<ConstraintViolation<FilaImportacionDTO>> violaciones = validator.validate(fila);
+            if (!violaciones.isEmpty()) {
+                resultado.rechazos.add(new Rechazo(linea, violaciones.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining("; "))));
+                continue;
+            }
+
+            try {
+                ClienteService.validarMayorDeEdad(fila.getCliente().getFechaNacimiento());
+            } catch (ClienteMenorDeEdadException ex) {
+                resultado.rechazos.add(new Rechazo(linea, ex.getMessage()));
+                continue;
+            }
+
+            resultado.validas.add(new FilaValida(linea, fila));
+        }
+        return resultado;
+    }
+
+    // Corre en el hilo que llama, un bloque a la vez y en el orden del archivo
+    private void guardar(BloqueValidado bloque, Contadores contadores, Writer rechazos) throws IOException {
+        contadores.leidas += bloque.total;
+        for (Rechazo rechazo : bloque.rechazos) {
+            escribirRechazo(rechazos, rechazo, contadores);
+        }
+
+        List<FilaValida> pendientes = descartarRepetidasEnBloque(bloque.validas, rechazos, contadores);
+
+        // Si otro proceso inserta el mismo valor entre la verificación y el commit, la restricción única
+        // revierte el bloque; el segundo intento consulta todas las filas en la base y no solo las dudosas.
+        // Parte de las filas que quedaron del primero: las ya rechazadas no se vuelven a escribir ni a contar
+        for (int intento = 1; ; intento++) {
+            List<FilaValida> nuevas = descartarRegistradas(pendientes, intento > 1, rechazos, contadores);
+            try {
+                int cuentas = insertar(nuevas);
+                contadores.clientes += nuevas.size();
+                contadores.cuentas += cuentas;
+                return;
+            } catch (DataIntegrityViolationException ex) {
+                if (intento == 2) {
+                    throw ex;
+                }
+                log.warn("Conflicto de unicidad al importar un bloque, se verifica de nuevo: {}",
+                        ex.getMostSpecificCause().getMessage());
+                pendientes = nuevas;
+            }
+        }
+    }
+
+    private List<FilaValida> descartarRepetidasEnBloque(List<FilaValida> filas, Writer rechazos,
+                                                        Contadores contadores) throws IOException {
+        Set<String> identificaciones = new HashSet<>();
+        Set<String> correos = new HashSet<>();
+        List<FilaValida> unicas = new ArrayList<>(filas.size());
+        for (FilaValida fila : filas) {
+            ClienteDTO cliente = fila.fila().getCliente();
+            if (!identificaciones.add(cliente.getNumeroIdentificacion())) {
+                escribirRechazo(rechazos, new Rechazo(fila.linea(),
+                        "Número de identificación repetido en el archivo: " + cliente.getNumeroIdentificacion()),
+                        contadores);
+            } else if (!correos.add(cliente.getCorreoElectronico())) {
+                escribirRechazo(rechazos, new Rechazo(fila.linea(),
+                        "Correo repetido en el archivo: " + cliente.getCorreoElectronico()), contadores);
+            } else {
+                unicas.add(fila);
+            }
+        }
+        return unicas;
+    }
+
+    // El índice en memoria descarta la mayoría de valores; los dudosos se confirman con una sola consulta
+    private List<FilaValida> descartarRegistradas(List<FilaValida> filas, boolean consultarTodas, Writer rechazos,
+                                                  Contadores contadores) throws IOException {
+        List<String> identificaciones = new ArrayList<>();
+        List<String> correos = new ArrayList<>();
+        for (FilaValida fila : filas) {
+            ClienteDTO cliente = fila.fila().getCliente();
+            if (consultarTodas || indiceDuplicados.podriaExistirIdentificacion(cliente.getNumeroIdentificacion())) {
+                identificaciones.add(cliente.getNumeroIdentificacion());
+            }
+            if (consultarTodas || indiceDuplicados.podriaExistirCorreo(cliente.getCorreoElectronico())) {
+                correos.add(cliente.getCorreoElectronico());
+            }
+        }
+
+        Set<String> registrados = new HashSet<>(clienteRepository.buscarRegistrados(identificaciones, correos));
+        if (registrados.isEmpty()) {
+            return filas;
+        }
+
+        List<FilaValida> nuevas = new ArrayList<>(filas.size());
+        for (FilaValida fila : filas) {
+            ClienteDTO cliente = fila.fila().getCliente();
+            if (registrados.contains(cliente.getNumeroIdentificacion())) {
+                escribirRechazo(rechazos, new Rechazo(fila.linea(),
+                        "Ya existe un cliente con el número de identificación: " + cliente.getNumeroIdentificacion()),
+                        contadores);
+            } else if (registrados.contains(cliente.getCorreoElectronico())) {
+                escribirRechazo(rechazos, new Rechazo(fila.linea(),
+                        "Ya existe un cliente con el correo: " + cliente.getCorreoElectronico()), contadores);
+            } else {
+                nuevas.add(fila);
+            }
+        }
+        return nuevas;
+    }
+
+    // Inserta clientes y cuentas del bloque en una transacción; retorna la cantidad de cuentas creadas
+    private int insertar(List<FilaValida> filas) {
+        if (filas.isEmpty()) {
+            return 0;
+        }
+
+        List<ClienteDTO> clientes = new ArrayList<>(filas.size());
+        for (FilaValida fila : filas) {
+            clientes.add(fila.fila().getCliente());
+        }
+
+        Integer cuentasCreadas = transactionTemplate.execute(estado -> {
+            clienteRepository.insertarClientes(clientes);
+
+            List<ProductoDTO> cuentas = new ArrayList<>();
+            for (FilaValida fila : filas) {
+                Producto.TipoCuenta tipoCuenta = fila.fila().getTipoCuenta();
+                if (tipoCuenta != null) {
+                    ProductoDTO cuenta = new ProductoDTO();
+                    cuenta.setTipoCuenta(tipoCuenta);
+                    cuenta.setNumeroCuenta(generadorNumerosCuenta.siguiente(tipoCuenta));
+                    cuenta.setExentaGMF(fila.fila().getExentaGMF());
+                    cuenta.setClienteId(fila.fila().getCliente().getId());
+                    cuentas.add(cuenta);
+                }
+            }
+            productoRepository.insertarCuentas(cuentas);
+            return cuentas.size();
+        });
+
+        for (ClienteDTO cliente : clientes) {
+            indiceDuplicados.registrar(cliente.getNumeroIdentificacion(), cliente.getCorreoElectronico());
+        }
+        return cuentasCreadas;
+    }
+
+    private static BloqueValidado esperar(Future<BloqueValidado> bloque) throws IOException {
+        try {
+            return bloque.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Importación interrumpida");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    private static void escribirRechazo(Writer rechazos, Rechazo rechazo, Contadores contadores) throws IOException {
+        rechazos.write(String.valueOf(rechazo.linea().numero()));
+        rechazos.write(',');
+        rechazos.write(LectorCsv.escapar(rechazo.motivo()));
+        rechazos.write(',');
+        rechazos.write(LectorCsv.escapar(rechazo.linea().texto()));
+        rechazos.write("\r\n");
+        contadores.rechazadas++;
+    }
+
+    private record Linea(long numero, String texto) {
+    }
+
+    private record FilaValida(Linea linea, FilaImportacionDTO fila) {
+    }
+
+    private record Rechazo(Linea linea, String motivo) {
+    }
+
+    private static final class BloqueValidado {
+
+        private final int total;
+        private final List<FilaValida> validas;
+        private final List<Rechazo> rechazos = new ArrayList<>();
+
+        private BloqueValidado(int total) {
+            this.total = total;
+            this.validas = new ArrayList<>(total);
+        }
+    }
+
+    private static final class Contadores {
+
+        private long leidas;
+        private long clientes;
+        private long cuentas;
+        private long rechazadas;
+    }
+
+    private interface LectorFilas {
+
+        FilaImportacionDTO leer(String linea) throws IOException;
+    }
+
+    private static final class LectorNdjson implements LectorFilas {
+
+        private final ObjectMapper objectMapper;
+
+        private LectorNdjson(ObjectMapper objectMapper) {
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        public FilaImportacionDTO leer(String linea) throws IOException {
+            FilaImportacionDTO fila = objectMapper.readValue(linea, FilaImportacionDTO.class);
+            if (fila.getCliente() == null) {
+                fila.setCliente(new ClienteDTO());
+            }
+            return fila;
+        }
+    }
+
+    // CSV con encabezado, un registro por línea. Las columnas se ubican por nombre, en cualquier orden.
+    private static final class LectorCsv implements LectorFilas {
+
+        private final Map<String, Integer> posiciones;
+
+        private LectorCsv(Map<String, Integer> posiciones) {
+            this.posiciones = posiciones;
+        }
+
+        private static LectorCsv desdeEncabezado(String encabezado) {
+            if (encabezado == null) {
+                throw new ArchivoImportacionInvalidoException("El archivo está vacío");
+            }
+
+            List<String> nombres = separar(encabezado.startsWith("\uFEFF") ? encabezado.substring(1) : encabezado);
+            Map<String, Integer> posiciones = new HashMap<>();
+            for (int i = 0; i < nombres.size(); i++) {
+                posiciones.put(nombres.get(i).trim(), i);
+            }
+            for (String columna : COLUMNAS_OBLIGATORIAS) {
+                if (!posiciones.containsKey(columna)) {
+                    throw new ArchivoImportacionInvalidoException(
+                            "Falta la columna obligatoria en el encabezado: " + columna
+                    );
+                }
+            }
+            return new LectorCsv(posiciones);
+        }
+
+        @Override
+        public FilaImportacionDTO leer(String linea) {
+            List<String> campos = separar(linea);
+
+            ClienteDTO cliente = new ClienteDTO();
+            cliente.setTipoIdentificacion(campo(campos, "tipoIdentificacion"));
+            cliente.setNumeroIdentificacion(campo(campos, "numeroIdentificacion"));
+            cliente.setNombres(campo(campos, "nombres"));
+            cliente.setApellido(campo(campos, "apellido"));
+            cliente.setCorreoElectronico(campo(campos, "correoElectronico"));
+            String fechaNacimiento = campo(campos, "fechaNacimiento");
+            cliente.setFechaNacimiento(fechaNacimiento == null ? null : LocalDate.parse(fechaNacimiento));
+
+            String tipoCuenta = campo(campos, "tipoCuenta");
+            String exentaGMF = campo(campos, "exentaGMF");
+            return new FilaImportacionDTO(
+                    cliente,
+                    tipoCuenta == null ? null : Producto.TipoCuenta.valueOf(tipoCuenta),
+                    exentaGMF == null ? null : Boolean.valueOf(exentaGMF));
+        }
+
+        // Las columnas ausentes o vacías se leen como null
+        private String campo(List<String> campos, String columna) {
+            Integer posicion = posiciones.get(columna);
+            if (posicion == null || posicion >= campos.size()) {
+                return null;
+            }
+            String valor = campos.get(posicion).trim();
+            return valor.isEmpty() ? null : valor;
+        }
+
+        // RFC 4180 dentro de una línea: comas como separador y comillas dobles para escapar
+        private static List<String> separar(String linea) {
+            List<String> campos = new ArrayList<>();
+            StringBuilder actual = new StringBuilder();
+            boolean entreComillas = false;
+            for (int i = 0; i < linea.length(); i++) {
+                char c = linea.charAt(i);
+                if (entreComillas) {
+                    if (c == '"' && i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                        actual.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        entreComillas = false;
+                    } else {
+                        actual.append(c);
+                    }
+                } else if (c == '"') {
+                    entreComillas = true;
+                } else if (c == ',') {
+                    campos.add(actual.toString());
+                    actual.setLength(0);
+                } else {
+                    actual.append(c);
+                }
+            }
+            if (entreComillas) {
+                throw new IllegalArgumentException("comillas sin cerrar");
+            }
+            campos.add(actual.toString());
+            return campos;
+        }
+
+        private static String escapar(String valor) {
+            if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0
+                    && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0) {
+                return valor;
+            }
+            return '"' + valor.replace("\"", "\"\"") + '"';
+        }
+    }
+}
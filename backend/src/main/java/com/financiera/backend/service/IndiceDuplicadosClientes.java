@@ -0,0 +1,122 @@
+package com.financiera.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Índice en memoria de los números de identificación y correos ya registrados.
+ *
+ * Responde "seguro es nuevo" sin ir a la base; solo cuando el valor podría existir el servicio
+ * confirma con la consulta. Los valores insertados desde otros nodos no están en este índice, por
+ * eso la restricción única de la tabla sigue siendo la garantía final.
+ */
+@Slf4j
+@Component
+public class IndiceDuplicadosClientes {
+
+    private static final String SQL_CARGA = "SELECT numero_identificacion, correo_electronico FROM clientes";
+    private static final int TAMANO_LECTURA_CARGA = 5000;
+
+    private final FiltroBloom identificaciones;
+    private final FiltroBloom correos;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter consultasNuevo;
+    private final Counter consultasPosible;
+
+    // Mientras se carga, todo valor se trata como posible duplicado
+    private volatile boolean cargado;
+
+    public IndiceDuplicadosClientes(JdbcTemplate jdbcTemplate,
+                                    PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${financiera.clientes.indice-duplicados.capacidad:5000000}") long capacidad,
+                                    @Value("${financiera.clientes.indice-duplicados.probabilidad-falso-positivo:0.01}")
+                                    double probabilidadFalsoPositivo) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.identificaciones = new FiltroBloom(capacidad, probabilidadFalsoPositivo);
+        this.correos = new FiltroBloom(capacidad, probabilidadFalsoPositivo);
+
+        registrarMetricas(meterRegistry, "numero_identificacion", identificaciones);
+        registrarMetricas(meterRegistry, "correo_electronico", correos);
+        this.consultasNuevo = Counter.builder("clientes.indice_duplicados.consultas")
+                .tag("resultado", "nuevo")
+                .register(meterRegistry);
+        this.consultasPosible = Counter.builder("clientes.indice_duplicados.consultas")
+                .tag("resultado", "posible")
+                .register(meterRegistry);
+    }
+
+    // La importación por línea de comandos corre antes de ApplicationReadyEvent y carga el índice por su cuenta;
+    // la segunda llamada no hace nada
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void cargar() {
+        if (cargado) {
+            return;
+        }
+        long inicio = System.currentTimeMillis();
+        long[] filas = {0};
+
+        // El cursor del driver solo respeta el fetch size dentro de una transacción
+        transactionTemplate.executeWithoutResult(estado -> {
+            jdbcTemplate.query(con -> {
+                var ps = con.prepareStatement(SQL_CARGA);
+                ps.setFetchSize(TAMANO_LECTURA_CARGA);
+                return ps;
+            }, (RowCallbackHandler) rs -> {
+                identificaciones.agregar(rs.getString(1));
+                correos.agregar(rs.getString(2));
+                filas[0]++;
+            });
+        });
+
+        cargado = true;
+        log.info("Índice de duplicados de clientes cargado: {} clientes en {} ms",
+                filas[0], System.currentTimeMillis() - inicio);
+    }
+
+    public boolean podriaExistirIdentificacion(String numeroIdentificacion) {
+        return consultar(identificaciones, numeroIdentificacion);
+    }
+
+    public boolean podriaExistirCorreo(String correoElectronico) {
+        return consultar(correos, correoElectronico);
+    }
+
+    // Se registra antes del commit: si la transacción se revierte solo queda un falso positivo
+    public void registrar(String numeroIdentificacion, String correoElectronico) {
+        identificaciones.agregar(numeroIdentificacion);
+        correos.agregar(correoElectronico);
+    }
+
+    // Metodos auxiliares
+
+    private boolean consultar(FiltroBloom filtro, String valor) {
+        boolean posible = !cargado || filtro.podriaContener(valor);
+        (posible ? consultasPosible : consultasNuevo).increment();
+        return posible;
+    }
+
+    private static void registrarMetricas(MeterRegistry meterRegistry, String campo, FiltroBloom filtro) {
+        Gauge.builder("clientes.indice_duplicados.bytes", filtro, FiltroBloom::tamanoBytes)
+                .tag("campo", campo)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("clientes.indice_duplicados.falsos_positivos", filtro, FiltroBloom::probabilidadFalsoPositivo)
+                .tag("campo", campo)
+                .description("Probabilidad estimada de falso positivo")
+                .register(meterRegistry);
+    }
+}
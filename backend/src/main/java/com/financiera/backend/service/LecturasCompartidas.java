@@ -0,0 +1,111 @@
+package com.financiera.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Une las lecturas idénticas simultáneas: mientras una consulta está en curso, las peticiones que
+ * llegan con la misma clave esperan su resultado (o su excepción) en lugar de repetirla. Así una
+ * avalancha de peticiones por la misma cuenta hace una consulta por clave y no una por petición.
+ *
+ * No guarda nada: en cuanto la consulta termina, la siguiente petición consulta de nuevo. Los
+ * resultados se comparten entre hilos y no deben modificarse.
+ *
+ * La clave es el tipo de consulta, el ID de la entidad y un detalle opcional (por ejemplo, los filtros
+ * de una página). olvidar() descarta las consultas en curso de un ID, con cualquier detalle, para que
+ * las peticiones posteriores a una escritura no se unan a una consulta que empezó antes de ella.
+ *
+ * La lectura debe hacerse fuera de una transacción: las peticiones que esperan no deben retener una
+ * conexión.
+ *
+ * Métrica lecturas.compartidas{consulta, resultado}: "ejecutada" cuenta las consultas hechas y
+ * "compartida" las peticiones que recibieron el resultado de otra.
+ */
+@Component
+public class LecturasCompartidas {
+
+    private static final Object SIN_DETALLE = new Object();
+
+    private final ConcurrentHashMap<Clave, ConcurrentHashMap<Object, CompletableFuture<Object>>> enCurso =
+            new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Counter> contadores = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public LecturasCompartidas(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> T leer(String consulta, Long id, Supplier<T> lectura) {
+        return leer(consulta, id, null, lectura);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T leer(String consulta, Long id, Object detalle, Supplier<T> lectura) {
+        Clave clave = new Clave(consulta, id);
+        Object llave = detalle == null ? SIN_DETALLE : detalle;
+        ConcurrentHashMap<Object, CompletableFuture<Object>> grupo =
+                enCurso.computeIfAbsent(clave, nueva -> new ConcurrentHashMap<>());
+        CompletableFuture<Object> propia = new CompletableFuture<>();
+        CompletableFuture<Object> existente = grupo.putIfAbsent(llave, propia);
+
+        if (existente != null) {
+            contador(consulta, "compartida").increment();
+            return (T) esperar(existente);
+        }
+
+        contador(consulta, "ejecutada").increment();
+        try {
+            T resultado = lectura.get();
+            propia.complete(resultado);
+            return resultado;
+        } catch (RuntimeException | Error ex) {
+            propia.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            grupo.remove(llave, propia);
+            enCurso.computeIfPresent(clave, (c, actual) -> actual.isEmpty() ? null : actual);
+        }
+    }
+
+    // Las peticiones que ya esperaban reciben el resultado igual; las siguientes empiezan otra consulta
+    public void olvidar(String consulta, Long id) {
+        enCurso.remove(new Clave(consulta, id));
+    }
+
+    public void olvidarTodo(String consulta) {
+        enCurso.keySet().removeIf(clave -> clave.consulta().equals(consulta));
+    }
+
+    // Metodos auxiliares
+
+    private Counter contador(String consulta, String resultado) {
+        return contadores.computeIfAbsent(consulta + "/" + resultado, nombre -> Counter.builder("lecturas.compartidas")
+                .tag("consulta", consulta)
+                .tag("resultado", resultado)
+                .register(meterRegistry));
+    }
+
+    // La excepción de la consulta llega a cada petición que la esperaba tal como la recibió quien la ejecutó
+    private static Object esperar(CompletableFuture<Object> consulta) {
+        try {
+            return consulta.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            if (ex.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw ex;
+        }
+    }
+
+    private record Clave(String consulta, Long id) {
+    }
+}
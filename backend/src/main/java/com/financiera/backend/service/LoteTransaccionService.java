@@ -0,0 +1,234 @@
+package com.financiera.backend.service;
+
+import com.financiera.backend.config.ReintentoPorConflicto;
+import com.financiera.backend.dto.*;
+import com.financiera.backend.entity.Producto;
+import com.financiera.backend.entity.Transaccion;
+import com.financiera.backend.exception.clientes.RecursoNoEncontradoException;
+import com.financiera.backend.exception.productos.OperacionNoPermitidaException;
+import com.financiera.backend.exception.productos.SaldoInsuficienteException;
+import com.financiera.backend.exception.transacciones.CuentaInactivaException;
+import com.financiera.backend.repository.ProductoRepository;
+import com.financiera.backend.repository.TransaccionRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+public class LoteTransaccionService {
+
+    private final TransaccionRepository transaccionRepository;
+    private final ProductoRepository productoRepository;
+    private final BloqueoCuentasService bloqueoCuentasService;
+    private final CacheReferencia cacheReferencia;
+
+    // Procesar lote de consignaciones, retiros y transferencias.
+    // Las operaciones se evalúan en el orden recibido contra el saldo que van dejando las anteriores;
+    // una operación rechazada no afecta a las demás. Al final todos los movimientos se insertan en lotes
+    // JDBC; los saldos no se actualizan porque se derivan de los movimientos, salvo los de las cuentas franjeadas,
+    // que no suman el libro y reciben el neto del lote en su saldo consolidado.
+    @ReintentoPorConflicto
+    @Transactional
+    public List<ResultadoOperacionLoteDTO> procesarLote(LoteTransaccionesDTO loteDTO) {
+        List<OperacionLoteDTO> operaciones = loteDTO.getOperaciones();
+
+        Set<Long> cuentaIds = new TreeSet<>();
+        operaciones.forEach(operacion -> cuentaIds.addAll(cuentasDeOperacion(operacion)));
+
+        bloqueoCuentasService.bloquearSaldos("lote", cuentaIds);
+
+        // Las cuentas se leen después del bloqueo, en otra sentencia, para que el saldo incluya lo que dejaron
+        // las transacciones por las que se esperó
+        Map<Long, CuentaEnLote> cuentas = cuentaIds.isEmpty() ? Map.of() :
+                productoRepository.findAllById(cuentaIds)
+                        .stream()
+                        .map(CuentaEnLote::new)
+                        .collect(Collectors.toMap(cuenta -> cuenta.id, Function.identity()));
+
+        List<ResultadoOperacionLoteDTO> resultados = new ArrayList<>(operaciones.size());
+        List<TransaccionDTO> movimientos = new ArrayList<>();
+
+        for (int indice = 0; indice < operaciones.size(); indice++) {
+            try {
+                List<TransaccionDTO> aplicados = aplicarEnMemoria(operaciones.get(indice), cuentas);
+                movimientos.addAll(aplicados);
+                resultados.add(new ResultadoOperacionLoteDTO(indice, true, aplicados, null));
+            } catch (RecursoNoEncontradoException | CuentaInactivaException
+                     | SaldoInsuficienteException | OperacionNoPermitidaException ex) {
+                resultados.add(new ResultadoOperacionLoteDTO(indice, false, List.of(), ex.getMessage()));
+            }
+        }
+
+        List<Long> afectadas = cuentas.values().stream()
+                .filter(cuenta -> cuenta.movimientos > 0)
+                .map(cuenta -> cuenta.id)
+                .sorted()
+                .toList();
+
+        Set<Long> franjeadas = cuentas.values().stream()
+                .filter(cuenta -> cuenta.franjeada && cuenta.movimientos > 0)
+                .map(cuenta -> cuenta.id)
+                .collect(Collectors.toSet());
+
+        transaccionRepository.insertarMovimientos(movimientos);
+        if (!franjeadas.isEmpty()) {
+            productoRepository.ajustarSaldosFranjeados(movimientos.stream()
+                    .filter(movimiento -> franjeadas.contains(movimiento.getCuentaOrigenId()))
+                    .toList());
+        }
+        cacheReferencia.invalidarProductos(afectadas);
+
+        return resultados;
+    }
+
+    // Metodos auxiliares
+
+    private List<TransaccionDTO> aplicarEnMemoria(OperacionLoteDTO operacion, Map<Long, CuentaEnLote> cuentas) {
+        switch (operacion.getTipoTransaccion()) {
+            case CONSIGNACION -> {
+                ConsignacionDTO consignacion = requerido(operacion.getConsignacion(), "consignacion");
+                CuentaEnLote cuenta = cuenta(cuentas, consignacion.getCuentaId(), "la cuenta");
+                ReglasCuenta.validarCuentaActiva(cuenta.numeroCuenta, cuenta.estado);
+
+                return List.of(cuenta.acreditar(Transaccion.TipoTransaccion.CONSIGNACION,
+                        consignacion.getMonto(),
+                        consignacion.getDescripcion() != null ? consignacion.getDescripcion() : "Consignación",
+                        null));
+            }
+            case RETIRO -> {
+                RetiroDTO retiro = requerido(operacion.getRetiro(), "retiro");
+                CuentaEnLote cuenta = cuenta(cuentas, retiro.getCuentaId(), "la cuenta");
+                ReglasCuenta.validarCuentaActiva(cuenta.numeroCuenta, cuenta.estado);
+                ReglasCuenta.validarSaldoSuficiente(cuenta.tipoCuenta, cuenta.saldo, retiro.getMonto());
+
+                return List.of(cuenta.debitar(Transaccion.TipoTransaccion.RETIRO,
+                        retiro.getMonto(),
+                        retiro.getDescripcion() != null ? retiro.getDescripcion() : "Retiro",
+                        null));
+            }
+            case TRANSFERENCIA -> {
+                TransferenciaDTO transferencia = requerido(operacion.getTransferencia(), "transferencia");
+                if (transferencia.getCuentaOrigenId().equals(transferencia.getCuentaDestinoId())) {
+                    throw new OperacionNoPermitidaException(
+                            "No se puede transferir a la misma cuenta"
+                    );
+                }
+
+                CuentaEnLote origen = cuenta(cuentas, transferencia.getCuentaOrigenId(), "la cuenta origen");
+                CuentaEnLote destino = cuenta(cuentas, transferencia.getCuentaDestinoId(), "la cuenta destino");
+                ReglasCuenta.validarCuentaActiva(origen.numeroCuenta, origen.estado);
+                ReglasCuenta.validarCuentaActiva(destino.numeroCuenta, destino.estado);
+                ReglasCuenta.validarSaldoSuficiente(origen.tipoCuenta, origen.saldo, transferencia.getMonto());
+
+                TransaccionDTO debito = origen.debitar(Transaccion.TipoTransaccion.TRANSFERENCIA,
+                        transferencia.getMonto(),
+                        transferencia.getDescripcion() != null ? transferencia.getDescripcion() :
+                                "Transferencia a cuenta " + destino.numeroCuenta,
+                        destino);
+                TransaccionDTO credito = destino.acreditar(Transaccion.TipoTransaccion.TRANSFERENCIA,
+                        transferencia.getMonto(),
+                        transferencia.getDescripcion() != null ? transferencia.getDescripcion() :
+                                "Transferencia desde cuenta " + origen.numeroCuenta,
+                        origen);
+                return List.of(debito, credito);
+            }
+            default -> throw new OperacionNoPermitidaException(
+                    "Tipo de transacción no soportado: " + operacion.getTipoTransaccion()
+            );
+        }
+    }
+
+    private List<Long> cuentasDeOperacion(OperacionLoteDTO operacion) {
+        List<Long> ids = new ArrayList<>(2);
+        if (operacion.getTipoTransaccion() == Transaccion.TipoTransaccion.CONSIGNACION
+                && operacion.getConsignacion() != null) {
+            ids.add(operacion.getConsignacion().getCuentaId());
+        } else if (operacion.getTipoTransaccion() == Transaccion.TipoTransaccion.RETIRO
+                && operacion.getRetiro() != null) {
+            ids.add(operacion.getRetiro().getCuentaId());
+        } else if (operacion.getTipoTransaccion() == Transaccion.TipoTransaccion.TRANSFERENCIA
+                && operacion.getTransferencia() != null) {
+            ids.add(operacion.getTransferencia().getCuentaOrigenId());
+            ids.add(operacion.getTransferencia().getCuentaDestinoId());
+        }
+        ids.removeIf(Objects::isNull);
+        return ids;
+    }
+
+    private <T> T requerido(T detalle, String campo) {
+        if (detalle == null) {
+            throw new OperacionNoPermitidaException(
+                    "La operación no trae el detalle '" + campo + "' que corresponde a su tipo de transacción"
+            );
+        }
+        return detalle;
+    }
+
+    private CuentaEnLote cuenta(Map<Long, CuentaEnLote> cuentas, Long id, String descripcion) {
+        CuentaEnLote cuenta = cuentas.get(id);
+        if (cuenta == null) {
+            throw new RecursoNoEncontradoException(
+                    "No se encontró " + descripcion + " con ID: " + id
+            );
+        }
+        return cuenta;
+    }
+
+    // Copia de trabajo de la cuenta: la entidad no se modifica para que Hibernate no la sincronice
+    private static final class CuentaEnLote {
+
+        private final Long id;
+        private final String numeroCuenta;
+        private final Producto.TipoCuenta tipoCuenta;
+        private final Producto.EstadoCuenta estado;
+        private final boolean franjeada;
+        private BigDecimal saldo;
+        private int movimientos;
+
+        private CuentaEnLote(Producto producto) {
+            this.id = producto.getId();
+            this.numeroCuenta = producto.getNumeroCuenta();
+            this.tipoCuenta = producto.getTipoCuenta();
+            this.estado = producto.getEstado();
+            this.franjeada = producto.getFranjasSaldo() > 1;
+            this.saldo = producto.getSaldo();
+        }
+
+        private TransaccionDTO acreditar(Transaccion.TipoTransaccion tipo, BigDecimal monto,
+                                         String descripcion, CuentaEnLote contraparte) {
+            saldo = saldo.add(monto);
+            return registrar(tipo, Transaccion.TipoMovimiento.CREDITO, monto, descripcion, contraparte);
+        }
+
+        private TransaccionDTO debitar(Transaccion.TipoTransaccion tipo, BigDecimal monto,
+                                       String descripcion, CuentaEnLote contraparte) {
+            saldo = saldo.subtract(monto);
+            return registrar(tipo, Transaccion.TipoMovimiento.DEBITO, monto, descripcion, contraparte);
+        }
+
+        private TransaccionDTO registrar(Transaccion.TipoTransaccion tipo, Transaccion.TipoMovimiento movimiento,
+                                         BigDecimal monto, String descripcion, CuentaEnLote contraparte) {
+            movimientos++;
+
+            TransaccionDTO dto = new TransaccionDTO();
+            dto.setTipoTransaccion(tipo);
+            dto.setTipoMovimiento(movimiento);
+            dto.setMonto(monto);
+            dto.setDescripcion(descripcion);
+            dto.setSaldoAlRegistrar(saldo);
+            dto.setCuentaOrigenId(id);
+            dto.setNumeroCuentaOrigen(numeroCuenta);
+            if (contraparte != null) {
+                dto.setCuentaDestinoId(contraparte.id);
+                dto.setNumeroCuentaDestino(contraparte.numeroCuenta);
+            }
+            return dto;
+        }
+    }
+}
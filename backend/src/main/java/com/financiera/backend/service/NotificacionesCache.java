@@ -0,0 +1,278 @@
+package com.financiera.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Propaga las invalidaciones de CacheReferencia entre nodos con LISTEN/NOTIFY de PostgreSQL.
+ *
+ * Publicación: los IDs invalidados durante una transacción se acumulan y se envían con pg_notify
+ * antes del commit, en la misma transacción; PostgreSQL solo entrega la notificación si el commit
+ * ocurre, y las repetidas dentro de una transacción llegan una sola vez.
+ *
+ * Recepción: un hilo mantiene una conexión propia, fuera del pool, con LISTEN sobre el canal. Todas
+ * las notificaciones pendientes se aplican juntas, y si traen más IDs que el máximo por lote se vacía
+ * la cache completa, que es más barato que recorrerlos. Mientras la conexión está caída se pierden
+ * notificaciones, así que cada vez que se (re)establece también se vacía la cache completa.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "financiera.cache.notificaciones.habilitadas", havingValue = "true")
+public class NotificacionesCache implements AutoCloseable {
+
+    // El payload de NOTIFY admite menos de 8000 bytes; 300 IDs de hasta 19 dígitos caben con holgura
+    static final int IDS_POR_MENSAJE = 300;
+
+    private static final String SEPARADOR = "|";
+
+    private final CacheReferencia cache;
+    private final JdbcTemplate jdbcTemplate;
+    private final String url;
+    private final String usuario;
+    private final String clave;
+    private final String canal;
+    private final int maximoPorLote;
+    private final Duration esperaReconexion;
+    private final String nodo = UUID.randomUUID().toString();
+    private final Counter enviadas;
+    private final Counter recibidas;
+    private final Counter vaciados;
+    private volatile Thread escucha;
+    private volatile Connection conexion;
+
+    public NotificacionesCache(CacheReferencia cache,
+                               JdbcTemplate jdbcTemplate,
+                               DataSourceProperties propiedades,
+                               ObjectProvider<JdbcConnectionDetails> conexion,
+                               MeterRegistry meterRegistry,
+                               @Value("${financiera.cache.notificaciones.canal:financiera_cache}") String canal,
+                               @Value("${financiera.cache.notificaciones.maximo-por-lote:10000}") int maximoPorLote,
+                               @Value("${financiera.cache.notificaciones.espera-reconexion:5s}") Duration esperaReconexion) {
+        // El canal va sin comillas en LISTEN, que lo pasa a minúsculas, y tal cual en pg_notify
+        if (!canal.matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalArgumentException("Canal de notificaciones inválido: " + canal);
+        }
+        this.cache = cache;
+        this.jdbcTemplate = jdbcTemplate;
+        JdbcConnectionDetails detalles = conexion.getIfAvailable();
+        this.url = detalles != null ? detalles.getJdbcUrl() : propiedades.determineUrl();
+        this.usuario = detalles != null ? detalles.getUsername() : propiedades.determineUsername();
+        this.clave = detalles != null ? detalles.getPassword() : propiedades.determinePassword();
+        this.canal = canal;
+        this.maximoPorLote = maximoPorLote;
+        this.esperaReconexion = esperaReconexion;
+        this.enviadas = Counter.builder("cache.notificaciones").tag("sentido", "enviada").register(meterRegistry);
+        this.recibidas = Counter.builder("cache.notificaciones").tag("sentido", "recibida").register(meterRegistry);
+        this.vaciados = Counter.builder("cache.notificaciones.vaciados").register(meterRegistry);
+
+        cache.publicarInvalidacionesCon(this::publicar);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void iniciar() {
+        if (escucha != null) {
+            return;
+        }
+        escucha = new Thread(this::escuchar, "notificaciones-cache");
+        escucha.setDaemon(true);
+        escucha.start();
+    }
+
+    @Override
+    public void close() {
+        Thread hilo = escucha;
+        escucha = null;
+        if (hilo != null) {
+            hilo.interrupt();
+            cerrarConexion();
+        }
+    }
+
+    // Metodos auxiliares
+
+    private void publicar(Set<Long> idsClientes, Set<Long> idsProductos) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            enviar(idsClientes, idsProductos);
+            return;
+        }
+
+        Pendientes pendientes = (Pendientes) TransactionSynchronizationManager.getResource(this);
+        if (pendientes == null) {
+            Pendientes nuevos = new Pendientes();
+            TransactionSynchronizationManager.bindResource(this, nuevos);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean soloLectura) {
+                    enviar(nuevos.clientes, nuevos.productos);
+                }
+
+                @Override
+                public void afterCompletion(int estado) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(NotificacionesCache.this);
+                }
+            });
+            pendientes = nuevos;
+        }
+        pendientes.clientes.addAll(idsClientes);
+        pendientes.productos.addAll(idsProductos);
+    }
+
+    private void enviar(Set<Long> idsClientes, Set<Long> idsProductos) {
+        for (String mensaje : mensajes(nodo, idsClientes, idsProductos)) {
+            jdbcTemplate.query("SELECT pg_notify(?, ?)", (RowCallbackHandler) rs -> { }, canal, mensaje);
+            enviadas.increment();
+        }
+    }
+
+    private void escuchar() {
+        while (escucha == Thread.currentThread()) {
+            try (Connection nueva = DriverManager.getConnection(url, propiedadesConexion());
+                 Statement sentencia = nueva.createStatement()) {
+                sentencia.execute("LISTEN " + canal);
+                // Lo cambiado antes de escuchar, o mientras la conexión estuvo caída, no llegará por el canal
+                cache.invalidarTodo();
+                vaciados.increment();
+                conexion = nueva;
+                log.info("Escuchando invalidaciones de cache en el canal {}", canal);
+
+                PGConnection pg = nueva.unwrap(PGConnection.class);
+                while (escucha == Thread.currentThread()) {
+                    // Sin notificaciones retorna al vencer la espera; una conexión rota lanza SQLException
+                    PGNotification[] notificaciones = pg.getNotifications((int) esperaReconexion.toMillis());
+                    if (notificaciones != null && notificaciones.length > 0) {
+                        aplicar(Arrays.stream(notificaciones).map(PGNotification::getParameter).toList());
+                    } else if (!nueva.isValid(5)) {
+                        throw new SQLException("La conexión de notificaciones dejó de responder");
+                    }
+                }
+            } catch (SQLException ex) {
+                if (escucha == Thread.currentThread()) {
+                    log.warn("Conexión de notificaciones de cache perdida, reintentando en {}: {}",
+                            esperaReconexion, ex.getMessage());
+                    try {
+                        Thread.sleep(esperaReconexion.toMillis());
+                    } catch (InterruptedException interrumpido) {
+                        return;
+                    }
+                }
+            } finally {
+                conexion = null;
+            }
+        }
+    }
+
+    // Visible para las pruebas
+    boolean escuchando() {
+        return conexion != null;
+    }
+
+    void aplicar(List<String> mensajes) {
+        Set<Long> idsClientes = new HashSet<>();
+        Set<Long> idsProductos = new HashSet<>();
+        for (String mensaje : mensajes) {
+            String[] partes = mensaje.split("\\|", -1);
+            // Las invalidaciones propias ya se aplicaron localmente
+            if (partes.length != 3 || partes[0].equals(nodo)) {
+                continue;
+            }
+            recibidas.increment();
+            idsClientes.addAll(ids(partes[1]));
+            idsProductos.addAll(ids(partes[2]));
+        }
+
+        if (idsClientes.size() + idsProductos.size() > maximoPorLote) {
+            cache.invalidarTodo();
+            vaciados.increment();
+        } else if (!idsClientes.isEmpty() || !idsProductos.isEmpty()) {
+            cache.aplicarInvalidacionesRemotas(idsClientes, idsProductos);
+        }
+    }
+
+    static List<String> mensajes(String nodo, Set<Long> idsClientes, Set<Long> idsProductos) {
+        List<String> mensajes = new ArrayList<>();
+        List<Long> clientes = new ArrayList<>(idsClientes);
+        List<Long> productos = new ArrayList<>(idsProductos);
+        int desdeClientes = 0;
+        int desdeProductos = 0;
+        while (desdeClientes < clientes.size() || desdeProductos < productos.size()) {
+            int hastaClientes = Math.min(clientes.size(), desdeClientes + IDS_POR_MENSAJE);
+            int hastaProductos = Math.min(productos.size(),
+                    desdeProductos + IDS_POR_MENSAJE - (hastaClientes - desdeClientes));
+            mensajes.add(nodo + SEPARADOR + unir(clientes.subList(desdeClientes, hastaClientes))
+                    + SEPARADOR + unir(productos.subList(desdeProductos, hastaProductos)));
+            desdeClientes = hastaClientes;
+            desdeProductos = hastaProductos;
+        }
+        return mensajes;
+    }
+
+    private Properties propiedadesConexion() {
+        Properties propiedades = new Properties();
+        if (usuario != null) {
+            propiedades.setProperty("user", usuario);
+        }
+        if (clave != null) {
+            propiedades.setProperty("password", clave);
+        }
+        // Identifica la conexión en pg_stat_activity
+        propiedades.setProperty("ApplicationName", "financiera-notificaciones-cache");
+        return propiedades;
+    }
+
+    private static String unir(List<Long> ids) {
+        return ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+    }
+
+    private static List<Long> ids(String texto) {
+        return texto.isEmpty()
+                ? List.of()
+                : Arrays.stream(texto.split(",")).map(Long::valueOf).toList();
+    }
+
+    // Despierta al hilo bloqueado en getNotifications
+    private void cerrarConexion() {
+        Connection actual = conexion;
+        if (actual != null) {
+            try {
+                actual.close();
+            } catch (SQLException ex) {
+                log.debug("Error cerrando la conexión de notificaciones: {}", ex.getMessage());
+            }
+        }
+    }
+
+    private static final class Pendientes {
+
+        private final Set<Long> clientes = new HashSet<>();
+        private final Set<Long> productos = new HashSet<>();
+    }
+}
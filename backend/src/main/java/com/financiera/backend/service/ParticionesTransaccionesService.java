@@ -0,0 +1,205 @@
+package com.financiera.backend.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Mantiene las particiones mensuales de transacciones (ver schema.sql): crea por adelantado las de los
+ * próximos meses y separa las que quedaron fuera del periodo de retención.
+ *
+ * Una partición separada sigue existiendo como tabla independiente con el mismo nombre, lista para
+ * archivarse, pero sus movimientos dejan de aparecer en el estado de cuenta, el saldo a fecha y los
+ * cierres. Con retención 0 no se separa ninguna.
+ *
+ * Solo se separan o archivan particiones que terminan antes del corte de la última consolidación de saldos
+ * (ver ConsolidacionSaldosService): sus movimientos ya están incluidos en saldos_productos y dejar de verlos
+ * no cambia el saldo de ninguna cuenta.
+ *
+ * Las sentencias corren sin transacción: DETACH PARTITION CONCURRENTLY no puede ir dentro de una y no
+ * bloquea las inserciones ni las lecturas que estén en curso.
+ */
+@Slf4j
+@Service
+public class ParticionesTransaccionesService {
+
+    // transacciones_pAAAA_MM cubre ese mes; transacciones_hasta_AAAA_MM, todo lo anterior a ese mes
+    private static final Pattern PARTICION_MENSUAL = Pattern.compile("transacciones_p(\\d{4})_(\\d{2})");
+    private static final Pattern PARTICION_HISTORICA = Pattern.compile("transacciones_hasta_(\\d{4})_(\\d{2})");
+
+    private static final String SQL_CREAR = "SELECT crear_particion_transacciones(?)";
+
+    private static final String SQL_PARTICIONES = """
+            SELECT c.relname, i.inhdetachpending
+              FROM pg_inherits i
+              JOIN pg_class c ON c.oid = i.inhrelid
+             WHERE i.inhparent = to_regclass('transacciones')
+            """;
+
+    private static final String SQL_CORTE_SALDOS = "SELECT fecha FROM corte_saldos WHERE id = 1";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int mesesAdelantados;
+    private final int mesesRetencion;
+
+    public ParticionesTransaccionesService(JdbcTemplate jdbcTemplate,
+                                           @Value("${financiera.particiones.meses-adelantados:3}") int mesesAdelantados,
+                                           @Value("${financiera.particiones.meses-retencion:0}") int mesesRetencion) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.mesesAdelantados = mesesAdelantados;
+        this.mesesRetencion = mesesRetencion;
+    }
+
+    @Scheduled(cron = "${financiera.particiones.cron:0 0 1 * * *}")
+    public void mantenerProgramado() {
+        mantener();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void mantenerAlIniciar() {
+        try {
+            mantener();
+        } catch (RuntimeException ex) {
+            log.error("No se pudieron mantener las particiones de transacciones", ex);
+        }
+    }
+
+    public void mantener() {
+        crearParticiones();
+        if (mesesRetencion > 0) {
+            separarParticiones(YearMonth.now().minusMonths(mesesRetencion));
+        }
+    }
+
+    // El mes en curso y los mesesAdelantados siguientes. Si otro nodo la crea al mismo tiempo, este la omite
+    public void crearParticiones() {
+        YearMonth actual = YearMonth.now();
+        for (int i = 0; i <= mesesAdelantados; i++) {
+            YearMonth mes = actual.plusMonths(i);
+            try {
+                Boolean creada = jdbcTemplate.queryForObject(SQL_CREAR, Boolean.class, Date.valueOf(mes.atDay(1)));
+                if (Boolean.TRUE.equals(creada)) {
+                    log.info("Partición de transacciones creada para {}", mes);
+                }
+            } catch (DataAccessException ex) {
+                log.warn("No se pudo crear la partición de transacciones de {}: {}", mes, ex.getMessage());
+            }
+        }
+    }
+
+    // Separa las particiones que terminan antes del mes indicado. Una separación interrumpida (el nodo se
+    // detuvo a mitad de un DETACH CONCURRENTLY) se completa con FINALIZE.
+    public void separarParticiones(YearMonth conservarDesde) {
+        for (Particion particion : particionesAnterioresA(conservarDesde)) {
+            try {
+                separar(particion);
+                log.info("Partición {} separada de transacciones", particion.nombre());
+            } catch (DataAccessException ex) {
+                log.warn("No se pudo separar la partición {}: {}", particion.nombre(), ex.getMessage());
+            }
+        }
+    }
+
+    // Nombres de las particiones adjuntas que terminan antes del mes indicado, de la más antigua a la más reciente
+    public List<String> particionesTerminadasAntesDe(YearMonth mes) {
+        return particionesAnterioresA(mes).stream()
+                .map(Particion::nombre)
+                .toList();
+    }
+
+    // Primer mes cuyos movimientos siguen completos en la base: el de la partición mensual adjunta más antigua.
+    // Vacío si la partición histórica sigue adjunta, porque entonces no falta nada. Las particiones se separan
+    // y archivan de la más antigua a la más reciente, así que no quedan huecos después de ese mes
+    public Optional<YearMonth> primerMesEnBase() {
+        List<String> adjuntas = listarParticiones().stream()
+                .filter(particion -> !particion.separacionPendiente())
+                .map(Particion::nombre)
+                .toList();
+        if (adjuntas.stream().anyMatch(nombre -> PARTICION_HISTORICA.matcher(nombre).matches())) {
+            return Optional.empty();
+        }
+        return adjuntas.stream()
+                .map(PARTICION_MENSUAL::matcher)
+                .filter(Matcher::matches)
+                .map(ParticionesTransaccionesService::mes)
+                .min(Comparator.naturalOrder());
+    }
+
+    // Separa la partición si sigue adjunta y la elimina. Sirve también para completar una eliminación interrumpida
+    public void eliminarParticion(String nombre) {
+        if (limiteSuperior(nombre).isEmpty()) {
+            throw new IllegalArgumentException("No es una partición de transacciones: " + nombre);
+        }
+        listarParticiones().stream()
+                .filter(particion -> particion.nombre().equals(nombre))
+                .findFirst()
+                .ifPresent(this::separar);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + nombre);
+        log.info("Partición {} eliminada", nombre);
+    }
+
+    // Primer mes que la partición ya no cubre
+    static Optional<YearMonth> limiteSuperior(String nombre) {
+        Matcher mensual = PARTICION_MENSUAL.matcher(nombre);
+        if (mensual.matches()) {
+            return Optional.of(mes(mensual).plusMonths(1));
+        }
+        Matcher historica = PARTICION_HISTORICA.matcher(nombre);
+        if (historica.matches()) {
+            return Optional.of(mes(historica));
+        }
+        return Optional.empty();
+    }
+
+    // Metodos auxiliares
+
+    private List<Particion> listarParticiones() {
+        return jdbcTemplate.query(SQL_PARTICIONES,
+                (rs, fila) -> new Particion(rs.getString("relname"), rs.getBoolean("inhdetachpending")));
+    }
+
+    // Una partición termina antes del corte de saldos si su límite superior (inicio de mes) no es posterior al
+    // corte. Sin corte ninguna lo cumple
+    private List<Particion> particionesAnterioresA(YearMonth mes) {
+        Timestamp corte = jdbcTemplate.queryForObject(SQL_CORTE_SALDOS, Timestamp.class);
+        if (corte == null) {
+            return List.of();
+        }
+        YearMonth mesCorte = YearMonth.from(corte.toLocalDateTime());
+        YearMonth maximo = mesCorte.isBefore(mes) ? mesCorte : mes;
+
+        return listarParticiones().stream()
+                .filter(particion -> limiteSuperior(particion.nombre())
+                        .map(limite -> !limite.isAfter(maximo))
+                        .orElse(false))
+                .sorted(Comparator.comparing(particion -> limiteSuperior(particion.nombre()).orElseThrow()))
+                .toList();
+    }
+
+    // El nombre coincidió con uno de los patrones, así que puede ir en la sentencia sin comillas
+    private void separar(Particion particion) {
+        jdbcTemplate.execute("ALTER TABLE transacciones DETACH PARTITION " + particion.nombre()
+                + (particion.separacionPendiente() ? " FINALIZE" : " CONCURRENTLY"));
+    }
+
+    private static YearMonth mes(Matcher coincidencia) {
+        return YearMonth.of(Integer.parseInt(coincidencia.group(1)), Integer.parseInt(coincidencia.group(2)));
+    }
+
+    private record Particion(String nombre, boolean separacionPendiente) {
+    }
+}
@@ -1,5 +1,8 @@
 package com.financiera.backend.service;
 
+import com.financiera.backend.config.ReintentoPorConflicto;
+import com.financiera.backend.dto.FiltroProductosDTO;
+import com.financiera.backend.dto.PaginaDTO;
 import com.financiera.backend.dto.ProductoDTO;
 import com.financiera.backend.entity.Cliente;
 import com.financiera.backend.entity.Producto;
@@ -9,13 +12,12 @@ import com.financiera.backend.exception.productos.OperacionNoPermitidaException;
 import com.financiera.backend.repository.ClienteRepository;
 import com.financiera.backend.repository.ProductoRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.List;
-import java.util.Random;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -23,6 +25,8 @@ public class ProductoService {
 
     private final ProductoRepository productoRepository;
     private final ClienteRepository clienteRepository;
+    private final GeneradorNumerosCuenta generadorNumerosCuenta;
+    private final CacheReferencia cacheReferencia;
 
     // Crear producto (cuenta)
     @Transactional
@@ -39,7 +43,7 @@ public class ProductoService {
         producto.setCliente(cliente);
 
 
-        producto.setNumeroCuenta(generarNumeroCuenta(productoDTO.getTipoCuenta()));
+        producto.setNumeroCuenta(generadorNumerosCuenta.siguiente(productoDTO.getTipoCuenta()));
 
         producto.setEstado(Producto.EstadoCuenta.ACTIVA);
 
@@ -56,20 +60,51 @@ public class ProductoService {
     // Obtener todos los productos
     @Transactional(readOnly = true)
     public List<ProductoDTO> obtenerTodosLosProductos() {
-        return productoRepository.findAll()
-                .stream()
-                .map(this::convertirEntityADTO)
-                .collect(Collectors.toList());
+        return productoRepository.buscarTodosDTO();
     }
 
-    // Obtener producto por ID
+    // Obtener productos por páginas, con filtros opcionales
     @Transactional(readOnly = true)
+    public PaginaDTO<ProductoDTO> obtenerProductos(FiltroProductosDTO filtro) {
+        CursorPaginacion.validarRango(filtro.getDesde(), filtro.getHasta());
+
+        int tamano = CursorPaginacion.tamanoPagina(filtro.getTamano());
+        Long idCursor = filtro.getCursor() == null ? null : CursorPaginacion.decodificar(filtro.getCursor()).getId();
+
+        // Se pide una fila de más para saber si existe una página siguiente
+        List<ProductoDTO> productos = productoRepository.buscarPagina(
+                idCursor,
+                filtro.getEstado(),
+                filtro.getTipoCuenta(),
+                filtro.getDesde() == null ? null : filtro.getDesde().atStartOfDay(),
+                filtro.getHasta() == null ? null : filtro.getHasta().plusDays(1).atStartOfDay(),
+                Limit.of(tamano + 1));
+
+        if (productos.size() <= tamano) {
+            return new PaginaDTO<>(productos, null);
+        }
+
+        List<ProductoDTO> pagina = productos.subList(0, tamano);
+        return new PaginaDTO<>(pagina, new CursorPaginacion(pagina.get(tamano - 1).getId()).codificar());
+    }
+
+    // Versión del producto, para responder 304 sin construir el DTO: la del DTO en cache o, si no está, la
+    // de la base. Sin @Transactional, como obtenerProductoPorId
+    public Long obtenerVersionProducto(Long id) {
+        return cacheReferencia.productoEnCache(id)
+                .map(ProductoDTO::getVersion)
+                .or(() -> cacheReferencia.versionProducto(id, () -> productoRepository.buscarVersion(id)))
+                .orElseThrow(() -> new RecursoNoEncontradoException(
+                        "No se encontró el producto con ID: " + id
+                ));
+    }
+
+    // Obtener producto por ID. Sin @Transactional: un acierto en cache no toma conexión
     public ProductoDTO obtenerProductoPorId(Long id) {
-        Producto producto = productoRepository.findById(id)
+        return cacheReferencia.producto(id, () -> productoRepository.buscarDTOPorId(id))
                 .orElseThrow(() -> new RecursoNoEncontradoException(
                         "No se encontró el producto con ID: " + id
                 ));
-        return convertirEntityADTO(producto);
     }
 
     // Obtener productos de un cliente
@@ -82,16 +117,16 @@ public class ProductoService {
             );
         }
 
-        return productoRepository.findByClienteId(clienteId)
-                .stream()
-                .map(this::convertirEntityADTO)
-                .collect(Collectors.toList());
+        return productoRepository.buscarDTOsPorCliente(clienteId);
     }
 
     // Actualizar estado de cuenta (activar/inactivar)
+    @ReintentoPorConflicto
     @Transactional
     public ProductoDTO actualizarEstado(Long id, Producto.EstadoCuenta nuevoEstado) {
-        Producto producto = productoRepository.findById(id)
+        // El bloqueo exclusivo de la fila de saldo espera a los movimientos en curso, incluidos los créditos,
+        // y ninguno nuevo puede registrarse mientras se valida
+        Producto producto = productoRepository.bloquearParaCambioEstado(id)
                 .orElseThrow(() -> new RecursoNoEncontradoException(
                         "No se encontró el producto con ID: " + id
                 ));
@@ -107,14 +142,55 @@ public class ProductoService {
 
         producto.setEstado(nuevoEstado);
         Producto productoActualizado = productoRepository.save(producto);
+        cacheReferencia.invalidarProductos(List.of(id));
 
         return convertirEntityADTO(productoActualizado);
     }
 
+    // Configurar las franjas de saldo de una cuenta que recibe muchos créditos simultáneos (1 = sin franjas).
+    // Se exige la cuenta fuera de servicio para que ningún movimiento en curso quede con el modo anterior
+    @ReintentoPorConflicto
+    @Transactional
+    public ProductoDTO configurarFranjas(Long id, int franjas) {
+        if (franjas < 1 || franjas > Producto.MAXIMO_FRANJAS_SALDO) {
+            throw new OperacionNoPermitidaException(
+                    "El número de franjas de saldo debe estar entre 1 y " + Producto.MAXIMO_FRANJAS_SALDO
+            );
+        }
+
+        Producto producto = productoRepository.bloquearParaCambioEstado(id)
+                .orElseThrow(() -> new RecursoNoEncontradoException(
+                        "No se encontró el producto con ID: " + id
+                ));
+
+
+        if (producto.getEstado() == Producto.EstadoCuenta.ACTIVA) {
+            throw new OperacionNoPermitidaException(
+                    "No se pueden cambiar las franjas de saldo de una cuenta activa. Inactívela primero"
+            );
+        }
+
+        if (producto.getFranjasSaldo() == franjas) {
+            return convertirEntityADTO(producto);
+        }
+
+        productoRepository.reiniciarFranjas(id, franjas);
+        if (franjas > 1) {
+            productoRepository.crearFranjas(id, franjas);
+        }
+        cacheReferencia.invalidarProductos(List.of(id));
+
+        return productoRepository.buscarDTOPorId(id)
+                .orElseThrow(() -> new RecursoNoEncontradoException(
+                        "No se encontró el producto con ID: " + id
+                ));
+    }
+
     // Eliminar producto
+    @ReintentoPorConflicto
     @Transactional
     public void eliminarProducto(Long id) {
-        Producto producto = productoRepository.findById(id)
+        Producto producto = productoRepository.bloquearParaCambioEstado(id)
                 .orElseThrow(() -> new RecursoNoEncontradoException(
                         "No se encontró el producto con ID: " + id
                 ));
@@ -127,29 +203,12 @@ public class ProductoService {
         }
 
         productoRepository.delete(producto);
+        cacheReferencia.invalidarProductos(List.of(id));
     }
 
     // ========== MÉTODOS AUXILIARES ==========
 
 
-    private String generarNumeroCuenta(Producto.TipoCuenta tipoCuenta) {
-        String prefijo = tipoCuenta == Producto.TipoCuenta.CUENTA_AHORROS ? "53" : "33";
-        String numeroCuenta;
-        Random random = new Random();
-
-        do {
-
-            StringBuilder sb = new StringBuilder(prefijo);
-            for (int i = 0; i < 8; i++) {
-                sb.append(random.nextInt(10));
-            }
-            numeroCuenta = sb.toString();
-        } while (productoRepository.existsByNumeroCuenta(numeroCuenta));
-
-        return numeroCuenta;
-    }
-
-
     private ProductoDTO convertirEntityADTO(Producto producto) {
         ProductoDTO dto = new ProductoDTO();
         dto.setId(producto.getId());
@@ -157,11 +216,13 @@ public class ProductoService {
         dto.setNumeroCuenta(producto.getNumeroCuenta());
         dto.setEstado(producto.getEstado());
         dto.setSaldo(producto.getSaldo());
+        dto.setFranjasSaldo(producto.getFranjasSaldo());
         dto.setExentaGMF(producto.getExentaGMF());
         dto.setFechaCreacion(producto.getFechaCreacion());
         dto.setFechaModificacion(producto.getFechaModificacion());
         dto.setClienteId(producto.getCliente().getId());
         dto.setNombreCliente(producto.getCliente().getNombres() + " " + producto.getCliente().getApellido());
+        dto.setVersion(producto.getVersion() + producto.getVersionSaldo());
         return dto;
     }
 }
\ No newline at end of file
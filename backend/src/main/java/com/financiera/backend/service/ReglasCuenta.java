@@ -0,0 +1,36 @@
+package com.financiera.backend.service;
+
+import com.financiera.backend.entity.Producto;
+import com.financiera.backend.exception.productos.SaldoInsuficienteException;
+import com.financiera.backend.exception.transacciones.CuentaInactivaException;
+
+import java.math.BigDecimal;
+
+// Reglas de negocio de los movimientos, compartidas por las operaciones individuales y por lotes
+final class ReglasCuenta {
+
+    private ReglasCuenta() {
+    }
+
+    static void validarCuentaActiva(String numeroCuenta, Producto.EstadoCuenta estado) {
+        if (estado != Producto.EstadoCuenta.ACTIVA) {
+            throw new CuentaInactivaException(
+                    "La cuenta " + numeroCuenta + " no está activa. Estado: " + estado
+            );
+        }
+    }
+
+    static void validarSaldoSuficiente(Producto.TipoCuenta tipoCuenta, BigDecimal saldoActual, BigDecimal monto) {
+        BigDecimal nuevoSaldo = saldoActual.subtract(monto);
+
+        if (tipoCuenta == Producto.TipoCuenta.CUENTA_AHORROS) {
+            if (nuevoSaldo.compareTo(BigDecimal.ZERO) < 0) {
+                throw new SaldoInsuficienteException(
+                        "Saldo insuficiente. Saldo actual: $" + saldoActual +
+                                ", Monto a retirar: $" + monto +
+                                ". Las cuentas de ahorros no pueden tener saldo negativo."
+                );
+            }
+        }
+    }
+}
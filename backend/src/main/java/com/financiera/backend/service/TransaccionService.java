@@ -1,22 +1,27 @@
 package com.financiera.backend.service;
 
+import com.financiera.backend.config.ReintentoPorConflicto;
 import com.financiera.backend.dto.*;
 import com.financiera.backend.entity.Producto;
 import com.financiera.backend.entity.Transaccion;
-import com.financiera.backend.exception.transacciones.CuentaInactivaException;
 import com.financiera.backend.exception.clientes.RecursoNoEncontradoException;
 import com.financiera.backend.exception.productos.OperacionNoPermitidaException;
-import com.financiera.backend.exception.productos.SaldoInsuficienteException;
+import com.financiera.backend.exception.transacciones.ParametroConsultaInvalidoException;
 
 import com.financiera.backend.repository.ProductoRepository;
 import com.financiera.backend.repository.TransaccionRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.LongPredicate;
 
 @Service
 @RequiredArgsConstructor
@@ -24,69 +29,54 @@ public class TransaccionService {
 
     private final TransaccionRepository transaccionRepository;
     private final ProductoRepository productoRepository;
+    private final CacheReferencia cacheReferencia;
+    private final BloqueoCuentasService bloqueoCuentas;
+    private final LecturasCompartidas lecturasCompartidas;
+    private final ArchivoTransaccionesService archivoTransacciones;
+    private final PlatformTransactionManager transactionManager;
 
     // Realizar consignación (depósito)
+    @ReintentoPorConflicto
     @Transactional
     public TransaccionDTO realizarConsignacion(ConsignacionDTO consignacionDTO) {
 
-        Producto cuenta = productoRepository.findById(consignacionDTO.getCuentaId())
-                .orElseThrow(() -> new RecursoNoEncontradoException(
-                        "No se encontró la cuenta con ID: " + consignacionDTO.getCuentaId()
-                ));
-        validarCuentaActiva(cuenta);
-
-        Transaccion transaccion = new Transaccion();
-        transaccion.setTipoTransaccion(Transaccion.TipoTransaccion.CONSIGNACION);
-        transaccion.setTipoMovimiento(Transaccion.TipoMovimiento.CREDITO);
-        transaccion.setMonto(consignacionDTO.getMonto());
-        transaccion.setDescripcion(consignacionDTO.getDescripcion() != null ?
-                consignacionDTO.getDescripcion() : "Consignación");
-        transaccion.setCuentaOrigen(cuenta);
-
-        BigDecimal nuevoSaldo = cuenta.getSaldo().add(consignacionDTO.getMonto());
-        cuenta.setSaldo(nuevoSaldo);
-        transaccion.setSaldoDespues(nuevoSaldo);
-
-        productoRepository.save(cuenta);
-
-        Transaccion transaccionGuardada = transaccionRepository.save(transaccion);
-
-        return convertirEntityADTO(transaccionGuardada);
+        TransaccionDTO movimiento = transaccionRepository.aplicarMovimiento(
+                        consignacionDTO.getCuentaId(),
+                        Transaccion.TipoTransaccion.CONSIGNACION,
+                        Transaccion.TipoMovimiento.CREDITO,
+                        consignacionDTO.getMonto(),
+                        consignacionDTO.getDescripcion() != null ?
+                                consignacionDTO.getDescripcion() : "Consignación")
+                .orElseThrow(() -> movimientoRechazado(
+                        consignacionDTO.getCuentaId(), null));
+
+        cacheReferencia.invalidarProductos(List.of(consignacionDTO.getCuentaId()));
+        return movimiento;
     }
 
-    // Realizar retiro
+    // Realizar retiro. Los débitos de una cuenta se serializan con el bloqueo de su fila de saldo; el
+    // movimiento se aplica en una sentencia posterior para que valide el saldo con los créditos ya confirmados
+    @ReintentoPorConflicto
     @Transactional
     public TransaccionDTO realizarRetiro(RetiroDTO retiroDTO) {
-        Producto cuenta = productoRepository.findById(retiroDTO.getCuentaId())
-                .orElseThrow(() -> new RecursoNoEncontradoException(
-                        "No se encontró la cuenta con ID: " + retiroDTO.getCuentaId()
-                ));
-
-
-        validarCuentaActiva(cuenta);
-
-        validarSaldoSuficiente(cuenta, retiroDTO.getMonto());
-
-        Transaccion transaccion = new Transaccion();
-        transaccion.setTipoTransaccion(Transaccion.TipoTransaccion.RETIRO);
-        transaccion.setTipoMovimiento(Transaccion.TipoMovimiento.DEBITO);
-        transaccion.setMonto(retiroDTO.getMonto());
-        transaccion.setDescripcion(retiroDTO.getDescripcion() != null ?
-                retiroDTO.getDescripcion() : "Retiro");
-        transaccion.setCuentaOrigen(cuenta);
-
-        BigDecimal nuevoSaldo = cuenta.getSaldo().subtract(retiroDTO.getMonto());
-        cuenta.setSaldo(nuevoSaldo);
-        transaccion.setSaldoDespues(nuevoSaldo);
-
-        productoRepository.save(cuenta);
-
-        Transaccion transaccionGuardada = transaccionRepository.save(transaccion);
-
-        return convertirEntityADTO(transaccionGuardada);
+        bloqueoCuentas.bloquearSaldos("retiro", List.of(retiroDTO.getCuentaId()));
+
+        TransaccionDTO movimiento = transaccionRepository.aplicarMovimiento(
+                        retiroDTO.getCuentaId(),
+                        Transaccion.TipoTransaccion.RETIRO,
+                        Transaccion.TipoMovimiento.DEBITO,
+                        retiroDTO.getMonto(),
+                        retiroDTO.getDescripcion() != null ?
+                                retiroDTO.getDescripcion() : "Retiro")
+                .orElseThrow(() -> movimientoRechazado(
+                        retiroDTO.getCuentaId(), retiroDTO.getMonto()));
+
+        cacheReferencia.invalidarProductos(List.of(retiroDTO.getCuentaId()));
+        return movimiento;
     }
 
     // Realizar transferencia
+    @ReintentoPorConflicto
     @Transactional
     public List<TransaccionDTO> realizarTransferencia(TransferenciaDTO transferenciaDTO) {
         if (transferenciaDTO.getCuentaOrigenId().equals(transferenciaDTO.getCuentaDestinoId())) {
@@ -95,135 +85,227 @@ public class TransaccionService {
             );
         }
 
-        Producto cuentaOrigen = productoRepository.findById(transferenciaDTO.getCuentaOrigenId())
-                .orElseThrow(() -> new RecursoNoEncontradoException(
-                        "No se encontró la cuenta origen con ID: " + transferenciaDTO.getCuentaOrigenId()
-                ));
-
-        Producto cuentaDestino = productoRepository.findById(transferenciaDTO.getCuentaDestinoId())
-                .orElseThrow(() -> new RecursoNoEncontradoException(
-                        "No se encontró la cuenta destino con ID: " + transferenciaDTO.getCuentaDestinoId()
-                ));
-
-        validarCuentaActiva(cuentaOrigen);
-        validarCuentaActiva(cuentaDestino);
-
-        validarSaldoSuficiente(cuentaOrigen, transferenciaDTO.getMonto());
-
-        Transaccion transaccionDebito = new Transaccion();
-        transaccionDebito.setTipoTransaccion(Transaccion.TipoTransaccion.TRANSFERENCIA);
-        transaccionDebito.setTipoMovimiento(Transaccion.TipoMovimiento.DEBITO);
-        transaccionDebito.setMonto(transferenciaDTO.getMonto());
-        transaccionDebito.setDescripcion(transferenciaDTO.getDescripcion() != null ?
-                transferenciaDTO.getDescripcion() :
-                "Transferencia a cuenta " + cuentaDestino.getNumeroCuenta());
-        transaccionDebito.setCuentaOrigen(cuentaOrigen);
-        transaccionDebito.setCuentaDestino(cuentaDestino);
-
-        BigDecimal nuevoSaldoOrigen = cuentaOrigen.getSaldo().subtract(transferenciaDTO.getMonto());
-        cuentaOrigen.setSaldo(nuevoSaldoOrigen);
-        transaccionDebito.setSaldoDespues(nuevoSaldoOrigen);
-
-        Transaccion transaccionCredito = new Transaccion();
-        transaccionCredito.setTipoTransaccion(Transaccion.TipoTransaccion.TRANSFERENCIA);
-        transaccionCredito.setTipoMovimiento(Transaccion.TipoMovimiento.CREDITO);
-        transaccionCredito.setMonto(transferenciaDTO.getMonto());
-        transaccionCredito.setDescripcion(transferenciaDTO.getDescripcion() != null ?
-                transferenciaDTO.getDescripcion() :
-                "Transferencia desde cuenta " + cuentaOrigen.getNumeroCuenta());
-        transaccionCredito.setCuentaOrigen(cuentaDestino);
-        transaccionCredito.setCuentaDestino(cuentaOrigen);
+        // Solo se bloquea el origen: el crédito en destino es compatible con ese bloqueo, así que dos
+        // transferencias cruzadas entre las mismas cuentas no pueden bloquearse mutuamente
+        bloqueoCuentas.bloquearSaldos("transferencia", List.of(transferenciaDTO.getCuentaOrigenId()));
 
+        List<TransaccionDTO> movimientos = transaccionRepository.aplicarTransferencia(
+                transferenciaDTO.getCuentaOrigenId(),
+                transferenciaDTO.getCuentaDestinoId(),
+                transferenciaDTO.getMonto(),
+                transferenciaDTO.getDescripcion());
 
-        BigDecimal nuevoSaldoDestino = cuentaDestino.getSaldo().add(transferenciaDTO.getMonto());
-        cuentaDestino.setSaldo(nuevoSaldoDestino);
-        transaccionCredito.setSaldoDespues(nuevoSaldoDestino);
+        if (movimientos.isEmpty()) {
+            throw transferenciaRechazada(transferenciaDTO);
+        }
 
+        cacheReferencia.invalidarProductos(List.of(
+                transferenciaDTO.getCuentaOrigenId(),
+                transferenciaDTO.getCuentaDestinoId()));
+        return movimientos;
+    }
 
-        productoRepository.save(cuentaOrigen);
-        productoRepository.save(cuentaDestino);
+    // Obtener estado de cuenta (historial de transacciones). Todo movimiento incrementa la versión de la
+    // cuenta: si noModificado acepta la versión actual se retorna sin página y sin leer los movimientos.
+    // noModificado es null cuando la petición no es condicional.
+    // Sin @Transactional: las peticiones simultáneas por la misma página comparten una sola consulta,
+    // y las que esperan no retienen conexión
+    public EstadoCuentaDTO obtenerEstadoCuenta(Long cuentaId, FiltroEstadoCuentaDTO filtro,
+                                               LongPredicate noModificado) {
+        CursorPaginacion.validarRango(filtro.getDesde(), filtro.getHasta());
+
+        int tamano = CursorPaginacion.tamanoPagina(filtro.getTamano());
+        CursorPaginacion cursor = filtro.getCursor() == null ? null : CursorPaginacion.decodificar(filtro.getCursor());
+
+        if (noModificado != null) {
+            Long version = cacheReferencia.versionProducto(cuentaId, () -> productoRepository.buscarVersion(cuentaId))
+                    .orElseThrow(() -> cuentaNoEncontrada(cuentaId));
+            if (noModificado.test(version)) {
+                return new EstadoCuentaDTO(version, null);
+            }
+        }
 
+        // La versión se lee otra vez en la misma transacción que la página: con réplicas, la lectura
+        // anterior pudo ir a la primaria y la página a una réplica atrasada
+        return lecturasCompartidas.leer(CacheReferencia.CONSULTA_ESTADO_CUENTA, cuentaId, filtro,
+                () -> lecturaEstadoCuenta().execute(estado -> {
+                    Long version = productoRepository.buscarVersion(cuentaId)
+                            .orElseThrow(() -> cuentaNoEncontrada(cuentaId));
+                    return new EstadoCuentaDTO(version, paginaEstadoCuenta(cuentaId, filtro, tamano, cursor));
+                }));
+    }
 
-        Transaccion debitoGuardado = transaccionRepository.save(transaccionDebito);
-        Transaccion creditoGuardado = transaccionRepository.save(transaccionCredito);
+    // Saldo de la cuenta en una fecha pasada: el saldo del último cierre hasta esa fecha más los movimientos
+    // posteriores
+    @Transactional(readOnly = true)
+    public SaldoAFechaDTO obtenerSaldoAFecha(Long cuentaId, LocalDateTime fecha) {
+        validarFechaSaldo(fecha);
 
+        LocalDateTime frontera = archivoTransacciones.frontera();
+        List<SaldoAFechaDTO> saldos = transaccionRepository.buscarSaldosAFecha(List.of(cuentaId), fecha, frontera);
+        if (!saldos.isEmpty()) {
+            return completarDesdeArchivo(saldos, fecha, frontera).get(0);
+        }
 
-        return List.of(
-                convertirEntityADTO(debitoGuardado),
-                convertirEntityADTO(creditoGuardado)
-        );
+        if (!productoRepository.existsById(cuentaId)) {
+            throw cuentaNoEncontrada(cuentaId);
+        }
+        throw new ParametroConsultaInvalidoException("La cuenta " + cuentaId + " no existía en la fecha " + fecha);
     }
 
-    // Obtener estado de cuenta (historial de transacciones)
+    // Saldos de muchas cuentas en la misma fecha con una sola consulta. Las cuentas inexistentes o creadas
+    // después de la fecha se omiten
     @Transactional(readOnly = true)
-    public List<TransaccionDTO> obtenerEstadoCuenta(Long cuentaId) {
-        // Validar que la cuenta existe
-        if (!productoRepository.existsById(cuentaId)) {
-            throw new RecursoNoEncontradoException(
-                    "No se encontró la cuenta con ID: " + cuentaId
-            );
-        }
+    public List<SaldoAFechaDTO> obtenerSaldosAFecha(ConsultaSaldosAFechaDTO consulta) {
+        validarFechaSaldo(consulta.getFecha());
 
-        return transaccionRepository.findByCuentaOrigenIdOrCuentaDestinoIdOrderByFechaTransaccionDesc(
-                        cuentaId, cuentaId)
-                .stream()
-                .map(this::convertirEntityADTO)
-                .collect(Collectors.toList());
+        LocalDateTime frontera = archivoTransacciones.frontera();
+        return completarDesdeArchivo(
+                transaccionRepository.buscarSaldosAFecha(consulta.getCuentaIds(), consulta.getFecha(), frontera),
+                consulta.getFecha(), frontera);
     }
 
     // Obtener transacción por ID
     @Transactional(readOnly = true)
     public TransaccionDTO obtenerTransaccionPorId(Long id) {
-        Transaccion transaccion = transaccionRepository.findById(id)
+        return transaccionRepository.buscarDTOPorId(id)
                 .orElseThrow(() -> new RecursoNoEncontradoException(
                         "No se encontró la transacción con ID: " + id
                 ));
-        return convertirEntityADTO(transaccion);
     }
 
     // Metodos auxiliares
 
-    private void validarCuentaActiva(Producto cuenta) {
-        if (cuenta.getEstado() != Producto.EstadoCuenta.ACTIVA) {
-            throw new CuentaInactivaException(
-                    "La cuenta " + cuenta.getNumeroCuenta() + " no está activa. Estado: " + cuenta.getEstado()
-            );
+    private static RecursoNoEncontradoException cuentaNoEncontrada(Long cuentaId) {
+        return new RecursoNoEncontradoException("No se encontró la cuenta con ID: " + cuentaId);
+    }
+
+    // Un saldo futuro cambiaría con los movimientos que aún no ocurren
+    private static void validarFechaSaldo(LocalDateTime fecha) {
+        if (fecha.isAfter(LocalDateTime.now())) {
+            throw new ParametroConsultaInvalidoException("La fecha del saldo no puede ser futura");
         }
     }
 
-    private void validarSaldoSuficiente(Producto cuenta, BigDecimal monto) {
-        BigDecimal nuevoSaldo = cuenta.getSaldo().subtract(monto);
-
-        if (cuenta.getTipoCuenta() == Producto.TipoCuenta.CUENTA_AHORROS) {
-            if (nuevoSaldo.compareTo(BigDecimal.ZERO) < 0) {
-                throw new SaldoInsuficienteException(
-                        "Saldo insuficiente. Saldo actual: $" + cuenta.getSaldo() +
-                                ", Monto a retirar: $" + monto +
-                                ". Las cuentas de ahorros no pueden tener saldo negativo."
-                );
-            }
+    private TransactionTemplate lecturaEstadoCuenta() {
+        TransactionTemplate lectura = new TransactionTemplate(transactionManager);
+        lectura.setReadOnly(true);
+        return lectura;
+    }
+
+    private PaginaDTO<TransaccionDTO> paginaEstadoCuenta(Long cuentaId, FiltroEstadoCuentaDTO filtro,
+                                                         int tamano, CursorPaginacion cursor) {
+        LocalDateTime desde = filtro.getDesde() == null ? null : filtro.getDesde().atStartOfDay();
+        LocalDateTime hasta = filtro.getHasta() == null ? null : filtro.getHasta().plusDays(1).atStartOfDay();
+        LocalDateTime fechaCursor = cursor == null ? null : cursor.getFecha();
+        Long idCursor = cursor == null ? null : cursor.getId();
+        LocalDateTime frontera = archivoTransacciones.frontera();
+
+        // Se pide una fila de más para saber si existe una página siguiente. La base solo se consulta desde la
+        // frontera del archivo: una partición archivada que aún no se elimina no duplica filas
+        List<TransaccionDTO> movimientos = new ArrayList<>();
+        if (frontera == null || fechaCursor == null || !fechaCursor.isBefore(frontera)) {
+            movimientos.addAll(transaccionRepository.buscarEstadoCuenta(
+                    cuentaId,
+                    frontera == null || (desde != null && desde.isAfter(frontera)) ? desde : frontera,
+                    hasta,
+                    filtro.getTipoMovimiento(),
+                    fechaCursor,
+                    idCursor,
+                    tamano + 1));
+        }
+
+        // Todas las filas archivadas son anteriores a las de la base, así que la página sigue en el archivo
+        if (frontera != null && movimientos.size() <= tamano && (desde == null || desde.isBefore(frontera))) {
+            movimientos.addAll(archivoTransacciones.buscarEstadoCuenta(cuentaId, desde, hasta,
+                    filtro.getTipoMovimiento(), fechaCursor, idCursor, tamano + 1 - movimientos.size()));
+        }
+
+        if (movimientos.size() <= tamano) {
+            return new PaginaDTO<>(movimientos, null);
         }
 
+        List<TransaccionDTO> pagina = movimientos.subList(0, tamano);
+        TransaccionDTO ultimo = pagina.get(tamano - 1);
+        return new PaginaDTO<>(pagina,
+                new CursorPaginacion(ultimo.getFechaTransaccion(), ultimo.getId()).codificar());
+    }
+
+    // La base solo suma movimientos desde la frontera del archivo. Si la fecha es anterior, los movimientos del
+    // mes de la fecha están archivados: los cierres llegan hasta el inicio de ese mes y el resto sale del archivo.
+    // El último movimiento también puede estar archivado cuando la base no tiene ninguno hasta la fecha
+    private List<SaldoAFechaDTO> completarDesdeArchivo(List<SaldoAFechaDTO> saldos, LocalDateTime fecha,
+                                                       LocalDateTime frontera) {
+        if (frontera == null) {
+            return saldos;
+        }
+        LocalDateTime inicioMes = fecha.toLocalDate().withDayOfMonth(1).atStartOfDay();
+        for (SaldoAFechaDTO saldo : saldos) {
+            if (fecha.isBefore(frontera)) {
+                BigDecimal neto = archivoTransacciones
+                        .buscarMovimientosPropios(saldo.getCuentaId(), inicioMes, fecha.plusNanos(1))
+                        .stream()
+                        .map(movimiento -> movimiento.getTipoMovimiento() == Transaccion.TipoMovimiento.CREDITO
+                                ? movimiento.getMonto() : movimiento.getMonto().negate())
+                        .reduce(BigDecimal.ZERO, BigDecimal::add);
+                saldo.setSaldo(saldo.getSaldo().add(neto));
+            }
+            if (saldo.getTransaccionId() == null) {
+                archivoTransacciones.buscarUltimoMovimientoPropio(saldo.getCuentaId(), saldo.getFecha())
+                        .ifPresent(movimiento -> {
+                            saldo.setTransaccionId(movimiento.getId());
+                            saldo.setFechaTransaccion(movimiento.getFechaTransaccion());
+                        });
+            }
+        }
+        return saldos;
     }
 
-    private TransaccionDTO convertirEntityADTO(Transaccion transaccion) {
-        TransaccionDTO dto = new TransaccionDTO();
-        dto.setId(transaccion.getId());
-        dto.setTipoTransaccion(transaccion.getTipoTransaccion());
-        dto.setTipoMovimiento(transaccion.getTipoMovimiento());
-        dto.setMonto(transaccion.getMonto());
-        dto.setDescripcion(transaccion.getDescripcion());
-        dto.setFechaTransaccion(transaccion.getFechaTransaccion());
-        dto.setSaldoDespues(transaccion.getSaldoDespues());
+    // Solo se ejecuta cuando la actualización condicional no afectó filas: se lee la cuenta
+    // para informar el motivo real del rechazo con la misma excepción que antes.
+    private RuntimeException movimientoRechazado(Long cuentaId, BigDecimal montoDebito) {
+        Producto cuenta = productoRepository.findById(cuentaId)
+                .orElseThrow(() -> new RecursoNoEncontradoException(
+                        "No se encontró la cuenta con ID: " + cuentaId
+                ));
 
-        dto.setCuentaOrigenId(transaccion.getCuentaOrigen().getId());
-        dto.setNumeroCuentaOrigen(transaccion.getCuentaOrigen().getNumeroCuenta());
+        validarCuentaActiva(cuenta);
 
-        if (transaccion.getCuentaDestino() != null) {
-            dto.setCuentaDestinoId(transaccion.getCuentaDestino().getId());
-            dto.setNumeroCuentaDestino(transaccion.getCuentaDestino().getNumeroCuenta());
+        if (montoDebito != null) {
+            validarSaldoSuficiente(cuenta, montoDebito);
         }
 
-        return dto;
+        return new ConcurrencyFailureException(
+                "La cuenta " + cuenta.getNumeroCuenta() + " cambió mientras se aplicaba el movimiento"
+        );
+    }
+
+    private RuntimeException transferenciaRechazada(TransferenciaDTO transferenciaDTO) {
+        Producto cuentaOrigen = productoRepository.findById(transferenciaDTO.getCuentaOrigenId())
+                .orElseThrow(() -> new RecursoNoEncontradoException(
+                        "No se encontró la cuenta origen con ID: " + transferenciaDTO.getCuentaOrigenId()
+                ));
+
+        Producto cuentaDestino = productoRepository.findById(transferenciaDTO.getCuentaDestinoId())
+                .orElseThrow(() -> new RecursoNoEncontradoException(
+                        "No se encontró la cuenta destino con ID: " + transferenciaDTO.getCuentaDestinoId()
+                ));
+
+        validarCuentaActiva(cuentaOrigen);
+        validarCuentaActiva(cuentaDestino);
+
+        validarSaldoSuficiente(cuentaOrigen, transferenciaDTO.getMonto());
+
+        return new ConcurrencyFailureException(
+                "Las cuentas de la transferencia cambiaron mientras se aplicaba el movimiento"
+        );
+    }
+
+    private void validarCuentaActiva(Producto cuenta) {
+        ReglasCuenta.validarCuentaActiva(cuenta.getNumeroCuenta(), cuenta.getEstado());
+    }
+
+    private void validarSaldoSuficiente(Producto cuenta, BigDecimal monto) {
+        ReglasCuenta.validarSaldoSuficiente(cuenta.getTipoCuenta(), cuenta.getSaldo(), monto);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,261 @@
+-- Se ejecuta después de que Hibernate actualiza el esquema (spring.jpa.defer-datasource-initialization).
+-- Todas las sentencias son idempotentes: el script corre en cada arranque.
+
+-- IDs por secuencia con bloques de 50 (pooled-lo). Migra las tablas creadas con IDENTITY:
+-- se retira la identidad de la columna y cada secuencia se adelanta por encima del mayor ID existente.
+CREATE SEQUENCE IF NOT EXISTS clientes_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS productos_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS transacciones_seq INCREMENT BY 50;
+
+DO $$
+DECLARE
+    tabla TEXT;
+    secuencia TEXT;
+    mayor_id BIGINT;
+    proximo BIGINT;
+BEGIN
+    FOREACH tabla IN ARRAY ARRAY['clientes', 'productos', 'transacciones'] LOOP
+        secuencia := tabla || '_seq';
+
+        IF EXISTS (SELECT 1 FROM information_schema.columns
+                   WHERE table_schema = current_schema() AND table_name = tabla
+                     AND column_name = 'id' AND is_identity = 'YES') THEN
+            EXECUTE format('ALTER TABLE %I ALTER COLUMN id DROP IDENTITY IF EXISTS', tabla);
+        END IF;
+
+        EXECUTE format('ALTER SEQUENCE %I INCREMENT BY 50', secuencia);
+
+        EXECUTE format('SELECT COALESCE(MAX(id), 0) + 1 FROM %I', tabla) INTO mayor_id;
+        EXECUTE format('SELECT CASE WHEN is_called THEN last_value + 50 ELSE last_value END FROM %I', secuencia)
+            INTO proximo;
+
+        IF mayor_id > proximo THEN
+            PERFORM setval(secuencia, mayor_id, false);
+        END IF;
+    END LOOP;
+END
+$$;
+
+-- transacciones se particiona por rango mensual de fecha_transaccion: las inserciones solo tocan los
+-- índices de la partición del mes en curso, y las consultas con rango de fechas descartan las demás.
+-- Cada partición mensual se llama transacciones_pAAAA_MM y cubre [primer día del mes, primer día del siguiente).
+CREATE OR REPLACE FUNCTION crear_particion_transacciones(mes DATE) RETURNS BOOLEAN AS $$
+DECLARE
+    inicio DATE := date_trunc('month', mes::timestamp)::date;
+    nombre TEXT := 'transacciones_p' || to_char(inicio, 'YYYY_MM');
+BEGIN
+    IF to_regclass(nombre) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+    EXECUTE format('CREATE TABLE %I PARTITION OF transacciones FOR VALUES FROM (%L) TO (%L)',
+                   nombre, inicio, (inicio + INTERVAL '1 month')::date);
+    RETURN TRUE;
+EXCEPTION
+    -- El mes ya está dentro de la partición histórica que dejó la migración
+    WHEN invalid_object_definition THEN
+        RETURN FALSE;
+END
+$$ LANGUAGE plpgsql;
+
+-- Migra la tabla sin particionar (la crea así Hibernate en una base nueva). Si tiene filas, queda completa
+-- como la partición transacciones_hasta_AAAA_MM, que cubre todo lo anterior al mes siguiente al de la
+-- migración; sus índices se conservan y se adjuntan a los de la tabla particionada. Si está vacía se elimina.
+DO $$
+DECLARE
+    limite DATE := (date_trunc('month', LOCALTIMESTAMP) + INTERVAL '1 month')::date;
+    historica TEXT := 'transacciones_hasta_' || to_char(limite, 'YYYY_MM');
+    indice RECORD;
+    restriccion RECORD;
+    con_filas BOOLEAN;
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_class WHERE oid = to_regclass('transacciones') AND relkind = 'r') THEN
+        RETURN;
+    END IF;
+
+    EXECUTE format('ALTER TABLE transacciones RENAME TO %I', historica);
+
+    -- Los nombres de índices son únicos en el esquema: se liberan para los de la tabla particionada
+    FOR indice IN SELECT c.relname FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid
+                   WHERE i.indrelid = to_regclass(historica) LOOP
+        EXECUTE format('ALTER INDEX %I RENAME TO %I', indice.relname, historica || '_' || indice.relname);
+    END LOOP;
+
+    -- La clave primaria de una tabla particionada debe incluir la columna de partición
+    EXECUTE format('CREATE TABLE transacciones (LIKE %I INCLUDING DEFAULTS INCLUDING CONSTRAINTS) '
+                   'PARTITION BY RANGE (fecha_transaccion)', historica);
+    ALTER TABLE transacciones ADD CONSTRAINT transacciones_pkey PRIMARY KEY (id, fecha_transaccion);
+
+    FOR restriccion IN SELECT conname, pg_get_constraintdef(oid) AS definicion FROM pg_constraint
+                        WHERE conrelid = to_regclass(historica) AND contype = 'f' LOOP
+        EXECUTE format('ALTER TABLE transacciones ADD CONSTRAINT %I %s', restriccion.conname, restriccion.definicion);
+    END LOOP;
+
+    EXECUTE format('SELECT EXISTS (SELECT 1 FROM %I)', historica) INTO con_filas;
+    IF con_filas THEN
+        EXECUTE format('ALTER TABLE transacciones ATTACH PARTITION %I FOR VALUES FROM (MINVALUE) TO (%L)',
+                       historica, limite);
+    ELSE
+        EXECUTE format('DROP TABLE %I', historica);
+    END IF;
+END
+$$;
+
+-- El mes en curso y el siguiente; ParticionesTransaccionesService mantiene los meses futuros
+SELECT crear_particion_transacciones(LOCALTIMESTAMP::date);
+SELECT crear_particion_transacciones((LOCALTIMESTAMP + INTERVAL '1 month')::date);
+
+-- Estado de cuenta paginado por (fecha_transaccion, id), uno por cada lado del movimiento. El de origen
+-- también resuelve el saldo a fecha: el último movimiento de la cuenta hasta un instante es un solo descenso
+CREATE INDEX IF NOT EXISTS idx_transacciones_origen_fecha
+    ON transacciones (cuenta_origen_id, fecha_transaccion, id);
+CREATE INDEX IF NOT EXISTS idx_transacciones_destino_fecha
+    ON transacciones (cuenta_destino_id, fecha_transaccion, id);
+
+-- El saldo consolidado y el estado viven en saldos_productos, una fila angosta por cuenta. La consolidación
+-- reescribe solo esa fila; como ninguna de las columnas que cambia está indexada y el fillfactor deja espacio
+-- libre en la página, la nueva versión queda en la misma página (HOT) y no se agregan entradas a los índices.
+-- El fillfactor se fija antes de copiar los datos para que la carga inicial ya deje ese espacio.
+ALTER TABLE saldos_productos SET (fillfactor = 70);
+
+-- Migra las cuentas creadas cuando el saldo y el estado eran columnas de productos
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_schema = current_schema() AND table_name = 'productos'
+                 AND column_name = 'saldo') THEN
+        INSERT INTO saldos_productos (cuenta_id, estado, saldo, version)
+        SELECT id, estado, saldo, 0 FROM productos
+        ON CONFLICT (cuenta_id) DO NOTHING;
+
+        ALTER TABLE productos DROP COLUMN saldo, DROP COLUMN estado;
+    END IF;
+END
+$$;
+
+-- transacciones es el libro de movimientos: solo recibe inserciones. saldos_productos.saldo es el saldo
+-- consolidado con los movimientos propios anteriores a fecha_corte (version cuenta cuántos son); el saldo
+-- de la cuenta suma los movimientos propios desde fecha_corte. Una cuenta nueva tiene fecha_corte NULL:
+-- todos sus movimientos están pendientes. ConsolidacionSaldosService avanza los cortes periódicamente.
+-- La primera vez, el saldo de las cuentas existentes ya incluye todos sus movimientos: el corte es ahora.
+-- Ningún nodo con la versión anterior debe estar registrando movimientos durante esta migración.
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM information_schema.columns
+                   WHERE table_schema = current_schema() AND table_name = 'saldos_productos'
+                     AND column_name = 'fecha_corte') THEN
+        ALTER TABLE saldos_productos ADD COLUMN fecha_corte TIMESTAMP;
+        UPDATE saldos_productos SET fecha_corte = LOCALTIMESTAMP;
+    END IF;
+END
+$$;
+
+-- fecha_ultimo_movimiento es la fecha del último movimiento propio consolidado; la consolidación la avanza
+-- junto con el corte. Si falta, se recupera de los movimientos anteriores al corte que siguen en la base
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM information_schema.columns
+                   WHERE table_schema = current_schema() AND table_name = 'saldos_productos'
+                     AND column_name = 'fecha_ultimo_movimiento') THEN
+        ALTER TABLE saldos_productos ADD COLUMN fecha_ultimo_movimiento TIMESTAMP;
+        UPDATE saldos_productos s
+           SET fecha_ultimo_movimiento = (SELECT MAX(t.fecha_transaccion)
+                                            FROM transacciones t
+                                           WHERE t.cuenta_origen_id = s.cuenta_id
+                                             AND t.fecha_transaccion < s.fecha_corte)
+         WHERE s.fecha_corte IS NOT NULL;
+    END IF;
+END
+$$;
+
+-- Corte hasta el que la última consolidación completa incorporó los movimientos de todas las cuentas.
+-- La siguiente solo revisa las cuentas con movimientos desde ahí
+CREATE TABLE IF NOT EXISTS corte_saldos (
+    id INTEGER PRIMARY KEY CHECK (id = 1),
+    fecha TIMESTAMP
+);
+INSERT INTO corte_saldos (id, fecha) VALUES (1, LOCALTIMESTAMP) ON CONFLICT (id) DO NOTHING;
+
+-- La consolidación busca las cuentas con movimientos en un rango de fechas. Las filas llegan en orden de
+-- fecha, así que un índice BRIN lo resuelve ocupando unas pocas páginas y sin costo apreciable por inserción
+CREATE INDEX IF NOT EXISTS idx_transacciones_fecha_brin ON transacciones USING brin (fecha_transaccion);
+
+-- Cuentas franjeadas (saldos_productos.franjas > 1), para cuentas que reciben muchos créditos simultáneos.
+-- Cada crédito suma en una de sus franjas, elegida por hash del proceso de la conexión, y no comparte la fila
+-- de saldos_productos: los créditos simultáneos se reparten entre las franjas en lugar de coincidir todos en
+-- una fila. Los débitos y los lotes ajustan directamente saldos_productos.saldo, con la cuenta ya bloqueada.
+-- El saldo de una cuenta franjeada es ese saldo más el de sus franjas, sin recorrer el libro de movimientos.
+CREATE TABLE IF NOT EXISTS franjas_saldo (
+    cuenta_id BIGINT NOT NULL REFERENCES saldos_productos (cuenta_id) ON DELETE CASCADE,
+    franja INTEGER NOT NULL,
+    saldo NUMERIC(15,2) NOT NULL DEFAULT 0,
+    movimientos BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (cuenta_id, franja)
+) WITH (fillfactor = 70);
+
+-- Saldo y versión de movimientos de una cuenta: lo consolidado más lo pendiente. En una cuenta normal lo
+-- pendiente son los movimientos propios desde el corte, en el tramo del índice (cuenta_origen_id,
+-- fecha_transaccion) posterior a él; en una franjeada, la suma de sus franjas. Se usan en las fórmulas de
+-- Producto, en los movimientos y en los cierres, siempre dentro de la instantánea de la sentencia que las llama
+CREATE OR REPLACE FUNCTION saldo_cuenta(cuenta_consultada BIGINT) RETURNS NUMERIC AS $$
+    SELECT s.saldo + CASE
+               WHEN s.franjas > 1 THEN
+                   COALESCE((SELECT SUM(f.saldo) FROM franjas_saldo f WHERE f.cuenta_id = s.cuenta_id), 0)
+               ELSE
+                   COALESCE((SELECT SUM(CASE WHEN t.tipo_movimiento = 'CREDITO' THEN t.monto ELSE -t.monto END)
+                               FROM transacciones t
+                              WHERE t.cuenta_origen_id = s.cuenta_id
+                                AND t.fecha_transaccion >= COALESCE(s.fecha_corte, '-infinity')), 0)
+           END
+      FROM saldos_productos s
+     WHERE s.cuenta_id = cuenta_consultada
+$$ LANGUAGE sql STABLE;
+
+CREATE OR REPLACE FUNCTION version_saldo_cuenta(cuenta_consultada BIGINT) RETURNS BIGINT AS $$
+    SELECT s.version + CASE
+               WHEN s.franjas > 1 THEN
+                   COALESCE((SELECT SUM(f.movimientos) FROM franjas_saldo f WHERE f.cuenta_id = s.cuenta_id), 0)
+               ELSE
+                   (SELECT COUNT(*)
+                      FROM transacciones t
+                     WHERE t.cuenta_origen_id = s.cuenta_id
+                       AND t.fecha_transaccion >= COALESCE(s.fecha_corte, '-infinity'))
+           END
+      FROM saldos_productos s
+     WHERE s.cuenta_id = cuenta_consultada
+$$ LANGUAGE sql STABLE;
+
+-- Fecha del último movimiento propio: la del último posterior al corte, que el índice (cuenta_origen_id,
+-- fecha_transaccion) entrega leyendo una entrada, o la consolidada si no hay. Vale también para las franjeadas,
+-- cuyos movimientos siguen en el libro
+CREATE OR REPLACE FUNCTION fecha_ultimo_movimiento_cuenta(cuenta_consultada BIGINT) RETURNS TIMESTAMP AS $$
+    SELECT COALESCE((SELECT MAX(t.fecha_transaccion)
+                       FROM transacciones t
+                      WHERE t.cuenta_origen_id = s.cuenta_id
+                        AND t.fecha_transaccion >= COALESCE(s.fecha_corte, '-infinity')),
+                    s.fecha_ultimo_movimiento)
+      FROM saldos_productos s
+     WHERE s.cuenta_id = cuenta_consultada
+$$ LANGUAGE sql STABLE;
+
+-- Listados de clientes y productos paginados por id con filtros opcionales
+CREATE INDEX IF NOT EXISTS idx_clientes_tipo_identificacion ON clientes (tipo_identificacion, id);
+CREATE INDEX IF NOT EXISTS idx_clientes_fecha_creacion ON clientes (fecha_creacion);
+CREATE INDEX IF NOT EXISTS idx_productos_cliente ON productos (cliente_id, id);
+CREATE INDEX IF NOT EXISTS idx_saldos_productos_estado ON saldos_productos (estado, cuenta_id);
+CREATE INDEX IF NOT EXISTS idx_productos_tipo_cuenta ON productos (tipo_cuenta, id);
+CREATE INDEX IF NOT EXISTS idx_productos_fecha_creacion ON productos (fecha_creacion);
+
+-- Posiciones para los números de cuenta de cada tipo; cada nextval reserva un bloque de 100
+CREATE SEQUENCE IF NOT EXISTS numero_cuenta_ahorros_seq MINVALUE 0 START WITH 0 INCREMENT BY 100;
+CREATE SEQUENCE IF NOT EXISTS numero_cuenta_corriente_seq MINVALUE 0 START WITH 0 INCREMENT BY 100;
+
+-- Los cierres mensuales se eliminan con su cuenta
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'fk_cierres_mensuales_cuenta') THEN
+        ALTER TABLE cierres_mensuales
+            ADD CONSTRAINT fk_cierres_mensuales_cuenta
+            FOREIGN KEY (cuenta_id) REFERENCES productos (id) ON DELETE CASCADE;
+    END IF;
+END
+$$;
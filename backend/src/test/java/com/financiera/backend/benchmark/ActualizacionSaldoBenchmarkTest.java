@@ -0,0 +1,141 @@
+package com.financiera.backend.benchmark;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.Random;
+
+/**
+ * Compara la actualización de saldos sobre una tabla ancha con los índices de productos y fillfactor por
+ * defecto, frente a la tabla angosta de saldos con fillfactor 70. Además del rendimiento reporta qué
+ * fracción de las actualizaciones fue HOT (sin entradas nuevas en los índices). Se ejecuta solo con el
+ * perfil benchmark:
+ *
+ * ./mvnw test -Pbenchmark -Dbenchmark.jdbc.url=jdbc:postgresql://localhost:5432/bench \
+ *     -Dbenchmark.jdbc.usuario=... -Dbenchmark.jdbc.clave=...
+ *
+ * Usa tablas propias (bench_productos_ancha, bench_saldos_angosta) que crea y elimina.
+ */
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark.jdbc.url", matches = ".+")
+class ActualizacionSaldoBenchmarkTest {
+
+    private static final int CUENTAS = 10_000;
+    private static final int ACTUALIZACIONES = 50_000;
+
+    private static Connection conexion;
+
+    @BeforeAll
+    static void prepararTablas() throws SQLException {
+        conexion = DriverManager.getConnection(System.getProperty("benchmark.jdbc.url"),
+                System.getProperty("benchmark.jdbc.usuario"), System.getProperty("benchmark.jdbc.clave"));
+
+        try (Statement st = conexion.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS bench_productos_ancha, bench_saldos_angosta");
+            st.execute("""
+                    CREATE TABLE bench_productos_ancha (
+                        id BIGINT PRIMARY KEY,
+                        tipo_cuenta VARCHAR(20) NOT NULL, numero_cuenta VARCHAR(10) NOT NULL UNIQUE,
+                        estado VARCHAR(20) NOT NULL, saldo NUMERIC(15,2) NOT NULL,
+                        exenta_gmf BOOLEAN NOT NULL, cliente_id BIGINT NOT NULL,
+                        fecha_creacion TIMESTAMP NOT NULL, fecha_modificacion TIMESTAMP,
+                        version BIGINT NOT NULL)
+                    """);
+            st.execute("CREATE INDEX ON bench_productos_ancha (cliente_id, id)");
+            st.execute("CREATE INDEX ON bench_productos_ancha (estado, id)");
+            st.execute("CREATE INDEX ON bench_productos_ancha (tipo_cuenta, id)");
+            st.execute("CREATE INDEX ON bench_productos_ancha (fecha_creacion)");
+            st.execute("""
+                    INSERT INTO bench_productos_ancha
+                    SELECT i, 'CUENTA_AHORROS', lpad(i::text, 10, '0'), 'ACTIVA', 0, false, i / 3,
+                           LOCALTIMESTAMP, LOCALTIMESTAMP, 0
+                      FROM generate_series(1, %d) i
+                    """.formatted(CUENTAS));
+
+            st.execute("""
+                    CREATE TABLE bench_saldos_angosta (
+                        cuenta_id BIGINT PRIMARY KEY,
+                        estado VARCHAR(20) NOT NULL, saldo NUMERIC(15,2) NOT NULL,
+                        version BIGINT NOT NULL, fecha_ultimo_movimiento TIMESTAMP)
+                    WITH (fillfactor = 70)
+                    """);
+            st.execute("CREATE INDEX ON bench_saldos_angosta (estado, cuenta_id)");
+            st.execute("""
+                    INSERT INTO bench_saldos_angosta
+                    SELECT i, 'ACTIVA', 0, 0, NULL FROM generate_series(1, %d) i
+                    """.formatted(CUENTAS));
+            st.execute("ANALYZE bench_productos_ancha, bench_saldos_angosta");
+        }
+    }
+
+    @AfterAll
+    static void eliminarTablas() throws SQLException {
+        try (Statement st = conexion.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS bench_productos_ancha, bench_saldos_angosta");
+        }
+        conexion.close();
+    }
+
+    @Test
+    void movimientos_tablaAnchaVsAngosta() throws SQLException, InterruptedException {
+        medir("bench_productos_ancha", """
+                UPDATE bench_productos_ancha
+                   SET saldo = saldo + ?, version = version + 1, fecha_modificacion = LOCALTIMESTAMP
+                 WHERE id = ? AND estado = 'ACTIVA'
+                """);
+        medir("bench_saldos_angosta", """
+                UPDATE bench_saldos_angosta
+                   SET saldo = saldo + ?, version = version + 1, fecha_ultimo_movimiento = LOCALTIMESTAMP
+                 WHERE cuenta_id = ? AND estado = 'ACTIVA'
+                """);
+    }
+
+    // Metodos auxiliares
+
+    // Un movimiento por transacción sobre cuentas al azar, como llegan desde la API
+    private void medir(String tabla, String sql) throws SQLException, InterruptedException {
+        long[] antes = estadisticas(tabla);
+        Random aleatorio = new Random(42);
+
+        conexion.setAutoCommit(false);
+        long inicio = System.nanoTime();
+        try (PreparedStatement ps = conexion.prepareStatement(sql)) {
+            for (int i = 0; i < ACTUALIZACIONES; i++) {
+                ps.setBigDecimal(1, BigDecimal.TEN);
+                ps.setLong(2, 1 + aleatorio.nextInt(CUENTAS));
+                ps.executeUpdate();
+                conexion.commit();
+            }
+        }
+        double segundos = (System.nanoTime() - inicio) / 1_000_000_000.0;
+        conexion.setAutoCommit(true);
+
+        long[] despues = estadisticas(tabla);
+        long actualizadas = despues[0] - antes[0];
+        long hot = despues[1] - antes[1];
+        System.out.printf("%-22s %8d filas en %7.3f s -> %,10.0f actualizaciones/s, HOT %5.1f%%%n",
+                tabla, ACTUALIZACIONES, segundos, ACTUALIZACIONES / segundos,
+                actualizadas == 0 ? 0.0 : 100.0 * hot / actualizadas);
+    }
+
+    // {n_tup_upd, n_tup_hot_upd}. Los contadores se publican de forma asíncrona, por eso la espera
+    private long[] estadisticas(String tabla) throws SQLException, InterruptedException {
+        Thread.sleep(1_500);
+        try (Statement st = conexion.createStatement()) {
+            st.execute("SELECT pg_stat_clear_snapshot()");
+        }
+        try (PreparedStatement ps = conexion.prepareStatement(
+                "SELECT n_tup_upd, n_tup_hot_upd FROM pg_stat_user_tables WHERE relname = ?")) {
+            ps.setString(1, tabla);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return new long[]{rs.getLong(1), rs.getLong(2)};
+            }
+        }
+    }
+}
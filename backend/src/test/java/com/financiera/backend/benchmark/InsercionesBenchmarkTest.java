@@ -0,0 +1,152 @@
+package com.financiera.backend.benchmark;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.math.BigDecimal;
+import java.sql.*;
+
+/**
+ * Compara inserciones de movimientos con IDs IDENTITY (una fila por sentencia, el ID se lee con RETURNING)
+ * frente a IDs por secuencia pooled-lo en lotes JDBC. Se ejecuta solo con el perfil benchmark:
+ *
+ * ./mvnw test -Pbenchmark -Dbenchmark.jdbc.url=jdbc:postgresql://localhost:5432/bench \
+ *     -Dbenchmark.jdbc.usuario=... -Dbenchmark.jdbc.clave=...
+ *
+ * Usa tablas propias (bench_identidad, bench_secuencia) que crea y elimina.
+ */
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark.jdbc.url", matches = ".+")
+class InsercionesBenchmarkTest {
+
+    private static final int TRANSFERENCIAS = 5_000;
+    private static final int CARGA_MASIVA = 50_000;
+    private static final int TAMANO_LOTE = 500;
+    private static final int BLOQUE_SECUENCIA = 50;
+
+    private static Connection conexion;
+
+    @BeforeAll
+    static void prepararTablas() throws SQLException {
+        String url = System.getProperty("benchmark.jdbc.url");
+        if (!url.contains("reWriteBatchedInserts")) {
+            url += (url.contains("?") ? "&" : "?") + "reWriteBatchedInserts=true";
+        }
+        conexion = DriverManager.getConnection(url,
+                System.getProperty("benchmark.jdbc.usuario"), System.getProperty("benchmark.jdbc.clave"));
+
+        try (Statement st = conexion.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS bench_identidad, bench_secuencia");
+            st.execute("DROP SEQUENCE IF EXISTS bench_secuencia_seq");
+            st.execute("""
+                    CREATE TABLE bench_identidad (
+                        id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                        cuenta_id BIGINT NOT NULL, monto NUMERIC(15,2) NOT NULL,
+                        fecha TIMESTAMP NOT NULL DEFAULT LOCALTIMESTAMP)
+                    """);
+            st.execute("""
+                    CREATE TABLE bench_secuencia (
+                        id BIGINT PRIMARY KEY,
+                        cuenta_id BIGINT NOT NULL, monto NUMERIC(15,2) NOT NULL,
+                        fecha TIMESTAMP NOT NULL DEFAULT LOCALTIMESTAMP)
+                    """);
+            st.execute("CREATE SEQUENCE bench_secuencia_seq INCREMENT BY " + BLOQUE_SECUENCIA);
+        }
+    }
+
+    @AfterAll
+    static void eliminarTablas() throws SQLException {
+        try (Statement st = conexion.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS bench_identidad, bench_secuencia");
+            st.execute("DROP SEQUENCE IF EXISTS bench_secuencia_seq");
+        }
+        conexion.close();
+    }
+
+    @Test
+    void transferencias_identidadVsSecuencia() throws SQLException {
+        // Cada transferencia inserta débito y crédito en su propia transacción
+        medir("transferencias IDENTITY", TRANSFERENCIAS * 2, () -> {
+            for (int i = 0; i < TRANSFERENCIAS; i++) {
+                insertarIdentidad(i, 2);
+                conexion.commit();
+            }
+        });
+        medir("transferencias SECUENCIA", TRANSFERENCIAS * 2, () -> {
+            long[] bloque = {0, 0};
+            for (int i = 0; i < TRANSFERENCIAS; i++) {
+                insertarSecuencia(i, 2, bloque);
+                conexion.commit();
+            }
+        });
+    }
+
+    @Test
+    void cargaMasiva_identidadVsSecuencia() throws SQLException {
+        medir("carga masiva IDENTITY", CARGA_MASIVA, () -> {
+            insertarIdentidad(0, CARGA_MASIVA);
+            conexion.commit();
+        });
+        medir("carga masiva SECUENCIA", CARGA_MASIVA, () -> {
+            insertarSecuencia(0, CARGA_MASIVA, new long[]{0, 0});
+            conexion.commit();
+        });
+    }
+
+    // Metodos auxiliares
+
+    private void insertarIdentidad(int cuentaBase, int filas) throws SQLException {
+        try (PreparedStatement ps = conexion.prepareStatement(
+                "INSERT INTO bench_identidad (cuenta_id, monto) VALUES (?, ?) RETURNING id")) {
+            for (int i = 0; i < filas; i++) {
+                ps.setLong(1, cuentaBase + i);
+                ps.setBigDecimal(2, BigDecimal.TEN);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                }
+            }
+        }
+    }
+
+    // bloque = {proximo, limite}: se consulta la secuencia solo al agotar cada bloque de 50
+    private void insertarSecuencia(int cuentaBase, int filas, long[] bloque) throws SQLException {
+        try (PreparedStatement ps = conexion.prepareStatement(
+                "INSERT INTO bench_secuencia (id, cuenta_id, monto) VALUES (?, ?, ?)");
+             PreparedStatement secuencia = conexion.prepareStatement("SELECT nextval('bench_secuencia_seq')")) {
+            for (int i = 0; i < filas; i++) {
+                if (bloque[0] == bloque[1]) {
+                    try (ResultSet rs = secuencia.executeQuery()) {
+                        rs.next();
+                        bloque[0] = rs.getLong(1);
+                        bloque[1] = bloque[0] + BLOQUE_SECUENCIA;
+                    }
+                }
+                ps.setLong(1, bloque[0]++);
+                ps.setLong(2, cuentaBase + i);
+                ps.setBigDecimal(3, BigDecimal.TEN);
+                ps.addBatch();
+                if ((i + 1) % TAMANO_LOTE == 0) {
+                    ps.executeBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private void medir(String escenario, int filas, Operacion operacion) throws SQLException {
+        conexion.setAutoCommit(false);
+        long inicio = System.nanoTime();
+        operacion.ejecutar();
+        double segundos = (System.nanoTime() - inicio) / 1_000_000_000.0;
+        System.out.printf("%-26s %8d filas en %7.3f s -> %,10.0f inserciones/s%n",
+                escenario, filas, segundos, filas / segundos);
+    }
+
+    @FunctionalInterface
+    private interface Operacion {
+        void ejecutar() throws SQLException;
+    }
+}
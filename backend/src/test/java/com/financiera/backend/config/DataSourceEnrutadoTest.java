@@ -0,0 +1,189 @@
+package com.financiera.backend.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DataSourceEnrutadoTest {
+
+    @Mock
+    private DataSource primaria;
+
+    @Mock
+    private DataSource replica0;
+
+    @Mock
+    private DataSource replica1;
+
+    @Mock
+    private Connection conexionPrimaria;
+
+    @Mock
+    private Connection conexionReplica0;
+
+    @Mock
+    private Connection conexionReplica1;
+
+    private DataSourceEnrutado enrutado;
+
+    @BeforeEach
+    void setUp() {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-0", replica0);
+        replicas.put("replica-1", replica1);
+        // Intervalo largo: las pruebas llaman la verificación directamente
+        enrutado = new DataSourceEnrutado(primaria, replicas, Duration.ofHours(1), Duration.ofSeconds(10),
+                new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        enrutado.close();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        ContextoLecturas.terminar();
+    }
+
+    @Test
+    void cuandoLaTransaccionEsDeEscritura_entoncesUsaLaPrimaria() throws SQLException {
+        when(primaria.getConnection()).thenReturn(conexionPrimaria);
+
+        assertSame(conexionPrimaria, enrutado.getConnection());
+        verifyNoInteractions(replica0, replica1);
+    }
+
+    @Test
+    void cuandoLaTransaccionEsDeSoloLectura_entoncesAlternaEntreReplicas() throws SQLException {
+        when(replica0.getConnection()).thenReturn(conexionReplica0);
+        when(replica1.getConnection()).thenReturn(conexionReplica1);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertSame(conexionReplica0, enrutado.getConnection());
+        assertSame(conexionReplica1, enrutado.getConnection());
+        assertSame(conexionReplica0, enrutado.getConnection());
+        verifyNoInteractions(primaria);
+    }
+
+    @Test
+    void cuandoUnaReplicaFalla_entoncesSaleDeRotacionYLaLecturaUsaOtra() throws SQLException {
+        when(replica0.getConnection()).thenThrow(new SQLTransientConnectionException("sin conexión"));
+        when(replica1.getConnection()).thenReturn(conexionReplica1);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertSame(conexionReplica1, enrutado.getConnection());
+        assertSame(conexionReplica1, enrutado.getConnection());
+        assertFalse(enrutado.disponible("replica-0"));
+        verify(replica0, times(1)).getConnection();
+    }
+
+    @Test
+    void cuandoSePidenCredenciales_entoncesSeEnrutaIgualQueSinEllas() throws SQLException {
+        when(primaria.getConnection("lector", "clave")).thenReturn(conexionPrimaria);
+        when(replica0.getConnection("lector", "clave")).thenReturn(conexionReplica0);
+
+        assertSame(conexionPrimaria, enrutado.getConnection("lector", "clave"));
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertSame(conexionReplica0, enrutado.getConnection("lector", "clave"));
+    }
+
+    @Test
+    void cuandoLaReplicaNoAceptaCredenciales_entoncesLeeDeLaPrimariaSinSacarlaDeRotacion() throws SQLException {
+        when(replica0.getConnection("lector", "clave"))
+                .thenThrow(new SQLFeatureNotSupportedException("sin credenciales por pedido"));
+        when(primaria.getConnection("lector", "clave")).thenReturn(conexionPrimaria);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertSame(conexionPrimaria, enrutado.getConnection("lector", "clave"));
+        assertTrue(enrutado.disponible("replica-0"));
+        verifyNoInteractions(replica1);
+    }
+
+    @Test
+    void cuandoTodasLasReplicasFallan_entoncesLeeDeLaPrimaria() throws SQLException {
+        when(replica0.getConnection()).thenThrow(new SQLTransientConnectionException("sin conexión"));
+        when(replica1.getConnection()).thenThrow(new SQLTransientConnectionException("sin conexión"));
+        when(primaria.getConnection()).thenReturn(conexionPrimaria);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertSame(conexionPrimaria, enrutado.getConnection());
+        assertSame(conexionPrimaria, enrutado.getConnection());
+        verify(replica0, times(1)).getConnection();
+        verify(replica1, times(1)).getConnection();
+    }
+
+    @Test
+    void cuandoLaVerificacionEncuentraLaReplicaAlDia_entoncesVuelveARotacion() throws SQLException {
+        Connection alDia = conexionConRetraso(conexionReplica0, 0);
+        Connection atrasada = conexionConRetraso(conexionReplica1, 60_000);
+        when(replica0.getConnection())
+                .thenThrow(new SQLTransientConnectionException("sin conexión"))
+                .thenReturn(alDia);
+        when(replica1.getConnection()).thenReturn(atrasada);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        enrutado.getConnection();
+        assertFalse(enrutado.disponible("replica-0"));
+
+        enrutado.verificarReplicas();
+
+        assertTrue(enrutado.disponible("replica-0"));
+        assertFalse(enrutado.disponible("replica-1"), "La réplica atrasada no debe recibir lecturas");
+    }
+
+    @Test
+    void cuandoLaPeticionTieneLecturaPropiaActiva_entoncesLeeDeLaPrimaria() throws SQLException {
+        when(primaria.getConnection()).thenReturn(conexionPrimaria);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        ContextoLecturas.iniciar(true, null);
+
+        assertSame(conexionPrimaria, enrutado.getConnection());
+        verifyNoInteractions(replica0, replica1);
+    }
+
+    @Test
+    void cuandoLaPeticionEscribe_entoncesAvisaUnaSolaVez() throws SQLException {
+        when(primaria.getConnection()).thenReturn(conexionPrimaria);
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        AtomicInteger avisos = new AtomicInteger();
+        ContextoLecturas.iniciar(false, avisos::incrementAndGet);
+
+        enrutado.getConnection();
+        enrutado.getConnection();
+
+        assertEquals(1, avisos.get());
+    }
+
+    // Metodos auxiliares
+
+    private static Connection conexionConRetraso(Connection conexion, long retrasoMs) throws SQLException {
+        Statement sentencia = mock(Statement.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(conexion.createStatement()).thenReturn(sentencia);
+        when(sentencia.executeQuery(anyString())).thenReturn(rs);
+        when(rs.next()).thenReturn(true);
+        when(rs.getLong(1)).thenReturn(retrasoMs);
+        return conexion;
+    }
+}
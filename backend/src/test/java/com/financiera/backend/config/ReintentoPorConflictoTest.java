@@ -0,0 +1,117 @@
+package com.financiera.backend.config;
+
+import com.financiera.backend.exception.productos.SaldoInsuficienteException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringJUnitConfig
+@TestPropertySource(properties = {
+        "financiera.reintentos.max-intentos=3",
+        "financiera.reintentos.retardo-inicial-ms=1",
+        "financiera.reintentos.retardo-maximo-ms=2"
+})
+class ReintentoPorConflictoTest {
+
+    @Autowired
+    private OperacionDePrueba operacion;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        operacion.reiniciar(0);
+        meterRegistry.clear();
+    }
+
+    @Test
+    void cuandoHayConflictoTransitorio_entoncesReintentaHastaCompletar() {
+        operacion.reiniciar(2);
+
+        assertEquals("ok", operacion.ejecutar());
+        assertEquals(3, operacion.llamadas());
+        assertEquals(3.0, contador("transacciones.reintentos.intentos"));
+        assertEquals(2.0, contador("transacciones.reintentos.conflictos"));
+        assertEquals(0.0, contador("transacciones.reintentos.agotados"));
+    }
+
+    @Test
+    void cuandoElConflictoPersiste_entoncesSeRindeTrasElMaximoDeIntentos() {
+        operacion.reiniciar(10);
+
+        assertThrows(OptimisticLockingFailureException.class, () -> operacion.ejecutar());
+        assertEquals(3, operacion.llamadas());
+        assertEquals(1.0, contador("transacciones.reintentos.agotados"));
+    }
+
+    @Test
+    void cuandoEsErrorDeNegocio_entoncesNoReintenta() {
+        assertThrows(SaldoInsuficienteException.class, () -> operacion.fallarPorNegocio());
+        assertEquals(1, operacion.llamadas());
+        assertEquals(0.0, contador("transacciones.reintentos.conflictos"));
+        assertEquals(0.0, contador("transacciones.reintentos.agotados"));
+    }
+
+    private double contador(String nombre) {
+        var contador = meterRegistry.find(nombre).counter();
+        return contador == null ? 0.0 : contador.count();
+    }
+
+    @Configuration
+    @Import({ReintentosConfig.class, MetricasReintentosListener.class})
+    static class Configuracion {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        OperacionDePrueba operacionDePrueba() {
+            return new OperacionDePrueba();
+        }
+    }
+
+    static class OperacionDePrueba {
+
+        private final AtomicInteger llamadas = new AtomicInteger();
+        private final AtomicInteger fallosPendientes = new AtomicInteger();
+
+        public void reiniciar(int fallos) {
+            llamadas.set(0);
+            fallosPendientes.set(fallos);
+        }
+
+        public int llamadas() {
+            return llamadas.get();
+        }
+
+        @ReintentoPorConflicto
+        public String ejecutar() {
+            llamadas.incrementAndGet();
+            if (fallosPendientes.getAndDecrement() > 0) {
+                throw new OptimisticLockingFailureException("conflicto");
+            }
+            return "ok";
+        }
+
+        @ReintentoPorConflicto
+        public void fallarPorNegocio() {
+            llamadas.incrementAndGet();
+            throw new SaldoInsuficienteException("Saldo insuficiente");
+        }
+    }
+}
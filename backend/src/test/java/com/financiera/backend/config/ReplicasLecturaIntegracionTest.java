@@ -0,0 +1,102 @@
+package com.financiera.backend.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * La réplica de esta prueba es un segundo pool contra el mismo servidor, identificado por su
+ * application_name; así se ve a qué pool fue cada transacción sin montar replicación real.
+ * La segunda réplica apunta a un puerto cerrado para ejercitar la salida de rotación.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=update",
+        "spring.jpa.properties.hibernate.id.optimizer.pooled.preferred=pooled-lo",
+        "spring.sql.init.mode=always",
+        "spring.jpa.defer-datasource-initialization=true",
+        "spring.sql.init.separator=^^^ END OF SCRIPT ^^^",
+        "financiera.replicas.habilitadas=true",
+        "financiera.replicas.tiempo-espera-conexion=250ms",
+        "financiera.replicas.ventana-lectura-propia=5s",
+        "financiera.cuentas.clave-permutacion=20250101"
+})
+@AutoConfigureMockMvc
+@Testcontainers(disabledWithoutDocker = true)
+class ReplicasLecturaIntegracionTest {
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void propiedades(DynamicPropertyRegistry registro) {
+        registro.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registro.add("spring.datasource.username", POSTGRES::getUsername);
+        registro.add("spring.datasource.password", POSTGRES::getPassword);
+        registro.add("financiera.replicas.urls[0]", POSTGRES::getJdbcUrl);
+        registro.add("financiera.replicas.urls[1]", () -> "jdbc:postgresql://127.0.0.1:1/inexistente");
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSourceEnrutado dataSourceEnrutado;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void lasTransaccionesDeSoloLecturaVanALaReplicaYLasDemasALaPrimaria() {
+        TransactionTemplate lectura = new TransactionTemplate(transactionManager);
+        lectura.setReadOnly(true);
+        TransactionTemplate escritura = new TransactionTemplate(transactionManager);
+
+        // Dos lecturas: la que cae en la réplica caída la saca de rotación y pasa a la otra
+        for (int i = 0; i < 2; i++) {
+            assertEquals("financiera-replica-0", lectura.execute(estado -> nombreAplicacion()));
+        }
+        assertNotEquals("financiera-replica-0", escritura.execute(estado -> nombreAplicacion()));
+        assertFalse(dataSourceEnrutado.disponible("replica-1"));
+        assertTrue(dataSourceEnrutado.disponible("replica-0"));
+    }
+
+    @Test
+    void unaPeticionQueEscribeMarcaAlClienteParaLeerDeLaPrimaria() throws Exception {
+        mockMvc.perform(post("/api/clientes")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"tipoIdentificacion":"CC","numeroIdentificacion":"70001","nombres":"Ana",
+                                 "apellido":"Gómez","correoElectronico":"ana.replica@example.com",
+                                 "fechaNacimiento":"1990-01-01"}
+                                """))
+                .andExpect(status().isCreated())
+                .andExpect(cookie().maxAge(FiltroLecturaPropia.COOKIE, 5));
+
+        mockMvc.perform(get("/api/clientes"))
+                .andExpect(status().isOk())
+                .andExpect(cookie().doesNotExist(FiltroLecturaPropia.COOKIE));
+    }
+
+    private String nombreAplicacion() {
+        return jdbcTemplate.queryForObject("SELECT current_setting('application_name')", String.class);
+    }
+}
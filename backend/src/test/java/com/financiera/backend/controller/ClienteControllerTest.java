@@ -3,9 +3,13 @@ package com.financiera.backend.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.financiera.backend.dto.ClienteDTO;
+import com.financiera.backend.dto.FiltroClientesDTO;
+import com.financiera.backend.dto.PaginaDTO;
+import com.financiera.backend.dto.ResultadoImportacionDTO;
 import com.financiera.backend.exception.clientes.ClienteMenorDeEdadException;
 import com.financiera.backend.exception.clientes.RecursoNoEncontradoException;
 import com.financiera.backend.service.ClienteService;
+import com.financiera.backend.service.ImportacionClientesService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,6 +22,7 @@ import java.time.LocalDate;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -32,6 +37,9 @@ class ClienteControllerTest {
     @MockitoBean
     private ClienteService clienteService;
 
+    @MockitoBean
+    private ImportacionClientesService importacionClientesService;
+
     private ObjectMapper objectMapper;
     private ClienteDTO clienteDTO;
 
@@ -90,15 +98,45 @@ class ClienteControllerTest {
     }
 
     @Test
-    void cuandoObtenerTodosLosClientes_entoncesRetorna200() throws Exception {
+    void cuandoObtenerTodosLosClientes_entoncesRetornaLaListaCompleta() throws Exception {
         when(clienteService.obtenerTodosLosClientes()).thenReturn(List.of(clienteDTO));
 
         mockMvc.perform(get("/api/clientes"))
                 .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(PaginaDTO.ENCABEZADO_SIGUIENTE_CURSOR))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].nombres").value("Juan Carlos"));
+        verify(clienteService, never()).obtenerClientes(any());
+    }
+
+    @Test
+    void cuandoObtenerPaginaDeClientes_entoncesRetorna200() throws Exception {
+        when(clienteService.obtenerClientes(any(FiltroClientesDTO.class)))
+                .thenReturn(new PaginaDTO<>(List.of(clienteDTO), null));
+
+        mockMvc.perform(get("/api/clientes/pagina"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(PaginaDTO.ENCABEZADO_SIGUIENTE_CURSOR))
                 .andExpect(jsonPath("$.length()").value(1))
                 .andExpect(jsonPath("$[0].nombres").value("Juan Carlos"));
     }
 
+    @Test
+    void cuandoObtenerClientesFiltrados_entoncesRetornaCursorDeLaSiguientePagina() throws Exception {
+        when(clienteService.obtenerClientes(argThat(filtro ->
+                "CC".equals(filtro.getTipoIdentificacion())
+                        && LocalDate.of(2025, 1, 1).equals(filtro.getDesde())
+                        && filtro.getTamano() == 1)))
+                .thenReturn(new PaginaDTO<>(List.of(clienteDTO), "MQ"));
+
+        mockMvc.perform(get("/api/clientes/pagina")
+                        .param("tipoIdentificacion", "CC")
+                        .param("desde", "2025-01-01")
+                        .param("tamano", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(PaginaDTO.ENCABEZADO_SIGUIENTE_CURSOR, "MQ"));
+    }
+
     @Test
     void cuandoObtenerClientePorId_entoncesRetorna200() throws Exception {
         when(clienteService.obtenerClientePorId(1L)).thenReturn(clienteDTO);
@@ -141,4 +179,19 @@ class ClienteControllerTest {
 
         verify(clienteService, times(1)).eliminarCliente(1L);
     }
-}
\ No newline at end of file
+
+    @Test
+    void cuandoImportarClientes_entoncesLeeElCuerpoYRetornaElResumen() throws Exception {
+        when(importacionClientesService.importar(any(), eq(ImportacionClientesService.Formato.NDJSON)))
+                .thenReturn(new ResultadoImportacionDTO(3, 2, 1, 1, "/tmp/rechazos.csv", 15));
+
+        mockMvc.perform(post("/api/clientes/importar")
+                        .param("formato", "NDJSON")
+                        .contentType("application/x-ndjson")
+                        .content("{}\n{}\n{}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.clientesCreados").value(2))
+                .andExpect(jsonPath("$.filasRechazadas").value(1))
+                .andExpect(jsonPath("$.archivoRechazos").value("/tmp/rechazos.csv"));
+    }
+}
@@ -0,0 +1,175 @@
+package com.financiera.backend.controller;
+
+import com.financiera.backend.dto.TransaccionDTO;
+import com.financiera.backend.entity.Cliente;
+import com.financiera.backend.entity.Producto;
+import com.financiera.backend.entity.Transaccion;
+import com.financiera.backend.repository.TransaccionRepository;
+import com.financiera.backend.soporte.IntegracionPostgres;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Presupuesto de sentencias SQL por endpoint. Si un cambio introduce cargas perezosas (N+1) o
+ * consultas de más dentro de una transacción, estas pruebas fallan mostrando las sentencias ejecutadas.
+ */
+class PresupuestoSentenciasIntegracionTest extends IntegracionPostgres {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TransaccionRepository transaccionRepository;
+
+    private Cliente cliente;
+    private Producto ahorros;
+    private Producto corriente;
+
+    @BeforeEach
+    void setUp() {
+        cliente = crearCliente();
+        ahorros = crearCuenta(cliente, Producto.TipoCuenta.CUENTA_AHORROS, "1000000");
+        corriente = crearCuenta(cliente, Producto.TipoCuenta.CUENTA_CORRIENTE, "0");
+    }
+
+    @Test
+    void estadoCuenta_usaDosSentenciasSinImportarLaCantidadDeMovimientos() throws Exception {
+        registrarMovimientos(5);
+        contadorSentencias.verificarPresupuesto("GET estado-cuenta (5 movimientos)", 2, () ->
+                mockMvc.perform(get("/api/transacciones/estado-cuenta/{id}", ahorros.getId()))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.length()").value(5)));
+
+        registrarMovimientos(300);
+        contadorSentencias.verificarPresupuesto("GET estado-cuenta (305 movimientos)", 2, () ->
+                mockMvc.perform(get("/api/transacciones/estado-cuenta/{id}", ahorros.getId())
+                                .param("tamano", "500"))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.length()").value(305)));
+    }
+
+    @Test
+    void estadoCuentaSinCambios_respondeNoModificadoConUnaSentencia() throws Exception {
+        registrarMovimientos(50);
+        String etag = mockMvc.perform(get("/api/transacciones/estado-cuenta/{id}", ahorros.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        contadorSentencias.verificarPresupuesto("GET estado-cuenta (If-None-Match)", 1, () ->
+                mockMvc.perform(get("/api/transacciones/estado-cuenta/{id}", ahorros.getId())
+                                .header("If-None-Match", etag))
+                        .andExpect(status().isNotModified()));
+
+        // Un movimiento nuevo incrementa la versión de la cuenta y con ella el ETag
+        mockMvc.perform(post("/api/transacciones/consignacion")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"cuentaId\": " + ahorros.getId() + ", \"monto\": 1000}"))
+                .andExpect(status().isCreated());
+        mockMvc.perform(get("/api/transacciones/estado-cuenta/{id}", ahorros.getId())
+                        .header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(50));
+    }
+
+    @Test
+    void exportarEstadoCuenta_usaDosSentencias() throws Exception {
+        registrarMovimientos(50);
+        contadorSentencias.verificarPresupuesto("GET estado-cuenta/exportar", 2, () -> {
+            MvcResult resultado = mockMvc.perform(get("/api/transacciones/estado-cuenta/{id}/exportar",
+                            ahorros.getId()))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            mockMvc.perform(asyncDispatch(resultado))
+                    .andExpect(status().isOk());
+        });
+    }
+
+    @Test
+    void obtenerTransaccionPorId_usaUnaSentencia() throws Exception {
+        Long id = registrarMovimientos(1).get(0).getId();
+
+        contadorSentencias.verificarPresupuesto("GET transaccion por ID", 1, () ->
+                mockMvc.perform(get("/api/transacciones/{id}", id))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.numeroCuentaDestino").value(corriente.getNumeroCuenta())));
+    }
+
+    @Test
+    void movimientos_usanUnaSentenciaMasElBloqueoYLaSecuencia() throws Exception {
+        contadorSentencias.verificarPresupuesto("POST consignacion", 2, () ->
+                mockMvc.perform(post("/api/transacciones/consignacion")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"cuentaId\": " + corriente.getId() + ", \"monto\": 1000}"))
+                        .andExpect(status().isCreated()));
+
+        contadorSentencias.verificarPresupuesto("POST transferencia", 3, () ->
+                mockMvc.perform(post("/api/transacciones/transferencia")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"cuentaOrigenId\": " + ahorros.getId()
+                                        + ", \"cuentaDestinoId\": " + corriente.getId() + ", \"monto\": 1000}"))
+                        .andExpect(status().isCreated()));
+    }
+
+    @Test
+    void listadosDeProductos_noCarganElClientePorSeparado() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            crearCuenta(crearCliente(), Producto.TipoCuenta.CUENTA_AHORROS, "0");
+        }
+
+        contadorSentencias.verificarPresupuesto("GET productos", 1, () ->
+                mockMvc.perform(get("/api/productos"))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.length()").value(22)));
+
+        contadorSentencias.verificarPresupuesto("GET productos por cliente", 2, () ->
+                mockMvc.perform(get("/api/productos/cliente/{id}", cliente.getId()))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.length()").value(2)));
+
+        contadorSentencias.verificarPresupuesto("GET producto por ID", 1, () ->
+                mockMvc.perform(get("/api/productos/{id}", ahorros.getId()))
+                        .andExpect(status().isOk()));
+    }
+
+    @Test
+    void listadoDeClientes_usaUnaSentencia() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            crearCuenta(crearCliente(), Producto.TipoCuenta.CUENTA_CORRIENTE, "0");
+        }
+
+        contadorSentencias.verificarPresupuesto("GET clientes", 1, () ->
+                mockMvc.perform(get("/api/clientes"))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.length()").value(21)));
+    }
+
+    // Metodos auxiliares
+
+    // Transferencias de ahorros a corriente registradas directamente, sin pasar por el endpoint
+    private List<TransaccionDTO> registrarMovimientos(int cantidad) {
+        List<TransaccionDTO> movimientos = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            TransaccionDTO movimiento = new TransaccionDTO();
+            movimiento.setTipoTransaccion(Transaccion.TipoTransaccion.TRANSFERENCIA);
+            movimiento.setTipoMovimiento(Transaccion.TipoMovimiento.DEBITO);
+            movimiento.setMonto(BigDecimal.ONE);
+            movimiento.setDescripcion("Movimiento " + i);
+            movimiento.setCuentaOrigenId(ahorros.getId());
+            movimiento.setCuentaDestinoId(corriente.getId());
+            movimiento.setSaldoAlRegistrar(BigDecimal.ZERO);
+            movimientos.add(movimiento);
+        }
+        return transaccionRepository.insertarMovimientos(movimientos);
+    }
+}
@@ -2,6 +2,8 @@ package com.financiera.backend.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.financiera.backend.dto.FiltroProductosDTO;
+import com.financiera.backend.dto.PaginaDTO;
 import com.financiera.backend.dto.ProductoDTO;
 import com.financiera.backend.entity.Producto;
 import com.financiera.backend.exception.productos.CuentaNoPuedeCancelarseException;
@@ -19,6 +21,7 @@ import java.math.BigDecimal;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -76,15 +79,43 @@ class ProductoControllerTest {
     }
 
     @Test
-    void cuandoObtenerTodosLosProductos_entoncesRetorna200() throws Exception {
+    void cuandoObtenerTodosLosProductos_entoncesRetornaLaListaCompleta() throws Exception {
         when(productoService.obtenerTodosLosProductos()).thenReturn(List.of(productoDTO));
 
         mockMvc.perform(get("/api/productos"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(PaginaDTO.ENCABEZADO_SIGUIENTE_CURSOR))
+                .andExpect(jsonPath("$.length()").value(1));
+        verify(productoService, never()).obtenerProductos(any());
+    }
+
+    @Test
+    void cuandoObtenerPaginaDeProductos_entoncesRetorna200() throws Exception {
+        when(productoService.obtenerProductos(any(FiltroProductosDTO.class)))
+                .thenReturn(new PaginaDTO<>(List.of(productoDTO), null));
+
+        mockMvc.perform(get("/api/productos/pagina"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.length()").value(1))
                 .andExpect(jsonPath("$[0].numeroCuenta").value("5312345678"));
     }
 
+    @Test
+    void cuandoObtenerProductosFiltrados_entoncesRetornaCursorDeLaSiguientePagina() throws Exception {
+        when(productoService.obtenerProductos(argThat(filtro ->
+                filtro.getEstado() == Producto.EstadoCuenta.ACTIVA
+                        && filtro.getTipoCuenta() == Producto.TipoCuenta.CUENTA_AHORROS
+                        && "MQ".equals(filtro.getCursor()))))
+                .thenReturn(new PaginaDTO<>(List.of(productoDTO), "Mg"));
+
+        mockMvc.perform(get("/api/productos/pagina")
+                        .param("estado", "ACTIVA")
+                        .param("tipoCuenta", "CUENTA_AHORROS")
+                        .param("cursor", "MQ"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(PaginaDTO.ENCABEZADO_SIGUIENTE_CURSOR, "Mg"));
+    }
+
     @Test
     void cuandoObtenerProductoPorId_entoncesRetorna200() throws Exception {
         when(productoService.obtenerProductoPorId(1L)).thenReturn(productoDTO);
@@ -95,6 +126,37 @@ class ProductoControllerTest {
                 .andExpect(jsonPath("$.numeroCuenta").value("5312345678"));
     }
 
+    @Test
+    void cuandoProductoNoCambio_entoncesRetorna304SinCuerpo() throws Exception {
+        productoDTO.setVersion(3L);
+        when(productoService.obtenerVersionProducto(1L)).thenReturn(3L);
+        when(productoService.obtenerProductoPorId(1L)).thenReturn(productoDTO);
+
+        mockMvc.perform(get("/api/productos/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3\""))
+                .andExpect(jsonPath("$.version").doesNotExist());
+
+        mockMvc.perform(get("/api/productos/1").header("If-None-Match", "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        mockMvc.perform(get("/api/productos/1").header("If-None-Match", "\"2\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1));
+    }
+
+    @Test
+    void cuandoProductoNoCambio_entoncesNoCargaElProducto() throws Exception {
+        when(productoService.obtenerVersionProducto(1L)).thenReturn(3L);
+
+        mockMvc.perform(get("/api/productos/1").header("If-None-Match", "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"3\""));
+
+        verify(productoService, never()).obtenerProductoPorId(any());
+    }
+
     @Test
     void cuandoObtenerProductoInexistente_entoncesRetorna404() throws Exception {
         when(productoService.obtenerProductoPorId(999L))
@@ -3,26 +3,51 @@ package com.financiera.backend.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.financiera.backend.dto.ConsignacionDTO;
+import com.financiera.backend.dto.ConsultaSaldosAFechaDTO;
+import com.financiera.backend.dto.EstadoCuentaDTO;
+import com.financiera.backend.dto.FiltroEstadoCuentaDTO;
+import com.financiera.backend.dto.LoteTransaccionesDTO;
+import com.financiera.backend.dto.OperacionLoteDTO;
+import com.financiera.backend.dto.PaginaDTO;
+import com.financiera.backend.dto.PeriodoEstadoCuentaDTO;
+import com.financiera.backend.dto.ResultadoOperacionLoteDTO;
 import com.financiera.backend.dto.RetiroDTO;
+import com.financiera.backend.dto.SaldoAFechaDTO;
 import com.financiera.backend.dto.TransaccionDTO;
 import com.financiera.backend.dto.TransferenciaDTO;
 import com.financiera.backend.entity.Transaccion;
+import com.financiera.backend.exception.clientes.RecursoNoEncontradoException;
 import com.financiera.backend.exception.productos.SaldoInsuficienteException;
+import com.financiera.backend.exception.transacciones.CierreNoDisponibleException;
 import com.financiera.backend.exception.transacciones.CuentaInactivaException;
+import com.financiera.backend.exception.transacciones.ParametroConsultaInvalidoException;
+import com.financiera.backend.service.CierreMensualService;
+import com.financiera.backend.service.ExportacionEstadoCuentaService;
+import com.financiera.backend.service.LoteTransaccionService;
 import com.financiera.backend.service.TransaccionService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.List;
+import java.util.function.LongPredicate;
 
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -35,6 +60,15 @@ class TransaccionControllerTest {
     @MockitoBean
     private TransaccionService transaccionService;
 
+    @MockitoBean
+    private LoteTransaccionService loteTransaccionService;
+
+    @MockitoBean
+    private ExportacionEstadoCuentaService exportacionEstadoCuentaService;
+
+    @MockitoBean
+    private CierreMensualService cierreMensualService;
+
     private ObjectMapper objectMapper;
     private TransaccionDTO transaccionDTO;
 
@@ -48,7 +82,7 @@ class TransaccionControllerTest {
         transaccionDTO.setTipoTransaccion(Transaccion.TipoTransaccion.CONSIGNACION);
         transaccionDTO.setTipoMovimiento(Transaccion.TipoMovimiento.CREDITO);
         transaccionDTO.setMonto(new BigDecimal("500000"));
-        transaccionDTO.setSaldoDespues(new BigDecimal("1500000"));
+        transaccionDTO.setSaldoAlRegistrar(new BigDecimal("1500000"));
         transaccionDTO.setCuentaOrigenId(1L);
         transaccionDTO.setNumeroCuentaOrigen("5312345678");
     }
@@ -68,7 +102,9 @@ class TransaccionControllerTest {
                         .content(objectMapper.writeValueAsString(consignacionDTO)))
                 .andExpect(status().isCreated())
                 .andExpect(jsonPath("$.tipoMovimiento").value("CREDITO"))
-                .andExpect(jsonPath("$.monto").value(500000));
+                .andExpect(jsonPath("$.monto").value(500000))
+                .andExpect(jsonPath("$.saldoDespues").value(1500000))
+                .andExpect(jsonPath("$.saldoAlRegistrar").doesNotExist());
     }
 
     @Test
@@ -122,6 +158,21 @@ class TransaccionControllerTest {
                 .andExpect(jsonPath("$.mensaje").value("Saldo insuficiente"));
     }
 
+    @Test
+    void cuandoRetiroAgotaReintentosPorConcurrencia_entoncesRetorna409() throws Exception {
+        RetiroDTO retiroDTO = new RetiroDTO();
+        retiroDTO.setCuentaId(1L);
+        retiroDTO.setMonto(new BigDecimal("200000"));
+
+        when(transaccionService.realizarRetiro(any(RetiroDTO.class)))
+                .thenThrow(new OptimisticLockingFailureException("conflicto"));
+
+        mockMvc.perform(post("/api/transacciones/retiro")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(retiroDTO)))
+                .andExpect(status().isConflict());
+    }
+
     @Test
     void cuandoRealizarTransferencia_entoncesRetorna201ConDosTransacciones() throws Exception {
         TransferenciaDTO transferenciaDTO = new TransferenciaDTO();
@@ -151,17 +202,180 @@ class TransaccionControllerTest {
                 .andExpect(jsonPath("$[1].tipoMovimiento").value("CREDITO"));
     }
 
+    @Test
+    void cuandoProcesarLote_entoncesRetornaResultadoPorOperacion() throws Exception {
+        LoteTransaccionesDTO lote = new LoteTransaccionesDTO(List.of(
+                new OperacionLoteDTO(Transaccion.TipoTransaccion.CONSIGNACION,
+                        new ConsignacionDTO(1L, new BigDecimal("500000"), null), null, null),
+                new OperacionLoteDTO(Transaccion.TipoTransaccion.RETIRO,
+                        null, new RetiroDTO(1L, new BigDecimal("9999999"), null), null)
+        ));
+
+        when(loteTransaccionService.procesarLote(any(LoteTransaccionesDTO.class)))
+                .thenReturn(List.of(
+                        new ResultadoOperacionLoteDTO(0, true, List.of(transaccionDTO), null),
+                        new ResultadoOperacionLoteDTO(1, false, List.of(), "Saldo insuficiente")));
+
+        mockMvc.perform(post("/api/transacciones/lote")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(lote)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].exitosa").value(true))
+                .andExpect(jsonPath("$[1].exitosa").value(false))
+                .andExpect(jsonPath("$[1].mensaje").value("Saldo insuficiente"));
+    }
+
+    @Test
+    void cuandoLoteVacio_entoncesRetorna400() throws Exception {
+        mockMvc.perform(post("/api/transacciones/lote")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new LoteTransaccionesDTO(List.of()))))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void cuandoObtenerEstadoCuenta_entoncesRetorna200() throws Exception {
-        when(transaccionService.obtenerEstadoCuenta(1L))
-                .thenReturn(List.of(transaccionDTO));
+        when(transaccionService.obtenerEstadoCuenta(eq(1L), any(FiltroEstadoCuentaDTO.class), any()))
+                .thenReturn(new EstadoCuentaDTO(7L, new PaginaDTO<>(List.of(transaccionDTO), null)));
 
         mockMvc.perform(get("/api/transacciones/estado-cuenta/1"))
                 .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(PaginaDTO.ENCABEZADO_SIGUIENTE_CURSOR))
                 .andExpect(jsonPath("$.length()").value(1))
                 .andExpect(jsonPath("$[0].tipoTransaccion").value("CONSIGNACION"));
     }
 
+    @Test
+    void cuandoEstadoCuentaNoCambio_entoncesRetorna304SinCuerpo() throws Exception {
+        when(transaccionService.obtenerEstadoCuenta(eq(1L), any(FiltroEstadoCuentaDTO.class), any()))
+                .thenAnswer(invocacion -> {
+                    LongPredicate noModificado = invocacion.getArgument(2);
+                    return noModificado != null && noModificado.test(7L)
+                            ? new EstadoCuentaDTO(7L, null)
+                            : new EstadoCuentaDTO(7L, new PaginaDTO<>(List.of(transaccionDTO), null));
+                });
+
+        mockMvc.perform(get("/api/transacciones/estado-cuenta/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"7\""));
+
+        mockMvc.perform(get("/api/transacciones/estado-cuenta/1").header("If-None-Match", "W/\"3\", \"7\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"7\""))
+                .andExpect(content().string(""));
+
+        mockMvc.perform(get("/api/transacciones/estado-cuenta/1").header("If-None-Match", "\"6\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    @Test
+    void cuandoEstadoCuentaTieneMasPaginas_entoncesRetornaCursorEnEncabezado() throws Exception {
+        when(transaccionService.obtenerEstadoCuenta(eq(1L), argThat(filtro ->
+                filtro.getDesde().equals(LocalDate.of(2025, 1, 1))
+                        && filtro.getTipoMovimiento() == Transaccion.TipoMovimiento.CREDITO
+                        && filtro.getTamano() == 1), any()))
+                .thenReturn(new EstadoCuentaDTO(7L, new PaginaDTO<>(List.of(transaccionDTO), "c2lndWllbnRl")));
+
+        mockMvc.perform(get("/api/transacciones/estado-cuenta/1")
+                        .param("desde", "2025-01-01")
+                        .param("tipoMovimiento", "CREDITO")
+                        .param("tamano", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(PaginaDTO.ENCABEZADO_SIGUIENTE_CURSOR, "c2lndWllbnRl"))
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    @Test
+    void cuandoEstadoCuentaConCursorInvalido_entoncesRetorna400() throws Exception {
+        when(transaccionService.obtenerEstadoCuenta(eq(1L), any(FiltroEstadoCuentaDTO.class), any()))
+                .thenThrow(new ParametroConsultaInvalidoException("El cursor de paginación no es válido"));
+
+        mockMvc.perform(get("/api/transacciones/estado-cuenta/1").param("cursor", "xyz"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.mensaje").value("El cursor de paginación no es válido"));
+    }
+
+    @Test
+    void cuandoObtenerPeriodoEstadoCuenta_entoncesRetornaSaldosYMovimientos() throws Exception {
+        when(cierreMensualService.obtenerPeriodo(1L, YearMonth.of(2025, 3))).thenReturn(new PeriodoEstadoCuentaDTO(
+                1L, YearMonth.of(2025, 3), new BigDecimal("1000000"), new BigDecimal("1500000"),
+                new BigDecimal("500000"), BigDecimal.ZERO, 1L, true, List.of(transaccionDTO)));
+
+        mockMvc.perform(get("/api/transacciones/estado-cuenta/1/periodos/2025-03"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.periodo").value("2025-03"))
+                .andExpect(jsonPath("$.saldoApertura").value(1000000))
+                .andExpect(jsonPath("$.saldoCierre").value(1500000))
+                .andExpect(jsonPath("$.movimientos.length()").value(1));
+    }
+
+    @Test
+    void cuandoObtenerPeriodoSinCierre_entoncesRetorna404() throws Exception {
+        when(cierreMensualService.obtenerPeriodo(1L, YearMonth.of(2025, 3)))
+                .thenThrow(new CierreNoDisponibleException("La cuenta 1 no tiene cierre para el periodo 2025-03"));
+
+        mockMvc.perform(get("/api/transacciones/estado-cuenta/1/periodos/2025-03"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.mensaje").value("La cuenta 1 no tiene cierre para el periodo 2025-03"));
+    }
+
+    @Test
+    void cuandoObtenerSaldoAFecha_entoncesRetornaElSaldo() throws Exception {
+        LocalDateTime fecha = LocalDateTime.of(2025, 3, 31, 23, 59, 59);
+        when(transaccionService.obtenerSaldoAFecha(1L, fecha)).thenReturn(new SaldoAFechaDTO(
+                1L, "5312345678", fecha, new BigDecimal("1500000"), 7L, LocalDateTime.of(2025, 3, 30, 10, 0)));
+
+        mockMvc.perform(get("/api/transacciones/saldo-a-fecha/1").param("fecha", "2025-03-31T23:59:59"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.saldo").value(1500000))
+                .andExpect(jsonPath("$.transaccionId").value(7));
+    }
+
+    @Test
+    void cuandoObtenerSaldosAFechaSinCuentas_entoncesRetorna400() throws Exception {
+        ConsultaSaldosAFechaDTO consulta = new ConsultaSaldosAFechaDTO(LocalDateTime.of(2025, 3, 31, 0, 0), List.of());
+
+        mockMvc.perform(post("/api/transacciones/saldo-a-fecha")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(consulta)))
+                .andExpect(status().isBadRequest());
+
+        verify(transaccionService, never()).obtenerSaldosAFecha(any());
+    }
+
+    @Test
+    void cuandoExportarEstadoCuenta_entoncesEscribeElArchivoEnStreaming() throws Exception {
+        doAnswer(invocacion -> {
+            OutputStream salida = invocacion.getArgument(3);
+            salida.write("id,monto\r\n1,500000\r\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(exportacionEstadoCuentaService).exportar(eq(1L), any(FiltroEstadoCuentaDTO.class),
+                eq(ExportacionEstadoCuentaService.Formato.CSV), any(OutputStream.class));
+
+        MvcResult resultado = mockMvc.perform(get("/api/transacciones/estado-cuenta/1/exportar"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"estado-cuenta-1.csv\""))
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(content().string("id,monto\r\n1,500000\r\n"));
+    }
+
+    @Test
+    void cuandoExportarEstadoCuentaInexistente_entoncesRetorna404SinIniciarElStreaming() throws Exception {
+        doThrow(new RecursoNoEncontradoException("No se encontró la cuenta con ID: 99"))
+                .when(exportacionEstadoCuentaService).validarExportacion(eq(99L), any(FiltroEstadoCuentaDTO.class));
+
+        mockMvc.perform(get("/api/transacciones/estado-cuenta/99/exportar").param("formato", "NDJSON"))
+                .andExpect(status().isNotFound());
+
+        verify(exportacionEstadoCuentaService, never()).exportar(any(), any(), any(), any());
+    }
+
     @Test
     void cuandoObtenerTransaccionPorId_entoncesRetorna200() throws Exception {
         when(transaccionService.obtenerTransaccionPorId(1L)).thenReturn(transaccionDTO);
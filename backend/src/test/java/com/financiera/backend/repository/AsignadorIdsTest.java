@@ -0,0 +1,65 @@
+package com.financiera.backend.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AsignadorIdsTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private AsignadorIds asignadorIds;
+
+    @BeforeEach
+    void setUp() {
+        asignadorIds = new AsignadorIds(jdbcTemplate);
+    }
+
+    @Test
+    void siguiente_consultaLaSecuenciaUnaVezPorBloque() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), eq("transacciones_seq"), eq(1)))
+                .thenReturn(1L, 51L);
+
+        long[] ids = new long[AsignadorIds.TAMANO_BLOQUE + 1];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = asignadorIds.siguiente("transacciones_seq");
+        }
+
+        assertThat(ids[0]).isEqualTo(1L);
+        assertThat(ids[49]).isEqualTo(50L);
+        assertThat(ids[50]).isEqualTo(51L);
+        verify(jdbcTemplate, times(2)).queryForObject(anyString(), eq(Long.class), eq("transacciones_seq"), eq(1));
+    }
+
+    @Test
+    void reservar_pideTodosLosBloquesEnUnaConsulta() {
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq("transacciones_seq"), eq(3)))
+                .thenReturn(List.of(101L, 151L, 301L));
+
+        long[] ids = asignadorIds.reservar("transacciones_seq", 120);
+
+        assertThat(ids).hasSize(120);
+        assertThat(ids[0]).isEqualTo(101L);
+        assertThat(ids[50]).isEqualTo(151L);
+        assertThat(ids[100]).isEqualTo(301L);
+        assertThat(ids[119]).isEqualTo(320L);
+        verify(jdbcTemplate, times(1)).queryForList(anyString(), eq(Long.class), any(), any());
+    }
+
+    @Test
+    void reservar_sinFilas_noConsultaLaBase() {
+        assertThat(asignadorIds.reservar("transacciones_seq", 0)).isEmpty();
+        verifyNoInteractions(jdbcTemplate);
+    }
+}
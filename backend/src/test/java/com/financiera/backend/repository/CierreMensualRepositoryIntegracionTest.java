@@ -0,0 +1,87 @@
+package com.financiera.backend.repository;
+
+import com.financiera.backend.entity.CierreMensual;
+import com.financiera.backend.entity.Cliente;
+import com.financiera.backend.entity.Producto;
+import com.financiera.backend.soporte.IntegracionPostgres;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CierreMensualRepositoryIntegracionTest extends IntegracionPostgres {
+
+    private static final YearMonth FEBRERO = YearMonth.of(2025, 2);
+
+    @Autowired
+    private CierreMensualRepository cierreMensualRepository;
+
+    private Producto cuenta;
+    private Producto otra;
+
+    @BeforeEach
+    void setUp() {
+        Cliente cliente = crearCliente();
+        cuenta = crearCuenta(cliente, Producto.TipoCuenta.CUENTA_AHORROS, "0");
+        otra = crearCuenta(cliente, Producto.TipoCuenta.CUENTA_CORRIENTE, "0");
+        jdbcTemplate.update("UPDATE productos SET fecha_creacion = ? WHERE id IN (?, ?)",
+                Timestamp.valueOf(LocalDateTime.of(2025, 1, 10, 8, 0)), cuenta.getId(), otra.getId());
+
+        // Los movimientos son de meses pasados, que no tienen partición en una base nueva
+        jdbcTemplate.queryForObject("SELECT crear_particion_transacciones(DATE '2025-02-01')", Boolean.class);
+        jdbcTemplate.queryForObject("SELECT crear_particion_transacciones(DATE '2025-03-01')", Boolean.class);
+
+        // Saldo actual 750: +1000 y -300 en febrero, +50 en marzo
+        insertarMovimiento(1, cuenta, null, "CREDITO", "1000", "1000", LocalDateTime.of(2025, 2, 5, 10, 0));
+        insertarMovimiento(2, cuenta, otra, "DEBITO", "300", "700", LocalDateTime.of(2025, 2, 20, 16, 45));
+        insertarMovimiento(3, otra, cuenta, "CREDITO", "300", "300", LocalDateTime.of(2025, 2, 20, 16, 45));
+        insertarMovimiento(4, cuenta, null, "CREDITO", "50", "750", LocalDateTime.of(2025, 3, 1, 0, 0));
+    }
+
+    @Test
+    void generarCierres_calculaSaldosDesdeElSaldoActualConSoloLasFilasPropias() {
+        int generados = cierreMensualRepository.generarCierres(FEBRERO, 0, Long.MAX_VALUE);
+
+        assertEquals(2, generados);
+        CierreMensual cierre = cierreMensualRepository
+                .findById(new CierreMensual.Clave(cuenta.getId(), LocalDate.of(2025, 2, 1)))
+                .orElseThrow();
+        assertEquals(0, BigDecimal.ZERO.compareTo(cierre.getSaldoApertura()));
+        assertEquals(0, new BigDecimal("700").compareTo(cierre.getSaldoCierre()));
+        assertEquals(0, new BigDecimal("1000").compareTo(cierre.getTotalCreditos()));
+        assertEquals(0, new BigDecimal("300").compareTo(cierre.getTotalDebitos()));
+        assertEquals(2L, cierre.getCantidadMovimientos());
+    }
+
+    @Test
+    void generarCierres_omiteCuentasYaCerradasYCuentasPosterioresAlPeriodo() {
+        cierreMensualRepository.generarCierres(FEBRERO, 0, Long.MAX_VALUE);
+
+        assertEquals(0, cierreMensualRepository.generarCierres(FEBRERO, 0, Long.MAX_VALUE));
+        // Las cuentas se crearon en enero: diciembre no tiene cierres
+        assertEquals(0, cierreMensualRepository.generarCierres(YearMonth.of(2024, 12), 0, Long.MAX_VALUE));
+        // Solo el rango de IDs pedido
+        assertEquals(1, cierreMensualRepository.generarCierres(YearMonth.of(2025, 1), 0, otra.getId()));
+    }
+
+    // Metodos auxiliares
+
+    private void insertarMovimiento(long id, Producto origen, Producto destino, String tipoMovimiento,
+                                    String monto, String saldoAlRegistrar, LocalDateTime fecha) {
+        jdbcTemplate.update("""
+                        INSERT INTO transacciones (id, tipo_transaccion, tipo_movimiento, monto, descripcion,
+                                                   fecha_transaccion, cuenta_origen_id, cuenta_destino_id, saldo_despues)
+                        VALUES (?, ?, ?, ?, NULL, ?, ?, ?, ?)
+                        """,
+                id, destino == null ? (tipoMovimiento.equals("CREDITO") ? "CONSIGNACION" : "RETIRO") : "TRANSFERENCIA",
+                tipoMovimiento, new BigDecimal(monto), Timestamp.valueOf(fecha), origen.getId(),
+                destino == null ? null : destino.getId(), new BigDecimal(saldoAlRegistrar));
+    }
+}
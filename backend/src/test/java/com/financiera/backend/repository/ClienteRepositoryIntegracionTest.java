@@ -0,0 +1,57 @@
+package com.financiera.backend.repository;
+
+import com.financiera.backend.dto.ClienteDTO;
+import com.financiera.backend.dto.ProductoDTO;
+import com.financiera.backend.entity.Cliente;
+import com.financiera.backend.entity.Producto;
+import com.financiera.backend.soporte.IntegracionPostgres;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClienteRepositoryIntegracionTest extends IntegracionPostgres {
+
+    @Test
+    void buscarPagina_filtraPorTipoDeIdentificacionYContinuaDesdeElCursor() {
+        Cliente cedula = crearCliente();
+        Cliente pasaporte = crearCliente();
+        pasaporte.setTipoIdentificacion("PA");
+        clienteRepository.save(pasaporte);
+
+        List<ClienteDTO> clientes = clienteRepository.buscarPagina(null, "CC", null, null, Limit.of(10));
+
+        assertEquals(List.of(cedula.getId()), clientes.stream().map(ClienteDTO::getId).toList());
+        assertTrue(clienteRepository.buscarPagina(pasaporte.getId(), null, null, null, Limit.of(10)).isEmpty());
+    }
+
+    @Test
+    void insertarClientes_asignaIdsYLasCuentasQuedanActivasConSaldoCero() {
+        Cliente existente = crearCliente();
+        ClienteDTO nuevo = new ClienteDTO(null, "CC", "9990001", "Ana", "Gómez", "ana.lote@example.com",
+                LocalDate.of(1990, 1, 1), null, null);
+
+        clienteRepository.insertarClientes(List.of(nuevo));
+        ProductoDTO cuenta = new ProductoDTO();
+        cuenta.setTipoCuenta(Producto.TipoCuenta.CUENTA_AHORROS);
+        cuenta.setNumeroCuenta("5300000018");
+        cuenta.setClienteId(nuevo.getId());
+        productoRepository.insertarCuentas(List.of(cuenta));
+
+        assertNotNull(nuevo.getId());
+        assertEquals("Ana", clienteRepository.findById(nuevo.getId()).orElseThrow().getNombres());
+        Producto guardada = productoRepository.findById(cuenta.getId()).orElseThrow();
+        assertEquals(Producto.EstadoCuenta.ACTIVA, guardada.getEstado());
+        assertEquals(0, BigDecimal.ZERO.compareTo(guardada.getSaldo()));
+        assertEquals(0L, guardada.getVersion());
+
+        List<String> registrados = clienteRepository.buscarRegistrados(
+                List.of(existente.getNumeroIdentificacion(), "no-existe"),
+                List.of("ana.lote@example.com"));
+        assertEquals(List.of(existente.getNumeroIdentificacion(), "ana.lote@example.com"), registrados);
+    }
+}
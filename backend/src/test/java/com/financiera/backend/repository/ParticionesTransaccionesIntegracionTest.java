@@ -0,0 +1,69 @@
+package com.financiera.backend.repository;
+
+import com.financiera.backend.entity.Cliente;
+import com.financiera.backend.entity.Producto;
+import com.financiera.backend.entity.Transaccion;
+import com.financiera.backend.service.ParticionesTransaccionesService;
+import com.financiera.backend.soporte.IntegracionPostgres;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParticionesTransaccionesIntegracionTest extends IntegracionPostgres {
+
+    private static final DateTimeFormatter FORMATO_MES = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    @Autowired
+    private ParticionesTransaccionesService particionesService;
+
+    @Autowired
+    private TransaccionRepository transaccionRepository;
+
+    @Test
+    void transacciones_quedaParticionadaYLasInsercionesVanALaParticionDelMes() {
+        assertEquals("p", jdbcTemplate.queryForObject(
+                "SELECT relkind::text FROM pg_class WHERE oid = 'transacciones'::regclass", String.class));
+
+        Cliente cliente = crearCliente();
+        Producto cuenta = crearCuenta(cliente, Producto.TipoCuenta.CUENTA_CORRIENTE, "0");
+        transaccionRepository.aplicarMovimiento(cuenta.getId(), Transaccion.TipoTransaccion.CONSIGNACION,
+                Transaccion.TipoMovimiento.CREDITO, BigDecimal.TEN, null);
+
+        assertEquals("transacciones_p" + YearMonth.now().format(FORMATO_MES), jdbcTemplate.queryForObject(
+                "SELECT tableoid::regclass::text FROM transacciones", String.class));
+    }
+
+    @Test
+    void estadoCuentaConRangoDeFechas_soloRecorreLasParticionesDelRango() {
+        YearMonth mes = YearMonth.now();
+        String plan = String.join("\n", jdbcTemplate.queryForList("""
+                EXPLAIN SELECT * FROM transacciones
+                 WHERE cuenta_origen_id = 1 AND fecha_transaccion >= TIMESTAMP '%s 00:00'
+                   AND fecha_transaccion < TIMESTAMP '%s 00:00'
+                """.formatted(mes.atDay(1), mes.plusMonths(1).atDay(1)), String.class));
+
+        String siguiente = "transacciones_p" + mes.plusMonths(1).format(FORMATO_MES);
+        assertTrue(plan.contains("transacciones_p" + mes.format(FORMATO_MES)), plan);
+        assertFalse(plan.contains(siguiente), plan);
+    }
+
+    @Test
+    void separarParticiones_dejaLaParticionComoTablaIndependiente() {
+        jdbcTemplate.queryForObject("SELECT crear_particion_transacciones(DATE '2020-01-01')", Boolean.class);
+
+        particionesService.separarParticiones(YearMonth.of(2020, 2));
+
+        List<String> particiones = jdbcTemplate.queryForList(
+                "SELECT inhrelid::regclass::text FROM pg_inherits WHERE inhparent = 'transacciones'::regclass",
+                String.class);
+        assertFalse(particiones.contains("transacciones_p2020_01"));
+        assertNotNull(jdbcTemplate.queryForObject("SELECT to_regclass('transacciones_p2020_01')::text", String.class));
+        jdbcTemplate.execute("DROP TABLE transacciones_p2020_01");
+    }
+}
@@ -0,0 +1,36 @@
+package com.financiera.backend.repository;
+
+import com.financiera.backend.dto.ProductoDTO;
+import com.financiera.backend.entity.Cliente;
+import com.financiera.backend.entity.Producto;
+import com.financiera.backend.soporte.IntegracionPostgres;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductoRepositoryIntegracionTest extends IntegracionPostgres {
+
+    @Test
+    void buscarPagina_aplicaFiltrosYContinuaDesdeElCursor() {
+        Cliente cliente = crearCliente();
+        Producto primera = crearCuenta(cliente, Producto.TipoCuenta.CUENTA_AHORROS, "0");
+        crearCuenta(cliente, Producto.TipoCuenta.CUENTA_CORRIENTE, "0");
+        Producto segunda = crearCuenta(cliente, Producto.TipoCuenta.CUENTA_AHORROS, "0");
+        Producto tercera = crearCuenta(cliente, Producto.TipoCuenta.CUENTA_AHORROS, "0");
+
+        List<ProductoDTO> pagina = productoRepository.buscarPagina(null, Producto.EstadoCuenta.ACTIVA,
+                Producto.TipoCuenta.CUENTA_AHORROS, LocalDate.now().atStartOfDay(), null, Limit.of(2));
+
+        assertEquals(List.of(primera.getId(), segunda.getId()), pagina.stream().map(ProductoDTO::getId).toList());
+        assertEquals(cliente.getNombres() + " " + cliente.getApellido(), pagina.get(0).getNombreCliente());
+
+        List<ProductoDTO> siguiente = productoRepository.buscarPagina(segunda.getId(), null,
+                Producto.TipoCuenta.CUENTA_AHORROS, null, null, Limit.of(2));
+
+        assertEquals(List.of(tercera.getId()), siguiente.stream().map(ProductoDTO::getId).toList());
+    }
+}
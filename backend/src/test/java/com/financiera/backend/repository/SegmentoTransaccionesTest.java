@@ -0,0 +1,71 @@
+package com.financiera.backend.repository;
+
+import com.financiera.backend.dto.TransaccionDTO;
+import com.financiera.backend.entity.Transaccion;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentoTransaccionesTest {
+
+    @TempDir
+    private Path directorio;
+
+    @Test
+    void cuandoLeerCuenta_entoncesRetornaSusMovimientosTalComoSeEscribieron() throws IOException {
+        TransaccionDTO debito = movimiento(1L, 10L, 20L, Transaccion.TipoMovimiento.DEBITO, "Pago \"arriendo\"");
+        TransaccionDTO credito = movimiento(2L, 20L, 10L, Transaccion.TipoMovimiento.CREDITO, null);
+        TransaccionDTO consignacion = movimiento(3L, 30L, null, Transaccion.TipoMovimiento.CREDITO, "Consignación");
+        Path ruta = directorio.resolve("transacciones_p2024_01.0000.seg");
+
+        try (SegmentoTransacciones.Escritor escritor = new SegmentoTransacciones.Escritor(ruta)) {
+            escritor.agregar(10L, debito);
+            escritor.agregar(10L, credito);
+            escritor.agregar(20L, debito);
+            escritor.agregar(20L, credito);
+            escritor.agregar(30L, consignacion);
+            escritor.terminar();
+        }
+
+        SegmentoTransacciones segmento = SegmentoTransacciones.abrir(ruta);
+
+        assertEquals(List.of(debito, credito), segmento.movimientos(10L));
+        assertEquals(List.of(consignacion), segmento.movimientos(30L));
+        // Dentro del rango de cuentas pero sin movimientos, y fuera del rango
+        assertEquals(List.of(), segmento.movimientos(25L));
+        assertFalse(segmento.podriaContener(31L));
+        assertFalse(Files.exists(directorio.resolve("transacciones_p2024_01.0000.seg.tmp")));
+    }
+
+    @Test
+    void cuandoElEscritorNoTermina_entoncesNoQuedaArchivo() throws IOException {
+        Path ruta = directorio.resolve("transacciones_p2024_02.0000.seg");
+
+        try (SegmentoTransacciones.Escritor escritor = new SegmentoTransacciones.Escritor(ruta)) {
+            escritor.agregar(10L, movimiento(1L, 10L, null, Transaccion.TipoMovimiento.CREDITO, null));
+            assertThrows(IllegalStateException.class,
+                    () -> escritor.agregar(5L, movimiento(2L, 5L, null, Transaccion.TipoMovimiento.CREDITO, null)));
+        }
+
+        try (var archivos = Files.list(directorio)) {
+            assertEquals(0, archivos.count());
+        }
+    }
+
+    private static TransaccionDTO movimiento(Long id, Long origen, Long destino,
+                                             Transaccion.TipoMovimiento tipoMovimiento, String descripcion) {
+        return new TransaccionDTO(id,
+                destino == null ? Transaccion.TipoTransaccion.CONSIGNACION : Transaccion.TipoTransaccion.TRANSFERENCIA,
+                tipoMovimiento, new BigDecimal("1500.50"), descripcion,
+                LocalDateTime.of(2024, 1, 15, 9, 30, 12, 123_456_000),
+                origen, "53" + origen, destino, destino == null ? null : "33" + destino, new BigDecimal("-200.00"));
+    }
+}
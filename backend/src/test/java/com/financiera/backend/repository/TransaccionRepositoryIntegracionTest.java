@@ -0,0 +1,197 @@
+package com.financiera.backend.repository;
+
+import com.financiera.backend.dto.SaldoAFechaDTO;
+import com.financiera.backend.dto.TransaccionDTO;
+import com.financiera.backend.entity.Cliente;
+import com.financiera.backend.entity.Producto;
+import com.financiera.backend.entity.Transaccion;
+import com.financiera.backend.soporte.IntegracionPostgres;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransaccionRepositoryIntegracionTest extends IntegracionPostgres {
+
+    @Autowired
+    private TransaccionRepository transaccionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Producto ahorros;
+    private Producto corriente;
+
+    @BeforeEach
+    void setUp() {
+        Cliente cliente = crearCliente();
+        ahorros = crearCuenta(cliente, Producto.TipoCuenta.CUENTA_AHORROS, "1000");
+        corriente = crearCuenta(cliente, Producto.TipoCuenta.CUENTA_CORRIENTE, "0");
+    }
+
+    @Test
+    void aplicarMovimiento_registraElMovimientoEnUnaSentencia() throws Exception {
+        // Una sentencia para el movimiento y, cada 50 IDs, una para reservar el siguiente bloque
+        contadorSentencias.verificarPresupuesto("aplicarMovimiento", 2, () -> {
+            Optional<TransaccionDTO> retiro = transaccionRepository.aplicarMovimiento(ahorros.getId(),
+                    Transaccion.TipoTransaccion.RETIRO, Transaccion.TipoMovimiento.DEBITO,
+                    new BigDecimal("200.00"), "Retiro cajero");
+
+            assertTrue(retiro.isPresent());
+            assertEquals(0, new BigDecimal("800.00").compareTo(retiro.get().getSaldoAlRegistrar()));
+            assertEquals(ahorros.getNumeroCuenta(), retiro.get().getNumeroCuentaOrigen());
+        });
+
+        assertEquals(0, new BigDecimal("800.00").compareTo(
+                productoRepository.findById(ahorros.getId()).orElseThrow().getSaldo()));
+    }
+
+    @Test
+    void fechaUltimoMovimiento_seConservaAlConsolidar() {
+        assertNull(productoRepository.findById(corriente.getId()).orElseThrow().getFechaUltimoMovimiento());
+        TransaccionDTO consignacion = transaccionRepository.aplicarMovimiento(corriente.getId(),
+                Transaccion.TipoTransaccion.CONSIGNACION, Transaccion.TipoMovimiento.CREDITO,
+                new BigDecimal("200.00"), null).orElseThrow();
+
+        assertEquals(consignacion.getFechaTransaccion(),
+                productoRepository.findById(corriente.getId()).orElseThrow().getFechaUltimoMovimiento());
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(
+                estado -> productoRepository.consolidarSaldos(LocalDateTime.now().plusSeconds(1)));
+
+        assertEquals(consignacion.getFechaTransaccion(),
+                productoRepository.findById(corriente.getId()).orElseThrow().getFechaUltimoMovimiento());
+    }
+
+    @Test
+    void aplicarMovimiento_sinSaldoEnAhorros_noModificaNada() {
+        long antes = transaccionRepository.count();
+        Optional<TransaccionDTO> retiro = transaccionRepository.aplicarMovimiento(ahorros.getId(),
+                Transaccion.TipoTransaccion.RETIRO, Transaccion.TipoMovimiento.DEBITO,
+                new BigDecimal("1000.01"), null);
+
+        assertTrue(retiro.isEmpty());
+        assertEquals(antes, transaccionRepository.count());
+    }
+
+    @Test
+    void aplicarTransferencia_retornaDebitoYCredito() {
+        List<TransaccionDTO> movimientos = transaccionRepository.aplicarTransferencia(
+                ahorros.getId(), corriente.getId(), new BigDecimal("250.00"), null);
+
+        assertEquals(2, movimientos.size());
+        assertEquals(Transaccion.TipoMovimiento.DEBITO, movimientos.get(0).getTipoMovimiento());
+        assertEquals("Transferencia a cuenta " + corriente.getNumeroCuenta(), movimientos.get(0).getDescripcion());
+        assertEquals(0, new BigDecimal("250.00").compareTo(movimientos.get(1).getSaldoAlRegistrar()));
+    }
+
+    @Test
+    void cuentaFranjeada_sumaLasFranjasYValidaElDebitoContraElAgregado() {
+        franjear(ahorros, 4);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(transaccionRepository.aplicarMovimiento(ahorros.getId(),
+                    Transaccion.TipoTransaccion.CONSIGNACION, Transaccion.TipoMovimiento.CREDITO,
+                    new BigDecimal("100.00"), null).isPresent());
+        }
+        assertEquals(0, new BigDecimal("300.00").compareTo(jdbcTemplate.queryForObject(
+                "SELECT SUM(saldo) FROM franjas_saldo WHERE cuenta_id = ?", BigDecimal.class, ahorros.getId())));
+
+        Optional<TransaccionDTO> excedido = transaccionRepository.aplicarMovimiento(ahorros.getId(),
+                Transaccion.TipoTransaccion.RETIRO, Transaccion.TipoMovimiento.DEBITO,
+                new BigDecimal("1300.01"), null);
+        Optional<TransaccionDTO> retiro = transaccionRepository.aplicarMovimiento(ahorros.getId(),
+                Transaccion.TipoTransaccion.RETIRO, Transaccion.TipoMovimiento.DEBITO,
+                new BigDecimal("1300.00"), null);
+
+        assertTrue(excedido.isEmpty());
+        assertTrue(retiro.isPresent());
+        assertEquals(0, retiro.get().getSaldoAlRegistrar().signum());
+        Producto cuenta = productoRepository.findById(ahorros.getId()).orElseThrow();
+        assertEquals(0, cuenta.getSaldo().signum());
+        assertEquals(4, cuenta.getFranjasSaldo());
+    }
+
+    @Test
+    void insertarMovimientos_enviaUnSoloLote() throws Exception {
+        long antes = transaccionRepository.count();
+        List<TransaccionDTO> movimientos = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            TransaccionDTO movimiento = new TransaccionDTO();
+            movimiento.setTipoTransaccion(Transaccion.TipoTransaccion.CONSIGNACION);
+            movimiento.setTipoMovimiento(Transaccion.TipoMovimiento.CREDITO);
+            movimiento.setMonto(BigDecimal.ONE);
+            movimiento.setCuentaOrigenId(corriente.getId());
+            movimiento.setSaldoAlRegistrar(BigDecimal.valueOf(i + 1));
+            movimientos.add(movimiento);
+        }
+
+        // Una consulta reserva los bloques de IDs y un lote inserta todas las filas
+        contadorSentencias.verificarPresupuesto("insertarMovimientos", 2, () ->
+                transaccionRepository.insertarMovimientos(movimientos));
+
+        assertEquals(antes + 120, transaccionRepository.count());
+        assertEquals(120, movimientos.stream().map(TransaccionDTO::getId).distinct().count());
+    }
+
+    @Test
+    void buscarEstadoCuenta_recorreLasPaginasSinRepetirNiOmitirFilas() {
+        for (int i = 0; i < 7; i++) {
+            transaccionRepository.aplicarTransferencia(ahorros.getId(), corriente.getId(), BigDecimal.TEN, null);
+        }
+
+        List<Long> vistos = new ArrayList<>();
+        List<TransaccionDTO> pagina = transaccionRepository.buscarEstadoCuenta(
+                corriente.getId(), null, null, null, null, null, 3);
+        while (!pagina.isEmpty()) {
+            pagina.forEach(movimiento -> vistos.add(movimiento.getId()));
+            TransaccionDTO ultimo = pagina.get(pagina.size() - 1);
+            pagina = transaccionRepository.buscarEstadoCuenta(corriente.getId(), null, null, null,
+                    ultimo.getFechaTransaccion(), ultimo.getId(), 3);
+        }
+
+        // La cuenta aparece en las dos filas de cada transferencia: como destino del débito y origen del crédito
+        assertEquals(14, vistos.size());
+        assertEquals(14, vistos.stream().distinct().count());
+    }
+
+    @Test
+    void buscarSaldosAFecha_sumaLosMovimientosPropiosDeCadaCuenta() throws Exception {
+        transaccionRepository.aplicarTransferencia(ahorros.getId(), corriente.getId(), new BigDecimal("300"), null);
+        LocalDateTime despuesDeTransferir = LocalDateTime.now();
+        Thread.sleep(5);
+        transaccionRepository.aplicarMovimiento(ahorros.getId(), Transaccion.TipoTransaccion.CONSIGNACION,
+                Transaccion.TipoMovimiento.CREDITO, new BigDecimal("50"), null);
+
+        // Una sola sentencia para todas las cuentas; la inexistente se omite
+        contadorSentencias.verificarPresupuesto("buscarSaldosAFecha", 1, () -> {
+            List<SaldoAFechaDTO> saldos = transaccionRepository.buscarSaldosAFecha(
+                    List.of(corriente.getId(), -1L, ahorros.getId()), despuesDeTransferir, null);
+
+            assertEquals(2, saldos.size());
+            assertEquals(corriente.getId(), saldos.get(0).getCuentaId());
+            assertEquals(0, new BigDecimal("300").compareTo(saldos.get(0).getSaldo()));
+            // El crédito de la transferencia tiene a ahorros como destino, pero el saldo es el de corriente
+            assertEquals(0, new BigDecimal("700").compareTo(saldos.get(1).getSaldo()));
+        });
+
+        assertEquals(0, new BigDecimal("750").compareTo(transaccionRepository.buscarSaldosAFecha(
+                List.of(ahorros.getId()), LocalDateTime.now(), null).get(0).getSaldo()));
+    }
+
+    // Como ProductoService.configurarFranjas, sin exigir la cuenta inactiva
+    private void franjear(Producto cuenta, int franjas) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(estado -> {
+            productoRepository.reiniciarFranjas(cuenta.getId(), franjas);
+            productoRepository.crearFranjas(cuenta.getId(), franjas);
+        });
+    }
+}
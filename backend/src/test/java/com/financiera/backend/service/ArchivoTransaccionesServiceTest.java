@@ -0,0 +1,144 @@
+package com.financiera.backend.service;
+
+import com.financiera.backend.dto.TransaccionDTO;
+import com.financiera.backend.entity.Transaccion;
+import com.financiera.backend.repository.CierreMensualRepository;
+import com.financiera.backend.repository.TransaccionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ArchivoTransaccionesServiceTest {
+
+    private static final String PARTICION = "transacciones_p2024_01";
+
+    @Mock
+    private TransaccionRepository transaccionRepository;
+
+    @Mock
+    private CierreMensualRepository cierreMensualRepository;
+
+    @Mock
+    private ParticionesTransaccionesService particionesService;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    private Path directorio;
+
+    private ArchivoTransaccionesService archivoService;
+
+    private final TransaccionDTO deposito = movimiento(1L, 10L, null, Transaccion.TipoMovimiento.CREDITO, 5, "1000.00");
+    private final TransaccionDTO debito = movimiento(2L, 10L, 20L, Transaccion.TipoMovimiento.DEBITO, 10, "600.00");
+    private final TransaccionDTO credito = movimiento(3L, 20L, 10L, Transaccion.TipoMovimiento.CREDITO, 10, "400.00");
+    private final TransaccionDTO retiro = movimiento(4L, 10L, null, Transaccion.TipoMovimiento.DEBITO, 20, "500.00");
+
+    @BeforeEach
+    void setUp() {
+        archivoService = new ArchivoTransaccionesService(transaccionRepository, cierreMensualRepository,
+                particionesService, jdbcTemplate, transactionManager, true, directorio.toString(), 3, Duration.ZERO);
+    }
+
+    private void archivarEnero() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), any())).thenReturn(true);
+        when(cierreMensualRepository.buscarUltimoPeriodo()).thenReturn(Optional.of(LocalDate.of(2024, 1, 1)));
+        when(particionesService.particionesTerminadasAntesDe(YearMonth.of(2024, 2))).thenReturn(List.of(PARTICION));
+        // Ordenados por (cuenta, fecha, id): la transferencia aparece en las dos cuentas
+        doAnswer(invocacion -> {
+            BiConsumer<Long, TransaccionDTO> consumidor = invocacion.getArgument(1);
+            consumidor.accept(10L, deposito);
+            consumidor.accept(10L, debito);
+            consumidor.accept(10L, credito);
+            consumidor.accept(10L, retiro);
+            consumidor.accept(20L, debito);
+            consumidor.accept(20L, credito);
+            return null;
+        }).when(transaccionRepository).recorrerParticion(eq(PARTICION), any());
+
+        archivoService.archivar();
+    }
+
+    @Test
+    void cuandoArchivar_entoncesLaFronteraAvanzaYLosMovimientosSeLeenDelArchivo() {
+        archivarEnero();
+
+        assertEquals(LocalDateTime.of(2024, 2, 1, 0, 0), archivoService.frontera());
+        // Del más reciente al más antiguo, continuando después del cursor
+        assertEquals(List.of(retiro, credito),
+                archivoService.buscarEstadoCuenta(10L, null, null, null, null, null, 2));
+        assertEquals(List.of(debito, deposito),
+                archivoService.buscarEstadoCuenta(10L, null, null, null, credito.getFechaTransaccion(), 3L, 5));
+        assertEquals(List.of(retiro, debito),
+                archivoService.buscarEstadoCuenta(10L, null, null, Transaccion.TipoMovimiento.DEBITO, null, null, 5));
+
+        List<TransaccionDTO> recorridos = new ArrayList<>();
+        archivoService.recorrerEstadoCuenta(20L, null, null, null, recorridos::add);
+        assertEquals(List.of(debito, credito), recorridos);
+
+        // Solo los movimientos en que la cuenta es origen
+        assertEquals(List.of(deposito, debito, retiro), archivoService.buscarMovimientosPropios(10L,
+                LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 2, 1, 0, 0)));
+        assertEquals(Optional.of(debito),
+                archivoService.buscarUltimoMovimientoPropio(10L, LocalDateTime.of(2024, 1, 15, 0, 0)));
+        verify(particionesService, never()).eliminarParticion(anyString());
+    }
+
+    @Test
+    void cuandoArchivarDeNuevo_entoncesEliminaLaParticionYaArchivadaSinReescribirla() throws Exception {
+        archivarEnero();
+        Files.setLastModifiedTime(directorio.resolve(PARTICION + ".completo"),
+                FileTime.from(Instant.now().minusSeconds(60)));
+
+        archivoService.archivar();
+
+        verify(transaccionRepository, times(1)).recorrerParticion(eq(PARTICION), any());
+        verify(particionesService).eliminarParticion(PARTICION);
+    }
+
+    @Test
+    void cuandoOtroNodoEstaArchivando_entoncesNoHaceNada() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), any())).thenReturn(false);
+
+        archivoService.archivar();
+
+        assertNull(archivoService.frontera());
+        verifyNoInteractions(particionesService, transaccionRepository);
+    }
+
+    private static TransaccionDTO movimiento(Long id, Long origen, Long destino,
+                                             Transaccion.TipoMovimiento tipoMovimiento, int dia, String saldo) {
+        return new TransaccionDTO(id,
+                destino == null ? Transaccion.TipoTransaccion.CONSIGNACION : Transaccion.TipoTransaccion.TRANSFERENCIA,
+                tipoMovimiento, new BigDecimal("100.00"), "Movimiento " + id,
+                LocalDateTime.of(2024, 1, dia, 12, 0), origen, "53" + origen,
+                destino, destino == null ? null : "53" + destino, new BigDecimal(saldo));
+    }
+}
@@ -0,0 +1,62 @@
+package com.financiera.backend.service;
+
+import com.financiera.backend.repository.ProductoRepository;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BloqueoCuentasServiceTest {
+
+    @Mock
+    private ProductoRepository productoRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private BloqueoCuentasService bloqueoCuentasService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        bloqueoCuentasService = new BloqueoCuentasService(productoRepository, meterRegistry, 200);
+    }
+
+    @Test
+    void cuandoBloquearSaldos_entoncesBloqueaLasFilasDeSaldo() {
+        when(productoRepository.bloquearSaldos(List.of(9L, 2L))).thenReturn(List.of(2L, 9L));
+
+        bloqueoCuentasService.bloquearSaldos("lote", List.of(9L, 2L));
+
+        verify(productoRepository).bloquearSaldos(List.of(9L, 2L));
+    }
+
+    @Test
+    void cuandoBloquearSaldos_entoncesRegistraTiempoDeEsperaPorOperacion() {
+        when(productoRepository.bloquearSaldos(anyCollection())).thenReturn(List.of(1L));
+
+        bloqueoCuentasService.bloquearSaldos("retiro", List.of(1L));
+        bloqueoCuentasService.bloquearSaldos("retiro", List.of(3L));
+
+        Timer timer = meterRegistry.find("cuentas.bloqueo.espera")
+                .tag("operacion", "retiro")
+                .timer();
+
+        assertNotNull(timer);
+        assertEquals(2, timer.count());
+    }
+
+    @Test
+    void cuandoNoHayCuentas_entoncesNoConsultaLaBaseDeDatos() {
+        bloqueoCuentasService.bloquearSaldos("lote", List.of());
+
+        verifyNoInteractions(productoRepository);
+    }
+}
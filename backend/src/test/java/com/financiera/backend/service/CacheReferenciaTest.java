@@ -0,0 +1,114 @@
+package com.financiera.backend.service;
+
+import com.financiera.backend.dto.ProductoDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class CacheReferenciaTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private CacheReferencia cache;
+    private AtomicInteger cargas;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new CacheReferencia(mock(PlatformTransactionManager.class), meterRegistry,
+                new LecturasCompartidas(meterRegistry), 100, Duration.ofMinutes(5));
+        cargas = new AtomicInteger();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void cuandoElProductoEstaEnCache_entoncesNoLoCargaDeNuevo() {
+        cache.producto(1L, () -> cargar(1L, "100"));
+        Optional<ProductoDTO> segundo = cache.producto(1L, () -> cargar(1L, "200"));
+
+        assertEquals(new BigDecimal("100"), segundo.orElseThrow().getSaldo());
+        assertEquals(1, cargas.get());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "productos").tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    void cuandoSeInvalida_entoncesLaSiguienteLecturaCargaElSaldoNuevo() {
+        cache.producto(1L, () -> cargar(1L, "100"));
+
+        cache.invalidarProductos(List.of(1L));
+
+        assertEquals(new BigDecimal("200"), cache.producto(1L, () -> cargar(1L, "200")).orElseThrow().getSaldo());
+        assertEquals(2, cargas.get());
+    }
+
+    @Test
+    void cuandoSeInvalidaDuranteUnaCarga_entoncesElValorCargadoNoSeGuarda() {
+        // La carga lee el saldo viejo y, antes de que termine, otra transacción invalida la cuenta
+        cache.producto(1L, () -> {
+            Optional<ProductoDTO> viejo = cargar(1L, "100");
+            cache.invalidarProductos(List.of(1L));
+            return viejo;
+        });
+
+        assertEquals(new BigDecimal("200"), cache.producto(1L, () -> cargar(1L, "200")).orElseThrow().getSaldo());
+    }
+
+    @Test
+    void cuandoLaTransaccionTermina_entoncesInvalidaOtraVez() {
+        TransactionSynchronizationManager.initSynchronization();
+        cache.invalidarProductos(List.of(1L));
+
+        // Otra petición carga el saldo anterior al commit después de la primera invalidación
+        cache.producto(1L, () -> cargar(1L, "100"));
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sincronizacion -> sincronizacion.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        assertEquals(new BigDecimal("200"), cache.producto(1L, () -> cargar(1L, "200")).orElseThrow().getSaldo());
+    }
+
+    @Test
+    void cuandoCambiaUnCliente_entoncesInvalidaSusProductos() {
+        cache.producto(1L, () -> cargar(1L, "100"));
+        cache.producto(2L, () -> cargar(2L, "100"));
+
+        cache.invalidarProductosDeCliente(7L);
+        cache.producto(1L, () -> cargar(1L, "100"));
+        cache.producto(2L, () -> cargar(2L, "100"));
+
+        assertEquals(4, cargas.get());
+    }
+
+    @Test
+    void cuandoNoExiste_entoncesNoGuardaLaAusencia() {
+        assertTrue(cache.producto(9L, Optional::empty).isEmpty());
+        assertTrue(cache.producto(9L, () -> cargar(9L, "100")).isPresent());
+    }
+
+    private Optional<ProductoDTO> cargar(Long id, String saldo) {
+        cargas.incrementAndGet();
+        ProductoDTO producto = new ProductoDTO();
+        producto.setId(id);
+        producto.setClienteId(7L);
+        producto.setSaldo(new BigDecimal(saldo));
+        return Optional.of(producto);
+    }
+}
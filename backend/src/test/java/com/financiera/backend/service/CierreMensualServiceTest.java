@@ -0,0 +1,208 @@
+package com.financiera.backend.service;
+
+import com.financiera.backend.dto.PeriodoEstadoCuentaDTO;
+import com.financiera.backend.dto.ProductoDTO;
+import com.financiera.backend.dto.TransaccionDTO;
+import com.financiera.backend.entity.CierreMensual;
+import com.financiera.backend.entity.Transaccion;
+import com.financiera.backend.exception.clientes.RecursoNoEncontradoException;
+import com.financiera.backend.exception.transacciones.CierreNoDisponibleException;
+import com.financiera.backend.exception.transacciones.ParametroConsultaInvalidoException;
+import com.financiera.backend.repository.CierreMensualRepository;
+import com.financiera.backend.repository.ProductoRepository;
+import com.financiera.backend.repository.TransaccionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CierreMensualServiceTest {
+
+    @Mock
+    private CierreMensualRepository cierreMensualRepository;
+
+    @Mock
+    private ProductoRepository productoRepository;
+
+    @Mock
+    private TransaccionRepository transaccionRepository;
+
+    @Mock
+    private ArchivoTransaccionesService archivoTransacciones;
+
+    @Mock
+    private ParticionesTransaccionesService particionesService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CierreMensualService cierreMensualService;
+
+    private final YearMonth actual = YearMonth.now();
+
+    @BeforeEach
+    void setUp() {
+        cierreMensualService = new CierreMensualService(
+                cierreMensualRepository, productoRepository, transaccionRepository, archivoTransacciones,
+                particionesService, transactionManager);
+    }
+
+    @Test
+    void cuandoObtenerPeriodoCerrado_entoncesLeeElCierreYLosMovimientosDelMes() {
+        YearMonth periodo = actual.minusMonths(3);
+        CierreMensual cierre = new CierreMensual(1L, periodo.atDay(1), new BigDecimal("100"), new BigDecimal("600"),
+                new BigDecimal("700"), new BigDecimal("200"), 2L, LocalDateTime.now());
+        List<TransaccionDTO> movimientos = List.of(movimiento(Transaccion.TipoMovimiento.CREDITO, "700"),
+                movimiento(Transaccion.TipoMovimiento.DEBITO, "200"));
+        when(cierreMensualRepository.findById(new CierreMensual.Clave(1L, periodo.atDay(1))))
+                .thenReturn(Optional.of(cierre));
+        when(transaccionRepository.buscarMovimientosPeriodo(1L, periodo.atDay(1).atStartOfDay(),
+                periodo.plusMonths(1).atDay(1).atStartOfDay())).thenReturn(movimientos);
+
+        PeriodoEstadoCuentaDTO resultado = cierreMensualService.obtenerPeriodo(1L, periodo);
+
+        assertTrue(resultado.getCerrado());
+        assertEquals(new BigDecimal("100"), resultado.getSaldoApertura());
+        assertEquals(new BigDecimal("600"), resultado.getSaldoCierre());
+        assertEquals(2L, resultado.getCantidadMovimientos());
+        assertEquals(movimientos, resultado.getMovimientos());
+        verifyNoInteractions(productoRepository);
+    }
+
+    @Test
+    void cuandoObtenerMesEnCurso_entoncesParteDelCierreAnteriorYSumaLosMovimientos() {
+        when(cierreMensualRepository.findById(new CierreMensual.Clave(1L, actual.minusMonths(1).atDay(1))))
+                .thenReturn(Optional.of(new CierreMensual(1L, actual.minusMonths(1).atDay(1), BigDecimal.ZERO,
+                        new BigDecimal("600"), new BigDecimal("600"), BigDecimal.ZERO, 1L, LocalDateTime.now())));
+        when(transaccionRepository.buscarMovimientosPeriodo(eq(1L), any(), any())).thenReturn(List.of(
+                movimiento(Transaccion.TipoMovimiento.CREDITO, "50"),
+                movimiento(Transaccion.TipoMovimiento.DEBITO, "20"),
+                movimiento(Transaccion.TipoMovimiento.DEBITO, "10")));
+
+        PeriodoEstadoCuentaDTO resultado = cierreMensualService.obtenerPeriodo(1L, actual);
+
+        assertFalse(resultado.getCerrado());
+        assertEquals(new BigDecimal("600"), resultado.getSaldoApertura());
+        assertEquals(new BigDecimal("620"), resultado.getSaldoCierre());
+        assertEquals(new BigDecimal("50"), resultado.getTotalCreditos());
+        assertEquals(new BigDecimal("30"), resultado.getTotalDebitos());
+        assertEquals(3L, resultado.getCantidadMovimientos());
+    }
+
+    @Test
+    void cuandoObtenerMesEnCursoDeCuentaNueva_entoncesLaAperturaEsCero() {
+        ProductoDTO cuenta = new ProductoDTO();
+        cuenta.setFechaCreacion(actual.atDay(1).atTime(9, 0));
+        when(cierreMensualRepository.findById(any())).thenReturn(Optional.empty());
+        when(productoRepository.buscarDTOPorId(1L)).thenReturn(Optional.of(cuenta));
+        when(transaccionRepository.buscarMovimientosPeriodo(eq(1L), any(), any()))
+                .thenReturn(List.of(movimiento(Transaccion.TipoMovimiento.CREDITO, "80")));
+
+        PeriodoEstadoCuentaDTO resultado = cierreMensualService.obtenerPeriodo(1L, actual);
+
+        assertEquals(BigDecimal.ZERO, resultado.getSaldoApertura());
+        assertEquals(new BigDecimal("80"), resultado.getSaldoCierre());
+    }
+
+    @Test
+    void cuandoObtenerPeriodoSinCierre_entoncesLanzaCierreNoDisponible() {
+        when(cierreMensualRepository.findById(any())).thenReturn(Optional.empty());
+        when(productoRepository.existsById(1L)).thenReturn(true);
+
+        assertThrows(CierreNoDisponibleException.class,
+                () -> cierreMensualService.obtenerPeriodo(1L, actual.minusMonths(1)));
+        verifyNoInteractions(transaccionRepository);
+    }
+
+    @Test
+    void cuandoObtenerPeriodoDeCuentaInexistente_entoncesLanzaRecursoNoEncontrado() {
+        when(cierreMensualRepository.findById(any())).thenReturn(Optional.empty());
+        when(productoRepository.existsById(99L)).thenReturn(false);
+
+        assertThrows(RecursoNoEncontradoException.class,
+                () -> cierreMensualService.obtenerPeriodo(99L, actual.minusMonths(1)));
+    }
+
+    @Test
+    void cuandoObtenerPeriodoFuturo_entoncesLanzaExcepcion() {
+        assertThrows(ParametroConsultaInvalidoException.class,
+                () -> cierreMensualService.obtenerPeriodo(1L, actual.plusMonths(1)));
+        verifyNoInteractions(cierreMensualRepository, transaccionRepository);
+    }
+
+    @Test
+    void cuandoGenerarCierres_entoncesRecorreLasCuentasPorBloquesDeId() {
+        YearMonth periodo = actual.minusMonths(1);
+        int bloque = CierreMensualService.CUENTAS_POR_BLOQUE;
+        when(productoRepository.buscarMayorId()).thenReturn(Optional.of((long) bloque + 5));
+        when(cierreMensualRepository.generarCierres(eq(periodo), anyLong(), anyLong())).thenReturn(bloque - 1, 6);
+
+        int generados = cierreMensualService.generarCierres(periodo);
+
+        assertEquals(bloque + 5, generados);
+        verify(cierreMensualRepository).generarCierres(periodo, 0, bloque);
+        verify(cierreMensualRepository).generarCierres(periodo, bloque, 2L * bloque);
+    }
+
+    @Test
+    void cuandoGenerarPendientes_entoncesContinuaDesdeElUltimoPeriodoConCierres() {
+        when(cierreMensualRepository.buscarUltimoPeriodo())
+                .thenReturn(Optional.of(actual.minusMonths(2).atDay(1)));
+        when(productoRepository.buscarMayorId()).thenReturn(Optional.of(10L));
+
+        cierreMensualService.generarPendientes();
+
+        // El último periodo se repite por si quedó a medias; el mes en curso todavía no se cierra
+        verify(cierreMensualRepository).generarCierres(actual.minusMonths(2), 0, CierreMensualService.CUENTAS_POR_BLOQUE);
+        verify(cierreMensualRepository).generarCierres(actual.minusMonths(1), 0, CierreMensualService.CUENTAS_POR_BLOQUE);
+        verify(cierreMensualRepository, never()).generarCierres(eq(actual), anyLong(), anyLong());
+        verify(productoRepository, never()).buscarPrimeraFechaCreacion();
+    }
+
+    @Test
+    void cuandoGenerarPendientesConMesesSeparados_entoncesEmpiezaEnLaParticionAdjuntaMasAntigua() {
+        when(productoRepository.buscarPrimeraFechaCreacion())
+                .thenReturn(Optional.of(actual.minusMonths(6).atDay(1).atStartOfDay()));
+        when(particionesService.primerMesEnBase()).thenReturn(Optional.of(actual.minusMonths(2)));
+        when(productoRepository.buscarMayorId()).thenReturn(Optional.of(10L));
+
+        cierreMensualService.generarPendientes();
+
+        verify(cierreMensualRepository).generarCierres(actual.minusMonths(2), 0, CierreMensualService.CUENTAS_POR_BLOQUE);
+        verify(cierreMensualRepository).generarCierres(actual.minusMonths(1), 0, CierreMensualService.CUENTAS_POR_BLOQUE);
+        verify(cierreMensualRepository, times(2)).generarCierres(any(), anyLong(), anyLong());
+    }
+
+    @Test
+    void cuandoGenerarCierresDeUnMesArchivado_entoncesLanzaCierreNoDisponible() {
+        when(particionesService.primerMesEnBase()).thenReturn(Optional.of(actual.minusMonths(6)));
+        when(archivoTransacciones.frontera()).thenReturn(actual.minusMonths(3).atDay(1).atStartOfDay());
+
+        assertThrows(CierreNoDisponibleException.class,
+                () -> cierreMensualService.generarCierres(actual.minusMonths(4)));
+
+        verifyNoInteractions(cierreMensualRepository);
+    }
+
+    // Metodos auxiliares
+
+    private static TransaccionDTO movimiento(Transaccion.TipoMovimiento tipo, String monto) {
+        TransaccionDTO dto = new TransaccionDTO();
+        dto.setTipoMovimiento(tipo);
+        dto.setMonto(new BigDecimal(monto));
+        return dto;
+    }
+}
@@ -1,6 +1,8 @@
 package com.financiera.backend.service;
 
 import com.financiera.backend.dto.ClienteDTO;
+import com.financiera.backend.dto.FiltroClientesDTO;
+import com.financiera.backend.dto.PaginaDTO;
 import com.financiera.backend.entity.Cliente;
 import com.financiera.backend.exception.clientes.ClienteMenorDeEdadException;
 import com.financiera.backend.exception.clientes.DatoDuplicadoException;
@@ -13,12 +15,17 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -30,6 +37,12 @@ class ClienteServiceTest {
     @Mock
     private ProductoRepository productoRepository;
 
+    @Mock
+    private IndiceDuplicadosClientes indiceDuplicados;
+
+    @Mock
+    private CacheReferencia cacheReferencia;
+
     @InjectMocks
     private ClienteService clienteService;
 
@@ -60,9 +73,7 @@ class ClienteServiceTest {
     @Test
     void cuandoCrearCliente_entoncesRetornaClienteCreado() {
 
-        when(clienteRepository.existsByNumeroIdentificacion(anyString())).thenReturn(false);
-        when(clienteRepository.existsByCorreoElectronico(anyString())).thenReturn(false);
-        when(clienteRepository.save(any(Cliente.class))).thenReturn(cliente);
+        when(clienteRepository.saveAndFlush(any(Cliente.class))).thenReturn(cliente);
 
         ClienteDTO resultado = clienteService.crearCliente(clienteDTO);
 
@@ -70,7 +81,11 @@ class ClienteServiceTest {
         assertEquals("Juan Carlos", resultado.getNombres());
         assertEquals("1234567890", resultado.getNumeroIdentificacion());
 
-        verify(clienteRepository, times(1)).save(any(Cliente.class));
+        // El índice descartó ambos valores, así que no se consulta la base
+        verify(clienteRepository, never()).existsByNumeroIdentificacion(anyString());
+        verify(clienteRepository, never()).existsByCorreoElectronico(anyString());
+        verify(clienteRepository, times(1)).saveAndFlush(any(Cliente.class));
+        verify(indiceDuplicados).registrar("1234567890", "juan.perez@example.com");
     }
 
     @Test
@@ -82,22 +97,66 @@ class ClienteServiceTest {
             clienteService.crearCliente(clienteDTO);
         });
 
-        verify(clienteRepository, never()).save(any(Cliente.class));
+        verify(clienteRepository, never()).saveAndFlush(any(Cliente.class));
     }
 
     @Test
     void cuandoCrearClienteConIdentificacionDuplicada_entoncesLanzaExcepcion() {
+        when(indiceDuplicados.podriaExistirIdentificacion("1234567890")).thenReturn(true);
         when(clienteRepository.existsByNumeroIdentificacion("1234567890")).thenReturn(true);
 
         assertThrows(DatoDuplicadoException.class, () -> {
             clienteService.crearCliente(clienteDTO);
         });
 
-        verify(clienteRepository, never()).save(any(Cliente.class));
+        verify(clienteRepository, never()).saveAndFlush(any(Cliente.class));
+    }
+
+    @Test
+    void cuandoCrearClienteYLaRestriccionUnicaFalla_entoncesLanzaDatoDuplicado() {
+        when(clienteRepository.saveAndFlush(any(Cliente.class))).thenThrow(new DataIntegrityViolationException(
+                "could not execute statement",
+                new RuntimeException("ERROR: duplicate key value violates unique constraint \"uk_correo\"\n"
+                        + "  Detail: Key (correo_electronico)=(juan.perez@example.com) already exists.")));
+
+        DatoDuplicadoException excepcion = assertThrows(DatoDuplicadoException.class, () -> {
+            clienteService.crearCliente(clienteDTO);
+        });
+
+        assertEquals("Ya existe un cliente con el correo: juan.perez@example.com", excepcion.getMessage());
+        verify(indiceDuplicados, never()).registrar(anyString(), anyString());
+    }
+
+    @Test
+    void cuandoObtenerClientesConMasFilasQueLaPagina_entoncesContinuaDesdeElUltimoId() {
+        ClienteDTO primero = new ClienteDTO();
+        primero.setId(10L);
+        ClienteDTO segundo = new ClienteDTO();
+        segundo.setId(11L);
+
+        FiltroClientesDTO filtro = new FiltroClientesDTO();
+        filtro.setTamano(1);
+        when(clienteRepository.buscarPagina(null, null, null, null, Limit.of(2)))
+                .thenReturn(List.of(primero, segundo));
+
+        PaginaDTO<ClienteDTO> pagina = clienteService.obtenerClientes(filtro);
+
+        assertEquals(List.of(primero), pagina.getContenido());
+        assertNotNull(pagina.getSiguienteCursor());
+
+        filtro.setCursor(pagina.getSiguienteCursor());
+        when(clienteRepository.buscarPagina(10L, null, null, null, Limit.of(2)))
+                .thenReturn(List.of(segundo));
+
+        PaginaDTO<ClienteDTO> siguiente = clienteService.obtenerClientes(filtro);
+
+        assertEquals(List.of(segundo), siguiente.getContenido());
+        assertNull(siguiente.getSiguienteCursor());
     }
 
     @Test
     void cuandoObtenerClientePorId_entoncesRetornaCliente() {
+        cargarSinCache(1L);
         when(clienteRepository.findById(1L)).thenReturn(Optional.of(cliente));
 
         ClienteDTO resultado = clienteService.obtenerClientePorId(1L);
@@ -109,6 +168,7 @@ class ClienteServiceTest {
 
     @Test
     void cuandoObtenerClienteInexistente_entoncesLanzaExcepcion() {
+        cargarSinCache(999L);
         when(clienteRepository.findById(999L)).thenReturn(Optional.empty());
 
         assertThrows(RecursoNoEncontradoException.class, () -> {
@@ -119,7 +179,7 @@ class ClienteServiceTest {
     @Test
     void cuandoActualizarCliente_entoncesRetornaClienteActualizado() {
         when(clienteRepository.findById(1L)).thenReturn(Optional.of(cliente));
-        when(clienteRepository.save(any(Cliente.class))).thenReturn(cliente);
+        when(clienteRepository.saveAndFlush(any(Cliente.class))).thenReturn(cliente);
 
         clienteDTO.setNumeroIdentificacion(cliente.getNumeroIdentificacion());
         clienteDTO.setCorreoElectronico(cliente.getCorreoElectronico());
@@ -128,7 +188,22 @@ class ClienteServiceTest {
         ClienteDTO resultado = clienteService.actualizarCliente(1L, clienteDTO);
 
         assertNotNull(resultado);
-        verify(clienteRepository, times(1)).save(any(Cliente.class));
+        verify(clienteRepository, times(1)).saveAndFlush(any(Cliente.class));
+        verify(cacheReferencia).invalidarCliente(1L);
+        verify(cacheReferencia).invalidarProductosDeCliente(1L);
+        // Cambió el nombre, que aparece en el DTO de cada producto
+        verify(productoRepository).incrementarVersionPorCliente(1L);
+    }
+
+    @Test
+    void cuandoActualizarClienteSinCambiarElNombre_entoncesNoCambiaLaVersionDeSusProductos() {
+        when(clienteRepository.findById(1L)).thenReturn(Optional.of(cliente));
+        when(clienteRepository.saveAndFlush(any(Cliente.class))).thenReturn(cliente);
+
+        clienteDTO.setFechaNacimiento(LocalDate.of(1991, 1, 1));
+        clienteService.actualizarCliente(1L, clienteDTO);
+
+        verify(productoRepository, never()).incrementarVersionPorCliente(anyLong());
     }
 
     @Test
@@ -140,4 +215,11 @@ class ClienteServiceTest {
 
         verify(clienteRepository, times(1)).delete(cliente);
     }
-}
\ No newline at end of file
+
+    // La cache simulada siempre falla y delega en la carga
+    @SuppressWarnings("unchecked")
+    private void cargarSinCache(Long id) {
+        when(cacheReferencia.cliente(eq(id), any()))
+                .thenAnswer(invocacion -> ((Supplier<Optional<ClienteDTO>>) invocacion.getArgument(1)).get());
+    }
+}
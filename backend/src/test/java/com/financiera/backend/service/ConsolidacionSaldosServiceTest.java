@@ -0,0 +1,82 @@
+package com.financiera.backend.service;
+
+import com.financiera.backend.repository.ProductoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConsolidacionSaldosServiceTest {
+
+    private static final LocalDateTime CORTE = LocalDateTime.of(2025, 3, 10, 8, 0, 5);
+
+    @Mock
+    private ProductoRepository productoRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ConsolidacionSaldosService consolidacionService;
+
+    @BeforeEach
+    void setUp() {
+        consolidacionService = new ConsolidacionSaldosService(productoRepository, jdbcTemplate, transactionManager,
+                true, Duration.ofSeconds(5));
+    }
+
+    @Test
+    void cuandoElCorteAvanza_entoncesConsolidaHastaElCorteSeguro() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), any())).thenReturn(true);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Timestamp.class), eq(5.0)))
+                .thenReturn(Timestamp.valueOf(CORTE));
+        when(productoRepository.buscarCorteSaldos()).thenReturn(Optional.of(CORTE.minusSeconds(10)));
+        when(productoRepository.consolidarSaldos(CORTE)).thenReturn(3);
+
+        assertEquals(Optional.of(CORTE), consolidacionService.consolidar());
+        verify(productoRepository).consolidarSaldos(CORTE);
+    }
+
+    @Test
+    void cuandoElCorteNoAvanza_entoncesNoConsolida() {
+        // Una transacción abierta desde antes del corte anterior lo retiene
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), any())).thenReturn(true);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Timestamp.class), any()))
+                .thenReturn(Timestamp.valueOf(CORTE));
+        when(productoRepository.buscarCorteSaldos()).thenReturn(Optional.of(CORTE));
+
+        assertEquals(Optional.empty(), consolidacionService.consolidar());
+        verify(productoRepository, never()).consolidarSaldos(any());
+    }
+
+    @Test
+    void cuandoOtroNodoConsolida_entoncesOmiteLaEjecucion() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), any())).thenReturn(false);
+
+        assertEquals(Optional.empty(), consolidacionService.consolidar());
+        verifyNoInteractions(productoRepository);
+    }
+
+    @Test
+    void cuandoEstaDeshabilitada_entoncesLaEjecucionProgramadaNoHaceNada() {
+        new ConsolidacionSaldosService(productoRepository, jdbcTemplate, transactionManager,
+                false, Duration.ofSeconds(5)).consolidarProgramado();
+
+        verifyNoInteractions(jdbcTemplate, productoRepository);
+    }
+}
@@ -0,0 +1,114 @@
+package com.financiera.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.financiera.backend.dto.FiltroEstadoCuentaDTO;
+import com.financiera.backend.exception.clientes.RecursoNoEncontradoException;
+import com.financiera.backend.repository.ProductoRepository;
+import com.financiera.backend.repository.TransaccionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExportacionEstadoCuentaServiceTest {
+
+    @Mock
+    private TransaccionRepository transaccionRepository;
+
+    @Mock
+    private ProductoRepository productoRepository;
+
+    @Mock
+    private ArchivoTransaccionesService archivoTransacciones;
+
+    @Mock
+    private ResultSet fila;
+
+    private ExportacionEstadoCuentaService exportacionService;
+
+    @BeforeEach
+    void setUp() {
+        exportacionService = new ExportacionEstadoCuentaService(
+                transaccionRepository, productoRepository, archivoTransacciones, new ObjectMapper());
+    }
+
+    // El repositorio entrega dos veces la misma fila al manejador
+    private void prepararFilas() throws Exception {
+        when(fila.getLong("id")).thenReturn(7L);
+        when(fila.getTimestamp("fecha_transaccion")).thenReturn(Timestamp.valueOf(LocalDateTime.of(2025, 3, 1, 9, 30)));
+        when(fila.getString("tipo_transaccion")).thenReturn("TRANSFERENCIA");
+        when(fila.getString("tipo_movimiento")).thenReturn("DEBITO");
+        when(fila.getBigDecimal("monto")).thenReturn(new BigDecimal("1500.00"));
+        when(fila.getString("descripcion")).thenReturn("Pago \"arriendo\", marzo");
+        when(fila.getLong("cuenta_origen_id")).thenReturn(1L);
+        when(fila.getString("numero_cuenta_origen")).thenReturn("5312345678");
+        when(fila.getObject("cuenta_destino_id", Long.class)).thenReturn(2L);
+        when(fila.getString("numero_cuenta_destino")).thenReturn("3312345678");
+        when(fila.getBigDecimal("saldo_despues")).thenReturn(new BigDecimal("8500.00"));
+
+        doAnswer(invocacion -> {
+            RowCallbackHandler manejador = invocacion.getArgument(4);
+            manejador.processRow(fila);
+            manejador.processRow(fila);
+            return null;
+        }).when(transaccionRepository).recorrerEstadoCuenta(eq(1L), any(), any(), any(), any());
+    }
+
+    @Test
+    void cuandoExportarCsv_entoncesEscribeEncabezadoYFilasEscapadas() throws Exception {
+        prepararFilas();
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+
+        exportacionService.exportar(1L, new FiltroEstadoCuentaDTO(), ExportacionEstadoCuentaService.Formato.CSV, salida);
+
+        String[] lineas = salida.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertEquals(3, lineas.length);
+        assertTrue(lineas[0].startsWith("id,fechaTransaccion,"));
+        assertTrue(lineas[0].endsWith(",saldoDespues"));
+        assertEquals("7,2025-03-01T09:30,TRANSFERENCIA,DEBITO,1500.00,\"Pago \"\"arriendo\"\", marzo\","
+                + "1,5312345678,2,3312345678,8500.00", lineas[1]);
+    }
+
+    @Test
+    void cuandoExportarNdjson_entoncesEscribeUnObjetoPorLinea() throws Exception {
+        prepararFilas();
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        FiltroEstadoCuentaDTO filtro = new FiltroEstadoCuentaDTO();
+        filtro.setHasta(LocalDate.of(2025, 3, 31));
+
+        exportacionService.exportar(1L, filtro, ExportacionEstadoCuentaService.Formato.NDJSON, salida);
+
+        String[] lineas = salida.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lineas.length);
+        assertTrue(lineas[1].startsWith("{\"id\":7,"));
+        assertEquals("Pago \"arriendo\", marzo", new ObjectMapper().readTree(lineas[1]).get("descripcion").asText());
+        assertEquals(0, new BigDecimal("8500.00")
+                .compareTo(new ObjectMapper().readTree(lineas[1]).get("saldoDespues").decimalValue()));
+        verify(transaccionRepository).recorrerEstadoCuenta(eq(1L), isNull(),
+                eq(LocalDateTime.of(2025, 4, 1, 0, 0)), isNull(), any());
+    }
+
+    @Test
+    void cuandoValidarExportacionDeCuentaInexistente_entoncesLanzaExcepcion() {
+        when(productoRepository.existsById(99L)).thenReturn(false);
+
+        assertThrows(RecursoNoEncontradoException.class, () -> {
+            exportacionService.validarExportacion(99L, new FiltroEstadoCuentaDTO());
+        });
+    }
+}
@@ -0,0 +1,49 @@
+package com.financiera.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FiltroBloomTest {
+
+    @Test
+    void cuandoSeAgreganValores_entoncesNuncaHayFalsosNegativos() {
+        FiltroBloom filtro = new FiltroBloom(10_000, 0.01);
+
+        for (int i = 0; i < 10_000; i++) {
+            filtro.agregar("cliente" + i + "@example.com");
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filtro.podriaContener("cliente" + i + "@example.com"));
+        }
+    }
+
+    @Test
+    void cuandoElFiltroEstaEnSuCapacidad_entoncesLosFalsosPositivosRondanElObjetivo() {
+        FiltroBloom filtro = new FiltroBloom(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filtro.agregar(String.valueOf(1_000_000_000L + i));
+        }
+
+        int falsosPositivos = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filtro.podriaContener(String.valueOf(2_000_000_000L + i))) {
+                falsosPositivos++;
+            }
+        }
+
+        double tasa = falsosPositivos / 100_000.0;
+        assertTrue(tasa < 0.02, "Tasa de falsos positivos: " + tasa);
+        assertEquals(0.01, filtro.probabilidadFalsoPositivo(), 0.005);
+    }
+
+    @Test
+    void cuandoSeDimensiona_entoncesUsaUnosDiezBitsPorElemento() {
+        FiltroBloom filtro = new FiltroBloom(1_000_000, 0.01);
+
+        // -ln(0.01) / ln(2)^2 ≈ 9.6 bits por elemento
+        assertEquals(1_198_136, filtro.tamanoBytes(), 16);
+        assertEquals(0.0, filtro.probabilidadFalsoPositivo());
+    }
+}
@@ -0,0 +1,91 @@
+package com.financiera.backend.service;
+
+import com.financiera.backend.entity.Producto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GeneradorNumerosCuentaTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private GeneradorNumerosCuenta generador;
+
+    @BeforeEach
+    void setUp() {
+        generador = new GeneradorNumerosCuenta(jdbcTemplate, 20250101L);
+    }
+
+    @Test
+    void sinClave_noSeCreaElGenerador() {
+        assertThrows(IllegalStateException.class, () -> new GeneradorNumerosCuenta(jdbcTemplate, 0L));
+    }
+
+    @Test
+    void permutar_esUnaBiyeccionSobreTodoElEspacio() {
+        BitSet vistos = new BitSet(GeneradorNumerosCuenta.ESPACIO);
+        for (int posicion = 0; posicion < GeneradorNumerosCuenta.ESPACIO; posicion++) {
+            int valor = generador.permutar(Producto.TipoCuenta.CUENTA_AHORROS, posicion);
+            assertTrue(valor >= 0 && valor < GeneradorNumerosCuenta.ESPACIO);
+            assertFalse(vistos.get(valor), "Valor repetido para la posición " + posicion);
+            vistos.set(valor);
+        }
+    }
+
+    @Test
+    void numeroCuenta_tienePrefijoYDigitoDeControlValido() {
+        String numero = generador.numeroCuenta(Producto.TipoCuenta.CUENTA_CORRIENTE, 42);
+
+        assertEquals(10, numero.length());
+        assertTrue(numero.startsWith("33"));
+        assertEquals(numero.charAt(9) - '0', GeneradorNumerosCuenta.digitoLuhn(numero.substring(0, 9)));
+        // Ejemplo conocido de Luhn: 7992739871 -> 3
+        assertEquals(3, GeneradorNumerosCuenta.digitoLuhn("7992739871"));
+    }
+
+    @Test
+    void siguiente_reservaUnBloqueYNoRepiteNumeros() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), eq("numero_cuenta_ahorros_seq")))
+                .thenReturn(0L, 100L);
+        when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(RowMapper.class))).thenReturn(List.of());
+
+        Set<String> numeros = new HashSet<>();
+        for (int i = 0; i < GeneradorNumerosCuenta.TAMANO_BLOQUE + 1; i++) {
+            numeros.add(generador.siguiente(Producto.TipoCuenta.CUENTA_AHORROS));
+        }
+
+        assertEquals(GeneradorNumerosCuenta.TAMANO_BLOQUE + 1, numeros.size());
+        assertTrue(numeros.stream().allMatch(numero -> numero.startsWith("53")));
+        verify(jdbcTemplate, times(2)).queryForObject(anyString(), eq(Long.class), anyString());
+    }
+
+    @Test
+    void siguiente_descartaNumerosQueYaExistenEnLaBase() {
+        String existente = generador.numeroCuenta(Producto.TipoCuenta.CUENTA_AHORROS, 0);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), eq("numero_cuenta_ahorros_seq")))
+                .thenReturn(0L);
+        when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(RowMapper.class)))
+                .thenReturn(List.of(existente));
+
+        String numero = generador.siguiente(Producto.TipoCuenta.CUENTA_AHORROS);
+
+        assertNotEquals(existente, numero);
+        assertEquals(generador.numeroCuenta(Producto.TipoCuenta.CUENTA_AHORROS, 1), numero);
+    }
+}
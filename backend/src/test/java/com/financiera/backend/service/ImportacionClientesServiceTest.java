@@ -0,0 +1,232 @@
+package com.financiera.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.financiera.backend.dto.ClienteDTO;
+import com.financiera.backend.dto.ProductoDTO;
+import com.financiera.backend.dto.ResultadoImportacionDTO;
+import com.financiera.backend.entity.Producto;
+import com.financiera.backend.exception.clientes.ArchivoImportacionInvalidoException;
+import com.financiera.backend.repository.ClienteRepository;
+import com.financiera.backend.repository.ProductoRepository;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ImportacionClientesServiceTest {
+
+    private static final String ENCABEZADO =
+            "tipoIdentificacion,numeroIdentificacion,nombres,apellido,correoElectronico,fechaNacimiento,tipoCuenta,exentaGMF\n";
+
+    private static final Validator VALIDATOR = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Mock
+    private ClienteRepository clienteRepository;
+
+    @Mock
+    private ProductoRepository productoRepository;
+
+    @Mock
+    private GeneradorNumerosCuenta generadorNumerosCuenta;
+
+    @Mock
+    private IndiceDuplicadosClientes indiceDuplicados;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    private Path directorio;
+
+    private ImportacionClientesService importacionService;
+    private List<ClienteDTO> insertados;
+
+    @BeforeEach
+    void setUp() {
+        importacionService = new ImportacionClientesService(clienteRepository, productoRepository,
+                generadorNumerosCuenta, indiceDuplicados, VALIDATOR, new ObjectMapper().findAndRegisterModules(),
+                transactionManager, 2, directorio.toString());
+
+        insertados = new ArrayList<>();
+        lenient().when(clienteRepository.insertarClientes(any())).thenAnswer(invocacion -> {
+            List<ClienteDTO> clientes = invocacion.getArgument(0);
+            for (ClienteDTO cliente : clientes) {
+                cliente.setId(100L + insertados.size());
+                insertados.add(cliente);
+            }
+            return clientes;
+        });
+    }
+
+    @AfterAll
+    static void cerrar() {
+        Validation.buildDefaultValidatorFactory().close();
+    }
+
+    @Test
+    void cuandoImportarCsv_entoncesInsertaLasValidasYRechazaLasDemasConSuMotivo() throws Exception {
+        when(generadorNumerosCuenta.siguiente(Producto.TipoCuenta.CUENTA_AHORROS)).thenReturn("5300000018");
+        when(indiceDuplicados.podriaExistirIdentificacion(anyString()))
+                .thenAnswer(invocacion -> "3000".equals(invocacion.getArgument(0)));
+        when(clienteRepository.buscarRegistrados(List.of("3000"), List.of())).thenReturn(List.of("3000"));
+
+        String archivo = ENCABEZADO
+                + "CC,1000,Ana,Gómez,ana@example.com,1990-01-01,CUENTA_AHORROS,true\n"
+                + "CC,2000,Luis,Díaz,luis@example.com,1985-06-30,,\n"
+                + "CC,3000,Eva,Ruiz,eva@example.com,1980-03-03,,\n"
+                + "CC,4000,Niño,Menor," + "nino@example.com," + LocalDate.now().minusYears(10) + ",,\n"
+                + "CC,5000,Sin,Correo,no-es-correo,1990-01-01,,\n"
+                + "CC,1000,Ana,Repetida,otra@example.com,1990-01-01,,\n"
+                + "CC,6000,Mal,Fecha,mal@example.com,1990-13-01,,\n";
+        Path rechazos = directorio.resolve("rechazos.csv");
+
+        ResultadoImportacionDTO resultado = importacionService.importar(entrada(archivo),
+                ImportacionClientesService.Formato.CSV, rechazos);
+
+        assertEquals(7, resultado.getFilasLeidas());
+        assertEquals(2, resultado.getClientesCreados());
+        assertEquals(1, resultado.getCuentasCreadas());
+        assertEquals(5, resultado.getFilasRechazadas());
+        assertEquals(List.of("1000", "2000"), insertados.stream().map(ClienteDTO::getNumeroIdentificacion).toList());
+
+        ArgumentCaptor<List<ProductoDTO>> cuentas = ArgumentCaptor.captor();
+        verify(productoRepository).insertarCuentas(cuentas.capture());
+        assertEquals(1, cuentas.getValue().size());
+        assertEquals(100L, cuentas.getValue().get(0).getClienteId());
+        assertEquals("5300000018", cuentas.getValue().get(0).getNumeroCuenta());
+        assertTrue(cuentas.getValue().get(0).getExentaGMF());
+        verify(indiceDuplicados).registrar("1000", "ana@example.com");
+
+        List<String> lineas = Files.readAllLines(rechazos);
+        assertEquals("linea,motivo,contenido", lineas.get(0));
+        assertEquals(6, lineas.size());
+        assertTrue(lineas.stream().anyMatch(l -> l.startsWith("4,Ya existe un cliente con el número de identificación: 3000,")));
+        assertTrue(lineas.stream().anyMatch(l -> l.startsWith("5,El cliente debe ser mayor de edad")));
+        assertTrue(lineas.stream().anyMatch(l -> l.startsWith("6,El correo electrónico no es válido,")));
+        assertTrue(lineas.stream().anyMatch(l -> l.startsWith("7,Número de identificación repetido en el archivo: 1000,")));
+        assertTrue(lineas.stream().anyMatch(l -> l.startsWith("8,Formato inválido")));
+    }
+
+    @Test
+    void cuandoImportarNdjson_entoncesLeeCadaLineaComoUnaFila() throws Exception {
+        String archivo = """
+                {"tipoIdentificacion":"CC","numeroIdentificacion":"1000","nombres":"Ana","apellido":"Gómez","correoElectronico":"ana@example.com","fechaNacimiento":"1990-01-01"}
+                {"tipoIdentificacion":"CC","numeroIdentificacion":
+                """;
+        Path rechazos = directorio.resolve("rechazos.csv");
+
+        ResultadoImportacionDTO resultado = importacionService.importar(entrada(archivo),
+                ImportacionClientesService.Formato.NDJSON, rechazos);
+
+        assertEquals(1, resultado.getClientesCreados());
+        assertEquals(0, resultado.getCuentasCreadas());
+        assertEquals(1, resultado.getFilasRechazadas());
+        assertEquals("ana@example.com", insertados.get(0).getCorreoElectronico());
+        assertEquals(LocalDate.of(1990, 1, 1), insertados.get(0).getFechaNacimiento());
+        assertTrue(Files.readAllLines(rechazos).get(1).startsWith("2,Formato inválido"));
+    }
+
+    @Test
+    void cuandoElArchivoSuperaUnBloque_entoncesInsertaTodosLosBloquesEnOrden() throws Exception {
+        int filas = ImportacionClientesService.TAMANO_BLOQUE * 5 + 7;
+        StringBuilder archivo = new StringBuilder(ENCABEZADO);
+        for (int i = 0; i < filas; i++) {
+            archivo.append("CC,").append(i).append(",Nombre,Apellido,c").append(i).append("@example.com,1990-01-01,,\n");
+        }
+        Path rechazos = directorio.resolve("rechazos.csv");
+
+        ResultadoImportacionDTO resultado = importacionService.importar(entrada(archivo.toString()),
+                ImportacionClientesService.Formato.CSV, rechazos);
+
+        assertEquals(filas, resultado.getClientesCreados());
+        assertNull(resultado.getArchivoRechazos());
+        assertFalse(Files.exists(rechazos));
+        verify(clienteRepository, times(6)).insertarClientes(any());
+        verify(clienteRepository, times(6)).buscarRegistrados(anyCollection(), anyCollection());
+        for (int i = 0; i < filas; i++) {
+            assertEquals(String.valueOf(i), insertados.get(i).getNumeroIdentificacion());
+        }
+    }
+
+    @Test
+    void cuandoOtroProcesoInsertaUnaFilaAntesDelCommit_entoncesReintentaYRechazaCadaFilaUnaVez() throws Exception {
+        // 1000 ya existía; 3000 lo inserta otro proceso entre la verificación y el commit del primer intento
+        Set<String> registrados = new HashSet<>(Set.of("1000"));
+        when(indiceDuplicados.podriaExistirIdentificacion(anyString()))
+                .thenAnswer(invocacion -> "1000".equals(invocacion.getArgument(0)));
+        when(clienteRepository.buscarRegistrados(anyCollection(), anyCollection())).thenAnswer(invocacion -> {
+            Collection<String> identificaciones = invocacion.getArgument(0);
+            return identificaciones.stream().filter(registrados::contains).toList();
+        });
+        doAnswer(invocacion -> {
+            registrados.add("3000");
+            throw new DataIntegrityViolationException("clientes_numero_identificacion_key");
+        }).doAnswer(invocacion -> {
+            List<ClienteDTO> clientes = invocacion.getArgument(0);
+            insertados.addAll(clientes);
+            return clientes;
+        }).when(clienteRepository).insertarClientes(any());
+
+        String archivo = ENCABEZADO
+                + "CC,1000,Ana,Gómez,ana@example.com,1990-01-01,,\n"
+                + "CC,2000,Luis,Díaz,luis@example.com,1985-06-30,,\n"
+                + "CC,3000,Eva,Ruiz,eva@example.com,1980-03-03,,\n";
+        Path rechazos = directorio.resolve("rechazos.csv");
+
+        ResultadoImportacionDTO resultado = importacionService.importar(entrada(archivo),
+                ImportacionClientesService.Formato.CSV, rechazos);
+
+        assertEquals(3, resultado.getFilasLeidas());
+        assertEquals(1, resultado.getClientesCreados());
+        assertEquals(2, resultado.getFilasRechazadas());
+        assertEquals(List.of("2000"), insertados.stream().map(ClienteDTO::getNumeroIdentificacion).toList());
+
+        List<String> lineas = Files.readAllLines(rechazos);
+        assertEquals(3, lineas.size());
+        assertTrue(lineas.get(1).startsWith("2,Ya existe un cliente con el número de identificación: 1000,"));
+        assertTrue(lineas.get(2).startsWith("4,Ya existe un cliente con el número de identificación: 3000,"));
+    }
+
+    @Test
+    void cuandoFaltaUnaColumnaObligatoria_entoncesLanzaExcepcionSinCrearArchivoDeRechazos() {
+        Path rechazos = directorio.resolve("rechazos.csv");
+
+        assertThrows(ArchivoImportacionInvalidoException.class, () -> importacionService.importar(
+                entrada("tipoIdentificacion,numeroIdentificacion,nombres\n"),
+                ImportacionClientesService.Formato.CSV, rechazos));
+
+        assertFalse(Files.exists(rechazos));
+        verify(clienteRepository, never()).insertarClientes(any());
+    }
+
+    private static InputStream entrada(String contenido) {
+        return new ByteArrayInputStream(contenido.getBytes(StandardCharsets.UTF_8));
+    }
+}
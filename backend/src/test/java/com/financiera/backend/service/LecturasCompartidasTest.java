@@ -0,0 +1,141 @@
+package com.financiera.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LecturasCompartidasTest {
+
+    private static final int PETICIONES = 20;
+
+    private SimpleMeterRegistry meterRegistry;
+    private LecturasCompartidas lecturas;
+    private ExecutorService hilos;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        lecturas = new LecturasCompartidas(meterRegistry);
+        hilos = Executors.newFixedThreadPool(PETICIONES);
+    }
+
+    @AfterEach
+    void tearDown() {
+        hilos.shutdownNow();
+    }
+
+    @Test
+    void cuandoLleganPeticionesIgualesSimultaneas_entoncesSeHaceUnaSolaConsulta() throws Exception {
+        AtomicInteger consultas = new AtomicInteger();
+        CountDownLatch liberar = new CountDownLatch(1);
+
+        List<Future<String>> resultados = new ArrayList<>();
+        for (int i = 0; i < PETICIONES; i++) {
+            resultados.add(hilos.submit(() -> lecturas.leer("productos", 1L, () -> {
+                consultas.incrementAndGet();
+                esperar(liberar);
+                return "producto 1";
+            })));
+        }
+        // La consulta no termina hasta que todas las demás peticiones están esperando su resultado
+        esperarContador("productos", "compartida", PETICIONES - 1);
+        liberar.countDown();
+
+        for (Future<String> resultado : resultados) {
+            assertEquals("producto 1", resultado.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, consultas.get());
+        assertEquals(1.0, contador("productos", "ejecutada"));
+    }
+
+    @Test
+    void cuandoLaConsultaFalla_entoncesTodasLasPeticionesRecibenLaExcepcion() throws Exception {
+        CountDownLatch liberar = new CountDownLatch(1);
+        IllegalStateException error = new IllegalStateException("sin conexión");
+
+        List<Future<Object>> resultados = new ArrayList<>();
+        for (int i = 0; i < PETICIONES; i++) {
+            resultados.add(hilos.submit(() -> lecturas.leer("productos", 1L, () -> {
+                esperar(liberar);
+                throw error;
+            })));
+        }
+        esperarContador("productos", "compartida", PETICIONES - 1);
+        liberar.countDown();
+
+        for (Future<Object> resultado : resultados) {
+            Exception ex = assertThrows(Exception.class, () -> resultado.get(5, TimeUnit.SECONDS));
+            assertSame(error, ex.getCause());
+        }
+    }
+
+    @Test
+    void cuandoSeOlvidaLaConsultaEnCurso_entoncesLaSiguientePeticionConsultaDeNuevo() throws Exception {
+        CountDownLatch liberar = new CountDownLatch(1);
+        Future<String> anterior = hilos.submit(() -> lecturas.leer("productos", 1L, () -> {
+            esperar(liberar);
+            return "saldo anterior";
+        }));
+        esperarContador("productos", "ejecutada", 1);
+
+        lecturas.olvidar("productos", 1L);
+
+        assertEquals("saldo nuevo", lecturas.leer("productos", 1L, () -> "saldo nuevo"));
+        liberar.countDown();
+        assertEquals("saldo anterior", anterior.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void cuandoCambiaElDetalle_entoncesNoSeComparte() throws Exception {
+        CountDownLatch liberar = new CountDownLatch(1);
+        Future<String> primera = hilos.submit(() -> lecturas.leer("estado_cuenta", 1L, "pagina 1", () -> {
+            esperar(liberar);
+            return "pagina 1";
+        }));
+        esperarContador("estado_cuenta", "ejecutada", 1);
+
+        assertEquals("pagina 2", lecturas.leer("estado_cuenta", 1L, "pagina 2", () -> "pagina 2"));
+        liberar.countDown();
+        assertEquals("pagina 1", primera.get(5, TimeUnit.SECONDS));
+        assertEquals(0.0, contador("estado_cuenta", "compartida"));
+    }
+
+    // Metodos auxiliares
+
+    private double contador(String consulta, String resultado) {
+        Counter contador = meterRegistry.find("lecturas.compartidas")
+                .tag("consulta", consulta)
+                .tag("resultado", resultado)
+                .counter();
+        return contador == null ? 0 : contador.count();
+    }
+
+    private void esperarContador(String consulta, String resultado, int esperado) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (contador(consulta, resultado) < esperado) {
+            assertTrue(System.nanoTime() < limite, "Las peticiones no llegaron a tiempo");
+            Thread.sleep(5);
+        }
+    }
+
+    private static void esperar(CountDownLatch liberar) {
+        try {
+            assertTrue(liberar.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
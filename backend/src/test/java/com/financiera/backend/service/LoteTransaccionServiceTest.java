@@ -0,0 +1,169 @@
+package com.financiera.backend.service;
+
+import com.financiera.backend.dto.*;
+import com.financiera.backend.entity.Producto;
+import com.financiera.backend.entity.Transaccion;
+import com.financiera.backend.repository.ProductoRepository;
+import com.financiera.backend.repository.TransaccionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LoteTransaccionServiceTest {
+
+    @Mock
+    private TransaccionRepository transaccionRepository;
+
+    @Mock
+    private ProductoRepository productoRepository;
+
+    @Mock
+    private BloqueoCuentasService bloqueoCuentasService;
+
+    @Mock
+    private CacheReferencia cacheReferencia;
+
+    @InjectMocks
+    private LoteTransaccionService loteTransaccionService;
+
+    private Producto cuentaAhorros;
+    private Producto cuentaCorriente;
+
+    @BeforeEach
+    void setUp() {
+        cuentaAhorros = new Producto();
+        cuentaAhorros.setId(1L);
+        cuentaAhorros.setTipoCuenta(Producto.TipoCuenta.CUENTA_AHORROS);
+        cuentaAhorros.setNumeroCuenta("5312345678");
+        cuentaAhorros.setEstado(Producto.EstadoCuenta.ACTIVA);
+        cuentaAhorros.setSaldo(new BigDecimal("100000"));
+
+        cuentaCorriente = new Producto();
+        cuentaCorriente.setId(2L);
+        cuentaCorriente.setTipoCuenta(Producto.TipoCuenta.CUENTA_CORRIENTE);
+        cuentaCorriente.setNumeroCuenta("3312345678");
+        cuentaCorriente.setEstado(Producto.EstadoCuenta.ACTIVA);
+        cuentaCorriente.setSaldo(new BigDecimal("50000"));
+
+        lenient().when(transaccionRepository.insertarMovimientos(any())).thenAnswer(inv -> inv.getArgument(0));
+    }
+
+    @Test
+    void cuandoProcesarLote_entoncesInsertaLosMovimientosSinActualizarSaldos() {
+        when(productoRepository.findAllById(anyCollection())).thenReturn(List.of(cuentaAhorros, cuentaCorriente));
+
+        LoteTransaccionesDTO lote = new LoteTransaccionesDTO(List.of(
+                consignacion(1L, "20000"),
+                retiro(1L, "50000"),
+                transferencia(1L, 2L, "30000"),
+                consignacion(2L, "10000")
+        ));
+
+        List<ResultadoOperacionLoteDTO> resultados = loteTransaccionService.procesarLote(lote);
+
+        assertEquals(4, resultados.size());
+        assertTrue(resultados.stream().allMatch(ResultadoOperacionLoteDTO::isExitosa));
+        assertEquals(2, resultados.get(2).getTransacciones().size());
+
+        verify(bloqueoCuentasService).bloquearSaldos("lote", Set.of(1L, 2L));
+        verify(cacheReferencia).invalidarProductos(List.of(1L, 2L));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<TransaccionDTO>> movimientos = ArgumentCaptor.forClass(List.class);
+        verify(transaccionRepository, times(1)).insertarMovimientos(movimientos.capture());
+        assertEquals(5, movimientos.getValue().size());
+        assertEquals(new BigDecimal("40000"), movimientos.getValue().get(2).getSaldoAlRegistrar());
+        verify(productoRepository, never()).ajustarSaldosFranjeados(any());
+    }
+
+    @Test
+    void cuandoUnaOperacionFallaPorNegocio_entoncesLasDemasSeAplican() {
+        when(productoRepository.findAllById(anyCollection())).thenReturn(List.of(cuentaAhorros));
+
+        LoteTransaccionesDTO lote = new LoteTransaccionesDTO(List.of(
+                retiro(1L, "80000"),
+                retiro(1L, "80000"),
+                consignacion(99L, "1000")
+        ));
+
+        List<ResultadoOperacionLoteDTO> resultados = loteTransaccionService.procesarLote(lote);
+
+        assertTrue(resultados.get(0).isExitosa());
+        assertFalse(resultados.get(1).isExitosa());
+        assertTrue(resultados.get(1).getMensaje().startsWith("Saldo insuficiente"));
+        assertFalse(resultados.get(2).isExitosa());
+        assertEquals("No se encontró la cuenta con ID: 99", resultados.get(2).getMensaje());
+
+        verify(cacheReferencia).invalidarProductos(List.of(1L));
+    }
+
+    @Test
+    void cuandoCuentaInactivaOTransferenciaALaMismaCuenta_entoncesSeRechazaSoloEsaOperacion() {
+        cuentaCorriente.setEstado(Producto.EstadoCuenta.INACTIVA);
+        when(productoRepository.findAllById(anyCollection())).thenReturn(List.of(cuentaAhorros, cuentaCorriente));
+
+        LoteTransaccionesDTO lote = new LoteTransaccionesDTO(List.of(
+                transferencia(1L, 2L, "1000"),
+                transferencia(1L, 1L, "1000"),
+                new OperacionLoteDTO(Transaccion.TipoTransaccion.RETIRO, null, null, null)
+        ));
+
+        List<ResultadoOperacionLoteDTO> resultados = loteTransaccionService.procesarLote(lote);
+
+        assertTrue(resultados.stream().noneMatch(ResultadoOperacionLoteDTO::isExitosa));
+        assertTrue(resultados.get(0).getMensaje().contains("no está activa"));
+        assertEquals("No se puede transferir a la misma cuenta", resultados.get(1).getMensaje());
+
+        verify(cacheReferencia).invalidarProductos(List.of());
+        verify(transaccionRepository).insertarMovimientos(List.of());
+    }
+
+    @Test
+    void cuandoLaCuentaEsFranjeada_entoncesAjustaSuSaldoConsolidadoConSusMovimientos() {
+        cuentaCorriente.setFranjasSaldo(8);
+        when(productoRepository.findAllById(anyCollection())).thenReturn(List.of(cuentaAhorros, cuentaCorriente));
+
+        LoteTransaccionesDTO lote = new LoteTransaccionesDTO(List.of(
+                consignacion(1L, "20000"),
+                transferencia(1L, 2L, "30000"),
+                consignacion(2L, "10000")
+        ));
+
+        loteTransaccionService.procesarLote(lote);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<TransaccionDTO>> ajustados = ArgumentCaptor.forClass(List.class);
+        verify(productoRepository).ajustarSaldosFranjeados(ajustados.capture());
+        assertEquals(2, ajustados.getValue().size());
+        assertTrue(ajustados.getValue().stream().allMatch(movimiento -> movimiento.getCuentaOrigenId().equals(2L)));
+    }
+
+    private OperacionLoteDTO consignacion(Long cuentaId, String monto) {
+        return new OperacionLoteDTO(Transaccion.TipoTransaccion.CONSIGNACION,
+                new ConsignacionDTO(cuentaId, new BigDecimal(monto), null), null, null);
+    }
+
+    private OperacionLoteDTO retiro(Long cuentaId, String monto) {
+        return new OperacionLoteDTO(Transaccion.TipoTransaccion.RETIRO,
+                null, new RetiroDTO(cuentaId, new BigDecimal(monto), null), null);
+    }
+
+    private OperacionLoteDTO transferencia(Long origenId, Long destinoId, String monto) {
+        return new OperacionLoteDTO(Transaccion.TipoTransaccion.TRANSFERENCIA,
+                null, null, new TransferenciaDTO(origenId, destinoId, new BigDecimal(monto), null));
+    }
+}
@@ -0,0 +1,156 @@
+package com.financiera.backend.service;
+
+import com.financiera.backend.dto.ProductoDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * El segundo nodo es un par CacheReferencia/NotificacionesCache creado a mano contra la misma base;
+ * las invalidaciones del nodo del contexto de Spring deben llegarle por LISTEN/NOTIFY.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=update",
+        "spring.sql.init.mode=always",
+        "spring.jpa.defer-datasource-initialization=true",
+        "spring.sql.init.separator=^^^ END OF SCRIPT ^^^",
+        "financiera.cache.notificaciones.habilitadas=true",
+        "financiera.cuentas.clave-permutacion=20250101"
+})
+@Testcontainers(disabledWithoutDocker = true)
+class NotificacionesCacheIntegracionTest {
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void propiedades(DynamicPropertyRegistry registro) {
+        registro.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registro.add("spring.datasource.username", POSTGRES::getUsername);
+        registro.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private CacheReferencia cacheReferencia;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    @Autowired
+    private ObjectProvider<JdbcConnectionDetails> detallesConexion;
+
+    private CacheReferencia cacheOtroNodo;
+    private NotificacionesCache otroNodo;
+    private final AtomicInteger cargas = new AtomicInteger();
+
+    @BeforeEach
+    void iniciarOtroNodo() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        cacheOtroNodo = new CacheReferencia(transactionManager, meterRegistry, new LecturasCompartidas(meterRegistry),
+                100, Duration.ofMinutes(5));
+        otroNodo = new NotificacionesCache(cacheOtroNodo, jdbcTemplate, dataSourceProperties, detallesConexion,
+                new SimpleMeterRegistry(), "financiera_cache", 10000, Duration.ofMillis(500));
+        otroNodo.iniciar();
+        esperar(otroNodo::escuchando);
+    }
+
+    @AfterEach
+    void detenerOtroNodo() {
+        otroNodo.close();
+    }
+
+    @Test
+    void cuandoUnNodoInvalidaEnUnaTransaccion_entoncesElOtroLoRecibeDespuesDelCommit() {
+        cacheOtroNodo.producto(1L, this::cargar);
+
+        new TransactionTemplate(transactionManager).execute(estado -> {
+            cacheReferencia.invalidarProductos(List.of(1L));
+            return null;
+        });
+
+        esperar(() -> {
+            cacheOtroNodo.producto(1L, this::cargar);
+            return cargas.get() == 2;
+        });
+    }
+
+    @Test
+    void cuandoLaTransaccionSeRevierte_entoncesNoNotifica() throws InterruptedException {
+        cacheOtroNodo.producto(1L, this::cargar);
+
+        new TransactionTemplate(transactionManager).execute(estado -> {
+            cacheReferencia.invalidarProductos(List.of(1L));
+            estado.setRollbackOnly();
+            return null;
+        });
+        Thread.sleep(500);
+
+        cacheOtroNodo.producto(1L, this::cargar);
+        assertEquals(1, cargas.get());
+    }
+
+    @Test
+    void cuandoSePierdeLaConexion_entoncesAlReconectarVaciaLaCache() {
+        cacheOtroNodo.producto(1L, this::cargar);
+
+        jdbcTemplate.queryForList("""
+                SELECT pg_terminate_backend(pid) FROM pg_stat_activity
+                WHERE application_name = 'financiera-notificaciones-cache'
+                """);
+
+        esperar(() -> {
+            cacheOtroNodo.producto(1L, this::cargar);
+            return cargas.get() == 2;
+        });
+    }
+
+    // Metodos auxiliares
+
+    private Optional<ProductoDTO> cargar() {
+        cargas.incrementAndGet();
+        ProductoDTO producto = new ProductoDTO();
+        producto.setId(1L);
+        return Optional.of(producto);
+    }
+
+    private static void esperar(BooleanSupplier condicion) {
+        long limite = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condicion.getAsBoolean()) {
+            assertTrue(System.nanoTime() < limite, "La condición no se cumplió a tiempo");
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                fail(ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.financiera.backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NotificacionesCacheTest {
+
+    @Mock
+    private CacheReferencia cache;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ObjectProvider<JdbcConnectionDetails> detallesConexion;
+
+    private NotificacionesCache notificaciones;
+    private BiConsumer<Set<Long>, Set<Long>> publicador;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        DataSourceProperties propiedades = new DataSourceProperties();
+        propiedades.setUrl("jdbc:postgresql://localhost:5432/financiera_db");
+        notificaciones = new NotificacionesCache(cache, jdbcTemplate, propiedades, detallesConexion,
+                new SimpleMeterRegistry(), "financiera_cache", 1000, Duration.ofSeconds(5));
+
+        ArgumentCaptor<BiConsumer<Set<Long>, Set<Long>>> captor = ArgumentCaptor.forClass(BiConsumer.class);
+        verify(cache).publicarInvalidacionesCon(captor.capture());
+        publicador = captor.getValue();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    @Test
+    void cuandoHayMasIdsQueLosDeUnMensaje_entoncesLosRepartenSinRepetir() {
+        Set<Long> clientes = LongStream.rangeClosed(1, 250).boxed().collect(Collectors.toSet());
+        Set<Long> productos = LongStream.rangeClosed(1_000_000_000_000L, 1_000_000_000_400L).boxed()
+                .collect(Collectors.toSet());
+
+        List<String> mensajes = NotificacionesCache.mensajes("nodo", clientes, productos);
+
+        assertEquals(3, mensajes.size());
+        Set<Long> clientesEnviados = new HashSet<>();
+        Set<Long> productosEnviados = new HashSet<>();
+        for (String mensaje : mensajes) {
+            assertTrue(mensaje.length() < 8000);
+            String[] partes = mensaje.split("\\|", -1);
+            assertTrue(ids(partes[1]).size() + ids(partes[2]).size() <= NotificacionesCache.IDS_POR_MENSAJE);
+            clientesEnviados.addAll(ids(partes[1]));
+            productosEnviados.addAll(ids(partes[2]));
+        }
+        assertEquals(clientes, clientesEnviados);
+        assertEquals(productos, productosEnviados);
+    }
+
+    @Test
+    void cuandoLleganVariasNotificaciones_entoncesLasAplicaEnUnSoloLote() {
+        notificaciones.aplicar(List.of("otro|1|", "otro||10,11", "otro|1|11"));
+
+        verify(cache).aplicarInvalidacionesRemotas(Set.of(1L), Set.of(10L, 11L));
+    }
+
+    @Test
+    void cuandoLaNotificacionEsDeEsteNodo_entoncesLaIgnora() {
+        publicador.accept(Set.of(1L), Set.of(10L));
+
+        ArgumentCaptor<Object> mensaje = ArgumentCaptor.forClass(Object.class);
+        verify(jdbcTemplate).query(eq("SELECT pg_notify(?, ?)"), any(RowCallbackHandler.class),
+                eq("financiera_cache"), mensaje.capture());
+        notificaciones.aplicar(List.of((String) mensaje.getValue()));
+
+        verify(cache, never()).aplicarInvalidacionesRemotas(any(), any());
+    }
+
+    @Test
+    void cuandoElLoteSuperaElMaximo_entoncesVaciaLaCache() {
+        String productos = LongStream.rangeClosed(1, 1001).mapToObj(String::valueOf)
+                .collect(Collectors.joining(","));
+
+        notificaciones.aplicar(List.of("otro||" + productos));
+
+        verify(cache).invalidarTodo();
+        verify(cache, never()).aplicarInvalidacionesRemotas(any(), any());
+    }
+
+    @Test
+    void cuandoHayTransaccion_entoncesEnviaUnSoloMensajeAntesDelCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        publicador.accept(Set.of(), Set.of(10L));
+        publicador.accept(Set.of(), Set.of(11L));
+        verifyNoInteractions(jdbcTemplate);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(sincronizacion -> {
+            sincronizacion.beforeCommit(false);
+            sincronizacion.afterCompletion(0);
+        });
+
+        verify(jdbcTemplate, times(1)).query(eq("SELECT pg_notify(?, ?)"), any(RowCallbackHandler.class),
+                eq("financiera_cache"), any());
+        assertNull(TransactionSynchronizationManager.getResource(notificaciones));
+    }
+
+    private static Set<Long> ids(String texto) {
+        return texto.isEmpty()
+                ? Set.of()
+                : Arrays.stream(texto.split(",")).map(Long::valueOf).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,137 @@
+package com.financiera.backend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ParticionesTransaccionesServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private ParticionesTransaccionesService particionesService;
+
+    @BeforeEach
+    void setUp() {
+        particionesService = new ParticionesTransaccionesService(jdbcTemplate, 2, 12);
+    }
+
+    @Test
+    void limiteSuperior_seDeduceDelNombreDeLaParticion() {
+        assertEquals(Optional.of(YearMonth.of(2025, 4)),
+                ParticionesTransaccionesService.limiteSuperior("transacciones_p2025_03"));
+        assertEquals(Optional.of(YearMonth.of(2026, 1)),
+                ParticionesTransaccionesService.limiteSuperior("transacciones_p2025_12"));
+        assertEquals(Optional.of(YearMonth.of(2025, 11)),
+                ParticionesTransaccionesService.limiteSuperior("transacciones_hasta_2025_11"));
+        assertEquals(Optional.empty(), ParticionesTransaccionesService.limiteSuperior("transacciones_otra"));
+    }
+
+    @Test
+    void cuandoCrearParticiones_entoncesCubreElMesEnCursoYLosAdelantados() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), any()))
+                .thenReturn(false)
+                .thenThrow(new DataAccessResourceFailureException("sin conexión"))
+                .thenReturn(true);
+
+        particionesService.crearParticiones();
+
+        // Un error en un mes no impide crear los siguientes
+        verify(jdbcTemplate, times(3)).queryForObject(anyString(), eq(Boolean.class), any());
+    }
+
+    @Test
+    void cuandoSepararParticiones_entoncesSoloSeparaLasQueTerminanAntesDelMesConservado() throws Exception {
+        prepararParticiones(List.of(
+                new Object[]{"transacciones_hasta_2024_07", false},
+                new Object[]{"transacciones_p2024_12", true},
+                new Object[]{"transacciones_p2025_01", false},
+                new Object[]{"transacciones_p2025_02", false}));
+        when(jdbcTemplate.queryForObject(anyString(), eq(Timestamp.class)))
+                .thenReturn(Timestamp.valueOf(LocalDateTime.of(2025, 3, 10, 8, 0)));
+
+        particionesService.separarParticiones(YearMonth.of(2025, 2));
+
+        verify(jdbcTemplate).execute("ALTER TABLE transacciones DETACH PARTITION transacciones_hasta_2024_07 CONCURRENTLY");
+        verify(jdbcTemplate).execute("ALTER TABLE transacciones DETACH PARTITION transacciones_p2024_12 FINALIZE");
+        verify(jdbcTemplate).execute("ALTER TABLE transacciones DETACH PARTITION transacciones_p2025_01 CONCURRENTLY");
+        verify(jdbcTemplate, times(3)).execute(anyString());
+    }
+
+    @Test
+    void cuandoSepararParticiones_entoncesNoSeparaLasQueTerminanDespuesDelCorteDeSaldos() throws Exception {
+        prepararParticiones(List.of(
+                new Object[]{"transacciones_p2025_01", false},
+                new Object[]{"transacciones_p2025_02", false}));
+        when(jdbcTemplate.queryForObject(anyString(), eq(Timestamp.class)))
+                .thenReturn(Timestamp.valueOf(LocalDateTime.of(2025, 2, 28, 23, 59)));
+
+        particionesService.separarParticiones(YearMonth.of(2025, 6));
+
+        // transacciones_p2025_02 termina el 1 de marzo: aún tiene movimientos sin consolidar
+        verify(jdbcTemplate).execute("ALTER TABLE transacciones DETACH PARTITION transacciones_p2025_01 CONCURRENTLY");
+        verify(jdbcTemplate, times(1)).execute(anyString());
+    }
+
+    @Test
+    void cuandoNoHayCorteDeSaldos_entoncesNoSeparaNinguna() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Timestamp.class))).thenReturn(null);
+
+        assertEquals(List.of(), particionesService.particionesTerminadasAntesDe(YearMonth.of(2025, 6)));
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    void primerMesEnBase_esLaParticionMensualAdjuntaMasAntigua() throws Exception {
+        prepararParticiones(List.of(
+                new Object[]{"transacciones_p2024_12", true},
+                new Object[]{"transacciones_p2025_02", false},
+                new Object[]{"transacciones_p2025_01", false}));
+
+        assertEquals(Optional.of(YearMonth.of(2025, 1)), particionesService.primerMesEnBase());
+    }
+
+    @Test
+    void primerMesEnBase_conLaParticionHistoricaAdjunta_esVacio() throws Exception {
+        prepararParticiones(List.of(
+                new Object[]{"transacciones_hasta_2024_07", false},
+                new Object[]{"transacciones_p2024_07", false}));
+
+        assertEquals(Optional.empty(), particionesService.primerMesEnBase());
+    }
+
+    // Metodos auxiliares
+
+    @SuppressWarnings("unchecked")
+    private void prepararParticiones(List<Object[]> filas) throws Exception {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class))).thenAnswer(invocacion -> {
+            RowMapper<Object> mapeo = invocacion.getArgument(1);
+            List<Object> resultado = new ArrayList<>();
+            for (Object[] fila : filas) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getString("relname")).thenReturn((String) fila[0]);
+                when(rs.getBoolean("inhdetachpending")).thenReturn((Boolean) fila[1]);
+                resultado.add(mapeo.mapRow(rs, resultado.size()));
+            }
+            return resultado;
+        });
+    }
+}
@@ -5,11 +5,13 @@ import com.financiera.backend.entity.Cliente;
 import com.financiera.backend.entity.Producto;
 import com.financiera.backend.exception.productos.CuentaNoPuedeCancelarseException;
 import com.financiera.backend.exception.clientes.RecursoNoEncontradoException;
+import com.financiera.backend.exception.productos.OperacionNoPermitidaException;
 import com.financiera.backend.repository.ClienteRepository;
 import com.financiera.backend.repository.ProductoRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -17,10 +19,14 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,6 +38,12 @@ class ProductoServiceTest {
     @Mock
     private ClienteRepository clienteRepository;
 
+    @Mock
+    private GeneradorNumerosCuenta generadorNumerosCuenta;
+
+    @Mock
+    private CacheReferencia cacheReferencia;
+
     @InjectMocks
     private ProductoService productoService;
 
@@ -55,6 +67,7 @@ class ProductoServiceTest {
         productoAhorros.setSaldo(BigDecimal.ZERO);
         productoAhorros.setExentaGMF(false);
         productoAhorros.setCliente(cliente);
+        productoAhorros.setVersion(0L);
 
         productoCorriente = new Producto();
         productoCorriente.setId(2L);
@@ -64,6 +77,7 @@ class ProductoServiceTest {
         productoCorriente.setSaldo(BigDecimal.ZERO);
         productoCorriente.setExentaGMF(false);
         productoCorriente.setCliente(cliente);
+        productoCorriente.setVersion(0L);
 
         productoDTO = new ProductoDTO();
         productoDTO.setTipoCuenta(Producto.TipoCuenta.CUENTA_AHORROS);
@@ -74,7 +88,7 @@ class ProductoServiceTest {
     @Test
     void cuandoCrearCuentaAhorros_entoncesNumeroCuentaIniciaEn53() {
         when(clienteRepository.findById(1L)).thenReturn(Optional.of(cliente));
-        when(productoRepository.existsByNumeroCuenta(anyString())).thenReturn(false);
+        when(generadorNumerosCuenta.siguiente(Producto.TipoCuenta.CUENTA_AHORROS)).thenReturn("5312345678");
         when(productoRepository.save(any(Producto.class))).thenReturn(productoAhorros);
 
         ProductoDTO resultado = productoService.crearProducto(productoDTO);
@@ -82,14 +96,15 @@ class ProductoServiceTest {
         assertNotNull(resultado);
         assertTrue(resultado.getNumeroCuenta().startsWith("53"));
         assertEquals(Producto.EstadoCuenta.ACTIVA, resultado.getEstado());
-        verify(productoRepository, times(1)).save(any(Producto.class));
+        verify(productoRepository, times(1)).save(argThat(producto -> "5312345678".equals(producto.getNumeroCuenta())));
+        verify(productoRepository, never()).existsByNumeroCuenta(anyString());
     }
 
     @Test
     void cuandoCrearCuentaCorriente_entoncesNumeroCuentaIniciaEn33() {
         productoDTO.setTipoCuenta(Producto.TipoCuenta.CUENTA_CORRIENTE);
         when(clienteRepository.findById(1L)).thenReturn(Optional.of(cliente));
-        when(productoRepository.existsByNumeroCuenta(anyString())).thenReturn(false);
+        when(generadorNumerosCuenta.siguiente(Producto.TipoCuenta.CUENTA_CORRIENTE)).thenReturn("3312345678");
         when(productoRepository.save(any(Producto.class))).thenReturn(productoCorriente);
 
         ProductoDTO resultado = productoService.crearProducto(productoDTO);
@@ -113,7 +128,8 @@ class ProductoServiceTest {
 
     @Test
     void cuandoObtenerProductoPorId_entoncesRetornaProducto() {
-        when(productoRepository.findById(1L)).thenReturn(Optional.of(productoAhorros));
+        cargarSinCache(1L);
+        when(productoRepository.buscarDTOPorId(1L)).thenReturn(Optional.of(dto(productoAhorros)));
 
         ProductoDTO resultado = productoService.obtenerProductoPorId(1L);
 
@@ -124,18 +140,40 @@ class ProductoServiceTest {
 
     @Test
     void cuandoObtenerProductoInexistente_entoncesLanzaExcepcion() {
-        when(productoRepository.findById(999L)).thenReturn(Optional.empty());
+        cargarSinCache(999L);
+        when(productoRepository.buscarDTOPorId(999L)).thenReturn(Optional.empty());
 
         assertThrows(RecursoNoEncontradoException.class, () -> {
             productoService.obtenerProductoPorId(999L);
         });
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void cuandoObtenerVersionSinProductoEnCache_entoncesLeeSoloLaVersion() {
+        when(cacheReferencia.productoEnCache(1L)).thenReturn(Optional.empty());
+        when(cacheReferencia.versionProducto(eq(1L), any()))
+                .thenAnswer(invocacion -> ((Supplier<Optional<Long>>) invocacion.getArgument(1)).get());
+        when(productoRepository.buscarVersion(1L)).thenReturn(Optional.of(4L));
+
+        assertEquals(4L, productoService.obtenerVersionProducto(1L));
+        verify(productoRepository, never()).buscarDTOPorId(any());
+    }
+
+    @Test
+    void cuandoObtenerVersionConProductoEnCache_entoncesNoConsultaLaBase() {
+        ProductoDTO enCache = dto(productoAhorros);
+        when(cacheReferencia.productoEnCache(1L)).thenReturn(Optional.of(enCache));
+
+        assertEquals(enCache.getVersion(), productoService.obtenerVersionProducto(1L));
+        verifyNoInteractions(productoRepository);
+    }
+
     @Test
     void cuandoObtenerProductosPorCliente_entoncesRetornaLista() {
         when(clienteRepository.existsById(1L)).thenReturn(true);
-        when(productoRepository.findByClienteId(1L))
-                .thenReturn(List.of(productoAhorros, productoCorriente));
+        when(productoRepository.buscarDTOsPorCliente(1L))
+                .thenReturn(List.of(dto(productoAhorros), dto(productoCorriente)));
 
         List<ProductoDTO> resultado = productoService.obtenerProductosPorCliente(1L);
 
@@ -145,19 +183,20 @@ class ProductoServiceTest {
 
     @Test
     void cuandoCambiarEstadoAInactiva_entoncesActualizaEstado() {
-        when(productoRepository.findById(1L)).thenReturn(Optional.of(productoAhorros));
+        when(productoRepository.bloquearParaCambioEstado(1L)).thenReturn(Optional.of(productoAhorros));
         when(productoRepository.save(any(Producto.class))).thenReturn(productoAhorros);
 
         ProductoDTO resultado = productoService.actualizarEstado(1L, Producto.EstadoCuenta.INACTIVA);
 
         assertNotNull(resultado);
         verify(productoRepository, times(1)).save(any(Producto.class));
+        verify(cacheReferencia).invalidarProductos(List.of(1L));
     }
 
     @Test
     void cuandoCancelarCuentaConSaldo_entoncesLanzaExcepcion() {
         productoAhorros.setSaldo(new BigDecimal("500000"));
-        when(productoRepository.findById(1L)).thenReturn(Optional.of(productoAhorros));
+        when(productoRepository.bloquearParaCambioEstado(1L)).thenReturn(Optional.of(productoAhorros));
 
         assertThrows(CuentaNoPuedeCancelarseException.class, () -> {
             productoService.actualizarEstado(1L, Producto.EstadoCuenta.CANCELADA);
@@ -169,7 +208,7 @@ class ProductoServiceTest {
     @Test
     void cuandoCancelarCuentaConSaldoCero_entoncesSeCancela() {
         productoAhorros.setSaldo(BigDecimal.ZERO);
-        when(productoRepository.findById(1L)).thenReturn(Optional.of(productoAhorros));
+        when(productoRepository.bloquearParaCambioEstado(1L)).thenReturn(Optional.of(productoAhorros));
         when(productoRepository.save(any(Producto.class))).thenReturn(productoAhorros);
 
         ProductoDTO resultado = productoService.actualizarEstado(1L, Producto.EstadoCuenta.CANCELADA);
@@ -177,4 +216,67 @@ class ProductoServiceTest {
         assertNotNull(resultado);
         verify(productoRepository, times(1)).save(any(Producto.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    void cuandoConfigurarFranjasDeCuentaActiva_entoncesLanzaExcepcion() {
+        when(productoRepository.bloquearParaCambioEstado(1L)).thenReturn(Optional.of(productoAhorros));
+
+        assertThrows(OperacionNoPermitidaException.class, () -> productoService.configurarFranjas(1L, 8));
+
+        verify(productoRepository, never()).reiniciarFranjas(anyLong(), anyInt());
+    }
+
+    @Test
+    void cuandoConfigurarFranjasFueraDeRango_entoncesLanzaExcepcionSinBloquear() {
+        assertThrows(OperacionNoPermitidaException.class, () -> productoService.configurarFranjas(1L, 0));
+        assertThrows(OperacionNoPermitidaException.class,
+                () -> productoService.configurarFranjas(1L, Producto.MAXIMO_FRANJAS_SALDO + 1));
+
+        verifyNoInteractions(productoRepository);
+    }
+
+    @Test
+    void cuandoConfigurarFranjasDeCuentaInactiva_entoncesReiniciaYCreaLasFranjas() {
+        productoAhorros.setEstado(Producto.EstadoCuenta.INACTIVA);
+        ProductoDTO actualizado = dto(productoAhorros);
+        actualizado.setFranjasSaldo(8);
+        when(productoRepository.bloquearParaCambioEstado(1L)).thenReturn(Optional.of(productoAhorros));
+        when(productoRepository.buscarDTOPorId(1L)).thenReturn(Optional.of(actualizado));
+
+        ProductoDTO resultado = productoService.configurarFranjas(1L, 8);
+
+        assertEquals(8, resultado.getFranjasSaldo());
+        InOrder orden = inOrder(productoRepository);
+        orden.verify(productoRepository).reiniciarFranjas(1L, 8);
+        orden.verify(productoRepository).crearFranjas(1L, 8);
+        verify(cacheReferencia).invalidarProductos(List.of(1L));
+    }
+
+    @Test
+    void cuandoQuitarFranjas_entoncesNoCreaFranjasNuevas() {
+        productoAhorros.setEstado(Producto.EstadoCuenta.INACTIVA);
+        productoAhorros.setFranjasSaldo(8);
+        when(productoRepository.bloquearParaCambioEstado(1L)).thenReturn(Optional.of(productoAhorros));
+        when(productoRepository.buscarDTOPorId(1L)).thenReturn(Optional.of(dto(productoAhorros)));
+
+        productoService.configurarFranjas(1L, 1);
+
+        verify(productoRepository).reiniciarFranjas(1L, 1);
+        verify(productoRepository, never()).crearFranjas(anyLong(), anyInt());
+    }
+
+    private ProductoDTO dto(Producto producto) {
+        return new ProductoDTO(producto.getId(), producto.getTipoCuenta(), producto.getNumeroCuenta(),
+                producto.getEstado(), producto.getSaldo(), producto.getFranjasSaldo(), producto.getExentaGMF(),
+                producto.getFechaCreacion(), producto.getFechaModificacion(), producto.getCliente().getId(),
+                producto.getCliente().getNombres() + " " + producto.getCliente().getApellido(),
+                producto.getVersion() + producto.getVersionSaldo());
+    }
+
+    // La cache simulada siempre falla y delega en la carga
+    @SuppressWarnings("unchecked")
+    private void cargarSinCache(Long id) {
+        when(cacheReferencia.producto(eq(id), any()))
+                .thenAnswer(invocacion -> ((Supplier<Optional<ProductoDTO>>) invocacion.getArgument(1)).get());
+    }
+}
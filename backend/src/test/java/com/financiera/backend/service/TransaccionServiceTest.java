@@ -1,30 +1,46 @@
 package com.financiera.backend.service;
 
 import com.financiera.backend.dto.ConsignacionDTO;
+import com.financiera.backend.dto.ConsultaSaldosAFechaDTO;
+import com.financiera.backend.dto.EstadoCuentaDTO;
+import com.financiera.backend.dto.FiltroEstadoCuentaDTO;
+import com.financiera.backend.dto.PaginaDTO;
 import com.financiera.backend.dto.RetiroDTO;
+import com.financiera.backend.dto.SaldoAFechaDTO;
 import com.financiera.backend.dto.TransaccionDTO;
 import com.financiera.backend.dto.TransferenciaDTO;
 import com.financiera.backend.entity.Cliente;
 import com.financiera.backend.entity.Producto;
 import com.financiera.backend.entity.Transaccion;
+import com.financiera.backend.exception.clientes.RecursoNoEncontradoException;
 import com.financiera.backend.exception.transacciones.CuentaInactivaException;
+import com.financiera.backend.exception.transacciones.ParametroConsultaInvalidoException;
 import com.financiera.backend.exception.productos.OperacionNoPermitidaException;
 import com.financiera.backend.exception.productos.SaldoInsuficienteException;
 import com.financiera.backend.repository.ProductoRepository;
 import com.financiera.backend.repository.TransaccionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -36,6 +52,21 @@ class TransaccionServiceTest {
     @Mock
     private ProductoRepository productoRepository;
 
+    @Mock
+    private CacheReferencia cacheReferencia;
+
+    @Mock
+    private BloqueoCuentasService bloqueoCuentas;
+
+    @Mock
+    private ArchivoTransaccionesService archivoTransacciones;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private LecturasCompartidas lecturasCompartidas = new LecturasCompartidas(new SimpleMeterRegistry());
+
     @InjectMocks
     private TransaccionService transaccionService;
 
@@ -71,7 +102,7 @@ class TransaccionServiceTest {
         transaccion.setTipoTransaccion(Transaccion.TipoTransaccion.CONSIGNACION);
         transaccion.setTipoMovimiento(Transaccion.TipoMovimiento.CREDITO);
         transaccion.setMonto(new BigDecimal("500000"));
-        transaccion.setSaldoDespues(new BigDecimal("1500000"));
+        transaccion.setSaldoAlRegistrar(new BigDecimal("1500000"));
         transaccion.setCuentaOrigen(cuentaAhorros);
     }
 
@@ -82,16 +113,33 @@ class TransaccionServiceTest {
         dto.setMonto(new BigDecimal("500000"));
         dto.setDescripcion("Consignación test");
 
-        when(productoRepository.findById(1L)).thenReturn(Optional.of(cuentaAhorros));
-        when(productoRepository.save(any(Producto.class))).thenReturn(cuentaAhorros);
-        when(transaccionRepository.save(any(Transaccion.class))).thenReturn(transaccion);
+        when(transaccionRepository.aplicarMovimiento(1L, Transaccion.TipoTransaccion.CONSIGNACION,
+                Transaccion.TipoMovimiento.CREDITO, new BigDecimal("500000"), "Consignación test"))
+                .thenReturn(Optional.of(movimiento(transaccion)));
 
         TransaccionDTO resultado = transaccionService.realizarConsignacion(dto);
 
         assertNotNull(resultado);
         assertEquals(Transaccion.TipoMovimiento.CREDITO, resultado.getTipoMovimiento());
-        verify(productoRepository, times(1)).save(any(Producto.class));
-        verify(transaccionRepository, times(1)).save(any(Transaccion.class));
+        assertEquals(new BigDecimal("1500000"), resultado.getSaldoAlRegistrar());
+        verify(productoRepository, never()).findById(any());
+        verify(productoRepository, never()).save(any(Producto.class));
+        verify(cacheReferencia).invalidarProductos(List.of(1L));
+    }
+
+    @Test
+    void cuandoConsignacionSinDescripcion_entoncesUsaDescripcionPorDefecto() {
+        ConsignacionDTO dto = new ConsignacionDTO();
+        dto.setCuentaId(1L);
+        dto.setMonto(new BigDecimal("500000"));
+
+        when(transaccionRepository.aplicarMovimiento(any(), any(), any(), any(), any()))
+                .thenReturn(Optional.of(movimiento(transaccion)));
+
+        transaccionService.realizarConsignacion(dto);
+
+        verify(transaccionRepository).aplicarMovimiento(1L, Transaccion.TipoTransaccion.CONSIGNACION,
+                Transaccion.TipoMovimiento.CREDITO, new BigDecimal("500000"), "Consignación");
     }
 
     @Test
@@ -101,13 +149,28 @@ class TransaccionServiceTest {
         dto.setCuentaId(1L);
         dto.setMonto(new BigDecimal("500000"));
 
+        when(transaccionRepository.aplicarMovimiento(any(), any(), any(), any(), any()))
+                .thenReturn(Optional.empty());
         when(productoRepository.findById(1L)).thenReturn(Optional.of(cuentaAhorros));
 
         assertThrows(CuentaInactivaException.class, () -> {
             transaccionService.realizarConsignacion(dto);
         });
+    }
 
-        verify(transaccionRepository, never()).save(any(Transaccion.class));
+    @Test
+    void cuandoConsignacionEnCuentaInexistente_entoncesLanzaExcepcion() {
+        ConsignacionDTO dto = new ConsignacionDTO();
+        dto.setCuentaId(99L);
+        dto.setMonto(new BigDecimal("500000"));
+
+        when(transaccionRepository.aplicarMovimiento(any(), any(), any(), any(), any()))
+                .thenReturn(Optional.empty());
+        when(productoRepository.findById(99L)).thenReturn(Optional.empty());
+
+        assertThrows(RecursoNoEncontradoException.class, () -> {
+            transaccionService.realizarConsignacion(dto);
+        });
     }
 
 
@@ -120,21 +183,27 @@ class TransaccionServiceTest {
 
         Transaccion transaccionRetiro = new Transaccion();
         transaccionRetiro.setId(2L);
+        transaccionRetiro.setTipoTransaccion(Transaccion.TipoTransaccion.RETIRO);
         transaccionRetiro.setTipoMovimiento(Transaccion.TipoMovimiento.DEBITO);
         transaccionRetiro.setMonto(new BigDecimal("200000"));
-        transaccionRetiro.setSaldoDespues(new BigDecimal("800000"));
+        transaccionRetiro.setSaldoAlRegistrar(new BigDecimal("800000"));
         transaccionRetiro.setCuentaOrigen(cuentaAhorros);
 
-        when(productoRepository.findById(1L)).thenReturn(Optional.of(cuentaAhorros));
-        when(productoRepository.save(any(Producto.class))).thenReturn(cuentaAhorros);
-        when(transaccionRepository.save(any(Transaccion.class))).thenReturn(transaccionRetiro);
+        when(transaccionRepository.aplicarMovimiento(1L, Transaccion.TipoTransaccion.RETIRO,
+                Transaccion.TipoMovimiento.DEBITO, new BigDecimal("200000"), "Retiro test"))
+                .thenReturn(Optional.of(movimiento(transaccionRetiro)));
 
 
         TransaccionDTO resultado = transaccionService.realizarRetiro(dto);
 
         assertNotNull(resultado);
         assertEquals(Transaccion.TipoMovimiento.DEBITO, resultado.getTipoMovimiento());
-        verify(productoRepository, times(1)).save(any(Producto.class));
+        assertEquals(new BigDecimal("800000"), resultado.getSaldoAlRegistrar());
+        // El bloqueo va antes del movimiento para que este valide el saldo con los créditos ya confirmados
+        InOrder orden = inOrder(bloqueoCuentas, transaccionRepository);
+        orden.verify(bloqueoCuentas).bloquearSaldos("retiro", List.of(1L));
+        orden.verify(transaccionRepository).aplicarMovimiento(any(), any(), any(), any(), any());
+        verify(productoRepository, never()).save(any(Producto.class));
     }
 
     @Test
@@ -143,13 +212,28 @@ class TransaccionServiceTest {
         dto.setCuentaId(1L);
         dto.setMonto(new BigDecimal("9999999"));
 
+        when(transaccionRepository.aplicarMovimiento(any(), any(), any(), any(), any()))
+                .thenReturn(Optional.empty());
         when(productoRepository.findById(1L)).thenReturn(Optional.of(cuentaAhorros));
 
         assertThrows(SaldoInsuficienteException.class, () -> {
             transaccionService.realizarRetiro(dto);
         });
+    }
 
-        verify(transaccionRepository, never()).save(any(Transaccion.class));
+    @Test
+    void cuandoRetiroRechazadoSinCausaDeNegocio_entoncesLanzaConflictoDeConcurrencia() {
+        RetiroDTO dto = new RetiroDTO();
+        dto.setCuentaId(1L);
+        dto.setMonto(new BigDecimal("200000"));
+
+        when(transaccionRepository.aplicarMovimiento(any(), any(), any(), any(), any()))
+                .thenReturn(Optional.empty());
+        when(productoRepository.findById(1L)).thenReturn(Optional.of(cuentaAhorros));
+
+        assertThrows(ConcurrencyFailureException.class, () -> {
+            transaccionService.realizarRetiro(dto);
+        });
     }
 
     @Test
@@ -161,19 +245,19 @@ class TransaccionServiceTest {
 
         Transaccion transaccionRetiro = new Transaccion();
         transaccionRetiro.setId(3L);
+        transaccionRetiro.setTipoTransaccion(Transaccion.TipoTransaccion.RETIRO);
         transaccionRetiro.setTipoMovimiento(Transaccion.TipoMovimiento.DEBITO);
         transaccionRetiro.setMonto(new BigDecimal("200000"));
-        transaccionRetiro.setSaldoDespues(new BigDecimal("-100000"));
+        transaccionRetiro.setSaldoAlRegistrar(new BigDecimal("-100000"));
         transaccionRetiro.setCuentaOrigen(cuentaCorriente);
 
-        when(productoRepository.findById(2L)).thenReturn(Optional.of(cuentaCorriente));
-        when(productoRepository.save(any(Producto.class))).thenReturn(cuentaCorriente);
-        when(transaccionRepository.save(any(Transaccion.class))).thenReturn(transaccionRetiro);
+        when(transaccionRepository.aplicarMovimiento(eq(2L), any(), any(), any(), any()))
+                .thenReturn(Optional.of(movimiento(transaccionRetiro)));
 
         TransaccionDTO resultado = transaccionService.realizarRetiro(dto);
 
         assertNotNull(resultado);
-        verify(transaccionRepository, times(1)).save(any(Transaccion.class));
+        assertEquals(new BigDecimal("-100000"), resultado.getSaldoAlRegistrar());
     }
 
 
@@ -188,35 +272,35 @@ class TransaccionServiceTest {
 
         Transaccion debito = new Transaccion();
         debito.setId(1L);
+        debito.setTipoTransaccion(Transaccion.TipoTransaccion.TRANSFERENCIA);
         debito.setTipoMovimiento(Transaccion.TipoMovimiento.DEBITO);
         debito.setMonto(new BigDecimal("300000"));
-        debito.setSaldoDespues(new BigDecimal("700000"));
+        debito.setSaldoAlRegistrar(new BigDecimal("700000"));
         debito.setCuentaOrigen(cuentaAhorros);
         debito.setCuentaDestino(cuentaCorriente);
 
         Transaccion credito = new Transaccion();
         credito.setId(2L);
+        credito.setTipoTransaccion(Transaccion.TipoTransaccion.TRANSFERENCIA);
         credito.setTipoMovimiento(Transaccion.TipoMovimiento.CREDITO);
         credito.setMonto(new BigDecimal("300000"));
-        credito.setSaldoDespues(new BigDecimal("800000"));
+        credito.setSaldoAlRegistrar(new BigDecimal("800000"));
         credito.setCuentaOrigen(cuentaCorriente);
         credito.setCuentaDestino(cuentaAhorros);
 
-        when(productoRepository.findById(1L)).thenReturn(Optional.of(cuentaAhorros));
-        when(productoRepository.findById(2L)).thenReturn(Optional.of(cuentaCorriente));
-        when(productoRepository.save(any(Producto.class)))
-                .thenReturn(cuentaAhorros)
-                .thenReturn(cuentaCorriente);
-        when(transaccionRepository.save(any(Transaccion.class)))
-                .thenReturn(debito)
-                .thenReturn(credito);
+        when(transaccionRepository.aplicarTransferencia(1L, 2L, new BigDecimal("300000"), "Transferencia test"))
+                .thenReturn(List.of(movimiento(debito), movimiento(credito)));
 
         List<TransaccionDTO> resultado = transaccionService.realizarTransferencia(dto);
 
         assertNotNull(resultado);
         assertEquals(2, resultado.size());
-        verify(transaccionRepository, times(2)).save(any(Transaccion.class));
-        verify(productoRepository, times(2)).save(any(Producto.class));
+        assertEquals(Transaccion.TipoMovimiento.DEBITO, resultado.get(0).getTipoMovimiento());
+        assertEquals(Transaccion.TipoMovimiento.CREDITO, resultado.get(1).getTipoMovimiento());
+        // Solo el origen se bloquea; el crédito en destino no toma un bloqueo que choque con otros movimientos
+        verify(bloqueoCuentas).bloquearSaldos("transferencia", List.of(1L));
+        verify(productoRepository, never()).save(any(Producto.class));
+        verify(cacheReferencia).invalidarProductos(List.of(1L, 2L));
     }
 
     @Test
@@ -230,7 +314,8 @@ class TransaccionServiceTest {
             transaccionService.realizarTransferencia(dto);
         });
 
-        verify(transaccionRepository, never()).save(any(Transaccion.class));
+        verify(bloqueoCuentas, never()).bloquearSaldos(any(), any());
+        verify(transaccionRepository, never()).aplicarTransferencia(any(), any(), any(), any());
     }
 
     @Test
@@ -240,13 +325,198 @@ class TransaccionServiceTest {
         dto.setCuentaDestinoId(2L);
         dto.setMonto(new BigDecimal("9999999"));
 
+        when(transaccionRepository.aplicarTransferencia(any(), any(), any(), any())).thenReturn(List.of());
         when(productoRepository.findById(1L)).thenReturn(Optional.of(cuentaAhorros));
         when(productoRepository.findById(2L)).thenReturn(Optional.of(cuentaCorriente));
 
         assertThrows(SaldoInsuficienteException.class, () -> {
             transaccionService.realizarTransferencia(dto);
         });
+    }
+
+    @Test
+    void cuandoTransferenciaADestinoInactivo_entoncesLanzaExcepcion() {
+        cuentaCorriente.setEstado(Producto.EstadoCuenta.INACTIVA);
+        TransferenciaDTO dto = new TransferenciaDTO();
+        dto.setCuentaOrigenId(1L);
+        dto.setCuentaDestinoId(2L);
+        dto.setMonto(new BigDecimal("100000"));
+
+        when(transaccionRepository.aplicarTransferencia(any(), any(), any(), any())).thenReturn(List.of());
+        when(productoRepository.findById(1L)).thenReturn(Optional.of(cuentaAhorros));
+        when(productoRepository.findById(2L)).thenReturn(Optional.of(cuentaCorriente));
+
+        assertThrows(CuentaInactivaException.class, () -> {
+            transaccionService.realizarTransferencia(dto);
+        });
+    }
+
+    @Test
+    void cuandoEstadoCuentaTieneMasFilasQueLaPagina_entoncesRetornaCursorDeLaUltima() {
+        TransaccionDTO reciente = movimiento(transaccion);
+        reciente.setFechaTransaccion(LocalDateTime.of(2025, 3, 2, 10, 0));
+        TransaccionDTO anterior = movimiento(transaccion);
+        anterior.setId(2L);
+        anterior.setFechaTransaccion(LocalDateTime.of(2025, 3, 1, 9, 30));
+
+        FiltroEstadoCuentaDTO filtro = new FiltroEstadoCuentaDTO();
+        filtro.setTamano(1);
+        filtro.setHasta(LocalDate.of(2025, 3, 31));
+
+        when(productoRepository.buscarVersion(1L)).thenReturn(Optional.of(7L));
+        when(transaccionRepository.buscarEstadoCuenta(1L, null, LocalDateTime.of(2025, 4, 1, 0, 0),
+                null, null, null, 2)).thenReturn(List.of(reciente, anterior));
+
+        EstadoCuentaDTO estadoCuenta = transaccionService.obtenerEstadoCuenta(1L, filtro, null);
+        PaginaDTO<TransaccionDTO> pagina = estadoCuenta.getPagina();
+
+        assertEquals(7L, estadoCuenta.getVersion());
+
+        assertEquals(1, pagina.getContenido().size());
+        assertNotNull(pagina.getSiguienteCursor());
+
+        // La página siguiente continúa justo después de la última fila entregada
+        filtro.setCursor(pagina.getSiguienteCursor());
+        when(transaccionRepository.buscarEstadoCuenta(1L, null, LocalDateTime.of(2025, 4, 1, 0, 0),
+                null, reciente.getFechaTransaccion(), 1L, 2)).thenReturn(List.of(anterior));
+
+        PaginaDTO<TransaccionDTO> siguiente = transaccionService.obtenerEstadoCuenta(1L, filtro, null).getPagina();
+
+        assertEquals(List.of(anterior), siguiente.getContenido());
+        assertNull(siguiente.getSiguienteCursor());
+    }
+
+    @Test
+    void cuandoEstadoCuentaConCursorInvalido_entoncesLanzaExcepcion() {
+        FiltroEstadoCuentaDTO filtro = new FiltroEstadoCuentaDTO();
+        filtro.setCursor("no-es-un-cursor");
+
+        assertThrows(ParametroConsultaInvalidoException.class, () -> {
+            transaccionService.obtenerEstadoCuenta(1L, filtro, null);
+        });
+        verify(transaccionRepository, never()).buscarEstadoCuenta(any(), any(), any(), any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void cuandoEstadoCuentaConRangoInvertido_entoncesLanzaExcepcion() {
+        FiltroEstadoCuentaDTO filtro = new FiltroEstadoCuentaDTO();
+        filtro.setDesde(LocalDate.of(2025, 3, 31));
+        filtro.setHasta(LocalDate.of(2025, 3, 1));
+
+        assertThrows(ParametroConsultaInvalidoException.class, () -> {
+            transaccionService.obtenerEstadoCuenta(1L, filtro, null);
+        });
+    }
+
+    @Test
+    void cuandoEstadoCuentaNoCambioDesdeLaVersion_entoncesNoConsultaLosMovimientos() {
+        when(cacheReferencia.versionProducto(eq(1L), any())).thenReturn(Optional.of(7L));
+
+        EstadoCuentaDTO estadoCuenta = transaccionService.obtenerEstadoCuenta(
+                1L, new FiltroEstadoCuentaDTO(), version -> version == 7L);
+
+        assertEquals(7L, estadoCuenta.getVersion());
+        assertNull(estadoCuenta.getPagina());
+        verify(transaccionRepository, never()).buscarEstadoCuenta(any(), any(), any(), any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void cuandoEstadoCuentaLlegaALaFronteraDelArchivo_entoncesCompletaLaPaginaConMovimientosArchivados() {
+        LocalDateTime frontera = LocalDateTime.of(2025, 1, 1, 0, 0);
+        TransaccionDTO reciente = movimiento(transaccion);
+        reciente.setFechaTransaccion(LocalDateTime.of(2025, 1, 5, 10, 0));
+        TransaccionDTO archivado = movimiento(transaccion);
+        archivado.setId(2L);
+        archivado.setFechaTransaccion(LocalDateTime.of(2024, 12, 20, 9, 30));
+
+        FiltroEstadoCuentaDTO filtro = new FiltroEstadoCuentaDTO();
+        filtro.setTamano(2);
+
+        when(productoRepository.buscarVersion(1L)).thenReturn(Optional.of(7L));
+        when(archivoTransacciones.frontera()).thenReturn(frontera);
+        // La base solo se consulta desde la frontera
+        when(transaccionRepository.buscarEstadoCuenta(1L, frontera, null, null, null, null, 3))
+                .thenReturn(List.of(reciente));
+        when(archivoTransacciones.buscarEstadoCuenta(1L, null, null, null, null, null, 2))
+                .thenReturn(List.of(archivado));
+
+        PaginaDTO<TransaccionDTO> pagina = transaccionService.obtenerEstadoCuenta(1L, filtro, null).getPagina();
+
+        assertEquals(List.of(reciente, archivado), pagina.getContenido());
+        assertNull(pagina.getSiguienteCursor());
+    }
+
+    @Test
+    void cuandoSaldoAFechaAnteriorALaFrontera_entoncesSumaElMesDesdeElArchivo() {
+        LocalDateTime fecha = LocalDateTime.of(2024, 6, 30, 0, 0);
+        LocalDateTime frontera = LocalDateTime.of(2025, 1, 1, 0, 0);
+        // La base solo aporta el cierre de mayo: los movimientos de junio están archivados
+        SaldoAFechaDTO cierreMayo = new SaldoAFechaDTO(1L, "5312345678", fecha, new BigDecimal("1000000"), null, null);
+        TransaccionDTO archivado = movimiento(transaccion);
+        archivado.setFechaTransaccion(LocalDateTime.of(2024, 6, 10, 8, 0));
+        when(archivoTransacciones.frontera()).thenReturn(frontera);
+        when(transaccionRepository.buscarSaldosAFecha(List.of(1L), fecha, frontera)).thenReturn(List.of(cierreMayo));
+        when(archivoTransacciones.buscarMovimientosPropios(1L, LocalDateTime.of(2024, 6, 1, 0, 0), fecha.plusNanos(1)))
+                .thenReturn(List.of(archivado));
+        when(archivoTransacciones.buscarUltimoMovimientoPropio(1L, fecha)).thenReturn(Optional.of(archivado));
+
+        SaldoAFechaDTO saldo = transaccionService.obtenerSaldoAFecha(1L, fecha);
+
+        assertEquals(0, archivado.getSaldoAlRegistrar().compareTo(saldo.getSaldo()));
+        assertEquals(archivado.getId(), saldo.getTransaccionId());
+        assertEquals(archivado.getFechaTransaccion(), saldo.getFechaTransaccion());
+    }
+
+    private TransaccionDTO movimiento(Transaccion transaccion) {
+        TransaccionDTO dto = new TransaccionDTO();
+        dto.setId(transaccion.getId());
+        dto.setTipoTransaccion(transaccion.getTipoTransaccion());
+        dto.setTipoMovimiento(transaccion.getTipoMovimiento());
+        dto.setMonto(transaccion.getMonto());
+        dto.setSaldoAlRegistrar(transaccion.getSaldoAlRegistrar());
+        dto.setCuentaOrigenId(transaccion.getCuentaOrigen().getId());
+        dto.setNumeroCuentaOrigen(transaccion.getCuentaOrigen().getNumeroCuenta());
+        if (transaccion.getCuentaDestino() != null) {
+            dto.setCuentaDestinoId(transaccion.getCuentaDestino().getId());
+            dto.setNumeroCuentaDestino(transaccion.getCuentaDestino().getNumeroCuenta());
+        }
+        return dto;
+    }
+
+    @Test
+    void cuandoObtenerSaldoAFecha_entoncesRetornaElSaldoDeLaBase() {
+        LocalDateTime fecha = LocalDateTime.of(2025, 3, 31, 23, 59, 59);
+        SaldoAFechaDTO saldo = new SaldoAFechaDTO(1L, "5312345678", fecha, new BigDecimal("1500000"),
+                7L, LocalDateTime.of(2025, 3, 30, 10, 0));
+        when(transaccionRepository.buscarSaldosAFecha(List.of(1L), fecha, null)).thenReturn(List.of(saldo));
+
+        assertEquals(saldo, transaccionService.obtenerSaldoAFecha(1L, fecha));
+        verify(productoRepository, never()).existsById(any());
+    }
+
+    @Test
+    void cuandoObtenerSaldoAFechaAntesDeCrearLaCuenta_entoncesLanzaExcepcion() {
+        LocalDateTime fecha = LocalDateTime.of(2020, 1, 1, 0, 0);
+        when(transaccionRepository.buscarSaldosAFecha(List.of(1L), fecha, null)).thenReturn(List.of());
+        when(productoRepository.existsById(1L)).thenReturn(true);
+
+        assertThrows(ParametroConsultaInvalidoException.class, () -> transaccionService.obtenerSaldoAFecha(1L, fecha));
+    }
+
+    @Test
+    void cuandoObtenerSaldoAFechaDeCuentaInexistente_entoncesLanzaExcepcion() {
+        LocalDateTime fecha = LocalDateTime.of(2025, 1, 1, 0, 0);
+        when(transaccionRepository.buscarSaldosAFecha(List.of(99L), fecha, null)).thenReturn(List.of());
+        when(productoRepository.existsById(99L)).thenReturn(false);
+
+        assertThrows(RecursoNoEncontradoException.class, () -> transaccionService.obtenerSaldoAFecha(99L, fecha));
+    }
+
+    @Test
+    void cuandoObtenerSaldosAFechaFutura_entoncesLanzaExcepcionSinConsultar() {
+        ConsultaSaldosAFechaDTO consulta = new ConsultaSaldosAFechaDTO(LocalDateTime.now().plusDays(1), List.of(1L, 2L));
 
-        verify(transaccionRepository, never()).save(any(Transaccion.class));
+        assertThrows(ParametroConsultaInvalidoException.class, () -> transaccionService.obtenerSaldosAFecha(consulta));
+        verifyNoInteractions(transaccionRepository);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,52 @@
+package com.financiera.backend.soporte;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Cuenta las sentencias SQL enviadas a la base a través del DataSource de la aplicación.
+ * Un lote JDBC cuenta como una sola ejecución, igual que un viaje a la base.
+ */
+public class ContadorSentencias implements QueryExecutionListener {
+
+    private final List<String> sentencias = new CopyOnWriteArrayList<>();
+
+    @FunctionalInterface
+    public interface Accion {
+        void ejecutar() throws Exception;
+    }
+
+    public void reiniciar() {
+        sentencias.clear();
+    }
+
+    public int total() {
+        return sentencias.size();
+    }
+
+    // Ejecuta la acción y falla si envió más sentencias que las permitidas
+    public void verificarPresupuesto(String descripcion, int maximo, Accion accion) throws Exception {
+        reiniciar();
+        accion.ejecutar();
+
+        if (total() > maximo) {
+            fail(descripcion + " ejecutó " + total() + " sentencias SQL; el máximo permitido es " + maximo
+                    + ":\n  " + String.join("\n  ", sentencias));
+        }
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        sentencias.add(queryInfoList.isEmpty() ? "?" : queryInfoList.get(0).getQuery().strip());
+    }
+}
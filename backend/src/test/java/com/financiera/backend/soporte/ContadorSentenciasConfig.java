@@ -0,0 +1,35 @@
+package com.financiera.backend.soporte;
+
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+
+@TestConfiguration(proxyBeanMethods = false)
+public class ContadorSentenciasConfig {
+
+    @Bean
+    public ContadorSentencias contadorSentencias() {
+        return new ContadorSentencias();
+    }
+
+    // Envuelve el DataSource de la aplicación para que todas las sentencias pasen por el contador
+    @Bean
+    public static BeanPostProcessor proxyContadorSentencias(ObjectProvider<ContadorSentencias> contador) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource) {
+                    return ProxyDataSourceBuilder.create(dataSource)
+                            .name("contador-sentencias")
+                            .listener(contador.getObject())
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+}
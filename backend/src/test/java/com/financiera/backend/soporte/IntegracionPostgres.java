@@ -0,0 +1,112 @@
+package com.financiera.backend.soporte;
+
+import com.financiera.backend.entity.Cliente;
+import com.financiera.backend.entity.Producto;
+import com.financiera.backend.repository.ClienteRepository;
+import com.financiera.backend.repository.ProductoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Base de las pruebas de integración contra PostgreSQL real (Testcontainers). Sin Docker disponible
+ * las pruebas se omiten (disabledWithoutDocker). El esquema se crea igual que en producción: Hibernate y luego schema.sql.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=update",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+        "spring.jpa.properties.hibernate.order_inserts=true",
+        "spring.jpa.properties.hibernate.order_updates=true",
+        "spring.jpa.properties.hibernate.id.optimizer.pooled.preferred=pooled-lo",
+        "spring.sql.init.mode=always",
+        "spring.jpa.defer-datasource-initialization=true",
+        "spring.sql.init.separator=^^^ END OF SCRIPT ^^^",
+        "financiera.saldos.consolidacion-habilitada=false",
+        "financiera.cuentas.clave-permutacion=20250101"
+})
+@AutoConfigureMockMvc
+@Testcontainers(disabledWithoutDocker = true)
+@Import({IntegracionPostgres.ContenedorPostgres.class, ContadorSentenciasConfig.class})
+public abstract class IntegracionPostgres {
+
+    @Autowired
+    protected ContadorSentencias contadorSentencias;
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    protected ClienteRepository clienteRepository;
+
+    @Autowired
+    protected ProductoRepository productoRepository;
+
+    private final AtomicInteger consecutivo = new AtomicInteger();
+
+    @BeforeEach
+    void limpiarBase() {
+        jdbcTemplate.execute("TRUNCATE cierres_mensuales, transacciones, franjas_saldo, saldos_productos, productos, clientes");
+    }
+
+    // Metodos auxiliares
+
+    protected Cliente crearCliente() {
+        int numero = consecutivo.incrementAndGet();
+        Cliente cliente = new Cliente();
+        cliente.setTipoIdentificacion("CC");
+        cliente.setNumeroIdentificacion("10" + numero);
+        cliente.setNombres("Cliente");
+        cliente.setApellido("Prueba " + numero);
+        cliente.setCorreoElectronico("cliente" + numero + "@prueba.com");
+        cliente.setFechaNacimiento(LocalDate.of(1990, 1, 1));
+        return clienteRepository.save(cliente);
+    }
+
+    // El saldo de la cuenta sale de sus movimientos: un saldo inicial distinto de cero se registra como una
+    // consignación de apertura
+    protected Producto crearCuenta(Cliente cliente, Producto.TipoCuenta tipoCuenta, String saldo) {
+        Producto cuenta = new Producto();
+        cuenta.setTipoCuenta(tipoCuenta);
+        cuenta.setNumeroCuenta(String.format("%s%08d",
+                tipoCuenta == Producto.TipoCuenta.CUENTA_AHORROS ? "53" : "33", consecutivo.incrementAndGet()));
+        cuenta.setEstado(Producto.EstadoCuenta.ACTIVA);
+        cuenta.setExentaGMF(false);
+        cuenta.setCliente(cliente);
+        Producto guardada = productoRepository.save(cuenta);
+
+        BigDecimal apertura = new BigDecimal(saldo);
+        if (apertura.signum() != 0) {
+            jdbcTemplate.update("""
+                            INSERT INTO transacciones (id, tipo_transaccion, tipo_movimiento, monto, descripcion,
+                                                       fecha_transaccion, cuenta_origen_id, saldo_despues)
+                            VALUES (nextval('transacciones_seq'), 'CONSIGNACION', 'CREDITO', ?, 'Apertura',
+                                    LOCALTIMESTAMP, ?, ?)
+                            """, apertura, guardada.getId(), apertura);
+        }
+        guardada.setSaldo(apertura);
+        return guardada;
+    }
+
+    // El contenedor vive con el contexto de Spring, que se comparte entre todas las clases de prueba
+    @TestConfiguration(proxyBeanMethods = false)
+    static class ContenedorPostgres {
+
+        @Bean
+        @ServiceConnection
+        PostgreSQLContainer<?> postgres() {
+            return new PostgreSQLContainer<>("postgres:16-alpine");
+        }
+    }
+}